@@ -34,13 +34,16 @@ import com.google.common.collect.ImmutableList;
 
 /**
  * Does an additive blend of the rotations of two or more joints and all their children:<br>
- * qOut = qBase * q1 * q2 * ...
+ * qOut = qBase * q1 * q2 * ...<br>
+ * The blender configuration is compiled into an immutable BlendPlan over the raw VJoint rotation buffers. Modifications of
+ * the configuration are synchronized among each other, and install a new plan; blend itself does not lock.
  * 
  * @author welberge
  */
 public class AdditiveRotationBlend
 {
     private List<Blender> blenders = Collections.synchronizedList(new ArrayList<Blender>());
+    private volatile BlendPlan plan;
 
     /**
      * Constructor Assumes that v1.getParts(), v2.getParts() and vOut.getParts()
@@ -73,6 +76,7 @@ public class AdditiveRotationBlend
             blenders.add(b);
             i++;
         }
+        compile();
     }
 
     public void addVJoint(VJoint vj, Set<String> sids)
@@ -89,6 +93,7 @@ public class AdditiveRotationBlend
                 }
                 i++;
             }
+            compile();
         }
     }
 
@@ -103,6 +108,7 @@ public class AdditiveRotationBlend
                 b.vjList.add(vjPart);
                 i++;
             }
+            compile();
         }
     }
 
@@ -117,6 +123,7 @@ public class AdditiveRotationBlend
                 b.vjList.remove(vjPart);
                 i++;
             }
+            compile();
         }
     }
 
@@ -154,6 +161,19 @@ public class AdditiveRotationBlend
             {
                 b.vjList.clear();
             }
+            compile();
+        }
+    }
+
+    /**
+     * Compiles the current configuration into a new BlendPlan, and installs it. Called after every modification of the
+     * configuration.
+     */
+    public void compile()
+    {
+        synchronized (blenders)
+        {
+            plan = new BlendPlan(blenders);
         }
     }
 
@@ -164,19 +184,58 @@ public class AdditiveRotationBlend
      */
     public void blend()
     {
-        float qOut[] = Quat4f.getIdentity();
-        float q[] = Quat4f.getQuat4f();
-        synchronized (blenders)
+        final BlendPlan p = plan;
+        final VJoint[] base = p.baseJoints;
+        final VJoint[] out = p.outJoints;
+        final VJoint[] add = p.addJoints;
+        final int[] addStart = p.addStart;
+        float qOut[] = Quat4f.getQuat4f();
+        for (int i = 0; i < base.length; i++)
         {
-            for (Blender b : blenders)
+            Quat4f.set(qOut, base[i].getRotationRef());
+            for (int k = addStart[i]; k < addStart[i + 1]; k++)
             {
-                b.vBase.getRotation(qOut);
-                for (VJoint vj : b.vjList)
+                Quat4f.mul(qOut, add[k].getRotationRef());
+            }
+            out[i].setRotation(qOut);
+        }
+    }
+
+    /*
+     * An immutable blend plan: for output joint i, the base joint, and the additive joints addJoints[addStart[i]] up to
+     * addJoints[addStart[i+1]]. Input rotations are read directly from the VJoint rotation buffers, which are looked up for every blend,
+     * so buffers replaced by VJoint.setMaster are picked up. Output rotations are set by means of setRotation, which invalidates the local matrix.
+     */
+    private static final class BlendPlan
+    {
+        final VJoint[] baseJoints;
+        final VJoint[] outJoints;
+        final VJoint[] addJoints;
+        final int[] addStart;
+
+        BlendPlan(List<Blender> blenders)
+        {
+            int nrOfBlenders = blenders.size();
+            baseJoints = new VJoint[nrOfBlenders];
+            outJoints = new VJoint[nrOfBlenders];
+            addStart = new int[nrOfBlenders + 1];
+            int nrOfAdds = 0;
+            for (int i = 0; i < nrOfBlenders; i++)
+            {
+                addStart[i] = nrOfAdds;
+                nrOfAdds += blenders.get(i).vjList.size();
+            }
+            addStart[nrOfBlenders] = nrOfAdds;
+            addJoints = new VJoint[nrOfAdds];
+            for (int i = 0; i < nrOfBlenders; i++)
+            {
+                Blender b = blenders.get(i);
+                baseJoints[i] = b.vBase;
+                outJoints[i] = b.vOut;
+                for (int k = 0; k < b.vjList.size(); k++)
                 {
-                    vj.getRotation(q);
-                    Quat4f.mul(qOut, q);
+                    addJoints[addStart[i] + k] = b.vjList.get(k);
                 }
-                b.vOut.setRotation(qOut);
             }
         }
     }
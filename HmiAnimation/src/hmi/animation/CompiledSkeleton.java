@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.animation;
+
+import hmi.math.Mat4f;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A compiled, structure-of-arrays, representation of one or more VJoint trees. The joints are stored in topological order
+ * (parents before children), with an array of parent indices, and with all local and global matrices inside two flat float
+ * arrays, 16 floats per joint. All global matrices are calculated in a single forward loop over the joints, rather than by
+ * means of a recursive tree walk. Every joint has a dirty bit for its local matrix; joints that have no dirty ancestor
+ * (including the joint itself) keep their global matrix, so unchanged subtrees are skipped. Like VJoint.calculateMatrices(),
+ * the global matrices of the roots are equal to their local matrices.
+ * The VJoint tree structure is fixed at construction time; when joints are added or removed, a new CompiledSkeleton must be
+ * created.
+ */
+public class CompiledSkeleton
+{
+    private static final int MATSIZE = 16;
+
+    private final VJoint[] joints; // joints, in topological order
+    private final int[] parentIndex; // parentIndex[i] < i, or -1 for roots
+    private final float[] localMatrices;
+    private final float[] globalMatrices;
+    private final boolean[] dirty; // local matrix modified since the last calculateGlobalMatrices call
+    private final boolean[] changed; // global matrix modified by the last calculateGlobalMatrices call
+
+    /**
+     * Compiles the VJoint tree with the specified root
+     */
+    public CompiledSkeleton(VJoint root)
+    {
+        this(Collections.singletonList(root));
+    }
+
+    /**
+     * Compiles the VJoint trees with the specified roots
+     */
+    public CompiledSkeleton(List<VJoint> roots)
+    {
+        List<VJoint> jointList = new ArrayList<>();
+        List<Integer> parentList = new ArrayList<>();
+        for (VJoint root : roots)
+        {
+            addJoints(root, -1, jointList, parentList);
+        }
+        int nrOfJoints = jointList.size();
+        joints = jointList.toArray(new VJoint[nrOfJoints]);
+        parentIndex = new int[nrOfJoints];
+        for (int i = 0; i < nrOfJoints; i++)
+        {
+            parentIndex[i] = parentList.get(i);
+        }
+        localMatrices = new float[nrOfJoints * MATSIZE];
+        globalMatrices = new float[nrOfJoints * MATSIZE];
+        dirty = new boolean[nrOfJoints];
+        changed = new boolean[nrOfJoints];
+        for (int i = 0; i < nrOfJoints; i++)
+        {
+            Mat4f.set(localMatrices, i * MATSIZE, joints[i].getLocalMatrix(), 0);
+            dirty[i] = true;
+        }
+    }
+
+    /* Pre-order traversal, so parents are added before their children */
+    private static void addJoints(VJoint vj, int parent, List<VJoint> jointList, List<Integer> parentList)
+    {
+        int index = jointList.size();
+        jointList.add(vj);
+        parentList.add(parent);
+        for (VJoint child : vj.getChildren())
+        {
+            addJoints(child, index, jointList, parentList);
+        }
+    }
+
+    /**
+     * Returns the number of joints
+     */
+    public int size()
+    {
+        return joints.length;
+    }
+
+    /**
+     * Returns the joint with index i, in topological order
+     */
+    public VJoint getJoint(int i)
+    {
+        return joints[i];
+    }
+
+    /**
+     * Returns the index of the specified joint, or -1 if the joint is not part of this skeleton
+     */
+    public int getJointIndex(VJoint vj)
+    {
+        for (int i = 0; i < joints.length; i++)
+        {
+            if (joints[i] == vj) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the parent of joint i, or -1 for roots
+     */
+    public int getParentIndex(int i)
+    {
+        return parentIndex[i];
+    }
+
+    /**
+     * Returns the flat array with local matrices; the local matrix of joint i starts at index 16*i. After direct modification,
+     * setDirty(i) should be called.
+     */
+    public float[] getLocalMatrices()
+    {
+        return localMatrices;
+    }
+
+    /**
+     * Returns the flat array with global matrices; the global matrix of joint i starts at index 16*i.
+     */
+    public float[] getGlobalMatrices()
+    {
+        return globalMatrices;
+    }
+
+    /**
+     * Marks the local matrix of joint i as modified
+     */
+    public void setDirty(int i)
+    {
+        dirty[i] = true;
+    }
+
+    /**
+     * Sets the local matrix of joint i from the Mat4f matrix m, starting at mIndex
+     */
+    public void setLocalMatrix(int i, float[] m, int mIndex)
+    {
+        Mat4f.set(localMatrices, i * MATSIZE, m, mIndex);
+        dirty[i] = true;
+    }
+
+    /**
+     * Copies the local matrices from the VJoints, and marks those joints dirty whose local matrix has actually changed.
+     * Returns the number of changed joints.
+     */
+    public int syncFromJoints()
+    {
+        int nrChanged = 0;
+        for (int i = 0; i < joints.length; i++)
+        {
+            float[] m = joints[i].getLocalMatrix();
+            int offset = i * MATSIZE;
+            for (int j = 0; j < MATSIZE; j++)
+            {
+                if (localMatrices[offset + j] != m[j])
+                {
+                    System.arraycopy(m, j, localMatrices, offset + j, MATSIZE - j);
+                    dirty[i] = true;
+                    nrChanged++;
+                    break;
+                }
+            }
+        }
+        return nrChanged;
+    }
+
+    /**
+     * Calculates the global matrices for all joints with a dirty local matrix or a dirty ancestor, and clears all dirty bits.
+     * Returns the number of recalculated global matrices.
+     */
+    public int calculateGlobalMatrices()
+    {
+        int nrChanged = 0;
+        for (int i = 0; i < joints.length; i++)
+        {
+            int p = parentIndex[i];
+            boolean update = dirty[i] || (p >= 0 && changed[p]);
+            changed[i] = update;
+            if (update)
+            {
+                int offset = i * MATSIZE;
+                if (p < 0)
+                {
+                    System.arraycopy(localMatrices, offset, globalMatrices, offset, MATSIZE);
+                }
+                else
+                {
+                    Mat4f.mul(globalMatrices, offset, globalMatrices, p * MATSIZE, localMatrices, offset);
+                }
+                dirty[i] = false;
+                nrChanged++;
+            }
+        }
+        return nrChanged;
+    }
+
+    /**
+     * Copies the global matrices that were recalculated by the last calculateGlobalMatrices call to the VJoints.
+     */
+    public void syncToJoints()
+    {
+        for (int i = 0; i < joints.length; i++)
+        {
+            if (changed[i]) Mat4f.set(joints[i].getGlobalMatrix(), 0, globalMatrices, i * MATSIZE);
+        }
+    }
+
+    /**
+     * Equivalent to calling calculateMatrices() for all roots: copies the local matrices from the VJoints, calculates
+     * the global matrices, and copies them back to the VJoints.
+     */
+    public void calculateMatrices()
+    {
+        syncFromJoints();
+        calculateGlobalMatrices();
+        syncToJoints();
+    }
+}
@@ -0,0 +1,607 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.animation;
+
+import hmi.math.Quat4f;
+import hmi.math.Vec3f;
+import hmi.util.ClockListener;
+
+import java.util.Arrays;
+
+/**
+ * A CompressedSkeletonInterpolator is a compact, read only, version of a SkeletonInterpolator.
+ * Every channel of the configs, that is, the root translation, or the translation, rotation, scale,
+ * velocity, or angular velocity of a single part, is reduced to a separate set of key frames.
+ * Key frames are selected such that the interpolated channel stays within a specified error bound
+ * for all frames of the original: a Euclidean distance for vector channels, and an angle, in radians,
+ * for rotation channels. Vector channels are interpolated linearly, rotations by means of slerp,
+ * just like the SkeletonInterpolator. Rotation keys are quantized to 48 bits (smallest three encoding),
+ * and the quantization error is taken into account while selecting key frames.
+ * The maximum errors that were actually obtained are available via getMaxRotationError and
+ * getMaxTranslationError. Like the SkeletonInterpolator, a CompressedSkeletonInterpolator caches
+ * interpolation intervals, and should not be used by more than one thread at a time.
+ * There is no serialized form; use decompress to obtain a SkeletonInterpolator that can be written.
+ */
+public class CompressedSkeletonInterpolator implements ClockListener
+{
+    private static final float SQRT2 = (float) Math.sqrt(2.0);
+    private static final int QUANT_BITS = 15;
+    private static final int QUANT_MAX = (1 << QUANT_BITS) - 1;
+    private static final long QUANT_MASK = QUANT_MAX;
+
+    private final String[] partIds;
+    private final String configType;
+    private final int configSize;
+    private final boolean hasRootTranslation, hasTranslation, hasRotation, hasScale;
+    private final int stride; // number of floats for a single part, except for a possible root translation
+
+    private final double[] times; // frame times of the original SkeletonInterpolator
+
+    private final int[] channelOffset; // offset of channel c within a config
+    private final boolean[] rotationChannel;
+    private final int[] keyStart; // the keys of channel c are keyStart[c] .. keyStart[c+1]-1
+    private final int[] keyFrame; // for every key, the index of its frame within times
+    private final int[] dataStart; // for channel c, the index of its first key within vecKeys or rotKeys
+    private final float[] vecKeys; // 3 floats per vector key
+    private final short[] rotKeys; // 3 shorts, i.e. 48 bits, per rotation key
+    private final int[] cursor; // for every channel, the lower key of the last interpolation
+
+    private final float maxRotationError, maxTranslationError;
+
+    private VObject[] targetParts;
+    private final float[] config;
+    private final float[] lowerQuat = new float[4];
+    private final float[] upperQuat = new float[4];
+
+    /**
+     * Compresses the specified SkeletonInterpolator. Rotation channels are kept within maxRotationError radians,
+     * vector channels (translations, scaling, and velocities) are kept within a Euclidean distance of maxTranslationError.
+     * The SkeletonInterpolator itself is not modified.
+     */
+    public CompressedSkeletonInterpolator(SkeletonInterpolator ski, float maxRotationError, float maxTranslationError)
+    {
+        partIds = ski.getPartIds().clone();
+        configType = ski.getConfigType();
+        hasRootTranslation = configType.startsWith(SkeletonInterpolator.ROOT_TRANSFORM);
+        hasTranslation = !hasRootTranslation && configType.indexOf('T') >= 0;
+        hasRotation = configType.indexOf('R') >= 0;
+        hasScale = configType.indexOf('S') >= 0;
+        boolean hasVelocity = configType.indexOf('V') >= 0;
+        boolean hasAngularVelocity = configType.indexOf('W') >= 0;
+
+        int partChannels = (hasTranslation ? 1 : 0) + (hasRotation ? 1 : 0) + (hasScale ? 1 : 0) + (hasVelocity ? 1 : 0)
+                + (hasAngularVelocity ? 1 : 0);
+        int nrOfChannels = partChannels * partIds.length + (hasRootTranslation && partIds.length > 0 ? 1 : 0);
+        channelOffset = new int[nrOfChannels];
+        rotationChannel = new boolean[nrOfChannels];
+        int c = 0;
+        int offset = 0;
+        if (hasRootTranslation && partIds.length > 0)
+        {
+            channelOffset[c++] = offset;
+            offset += 3;
+        }
+        for (int i = 0; i < partIds.length; i++)
+        {
+            for (int ch = 0; ch < partChannels; ch++)
+            {
+                boolean rotation = hasRotation && ch == (hasTranslation ? 1 : 0);
+                rotationChannel[c] = rotation;
+                channelOffset[c++] = offset;
+                offset += rotation ? 4 : 3;
+            }
+        }
+        stride = (partIds.length == 0) ? 0 : (offset - (hasRootTranslation ? 3 : 0)) / partIds.length;
+        configSize = offset;
+        config = new float[configSize];
+
+        int n = ski.size();
+        times = new double[n];
+        float[][] frames = new float[n][];
+        for (int f = 0; f < n; f++)
+        {
+            times[f] = ski.getTime(f);
+            frames[f] = ski.getConfig(f);
+        }
+        // at a time shared by several frames, the SkeletonInterpolator shows the last of those frames
+        for (int f = n - 2; f >= 0; f--)
+        {
+            if (times[f] == times[f + 1]) frames[f] = frames[f + 1];
+        }
+
+        keyStart = new int[nrOfChannels + 1];
+        dataStart = new int[nrOfChannels];
+        cursor = new int[nrOfChannels];
+        // the key buffers start at two keys per channel, the minimum for a channel with frames, and grow as keys are added
+        int[] keys = new int[2 * nrOfChannels];
+        float[] vecData = new float[3 * keys.length];
+        short[] rotData = new short[3 * keys.length];
+        int nrOfKeys = 0, nrOfVecKeys = 0, nrOfRotKeys = 0;
+        int[] channelKeys = new int[n];
+        float[] values = new float[4 * n];
+        float[] quantized = null;
+        short[] bits = new short[3];
+        for (c = 0; c < nrOfChannels; c++)
+        {
+            keyStart[c] = nrOfKeys;
+            cursor[c] = nrOfKeys;
+            int dim = rotationChannel[c] ? 4 : 3;
+            for (int f = 0; f < n; f++)
+            {
+                System.arraycopy(frames[f], channelOffset[c], values, dim * f, dim);
+            }
+            int nrOfChannelKeys;
+            if (rotationChannel[c])
+            {
+                if (quantized == null) quantized = new float[4 * n];
+                for (int f = 0; f < n; f++)
+                {
+                    Quat4f.normalize(values, 4 * f);
+                    quantize(bits, 0, values, 4 * f);
+                    dequantize(quantized, 4 * f, bits, 0);
+                }
+                nrOfChannelKeys = reduce(values, quantized, 4, maxRotationError, channelKeys);
+                dataStart[c] = nrOfRotKeys;
+                rotData = ensureCapacity(rotData, 3 * (nrOfRotKeys + nrOfChannelKeys));
+                for (int k = 0; k < nrOfChannelKeys; k++)
+                {
+                    quantize(rotData, 3 * nrOfRotKeys++, values, 4 * channelKeys[k]);
+                }
+            }
+            else
+            {
+                nrOfChannelKeys = reduce(values, values, 3, maxTranslationError, channelKeys);
+                dataStart[c] = nrOfVecKeys;
+                vecData = ensureCapacity(vecData, 3 * (nrOfVecKeys + nrOfChannelKeys));
+                for (int k = 0; k < nrOfChannelKeys; k++)
+                {
+                    System.arraycopy(values, 3 * channelKeys[k], vecData, 3 * nrOfVecKeys++, 3);
+                }
+            }
+            keys = ensureCapacity(keys, nrOfKeys + nrOfChannelKeys);
+            System.arraycopy(channelKeys, 0, keys, nrOfKeys, nrOfChannelKeys);
+            nrOfKeys += nrOfChannelKeys;
+        }
+        keyStart[nrOfChannels] = nrOfKeys;
+        keyFrame = new int[nrOfKeys];
+        System.arraycopy(keys, 0, keyFrame, 0, nrOfKeys);
+        vecKeys = new float[3 * nrOfVecKeys];
+        System.arraycopy(vecData, 0, vecKeys, 0, vecKeys.length);
+        rotKeys = new short[3 * nrOfRotKeys];
+        System.arraycopy(rotData, 0, rotKeys, 0, rotKeys.length);
+
+        // measure the errors that were actually obtained, at the original frame times
+        float rotError = 0f, transError = 0f;
+        for (int f = 0; f < n; f++)
+        {
+            getInterpolatedConfig(times[f], config, 0);
+            for (c = 0; c < nrOfChannels; c++)
+            {
+                int co = channelOffset[c];
+                if (rotationChannel[c])
+                {
+                    rotError = Math.max(rotError, angle(config, co, frames[f], co));
+                }
+                else
+                {
+                    transError = Math.max(transError, distance(config, co, frames[f], co));
+                }
+            }
+        }
+        this.maxRotationError = rotError;
+        this.maxTranslationError = transError;
+    }
+
+    /*
+     * Selects key frames for a single channel, with dim floats per frame, and stores their frame indices in keys,
+     * which must have room for all frames. The first and last frame are always selected. A segment between two keys
+     * is accepted when all frames in between are within maxError from the interpolation of the key values.
+     * Returns the number of keys.
+     */
+    private int reduce(float[] values, float[] keyValues, int dim, float maxError, int[] keys)
+    {
+        int nrOfKeys = 0;
+        int last = times.length - 1;
+        if (last < 0) return nrOfKeys;
+        keys[nrOfKeys++] = 0;
+        int a = 0;
+        while (a < last)
+        {
+            // find a long acceptable segment by doubling its length, then refine by bisection
+            int len = 1;
+            while (a + 2 * len <= last && withinError(values, keyValues, dim, a, a + 2 * len, maxError))
+            {
+                len *= 2;
+            }
+            int ok = a + len;
+            int fail = Math.min(a + 2 * len, last + 1);
+            while (fail - ok > 1)
+            {
+                int probe = (ok + fail) >>> 1;
+                if (withinError(values, keyValues, dim, a, probe, maxError))
+                {
+                    ok = probe;
+                }
+                else
+                {
+                    fail = probe;
+                }
+            }
+            keys[nrOfKeys++] = ok;
+            a = ok;
+        }
+        return nrOfKeys;
+    }
+
+    /* returns buf, or a copy with at least twice its length when buf is shorter than minLength */
+    private static int[] ensureCapacity(int[] buf, int minLength)
+    {
+        return (buf.length >= minLength) ? buf : Arrays.copyOf(buf, Math.max(minLength, 2 * buf.length));
+    }
+
+    private static float[] ensureCapacity(float[] buf, int minLength)
+    {
+        return (buf.length >= minLength) ? buf : Arrays.copyOf(buf, Math.max(minLength, 2 * buf.length));
+    }
+
+    private static short[] ensureCapacity(short[] buf, int minLength)
+    {
+        return (buf.length >= minLength) ? buf : Arrays.copyOf(buf, Math.max(minLength, 2 * buf.length));
+    }
+
+    /* checks whether the frames strictly between a and b stay within maxError when keys are placed at a and b */
+    private boolean withinError(float[] values, float[] keyValues, int dim, int a, int b, float maxError)
+    {
+        double interval = times[b] - times[a];
+        float[] buf = lowerQuat;
+        for (int j = a + 1; j < b; j++)
+        {
+            float beta = (times[j] >= times[b]) ? 1f : (float) ((times[j] - times[a]) / interval);
+            if (dim == 4)
+            {
+                Quat4f.interpolate(buf, 0, keyValues, 4 * a, keyValues, 4 * b, beta);
+                if (angle(buf, 0, values, 4 * j) > maxError) return false;
+            }
+            else
+            {
+                Vec3f.interpolate(buf, 0, keyValues, 3 * a, keyValues, 3 * b, beta);
+                if (distance(buf, 0, values, 3 * j) > maxError) return false;
+            }
+        }
+        return true;
+    }
+
+    /* the rotation angle between two quaternions, in radians */
+    private static float angle(float[] q1, int q1Index, float[] q2, int q2Index)
+    {
+        double dot = 0.0, n1 = 0.0, n2 = 0.0;
+        for (int i = 0; i < 4; i++)
+        {
+            dot += (double) q1[q1Index + i] * q2[q2Index + i];
+            n1 += (double) q1[q1Index + i] * q1[q1Index + i];
+            n2 += (double) q2[q2Index + i] * q2[q2Index + i];
+        }
+        double cos = Math.min(1.0, Math.abs(dot) / Math.sqrt(n1 * n2));
+        return (float) (2.0 * Math.acos(cos));
+    }
+
+    private static float distance(float[] a, int aIndex, float[] b, int bIndex)
+    {
+        float dx = a[aIndex] - b[bIndex], dy = a[aIndex + 1] - b[bIndex + 1], dz = a[aIndex + 2] - b[bIndex + 2];
+        return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * Encodes the unit quaternion q, at offset qIndex, into three shorts, at offset dIndex, using the smallest three encoding:
+     * 2 bits for the index of the largest component, and 15 bits for each of the other three components,
+     * which lie within [-1/sqrt(2), 1/sqrt(2)]. The sign is chosen such that the largest component is positive,
+     * which denotes the same rotation.
+     */
+    public static void quantize(short[] dest, int dIndex, float[] q, int qIndex)
+    {
+        int largest = 0;
+        for (int i = 1; i < 4; i++)
+        {
+            if (Math.abs(q[qIndex + i]) > Math.abs(q[qIndex + largest])) largest = i;
+        }
+        float sign = (q[qIndex + largest] < 0f) ? -1f : 1f;
+        long bits = largest;
+        for (int i = 0; i < 4; i++)
+        {
+            if (i == largest) continue;
+            float v = Math.max(-1f, Math.min(1f, sign * q[qIndex + i] * SQRT2));
+            bits = (bits << QUANT_BITS) | Math.round((v + 1f) * 0.5f * QUANT_MAX);
+        }
+        dest[dIndex] = (short) (bits >>> 32);
+        dest[dIndex + 1] = (short) (bits >>> 16);
+        dest[dIndex + 2] = (short) bits;
+    }
+
+    /**
+     * Decodes a quaternion encoded by quantize, from three shorts at offset sIndex, into q, at offset qIndex.
+     */
+    public static void dequantize(float[] q, int qIndex, short[] src, int sIndex)
+    {
+        long bits = ((src[sIndex] & 0xFFFFL) << 32) | ((src[sIndex + 1] & 0xFFFFL) << 16) | (src[sIndex + 2] & 0xFFFFL);
+        int largest = (int) (bits >>> (3 * QUANT_BITS)) & 3;
+        int shift = 2 * QUANT_BITS;
+        float sum = 0f;
+        for (int i = 0; i < 4; i++)
+        {
+            if (i == largest) continue;
+            float v = (((bits >>> shift) & QUANT_MASK) * (2f / QUANT_MAX) - 1f) / SQRT2;
+            q[qIndex + i] = v;
+            sum += v * v;
+            shift -= QUANT_BITS;
+        }
+        q[qIndex + largest] = (float) Math.sqrt(Math.max(0f, 1f - sum));
+    }
+
+    /**
+     * Returns the maximum angle, in radians, between the rotations of the original frames, and the
+     * decompressed rotations at the same time.
+     */
+    public float getMaxRotationError()
+    {
+        return maxRotationError;
+    }
+
+    /**
+     * Returns the maximum Euclidean distance between the vector channels (translations, scaling, velocities) of the original frames,
+     * and the decompressed vectors at the same time.
+     */
+    public float getMaxTranslationError()
+    {
+        return maxTranslationError;
+    }
+
+    /**
+     * Returns the total number of key frames, summed over all channels.
+     */
+    public int getNrOfKeys()
+    {
+        return keyFrame.length;
+    }
+
+    /**
+     * Returns the number of frames of the original SkeletonInterpolator.
+     */
+    public int size()
+    {
+        return times.length;
+    }
+
+    public String[] getPartIds()
+    {
+        return partIds;
+    }
+
+    public String getConfigType()
+    {
+        return configType;
+    }
+
+    /**
+     * Returns the size of configs, in number of floats.
+     */
+    public int getConfigSize()
+    {
+        return configSize;
+    }
+
+    public double getStartTime()
+    {
+        return (times.length == 0) ? 0.0 : times[0];
+    }
+
+    public double getEndTime()
+    {
+        return (times.length == 0) ? 0.0 : times[times.length - 1];
+    }
+
+    /**
+     * Sets a specified VJoint as target for interpolation A lookup is performed for parts of the
+     * target with Id/Sid/Name as defined by the partIds for this interpolator.
+     */
+    public void setTarget(VJoint target)
+    {
+        if (target == null)
+        {
+            targetParts = null;
+        }
+        else
+        {
+            targetParts = new VJoint[partIds.length];
+            for (int i = 0; i < partIds.length; i++)
+            {
+                targetParts[i] = target.getPart(partIds[i]);
+            }
+        }
+    }
+
+    public VObject[] getTargetParts()
+    {
+        return targetParts;
+    }
+
+    /**
+     * Returns the interpolated config array for the specified time t, in the specified conf float
+     * array. If the latter is null, a new float array is allocated.
+     */
+    public float[] getInterpolatedConfig(double t, float[] conf)
+    {
+        if (times.length == 0) return null;
+        if (conf == null) conf = new float[configSize];
+        getInterpolatedConfig(t, conf, 0);
+        return conf;
+    }
+
+    /**
+     * Like getInterpolatedConfig(t, conf), but stores the interpolated config in conf, starting at confOffset.
+     * Returns false, and leaves conf unchanged, when there are no frames.
+     */
+    public boolean getInterpolatedConfig(double t, float[] conf, int confOffset)
+    {
+        if (times.length == 0) return false;
+        for (int c = 0; c < channelOffset.length; c++)
+        {
+            int lower = findKey(c, t);
+            int upper = (lower + 1 < keyStart[c + 1] && times[keyFrame[lower]] <= t) ? lower + 1 : lower;
+            int dest = confOffset + channelOffset[c];
+            float alpha = 0f;
+            if (upper != lower)
+            {
+                double lowerTime = times[keyFrame[lower]];
+                alpha = (float) ((t - lowerTime) / (times[keyFrame[upper]] - lowerTime));
+            }
+            int lowerData = 3 * (dataStart[c] + lower - keyStart[c]);
+            int upperData = 3 * (dataStart[c] + upper - keyStart[c]);
+            if (rotationChannel[c])
+            {
+                dequantize(lowerQuat, 0, rotKeys, lowerData);
+                if (upper == lower)
+                {
+                    Quat4f.set(conf, dest, lowerQuat, 0);
+                }
+                else
+                {
+                    dequantize(upperQuat, 0, rotKeys, upperData);
+                    Quat4f.interpolate(conf, dest, lowerQuat, 0, upperQuat, 0, alpha);
+                }
+            }
+            else
+            {
+                Vec3f.interpolate(conf, dest, vecKeys, lowerData, vecKeys, upperData, alpha);
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Returns the last key k of channel c with time(k) <= t, or the first key when t precedes all keys.
+     * The result is cached, so that the common case of increasing time values needs no search.
+     */
+    private int findKey(int c, double t)
+    {
+        int first = keyStart[c];
+        int last = keyStart[c + 1] - 1;
+        int k = cursor[c];
+        if (times[keyFrame[k]] <= t && (k == last || t < times[keyFrame[k + 1]])) return k;
+        if (t < times[keyFrame[first]]) return first;
+        int lo = first, hi = last;
+        if (times[keyFrame[k]] <= t) lo = k + 1;
+        else hi = k - 1;
+        while (lo < hi)
+        {
+            int probe = (lo + hi + 1) >>> 1;
+            if (times[keyFrame[probe]] <= t)
+            {
+                lo = probe;
+            }
+            else
+            {
+                hi = probe - 1;
+            }
+        }
+        cursor[c] = lo;
+        return lo;
+    }
+
+    /**
+     * Interpolates the configuration for the specified time, and places the result in the target VObjects.
+     * Only translation, rotation, and scale are set.
+     */
+    public void interpolateTargetParts(double time)
+    {
+        if (targetParts == null) return;
+        if (!getInterpolatedConfig(time, config, 0)) return;
+        int index = 0;
+        if (hasRootTranslation && targetParts.length > 0)
+        {
+            if (targetParts[0] != null) targetParts[0].setTranslation(config, 0);
+            index += 3;
+        }
+        for (int i = 0; i < targetParts.length; i++)
+        {
+            VObject part = targetParts[i];
+            int pi = index;
+            index += stride;
+            // can happen if the interpolator contains joints that are not in the target
+            if (part == null) continue;
+            if (hasTranslation)
+            {
+                part.setTranslation(config, pi);
+                pi += 3;
+            }
+            if (hasRotation)
+            {
+                part.setRotation(config, pi);
+                pi += 4;
+            }
+            if (hasScale)
+            {
+                part.setScale(config, pi);
+            }
+        }
+    }
+
+    /**
+     * calculates the current config for the specified time in milliseconds and copies it to the
+     * current target
+     */
+    public void interpolateMillis(long time)
+    {
+        interpolateTargetParts(time / 1000.0);
+    }
+
+    /**
+     * The initTime method for the ClockListener interface; does nothing.
+     */
+    @Override
+    public void initTime(double t)
+    {
+    }
+
+    /**
+     * The time method for the ClockListener interface; equivalent to interpolateTargetParts
+     */
+    @Override
+    public void time(double t)
+    {
+        interpolateTargetParts(t);
+    }
+
+    /**
+     * Decompresses this interpolator into a new SkeletonInterpolator, with frames at the original frame times.
+     */
+    public SkeletonInterpolator decompress()
+    {
+        ConfigList configs = new ConfigList(configSize);
+        for (int f = 0; f < times.length; f++)
+        {
+            configs.addConfig(times[f], getInterpolatedConfig(times[f], null));
+        }
+        return new SkeletonInterpolator(partIds.clone(), configs, configType);
+    }
+}
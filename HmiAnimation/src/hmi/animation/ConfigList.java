@@ -28,12 +28,14 @@ package hmi.animation;
 
 import hmi.math.Quat4f;
 import hmi.math.Vec3f;
+import hmi.xml.NumberDecoder;
 import hmi.xml.XMLFormatting;
 import hmi.xml.XMLStructureAdapter;
 import hmi.xml.XMLTokenizer;
 
 import java.io.IOException;
-import java.util.StringTokenizer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 
 /**
  * A ConfigList defines a sequence of configurations of type float[] plus
@@ -46,6 +48,8 @@ public class ConfigList extends XMLStructureAdapter implements Cloneable
                            // configList.length
     private float[][] configList; // configList[i] is a float[] containing the
                                   // i-th configuration of the list
+    private float[] flatData; // non-null for a flat list: config i occupies
+                              // flatData[i*configSize] .. flatData[(i+1)*configSize-1]
     private int listSize; // configList[0] .. configList[listSize-1] contain
                           // actual list data.
     private int arraySize; // the (current) length of the configList array.
@@ -53,26 +57,132 @@ public class ConfigList extends XMLStructureAdapter implements Cloneable
                                                    // be > 0
     private int configSize; // length of a configList element, in number of
                             // floats.
+    private DoubleBuffer mappedTime; // non-null for a list that is backed by
+                                     // (memory mapped) buffers
+    private FloatBuffer mappedData; // frame-major config data for a buffer
+                                    // backed list
 
     /**
      * Constructor
      * @param configSize number of configs in the list
      */
     public ConfigList(int configSize)
+    {
+        this(configSize, false);
+    }
+
+    /**
+     * Creates an empty ConfigList. A flat list stores all configs, config after config,
+     * inside a single float array, rather than as separate float arrays. Access to the
+     * configs of a flat list should preferably be done via getData(i) and getConfigOffset(i).
+     * The legacy getConfig(i) still works, but converts the list into a non-flat list.
+     * @param configSize number of floats per config
+     * @param flat whether to use flat storage
+     */
+    public ConfigList(int configSize, boolean flat)
     {
         arraySize = DEFAULTARRAYSIZE;
         time = new double[arraySize];
-        configList = new float[arraySize][];
+        if (flat)
+        {
+            flatData = new float[arraySize * configSize];
+        }
+        else
+        {
+            configList = new float[arraySize][];
+        }
         listSize = 0;
         this.configSize = configSize;
     }
 
+    /**
+     * Creates a read-only view on time stamps and frame-major config data that
+     * reside in buffers, typically memory mapped from a binary motion file. The
+     * buffer contents are not copied: getTime and getConfig(int, float[]) read
+     * directly from the buffers. Operations that modify the list, as well as
+     * getData(int) and getConfig(int), first convert the list into a flat, 
+     * respectively array based, list.
+     * @param configSize number of floats per config
+     * @param time the time stamps, one for each config, from position 0 upto the limit
+     * @param data the config data, configSize floats per config, stored config after config
+     */
+    public ConfigList(int configSize, DoubleBuffer time, FloatBuffer data)
+    {
+        if (data.limit() < time.limit() * configSize)
+        {
+            throw new IllegalArgumentException("ConfigList: config data buffer too small for " + time.limit() + " configs");
+        }
+        this.configSize = configSize;
+        mappedTime = time;
+        mappedData = data;
+        listSize = time.limit();
+        arraySize = 0;
+    }
+
+    /**
+     * Returns true when this list is still a view on (memory mapped) buffers,
+     * rather than a list of float arrays.
+     */
+    public boolean isMapped()
+    {
+        return mappedTime != null;
+    }
+
+    /**
+     * Returns true when this list stores its configs inside a single float array.
+     */
+    public boolean isFlat()
+    {
+        return flatData != null;
+    }
+
+    /*
+     * Converts a buffer backed list into a flat list.
+     */
+    private void unmap()
+    {
+        if (mappedTime == null) return;
+        arraySize = Math.max(DEFAULTARRAYSIZE, listSize);
+        time = new double[arraySize];
+        flatData = new float[arraySize * configSize];
+        DoubleBuffer times = mappedTime.duplicate();
+        times.position(0);
+        times.get(time, 0, listSize);
+        FloatBuffer data = mappedData.duplicate();
+        data.position(0);
+        data.get(flatData, 0, listSize * configSize);
+        mappedTime = null;
+        mappedData = null;
+    }
+
+    /*
+     * Converts a flat or buffer backed list into an array based list.
+     */
+    private void toArrays()
+    {
+        if (configList != null) return;
+        unmap();
+        configList = new float[arraySize][];
+        for (int i = 0; i < listSize; i++)
+        {
+            configList[i] = new float[configSize];
+            System.arraycopy(flatData, i * configSize, configList[i], 0, configSize);
+        }
+        flatData = null;
+    }
+
     public ConfigList copy()
     {
-        ConfigList c = new ConfigList(configSize);
+        if (mappedTime != null) return new ConfigList(configSize, mappedTime.duplicate(), mappedData.duplicate());
+        ConfigList c = new ConfigList(configSize, flatData != null);
         c.time = time.clone();
         c.listSize = listSize;
         c.arraySize = arraySize;
+        if (flatData != null)
+        {
+            c.flatData = flatData.clone();
+            return c;
+        }
         c.configList = new float[arraySize][];
         for (int i = 0; i < listSize; i++)
         {
@@ -112,33 +222,52 @@ public class ConfigList extends XMLStructureAdapter implements Cloneable
      */
     public double getTime(int i)
     {
-        return time[i];
+        return (mappedTime == null) ? time[i] : mappedTime.get(i);
     }
 
     public void mirrorRotation(int index)
     {
+        unmap();
+        float q[] = Quat4f.getQuat4f();
         for (int i = 0; i < listSize; i++)
         {
-            float[] config = configList[i];
-            float q[] = Quat4f.getQuat4f();
-            Quat4f.set(q, 0, config, index);
-            Quat4f.set(config, index, q[Quat4f.s], q[Quat4f.x], -q[Quat4f.y], -q[Quat4f.z]);
+            float[] config = getData(i);
+            int ci = getConfigOffset(i) + index;
+            Quat4f.set(q, 0, config, ci);
+            Quat4f.set(config, ci, q[Quat4f.s], q[Quat4f.x], -q[Quat4f.y], -q[Quat4f.z]);
         }
     }
 
     public void mirrorTranslation(int index)
     {
+        unmap();
         for (int i = 0; i < listSize; i++)
         {
-            float[] config = configList[i];
-            float v[] = Vec3f.getVec3f();
-            Vec3f.set(v, 0, config, index);
-            Vec3f.set(config, index, -v[Vec3f.X], v[Vec3f.Y], v[Vec3f.Z]);
+            float[] config = getData(i);
+            int ci = getConfigOffset(i) + index;
+            config[ci + Vec3f.X] = -config[ci + Vec3f.X];
         }
     }
 
     public ConfigList subConfigList(int start, int end)
     {
+        if (mappedTime != null)
+        {
+            DoubleBuffer subTime = mappedTime.duplicate();
+            subTime.limit(end).position(start);
+            FloatBuffer subData = mappedData.duplicate();
+            subData.limit(end * configSize).position(start * configSize);
+            return new ConfigList(configSize, subTime.slice(), subData.slice());
+        }
+        if (flatData != null)
+        {
+            ConfigList cl = new ConfigList(configSize, true);
+            cl.ensureArraySize(end - start);
+            System.arraycopy(time, start, cl.time, 0, end - start);
+            System.arraycopy(flatData, start * configSize, cl.flatData, 0, (end - start) * configSize);
+            cl.listSize = end - start;
+            return cl;
+        }
         ConfigList cl = new ConfigList(configSize);
         for (int i = start; i < end; i++)
         {
@@ -148,32 +277,88 @@ public class ConfigList extends XMLStructureAdapter implements Cloneable
     }
 
     /**
-     * Returns the Config at index i
+     * Returns the Config at index i. For flat and buffer backed lists, this converts the
+     * list into an array based list first, since callers may modify the returned array.
      */
     public float[] getConfig(int i)
     {
+        toArrays();
         return configList[i];
     }
 
+    /**
+     * Copies the Config at index i into dest, and returns dest. This does not
+     * convert flat or buffer backed lists.
+     */
+    public float[] getConfig(int i, float[] dest)
+    {
+        if (mappedData != null)
+        {
+            int offset = i * configSize;
+            for (int j = 0; j < configSize; j++)
+            {
+                dest[j] = mappedData.get(offset + j);
+            }
+        }
+        else if (flatData != null)
+        {
+            System.arraycopy(flatData, i * configSize, dest, 0, configSize);
+        }
+        else
+        {
+            System.arraycopy(configList[i], 0, dest, 0, configSize);
+        }
+        return dest;
+    }
+
+    /**
+     * Returns the float array that contains the Config at index i, starting at getConfigOffset(i).
+     * For a flat list, this is the same array for all configs. A buffer backed list
+     * is converted into a flat list first. Modifications of the array modify the list.
+     */
+    public float[] getData(int i)
+    {
+        unmap();
+        return (flatData != null) ? flatData : configList[i];
+    }
+
+    /**
+     * Returns the offset of the Config at index i within the array returned by getData(i)
+     */
+    public int getConfigOffset(int i)
+    {
+        return (configList != null) ? 0 : i * configSize;
+    }
+
     public double getStartTime()
     {
-        return (listSize == 0) ? 0.0 : time[0];
+        return (listSize == 0) ? 0.0 : getTime(0);
     }
 
     public double getEndTime()
     {
-        return (listSize == 0) ? 0.0 : time[listSize - 1];
+        return (listSize == 0) ? 0.0 : getTime(listSize - 1);
     }
 
     /**
      * Adds a VPartsConfig at the appropriate place, depending on the time value
      * The value is inserted at the position determined by findLowerIndex(time)
-     * + 1.
+     * + 1. For flat lists, the contents of conf is copied into the list.
      */
     public void addConfig(double t, float[] conf)
     {
+        unmap();
         ensureArraySize(listSize + 1);
         int pos = findInsertIndex(t);
+        if (flatData != null)
+        {
+            System.arraycopy(time, pos, time, pos + 1, listSize - pos);
+            System.arraycopy(flatData, pos * configSize, flatData, (pos + 1) * configSize, (listSize - pos) * configSize);
+            System.arraycopy(conf, 0, flatData, pos * configSize, configSize);
+            time[pos] = t;
+            listSize++;
+            return;
+        }
         for (int p = listSize; p > pos; p--)
         {
             configList[p] = configList[p - 1];
@@ -206,15 +391,26 @@ public class ConfigList extends XMLStructureAdapter implements Cloneable
      */
     private void ensureArraySize(int requestedSize)
     {
-        if (requestedSize <= arraySize) return;
-        while (arraySize < requestedSize)
-            arraySize *= 2;
-        float[][] newConfigList = new float[arraySize][];
-        double[] newTime = new double[arraySize];
-        System.arraycopy(configList, 0, newConfigList, 0, listSize);
-        System.arraycopy(time, 0, newTime, 0, listSize);
-        configList = newConfigList;
-        time = newTime;
+        if (requestedSize > arraySize)
+        {
+            while (arraySize < requestedSize)
+                arraySize *= 2;
+            double[] newTime = new double[arraySize];
+            System.arraycopy(time, 0, newTime, 0, listSize);
+            time = newTime;
+            if (configList != null)
+            {
+                float[][] newConfigList = new float[arraySize][];
+                System.arraycopy(configList, 0, newConfigList, 0, listSize);
+                configList = newConfigList;
+            }
+        }
+        if (flatData != null && flatData.length < arraySize * configSize)
+        {
+            float[] newFlatData = new float[arraySize * configSize];
+            System.arraycopy(flatData, 0, newFlatData, 0, listSize * configSize);
+            flatData = newFlatData;
+        }
     }
 
     /*
@@ -283,11 +479,12 @@ public class ConfigList extends XMLStructureAdapter implements Cloneable
     @Override
     public StringBuilder appendContent(StringBuilder buf, XMLFormatting fmt)
     {
+        float[] flatConfig = (configList == null) ? new float[configSize] : null;
         for (int i = 0; i < listSize; i++)
         {
             appendNewLine(buf, fmt);
-            buf.append(Double.toString(time[i]));
-            float[] c = configList[i];
+            buf.append(Double.toString(getTime(i)));
+            float[] c = (configList == null) ? getConfig(i, flatConfig) : configList[i];
             for (int j = 0; j < c.length; j++)
             {
                 buf.append(' ');
@@ -304,30 +501,30 @@ public class ConfigList extends XMLStructureAdapter implements Cloneable
     @Override
     public void decodeContent(XMLTokenizer xmlTokenizer) throws IOException
     {
-        String data = xmlTokenizer.takeCharData();
-        decodeContent(data);
+        decodeContent(xmlTokenizer.takeCharDataSequence());
     }
 
     public void decodeContent(String data)
     {
-        StringTokenizer tokenizer = new StringTokenizer(data);
+        decodeContent((CharSequence) data);
+    }
+
+    /**
+     * Decodes the time and config values directly from the CharSequence, without allocating Strings for the separate numbers.
+     * For flat lists, no per-config arrays are allocated either.
+     */
+    public void decodeContent(CharSequence data)
+    {
+        NumberDecoder decoder = new NumberDecoder(data);
         double t;
-        float[] conf;
-        while (tokenizer.hasMoreTokens())
+        float[] conf = null;
+        while (decoder.hasMoreTokens())
         {
-            t = Double.parseDouble(tokenizer.nextToken());
-
-            // performance test
-            // t = 0;
-            // tokenizer.nextToken();
-
-            conf = new float[configSize];
+            t = decoder.nextDouble();
+            if (conf == null || configList != null) conf = new float[configSize]; // flat lists copy conf
             for (int i = 0; i < configSize; i++)
             {
-
-                conf[i] = (float) Double.parseDouble(tokenizer.nextToken());
-                // performance test
-                // tokenizer.nextToken();
+                conf[i] = (float) decoder.nextDouble();
             }
             addConfig(t, conf);
         }
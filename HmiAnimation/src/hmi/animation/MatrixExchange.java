@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.animation;
+
+import hmi.math.Mat4f;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Passes complete sets of 4X4 matrices, like the joint matrices of a pose, from a single producer, typically an animation thread,
+ * to a single consumer, typically the render thread, without locking and without allocation. The producer writes a frame into
+ * the write buffer, and calls publish. The consumer calls acquire, and then reads the most recently published frame from the read
+ * buffer. Frames are exchanged by means of a triple buffer, so the producer never waits for the consumer or vice versa, and the
+ * consumer never sees a partially written frame. Frames that are published faster than they are acquired are simply overwritten.
+ * Matrices are stored in flat arrays, in row major order, with matrix i at offset 16*i. Before the first publish, all matrices are
+ * identity matrices.
+ */
+public final class MatrixExchange
+{
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4;
+    private static final int MATRIX_SIZE = 16;
+
+    private final int nrOfMatrices;
+    private final float[][] buffers;
+
+    /* index of the middle buffer, and the FRESH bit, denoting a frame that was published but not yet acquired */
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0; // owned by the producer
+    private int front = 2; // owned by the consumer
+    private long frameNumber = 0; // owned by the consumer
+
+    /**
+     * Creates a MatrixExchange for frames of the specified number of matrices.
+     */
+    public MatrixExchange(int nrOfMatrices)
+    {
+        this.nrOfMatrices = nrOfMatrices;
+        buffers = new float[3][MATRIX_SIZE * nrOfMatrices];
+        float[] id = Mat4f.getIdentity();
+        for (float[] buf : buffers)
+        {
+            for (int i = 0; i < nrOfMatrices; i++)
+            {
+                System.arraycopy(id, 0, buf, MATRIX_SIZE * i, MATRIX_SIZE);
+            }
+        }
+    }
+
+    /** Returns the number of matrices per frame */
+    public int getNrOfMatrices()
+    {
+        return nrOfMatrices;
+    }
+
+    /**
+     * Returns the flat buffer for the frame that is being written, with matrix i at offset 16*i. The buffer contains an older frame,
+     * not necessarily the last one published, so the producer should write all matrices before calling publish. Should be called
+     * from the producer thread, and the result is valid until the next publish.
+     */
+    public float[] getWriteBuffer()
+    {
+        return buffers[back];
+    }
+
+    /**
+     * Copies the specified 4X4 matrix into the frame that is being written, as matrix number index. Should be called from the
+     * producer thread.
+     */
+    public void putMatrix(int index, float[] matrix)
+    {
+        System.arraycopy(matrix, 0, buffers[back], MATRIX_SIZE * index, MATRIX_SIZE);
+    }
+
+    /**
+     * Makes the frame that has been written available to the consumer, and starts a new frame. A frame that was published but not
+     * yet acquired is overwritten. Should be called from the producer thread.
+     */
+    public void publish()
+    {
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Copies the specified matrices into the frame that is being written, and publishes it. Null matrices are skipped, so the
+     * corresponding matrices are undefined in the consumer frame, unless they are never written at all, in which case they
+     * remain identity matrices. Should be called from the producer thread.
+     */
+    public void publish(float[][] matrices)
+    {
+        float[] buf = buffers[back];
+        for (int i = 0; i < nrOfMatrices; i++)
+        {
+            if (matrices[i] != null) System.arraycopy(matrices[i], 0, buf, MATRIX_SIZE * i, MATRIX_SIZE);
+        }
+        publish();
+    }
+
+    /**
+     * Called by the consumer, in order to obtain the most recently published frame. Returns true when a new frame was published
+     * since the previous acquire, false when the current frame is still the most recent one. Should be called from a single
+     * consumer thread.
+     */
+    public boolean acquire()
+    {
+        if ((middle.get() & FRESH) == 0) return false;
+        front = middle.getAndSet(front) & INDEX_MASK;
+        frameNumber++;
+        return true;
+    }
+
+    /**
+     * Returns the number of frames obtained by acquire so far. Consumers that share this MatrixExchange within the same thread can
+     * use it to detect whether the read buffer has changed since they last looked at it. Should be called from the consumer thread.
+     */
+    public long getFrameNumber()
+    {
+        return frameNumber;
+    }
+
+    /**
+     * Returns the flat buffer with the frame obtained by the last acquire, with matrix i at offset 16*i. The buffer is owned by
+     * the MatrixExchange, and remains unchanged until the next acquire. Should be called from the consumer thread, after acquire.
+     */
+    public float[] getReadBuffer()
+    {
+        return buffers[front];
+    }
+
+    /**
+     * Copies matrix number index from the frame obtained by the last acquire into dest. Should be called from the consumer thread.
+     */
+    public void getMatrix(int index, float[] dest)
+    {
+        System.arraycopy(buffers[front], MATRIX_SIZE * index, dest, 0, MATRIX_SIZE);
+    }
+
+    /**
+     * Copies the matrices from the frame obtained by the last acquire into dest, skipping null matrices. Should be called from the
+     * consumer thread.
+     */
+    public void getMatrices(float[][] dest)
+    {
+        float[] buf = buffers[front];
+        for (int i = 0; i < nrOfMatrices; i++)
+        {
+            if (dest[i] != null) System.arraycopy(buf, MATRIX_SIZE * i, dest[i], 0, MATRIX_SIZE);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.animation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Passes morph target weights from producers, like lip-sync or facial expression converters, to a single consumer, typically the
+ * render thread. Morph target names are resolved once to integer slots, by means of getSlot, after which weights are set and
+ * added per slot in a primitive float array. Producers are synchronized among each other; their changes become visible to the
+ * consumer when publish is called. The consumer calls acquire, and then reads a consistent snapshot from getSnapshotWeights,
+ * without locking and without allocation: snapshots are exchanged by means of a triple buffer. Producers can synchronize on the
+ * channel in order to perform a group of changes atomically.
+ */
+public class MorphWeightChannel
+{
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4;
+
+    /* The working state of the producers, guarded by this */
+    private final HashMap<String, Integer> slotMap = new HashMap<String, Integer>();
+    private String[] names = new String[0];
+    private float[] weights = new float[0];
+
+    /* Published by producers, read by the consumer */
+    private volatile Buffers buffers;
+
+    /* Owned by the consumer */
+    private Buffers readBuffers;
+
+    /*
+     * A triple buffer for a fixed set of slots. The producer side owns the back buffer, the consumer owns the front buffer, and they
+     * exchange through the middle buffer. The FRESH bit in middle denotes a snapshot that was published but not yet acquired.
+     */
+    private static final class Buffers
+    {
+        final String[] names;
+        final float[][] weights;
+        final AtomicInteger middle;
+        int back; // guarded by the channel
+        int front; // owned by the consumer
+
+        Buffers(String[] names, float[] snapshot)
+        {
+            this.names = names;
+            weights = new float[3][names.length];
+            System.arraycopy(snapshot, 0, weights[1], 0, names.length);
+            back = 0;
+            middle = new AtomicInteger(1 | FRESH);
+            front = 2;
+        }
+    }
+
+    /**
+     * Creates a channel with slots 0, 1, ... for the specified morph target names.
+     */
+    public MorphWeightChannel(String... targetNames)
+    {
+        for (String name : targetNames)
+        {
+            getSlot(name);
+        }
+        buffers = new Buffers(names, weights);
+        readBuffers = buffers;
+    }
+
+    /**
+     * Returns the slot for the specified morph target, allocating a new slot when the target is not yet known. Slots are never
+     * removed, so the result can be stored by the caller.
+     */
+    public synchronized int getSlot(String targetName)
+    {
+        Integer slot = slotMap.get(targetName);
+        if (slot != null) return slot;
+        int newSlot = names.length;
+        names = Arrays.copyOf(names, newSlot + 1);
+        names[newSlot] = targetName;
+        if (newSlot >= weights.length) weights = Arrays.copyOf(weights, 2 * newSlot + 4);
+        slotMap.put(targetName, newSlot);
+        return newSlot;
+    }
+
+    /**
+     * Returns the slot for the specified morph target, or -1 when the target is not known.
+     */
+    public synchronized int findSlot(String targetName)
+    {
+        Integer slot = slotMap.get(targetName);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * Returns the slots for the specified morph targets, allocating new slots where needed.
+     */
+    public synchronized int[] getSlots(String[] targetNames)
+    {
+        int[] slots = new int[targetNames.length];
+        for (int i = 0; i < slots.length; i++)
+        {
+            slots[i] = getSlot(targetNames[i]);
+        }
+        return slots;
+    }
+
+    /** Returns the current number of slots */
+    public synchronized int getNrOfSlots()
+    {
+        return names.length;
+    }
+
+    /** Returns the morph target name for the specified slot */
+    public synchronized String getName(int slot)
+    {
+        return names[slot];
+    }
+
+    /** Returns the current (working, not necessarily published) weight for the specified slot */
+    public synchronized float getWeight(int slot)
+    {
+        return weights[slot];
+    }
+
+    /** Sets the weight for the specified slot */
+    public synchronized void setWeight(int slot, float weight)
+    {
+        weights[slot] = weight;
+    }
+
+    /** Adds weight to the specified slot */
+    public synchronized void addWeight(int slot, float weight)
+    {
+        weights[slot] += weight;
+    }
+
+    /** Sets the weights for the specified slots */
+    public synchronized void setWeights(int[] slots, float[] slotWeights)
+    {
+        for (int i = 0; i < slots.length; i++)
+        {
+            weights[slots[i]] = slotWeights[i];
+        }
+    }
+
+    /** Adds weights to the specified slots */
+    public synchronized void addWeights(int[] slots, float[] slotWeights)
+    {
+        for (int i = 0; i < slots.length; i++)
+        {
+            weights[slots[i]] += slotWeights[i];
+        }
+    }
+
+    /** Sets all weights to zero */
+    public synchronized void clearWeights()
+    {
+        Arrays.fill(weights, 0.0f);
+    }
+
+    /**
+     * Copies the current weights into a new snapshot, and makes it available to the consumer. A snapshot that was published but not
+     * yet acquired is overwritten.
+     */
+    public synchronized void publish()
+    {
+        Buffers b = buffers;
+        if (b.names != names)
+        {
+            buffers = new Buffers(names, weights);
+        }
+        else
+        {
+            System.arraycopy(weights, 0, b.weights[b.back], 0, names.length);
+            b.back = b.middle.getAndSet(b.back | FRESH) & INDEX_MASK;
+        }
+    }
+
+    /**
+     * Called by the consumer, in order to obtain the most recently published snapshot. Returns true when a new snapshot was
+     * published since the previous acquire, false when the current snapshot is still the most recent one. Should be called from a
+     * single consumer thread.
+     */
+    public boolean acquire()
+    {
+        Buffers b = buffers;
+        readBuffers = b;
+        if ((b.middle.get() & FRESH) == 0) return false;
+        b.front = b.middle.getAndSet(b.front) & INDEX_MASK;
+        return true;
+    }
+
+    /**
+     * Returns the weights of the snapshot obtained by the last acquire, one for every slot. The array is owned by the channel, and
+     * remains unchanged until the next acquire. Should be called from the consumer thread, after acquire.
+     */
+    public float[] getSnapshotWeights()
+    {
+        return readBuffers.weights[readBuffers.front];
+    }
+
+    /**
+     * Returns the morph target names for the slots of the snapshot obtained by the last acquire. The array is shared, and should
+     * not be modified. Since slots are only added, the snapshot names change exactly when their number changes.
+     */
+    public String[] getSnapshotNames()
+    {
+        return readBuffers.names;
+    }
+}
@@ -41,13 +41,16 @@ import java.util.List;
  * need the transform data. Basically, the roles are as follows:
  * 1) Animator Threads can freely modify VJoint rotations and other
  * local transform data, without locking.
- * 2) The animator Thread should call updateJointMatrices once in a while,
- * to transfer this data to the jointMatrices data, that is shared with other Threads.
- * This is a synchronized method.
- * 3) Render Threads should not use VJoint local data. Rather, they should call
- * the (synchronized) updateTransformMatrices method, which accesses the joint matrices
- * in a safe way. Afterwards, the render Thread can freely use the transform matrices,
+ * 2) The animator Thread should call putData once in a while, which (optionally) updates
+ * the joint matrices, and publishes a complete copy of them by means of a MatrixExchange.
+ * 3) Render Threads should not use VJoint data. Rather, they should call
+ * getData, which acquires the most recently published joint matrices, and calculates
+ * the transform matrices from them. Afterwards, the render Thread can freely use the transform matrices,
  * without locking. 
+ * The MatrixExchange is lock free, so animation and rendering can run at independent rates,
+ * without synchronizing on a global monitor like AnimationSync.
+ * Modifications of the Skeleton structure (roots, joint sids) are not Thread-safe, and should be
+ * done before getTransformMatricesRef is called.
  */
 public class Skeleton// implements ExchangeBuffer
 {
@@ -64,11 +67,13 @@ public class Skeleton// implements ExchangeBuffer
  
    
    private float[][] jointMatrices; // transform matrices for all joints, linked to the global matrices within the VJoints.
-   private float[][] jointMatricesBuffer; // matrix buffers, used to copy jointMatrices data.
+   private MatrixExchange jointMatricesExchange; // passes copies of the jointMatrices from the animator to the render Thread.
    
    private float[][] inverseBindMatrices;
    private float[][] transformMatrices;
    private boolean invalidMatrices = true; // signals "invalid" matrix arrays, due to modifications for roots and/or jointSids
+   private boolean useCompiledSkeleton = false;
+   private CompiledSkeleton compiledSkeleton; // null when not yet compiled, or when the roots have been modified
    
    /* prevent Skeletons without id */
    private Skeleton() {}
@@ -207,6 +212,7 @@ public class Skeleton// implements ExchangeBuffer
         if (! jointSidsSpecified) { jointSids.clear(); }
         for (VJoint rt : roots) { addRoot(rt); }
         invalidMatrices = true;
+        compiledSkeleton = null;
     }
    
    /**
@@ -225,6 +231,7 @@ public class Skeleton// implements ExchangeBuffer
            addJoints(root); 
        }
        invalidMatrices = true;
+       compiledSkeleton = null;
    }
    
 //   /* Inorder traversal, adding joint sids to jointSids List */
@@ -277,66 +284,112 @@ public class Skeleton// implements ExchangeBuffer
    }
    
     /**
-     * Implements the writeBuffer op from the ExchangeBuffer interface. 
-     * This implementation is not Thread-safe.
+     * Implements the writeBuffer op from the ExchangeBuffer interface: 
+     * publishes a copy of the joint matrices, to be picked up by getData.
+     * Should be called by a single animator Thread, and does not block.
      */
 //    @Override
     public void putData() {
         //System.out.println("Skeleton.writeBuffer jointMatrices.length= " + jointMatrices.length);
+        allocateJointMatrices();
         if (updateOnWriteMatrices) {
             updateJointMatrices();           
         }
-        for (int i=0; i<jointMatrices.length; i++) {
-            
-            Mat4f.set(jointMatricesBuffer[i], jointMatrices[i]);
-        } 
+        jointMatricesExchange.publish(jointMatrices);
     }
    
    
   
     
      /**
-     * Implements the readBuffer op from the ExchangeBuffer interface. 
-     * This implementation is not Thread-safe.
+     * Implements the readBuffer op from the ExchangeBuffer interface:
+     * acquires the most recently published joint matrices, and updates the transform matrices.
+     * Should be called by a single render Thread, and does not block.
+     * Returns true when new joint matrices were published since the previous getData call.
      */
 //    @Override
-    public void getData() {
+    public boolean getData() {
         //System.out.println("Skeleton.readBuffer");
+       allocateJointMatrices();
+       boolean fresh = jointMatricesExchange.acquire();
        updateTransformMatrices();
+       return fresh;
+    }
+    
+    /**
+     * Returns the MatrixExchange that is used by putData to publish the joint matrices, in the order of the joints List.
+     * Render Threads can use it directly, rather than calling getData, for instance by means of GLSkinnedMesh.setMatrixExchange,
+     * when the joints of the skinned mesh are in the same order as the joints of this Skeleton.
+     */
+    public MatrixExchange getMatrixExchange() {
+        allocateJointMatrices();
+        return jointMatricesExchange;
     }
    
     /**
-     * Calls calculateMatrices for all VJoint roots.
+     * When set, updateJointMatrices uses a CompiledSkeleton for the VJoint trees,
+     * rather than recursive calculateMatrices calls. The compiled skeleton is rebuilt
+     * when roots are added or set; other modifications of the VJoint tree structure
+     * require an explicit recompile call.
+     */
+    public void setUseCompiledSkeleton(boolean status) {
+        useCompiledSkeleton = status;
+    }
+   
+    /**
+     * Rebuilds the CompiledSkeleton, after modification of the VJoint tree structure.
+     */
+    public void recompile() {
+        compiledSkeleton = new CompiledSkeleton(roots);
+    }
+   
+    /**
+     * Returns the CompiledSkeleton for the VJoint trees, compiling it when necessary.
+     */
+    public CompiledSkeleton getCompiledSkeleton() {
+        if (compiledSkeleton == null) {
+            recompile();
+        }
+        return compiledSkeleton;
+    }
+   
+    /**
+     * Calls calculateMatrices for all VJoint roots, or for the CompiledSkeleton
+     * when setUseCompiledSkeleton(true) has been called.
      * This method is not Thread-safe.
      */
     public void updateJointMatrices() {
         //System.out.println("updateJointMatrices");
+        if (useCompiledSkeleton) {
+            getCompiledSkeleton().calculateMatrices();
+            return;
+        }
         for (VJoint rt : roots) {
             rt.calculateMatrices();
         }
     }
    
     /*
-     * Calculates the transform matrices, either by copying from the joint matrices,
+     * Calculates the transform matrices, either by copying from the acquired joint matrices,
      * or by multiplying the latter with inverse bind matrices, if the later are defined.
-     * The method is synchronized, so cooperates well with updateJointmatrices calls.
      * This updateTransformMatrices method would be called typically by a render
      * Thread, or some other "user" Thread. 
      */
     private  void updateTransformMatrices() {
         if (transformMatrices != null) {
+            float[] buffer = jointMatricesExchange.getReadBuffer();
             if (inverseBindMatrices ==  null) { // just copy:
                 //System.out.println("Skeleton.updateTransformMatrices -- copy");
                 for (int i=0; i<transformMatrices.length; i++) {
                     if (transformMatrices[i] != null) {
-                        Mat4f.set(transformMatrices[i], jointMatricesBuffer[i]);
+                        Mat4f.set(transformMatrices[i], 0, buffer, 16*i);
                     }
                 }             
             } else { // multiply with inverse bind matrices:
                 //System.out.println("Skeleton.updateTransformMatrices -- multiply inverBindMatrices");
                 for (int i=0; i<transformMatrices.length; i++) {
                     if (transformMatrices[i] != null) {
-                        Mat4f.mul(transformMatrices[i], jointMatricesBuffer[i], inverseBindMatrices[i]);
+                        Mat4f.mul(transformMatrices[i], 0, buffer, 16*i, inverseBindMatrices[i], 0);
                     }
                 }            
             }
@@ -358,8 +411,10 @@ public class Skeleton// implements ExchangeBuffer
         if (jointMatrices == null) {
             System.out.println("Null jointMatricesBuffer");
         } else {
+            float[] m = Mat4f.getMat4f();
             for (int i=0; i<jointMatrices.length; i++) {
-                System.out.println("jointMatricesBuffer[" + i + "] " + Mat4f.toString(jointMatricesBuffer[i]));
+                jointMatricesExchange.getMatrix(i, m);
+                System.out.println("jointMatricesBuffer[" + i + "] " + Mat4f.toString(m));
             }
         }
     }
@@ -389,7 +444,7 @@ public class Skeleton// implements ExchangeBuffer
         if ( invalidMatrices) {    
             //System.out.println("allocateJointMatrices");
            jointMatrices = new float[joints.size()][];
-           jointMatricesBuffer = new float[joints.size()][];
+           jointMatricesExchange = new MatrixExchange(joints.size());
            //inverseBindMatrices = new float[jointSids.size()][];
            transformMatrices = new float[joints.size()][];
            // inverseBindMatrices are not allocated here.
@@ -397,7 +452,6 @@ public class Skeleton// implements ExchangeBuffer
            for (VJoint vj : joints) {
                if (vj != null) {
                    jointMatrices[index] = vj.getGlobalMatrix();
-                   jointMatricesBuffer[index] = Mat4f.getMat4f();
                    transformMatrices[index] = Mat4f.getMat4f();
                } else {
                    System.out.println("Skeleton.getTransformMatrices: no VJoint found for sid=\"" + jointSids.get(index) + "\"");
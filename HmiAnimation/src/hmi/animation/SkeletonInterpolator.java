@@ -84,6 +84,10 @@ public class SkeletonInterpolator extends XMLStructureAdapter implements ClockLi
 
     private float[] lowerConfig, upperConfig;
 
+    private int lowerOffset, upperOffset; // offsets of the interval configs within lowerConfig and upperConfig
+
+    private float[] lowerFrame, upperFrame; // copies of the interval configs, for buffer backed ConfigLists
+
     private float[] buf = new float[4]; // temp copy buffer for Vec3f and Quat4f elements
 
     /**
@@ -225,6 +229,14 @@ public class SkeletonInterpolator extends XMLStructureAdapter implements ClockLi
         this.rotationEncoding = rotationEncoding;
     }
 
+    /**
+     * Returns the rotation encoding, like "Quat" or "AxisAngles", as specified in the XML encoding.
+     */
+    public String getRotationEncoding()
+    {
+        return rotationEncoding;
+    }
+
     /**
      * Returns the (uniform) size of configs, in number of floats.
      */
@@ -409,45 +421,58 @@ public class SkeletonInterpolator extends XMLStructureAdapter implements ClockLi
     public float[] getInterpolatedConfig(double t, float[] conf)
     {
         if (configs.size() == 0) return null;
-        if (conf == null) conf = new float[configs.getConfig(0).length];
+        if (conf == null) conf = new float[configs.getConfigSize()];
         float alpha = getInterpolationConfigs(t); // sets lowerConfig and upperConfig
-        interpolateConfigs(conf, alpha, lowerConfig, upperConfig);
+        interpolateConfigs(conf, 0, alpha, lowerConfig, lowerOffset, upperConfig, upperOffset);
         return conf;
     }
 
-    private void interpolateConfigs(float[] conf, float alpha, float[] lowerConfig, float[] upperConfig)
+    /**
+     * Like getInterpolatedConfig(t, conf), but stores the interpolated config in conf, starting at confOffset, so that the configs of
+     * several interpolators can be stored inside a single array. Returns false, and leaves conf unchanged, when the list of configs is empty.
+     */
+    public boolean getInterpolatedConfig(double t, float[] conf, int confOffset)
+    {
+        if (configs.size() == 0) return false;
+        float alpha = getInterpolationConfigs(t); // sets lowerConfig and upperConfig
+        interpolateConfigs(conf, confOffset, alpha, lowerConfig, lowerOffset, upperConfig, upperOffset);
+        return true;
+    }
+
+    private void interpolateConfigs(float[] conf, int confOffset, float alpha, float[] lowerConfig, int lowerOffset,
+            float[] upperConfig, int upperOffset)
     {
         int index = 0;
         if (hasRootTranslation && partIds.length > 0)
         {
-            Vec3f.interpolate(conf, 0, lowerConfig, 0, upperConfig, 0, alpha);
+            Vec3f.interpolate(conf, confOffset, lowerConfig, lowerOffset, upperConfig, upperOffset, alpha);
             index += 3;
         }
         for (int i = 0; i < partIds.length; i++)
         {
             if (hasTranslation)
             {
-                Vec3f.interpolate(conf, index, lowerConfig, index, upperConfig, index, alpha);
+                Vec3f.interpolate(conf, confOffset + index, lowerConfig, lowerOffset + index, upperConfig, upperOffset + index, alpha);
                 index += 3;
             }
             if (hasRotation)
             {
-                Quat4f.interpolate(conf, index, lowerConfig, index, upperConfig, index, alpha);
+                Quat4f.interpolate(conf, confOffset + index, lowerConfig, lowerOffset + index, upperConfig, upperOffset + index, alpha);
                 index += 4;
             }
             if (hasScale)
             {
-                Vec3f.interpolate(conf, index, lowerConfig, index, upperConfig, index, alpha);
+                Vec3f.interpolate(conf, confOffset + index, lowerConfig, lowerOffset + index, upperConfig, upperOffset + index, alpha);
                 index += 3;
             }
             if (hasVelocity)
             {
-                Vec3f.interpolate(conf, index, lowerConfig, index, upperConfig, index, alpha);
+                Vec3f.interpolate(conf, confOffset + index, lowerConfig, lowerOffset + index, upperConfig, upperOffset + index, alpha);
                 index += 3;
             }
             if (hasAngularVelocity)
             {
-                Vec3f.interpolate(conf, index, lowerConfig, index, upperConfig, index, alpha);
+                Vec3f.interpolate(conf, confOffset + index, lowerConfig, lowerOffset + index, upperConfig, upperOffset + index, alpha);
                 index += 3;
             }
         }
@@ -473,15 +498,30 @@ public class SkeletonInterpolator extends XMLStructureAdapter implements ClockLi
      */
     public void setTargetParts(int c)
     {
-        float config[] = getConfig(c);
-        int index = 0;
+        setTargetParts(configs.getData(c), configs.getConfigOffset(c));
+    }
+
+    /**
+     * Set targetparts to the config stored in the config array, starting at the specified offset
+     */
+    public void setTargetParts(float[] config, int offset)
+    {
+        if (targetParts == null) return;
+        int partStride = (hasTranslation ? 3 : 0) + (hasRotation ? 4 : 0) + (hasScale ? 3 : 0);
+        int index = offset;
         if (hasRootTranslation)
         {
-            targetParts[0].setTranslation(config, index);
+            if (targetParts[0] != null) targetParts[0].setTranslation(config, index);
             index += 3;
         }
         for (int i = 0; i < targetParts.length; i++)
         {
+            // can happen if the SkeletonInterpolator contains joints that are not in the target
+            if (targetParts[i] == null)
+            {
+                index += partStride;
+                continue;
+            }
             if (hasTranslation)
             {
                 targetParts[i].setTranslation(config, index);
@@ -589,33 +629,38 @@ public class SkeletonInterpolator extends XMLStructureAdapter implements ClockLi
         if (targetParts == null) return;
         if (configs.size() == 0) return;
         float alpha = getInterpolationConfigs(time); // sets lowerConfig and upperConfig
+        int partStride = (hasTranslation ? 3 : 0) + (hasRotation ? 4 : 0) + (hasScale ? 3 : 0);
         int index = 0;
         if (hasRootTranslation)
         {
-            Vec3f.interpolate(buf, 0, lowerConfig, 0, upperConfig, 0, alpha);
+            Vec3f.interpolate(buf, 0, lowerConfig, lowerOffset, upperConfig, upperOffset, alpha);
             targetParts[0].setTranslation(buf);
             index += 3;
         }
         for (int i = 0; i < targetParts.length; i++)
         {
             // can happen if the SkeletonInterpolator contains joints that are not in the target
-            if (targetParts[i] == null) continue;
+            if (targetParts[i] == null)
+            {
+                index += partStride;
+                continue;
+            }
 
             if (hasTranslation)
             {
-                Vec3f.interpolate(buf, 0, lowerConfig, index, upperConfig, index, alpha);
+                Vec3f.interpolate(buf, 0, lowerConfig, lowerOffset + index, upperConfig, upperOffset + index, alpha);
                 targetParts[i].setTranslation(buf);
                 index += 3;
             }
             if (hasRotation)
             {
-                Quat4f.interpolate(buf, 0, lowerConfig, index, upperConfig, index, alpha);
+                Quat4f.interpolate(buf, 0, lowerConfig, lowerOffset + index, upperConfig, upperOffset + index, alpha);
                 targetParts[i].setRotation(buf);
                 index += 4;
             }
             if (hasScale)
             {
-                Vec3f.interpolate(buf, 0, lowerConfig, index, upperConfig, index, alpha);
+                Vec3f.interpolate(buf, 0, lowerConfig, lowerOffset + index, upperConfig, upperOffset + index, alpha);
                 targetParts[i].setScale(buf);
                 index += 3;
             }
@@ -713,8 +758,24 @@ public class SkeletonInterpolator extends XMLStructureAdapter implements ClockLi
         lowerTime = configs.getTime(lowerIndex);
         upperTime = configs.getTime(upperIndex);
 
-        lowerConfig = configs.getConfig(lowerIndex);
-        upperConfig = configs.getConfig(upperIndex);
+        if (configs.isMapped())
+        {
+            if (lowerFrame == null || lowerFrame.length != configs.getConfigSize())
+            {
+                lowerFrame = new float[configs.getConfigSize()];
+                upperFrame = new float[configs.getConfigSize()];
+            }
+            lowerConfig = configs.getConfig(lowerIndex, lowerFrame);
+            upperConfig = configs.getConfig(upperIndex, upperFrame);
+            lowerOffset = upperOffset = 0;
+        }
+        else
+        {
+            lowerConfig = configs.getData(lowerIndex);
+            upperConfig = configs.getData(upperIndex);
+            lowerOffset = configs.getConfigOffset(lowerIndex);
+            upperOffset = configs.getConfigOffset(upperIndex);
+        }
 
         interval = upperTime - lowerTime;
         float alpha = (interval <= 0.0f) ? 0.0f : (float) ((t - lowerTime) / interval);
@@ -875,7 +936,7 @@ public class SkeletonInterpolator extends XMLStructureAdapter implements ClockLi
     public void decodeContent(XMLTokenizer xmlTokenizer) throws IOException
     {
         calculateConfigSize();
-        configs = new ConfigList(configSize);
+        configs = new ConfigList(configSize, true);
         configs.decodeContent(xmlTokenizer);
         if (rotationEncoding != null)
         {
@@ -897,7 +958,7 @@ public class SkeletonInterpolator extends XMLStructureAdapter implements ClockLi
     public void decodeContent(String data)
     {
         calculateConfigSize();
-        configs = new ConfigList(configSize);
+        configs = new ConfigList(configSize, true);
         configs.decodeContent(data);
         if (rotationEncoding != null)
         {
@@ -912,9 +973,10 @@ public class SkeletonInterpolator extends XMLStructureAdapter implements ClockLi
     {
         for (int i = 0; i < configs.size(); i++)
         {
-            float[] conf = configs.getConfig(i);
+            float[] conf = configs.getData(i);
+            int offset = configs.getConfigOffset(i);
             int startIndex = (hasRootTranslation) ? 3 : 0;
-            for (int ri = startIndex; ri < configSize; ri += stride)
+            for (int ri = offset + startIndex; ri < offset + configSize; ri += stride)
             {
                 Quat4f.setFromAxisAngle4f(conf, ri, conf, ri);
             }
@@ -925,9 +987,10 @@ public class SkeletonInterpolator extends XMLStructureAdapter implements ClockLi
     {
         for (int i = 0; i < configs.size(); i++)
         {
-            float[] conf = configs.getConfig(i);
+            float[] conf = configs.getData(i);
+            int offset = configs.getConfigOffset(i);
             int startIndex = (hasRootTranslation) ? 3 : 0;
-            for (int ri = startIndex; ri < configSize; ri += stride)
+            for (int ri = offset + startIndex; ri < offset + configSize; ri += stride)
             {
                 Quat4f.setFromXYZW(conf, ri, conf, ri);
             }
@@ -965,7 +1028,7 @@ public class SkeletonInterpolator extends XMLStructureAdapter implements ClockLi
             float alpha = (float)(t / duration);
             getInterpolatedConfig(tSource+t, startConfig);
             target.getInterpolatedConfig(tTarget+t, endConfig);
-            interpolateConfigs(result, alpha, startConfig, endConfig);
+            interpolateConfigs(result, 0, alpha, startConfig, 0, endConfig, 0);
             blend.configs.addConfig(t, result);
         }
         return blend;
@@ -1001,12 +1064,15 @@ public class SkeletonInterpolator extends XMLStructureAdapter implements ClockLi
     /**
      * Creates a new SkeletonInterpolator from an XML encoded file. The first argument must be a
      * Resources object that determines the resource directory, whereas the seond argument must be
-     * the filename relative to the resource directory.
+     * the filename relative to the resource directory. Files with the SkeletonInterpolatorBinaryIO
+     * file extension are read (memory mapped) from the binary format, rather than from XML.
      */
     public static SkeletonInterpolator read(Resources resources, String fileName) throws IOException
     {
+        if (SkeletonInterpolatorBinaryIO.isBinaryFileName(fileName)) return SkeletonInterpolatorBinaryIO.read(resources, fileName);
         Reader reader = resources.getReader(fileName);
         XMLTokenizer tk = new XMLTokenizer(reader);
+        tk.setBlockReading(true);
         SkeletonInterpolator ip = new SkeletonInterpolator(tk);
         reader.close();
         return ip;
@@ -1020,8 +1086,10 @@ public class SkeletonInterpolator extends XMLStructureAdapter implements ClockLi
     public static SkeletonInterpolator read(String resourceDir, String fileName) throws IOException
     {
         Resources resources = new Resources(resourceDir);
+        if (SkeletonInterpolatorBinaryIO.isBinaryFileName(fileName)) return SkeletonInterpolatorBinaryIO.read(resources, fileName);
         Reader reader = resources.getReader(fileName);
         XMLTokenizer tk = new XMLTokenizer(reader);
+        tk.setBlockReading(true);
         return new SkeletonInterpolator(tk);
     }
 
@@ -1032,8 +1100,10 @@ public class SkeletonInterpolator extends XMLStructureAdapter implements ClockLi
     public static SkeletonInterpolator read(String fileName) throws IOException
     {
         Resources resources = new Resources("");
+        if (SkeletonInterpolatorBinaryIO.isBinaryFileName(fileName)) return SkeletonInterpolatorBinaryIO.read(resources, fileName);
         Reader reader = resources.getReader(fileName);
         XMLTokenizer tk = new XMLTokenizer(reader);
+        tk.setBlockReading(true);
         return new SkeletonInterpolator(tk);
     }
 
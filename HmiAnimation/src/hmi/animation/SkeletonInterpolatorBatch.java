@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.animation;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluates a fixed set of SkeletonInterpolators for a common time. All interpolated configs are calculated into a single,
+ * contiguous, pose array, where the config of interpolator i starts at getPoseOffset(i). Evaluation can be done in parallel,
+ * on a ForkJoinPool, since it touches only the interpolators and the pose array. Afterwards, commit writes the poses to the
+ * target VJoints of the interpolators, in one pass over all interpolators. An interpolator should occur only once within a batch.
+ */
+public class SkeletonInterpolatorBatch
+{
+    /** Default (maximum) number of interpolators evaluated by a single parallel task */
+    public static final int DEFAULT_CHUNK_SIZE = 4;
+
+    private final SkeletonInterpolator[] interpolators;
+    private final int[] poseOffsets;
+    private final boolean[] evaluated; // false for interpolators without configs
+    private final float[] pose;
+    private boolean parallel = false;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * Creates a batch for the specified interpolators. The pose array is allocated here, so the config sizes of the interpolators
+     * should not change afterwards.
+     */
+    public SkeletonInterpolatorBatch(List<SkeletonInterpolator> interpolators)
+    {
+        this(interpolators.toArray(new SkeletonInterpolator[interpolators.size()]));
+    }
+
+    /**
+     * Creates a batch for the specified interpolators. The pose array is allocated here, so the config sizes of the interpolators
+     * should not change afterwards.
+     */
+    public SkeletonInterpolatorBatch(SkeletonInterpolator... interpolators)
+    {
+        this.interpolators = interpolators.clone();
+        poseOffsets = new int[interpolators.length + 1];
+        for (int i = 0; i < interpolators.length; i++)
+        {
+            poseOffsets[i + 1] = poseOffsets[i] + interpolators[i].getConfigSize();
+        }
+        evaluated = new boolean[interpolators.length];
+        pose = new float[poseOffsets[interpolators.length]];
+    }
+
+    /**
+     * Enables or disables parallel evaluation.
+     */
+    public void setParallel(boolean parallel)
+    {
+        this.parallel = parallel;
+    }
+
+    /** Returns true when interpolators are evaluated in parallel */
+    public boolean isParallel()
+    {
+        return parallel;
+    }
+
+    /**
+     * Sets the (maximum) number of interpolators that are evaluated by a single parallel task.
+     */
+    public void setChunkSize(int size)
+    {
+        if (size <= 0) throw new IllegalArgumentException("SkeletonInterpolatorBatch: chunk size should be positive: " + size);
+        chunkSize = size;
+    }
+
+    /**
+     * Sets the ForkJoinPool used for parallel evaluation. By default, the common pool is used.
+     */
+    public void setPool(ForkJoinPool forkJoinPool)
+    {
+        pool = forkJoinPool;
+    }
+
+    /** Returns the number of interpolators in this batch */
+    public int size()
+    {
+        return interpolators.length;
+    }
+
+    /** Returns interpolator i */
+    public SkeletonInterpolator getInterpolator(int i)
+    {
+        return interpolators[i];
+    }
+
+    /**
+     * Returns the pose array, containing the configs of all interpolators, as calculated by the last evaluate call.
+     */
+    public float[] getPose()
+    {
+        return pose;
+    }
+
+    /**
+     * Returns the offset within the pose array of the config of interpolator i.
+     */
+    public int getPoseOffset(int i)
+    {
+        return poseOffsets[i];
+    }
+
+    /**
+     * Calculates the interpolated configs of all interpolators for time t, and stores them in the pose array.
+     */
+    public void evaluate(double t)
+    {
+        if (!parallel || interpolators.length <= chunkSize)
+        {
+            evaluateRange(t, 0, interpolators.length);
+        }
+        else if (ForkJoinTask.inForkJoinPool())
+        {
+            new EvaluateTask(t, 0, interpolators.length).invoke();
+        }
+        else
+        {
+            pool.invoke(new EvaluateTask(t, 0, interpolators.length));
+        }
+    }
+
+    private void evaluateRange(double t, int from, int to)
+    {
+        for (int i = from; i < to; i++)
+        {
+            evaluated[i] = interpolators[i].getInterpolatedConfig(t, pose, poseOffsets[i]);
+        }
+    }
+
+    /**
+     * Writes the configs from the pose array to the target parts of the interpolators.
+     */
+    public void commit()
+    {
+        for (int i = 0; i < interpolators.length; i++)
+        {
+            if (evaluated[i]) interpolators[i].setTargetParts(pose, poseOffsets[i]);
+        }
+    }
+
+    /**
+     * Evaluates all interpolators for time t, and commits the result to their target parts. This has the same effect as calling
+     * interpolateTargetParts(t) for all interpolators.
+     */
+    public void interpolateTargetParts(double t)
+    {
+        evaluate(t);
+        commit();
+    }
+
+    /* Splits a range of interpolators until it fits within a single chunk */
+    private final class EvaluateTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private final double t;
+        private final int from;
+        private final int to;
+
+        EvaluateTask(double t, int from, int to)
+        {
+            this.t = t;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= chunkSize)
+            {
+                evaluateRange(t, from, to);
+            }
+            else
+            {
+                int mid = (from + to) >>> 1;
+                invokeAll(new EvaluateTask(t, from, mid), new EvaluateTask(t, mid, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.animation;
+
+import hmi.util.Resources;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Reads and writes SkeletonInterpolators in a compact binary format. The file starts with a header,
+ * containing the config type, rotation encoding, and part ids, followed by a block with all time stamps (doubles)
+ * and a block with all configs (floats, config after config). All values are stored little endian.
+ * Reading a file memory maps it, and the resulting ConfigList is a view on the mapped blocks, so opening a clip
+ * does not parse or copy the motion data, and clips that are opened more than once share the page cache.
+ */
+public final class SkeletonInterpolatorBinaryIO
+{
+    /** File extension for binary SkeletonInterpolator files */
+    public static final String FILE_EXTENSION = ".skbin";
+
+    private static final int MAGIC = 0x42494B53; // "SKIB", as little endian int
+    private static final int VERSION = 1;
+    private static final int FIXED_HEADER_SIZE = 20; // magic, version, header size, number of configs, config size
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private SkeletonInterpolatorBinaryIO()
+    {
+    }
+
+    /**
+     * Checks whether the file name has the binary SkeletonInterpolator extension.
+     */
+    public static boolean isBinaryFileName(String fileName)
+    {
+        return fileName != null && fileName.endsWith(FILE_EXTENSION);
+    }
+
+    /**
+     * Writes the SkeletonInterpolator to the specified file. The configs are written as they are
+     * stored in memory, so the rotation encoding in the header is just the (informative) encoding of the interpolator.
+     */
+    public static void write(SkeletonInterpolator ski, File file) throws IOException
+    {
+        ByteBuffer buffer = encode(ski);
+        FileOutputStream out = new FileOutputStream(file);
+        try
+        {
+            FileChannel channel = out.getChannel();
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Encodes the SkeletonInterpolator into a (heap) ByteBuffer, flipped and ready for reading.
+     */
+    public static ByteBuffer encode(SkeletonInterpolator ski)
+    {
+        ConfigList configs = ski.getConfigList();
+        int nrOfConfigs = ski.size();
+        int configSize = ski.getConfigSize();
+        String[] partIds = ski.getPartIds();
+        byte[][] strings = new byte[partIds.length + 2][];
+        strings[0] = ski.getConfigType().getBytes(UTF8);
+        strings[1] = (ski.getRotationEncoding() == null) ? new byte[0] : ski.getRotationEncoding().getBytes(UTF8);
+        int headerSize = FIXED_HEADER_SIZE + 4; // part count
+        for (int i = 0; i < partIds.length; i++)
+        {
+            strings[i + 2] = partIds[i].getBytes(UTF8);
+        }
+        for (byte[] s : strings)
+        {
+            headerSize += 4 + s.length;
+        }
+        headerSize = (headerSize + 7) & ~7; // align the time block on 8 bytes
+        ByteBuffer buffer = ByteBuffer.allocate(headerSize + nrOfConfigs * (8 + 4 * configSize));
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(headerSize).putInt(nrOfConfigs).putInt(configSize);
+        putString(buffer, strings[0]);
+        putString(buffer, strings[1]);
+        buffer.putInt(partIds.length);
+        for (int i = 0; i < partIds.length; i++)
+        {
+            putString(buffer, strings[i + 2]);
+        }
+        buffer.position(headerSize);
+        for (int i = 0; i < nrOfConfigs; i++)
+        {
+            buffer.putDouble(configs.getTime(i));
+        }
+        float[] config = new float[configSize];
+        for (int i = 0; i < nrOfConfigs; i++)
+        {
+            configs.getConfig(i, config);
+            for (int j = 0; j < configSize; j++)
+            {
+                buffer.putFloat(config[j]);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Memory maps the specified file, and returns a SkeletonInterpolator with a ConfigList that is backed by the mapped file.
+     */
+    public static SkeletonInterpolator read(File file) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try
+        {
+            FileChannel channel = raf.getChannel();
+            return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+        finally
+        {
+            raf.close(); // the mapping remains valid after closing the channel
+        }
+    }
+
+    /**
+     * Reads a binary SkeletonInterpolator resource. Resources that reside in the file system are memory mapped,
+     * other resources, like those inside jar files, are read into a direct buffer.
+     */
+    public static SkeletonInterpolator read(Resources resources, String fileName) throws IOException
+    {
+        URL url = resources.getURL(fileName);
+        if (url == null) throw new IOException("SkeletonInterpolatorBinaryIO: resource " + fileName + " not found");
+        if ("file".equals(url.getProtocol()))
+        {
+            try
+            {
+                return read(new File(url.toURI()));
+            }
+            catch (URISyntaxException e)
+            {
+                // fall through, and read the resource as a stream
+            }
+        }
+        InputStream in = url.openStream();
+        try
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] chunk = new byte[65536];
+            int n;
+            while ((n = in.read(chunk)) > 0)
+            {
+                bytes.write(chunk, 0, n);
+            }
+            byte[] data = bytes.toByteArray();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+            buffer.put(data).flip();
+            return decode(buffer);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Decodes a SkeletonInterpolator from the buffer, starting at its current position. The ConfigList of the result
+     * is a view on the buffer; the time and config data is not copied.
+     */
+    public static SkeletonInterpolator decode(ByteBuffer buffer) throws IOException
+    {
+        ByteBuffer header = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (header.remaining() < FIXED_HEADER_SIZE || header.getInt() != MAGIC)
+        {
+            throw new IOException("SkeletonInterpolatorBinaryIO: not a binary SkeletonInterpolator");
+        }
+        int version = header.getInt();
+        if (version != VERSION)
+        {
+            throw new IOException("SkeletonInterpolatorBinaryIO: unsupported version " + version);
+        }
+        int headerSize = header.getInt();
+        int nrOfConfigs = header.getInt();
+        int configSize = header.getInt();
+        String configType = getString(header);
+        String rotationEncoding = getString(header);
+        String[] partIds = new String[header.getInt()];
+        for (int i = 0; i < partIds.length; i++)
+        {
+            partIds[i] = getString(header);
+        }
+        int timeBytes = nrOfConfigs * 8;
+        if (header.capacity() < headerSize + timeBytes + nrOfConfigs * configSize * 4)
+        {
+            throw new IOException("SkeletonInterpolatorBinaryIO: truncated data, expected " + nrOfConfigs + " configs");
+        }
+
+        header.limit(headerSize + timeBytes).position(headerSize);
+        DoubleBuffer time = header.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        header.limit(headerSize + timeBytes + nrOfConfigs * configSize * 4).position(headerSize + timeBytes);
+        FloatBuffer data = header.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+
+        SkeletonInterpolator ski = new SkeletonInterpolator(partIds, new ConfigList(configSize, time, data), configType);
+        if (rotationEncoding.length() > 0) ski.setRotationEncoding(rotationEncoding);
+        return ski;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] s)
+    {
+        buffer.putInt(s.length);
+        buffer.put(s);
+    }
+
+    private static String getString(ByteBuffer buffer) throws IOException
+    {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining())
+        {
+            throw new IOException("SkeletonInterpolatorBinaryIO: corrupt header");
+        }
+        byte[] s = new byte[length];
+        buffer.get(s);
+        return new String(s, UTF8);
+    }
+}
@@ -29,6 +29,7 @@ import hmi.math.Mat4f;
 import hmi.math.Quat4f;
 import hmi.math.Vec3f;
 import hmi.util.Diff;
+import hmi.util.PartIndex;
 import java.util.ArrayList;
 import java.util.List;
 import org.slf4j.Logger;
@@ -52,6 +53,7 @@ public class VJoint implements VObject
     private VJoint parent;
 
     private ArrayList<VJoint> children;
+    private Index partIndex; // optional hashed index, shared by all VJoints in the tree, null when not indexed
     public static final int DEFAULTCAPACITY = 4;
 
     private float[] translation = Vec3f.getVec3f();
@@ -161,7 +163,9 @@ public class VJoint implements VObject
     @Override
     public final void setId(String id)
     {
+        if (partIndex != null) partIndex.remove(this);
         this.id = (id == null) ? null : id.intern();
+        if (partIndex != null) partIndex.add(this);
     }
 
     /**
@@ -170,7 +174,9 @@ public class VJoint implements VObject
     @Override
     public final void setSid(String sid)
     {
+        if (partIndex != null) partIndex.remove(this);
         this.sid = (sid == null) ? null : sid.intern();
+        if (partIndex != null) partIndex.add(this);
     }
 
     /**
@@ -179,7 +185,9 @@ public class VJoint implements VObject
     @Override
     public void setName(String name)
     {
+        if (partIndex != null) partIndex.remove(this);
         this.name = (name == null) ? null : name.intern();
+        if (partIndex != null) partIndex.add(this);
     }
 
     /**
@@ -288,6 +296,10 @@ public class VJoint implements VObject
         }
         children.add(newChild);
         newChild.setParent(this);
+        if (newChild.partIndex != partIndex)
+        {
+            newChild.setPartIndex(partIndex); // the child tree joins the index of this tree, and drops its own index, if any
+        }
     }
 
     /**
@@ -297,6 +309,100 @@ public class VJoint implements VObject
     {
         children.remove(vo);
         vo.setParent(null);
+        if (vo.partIndex != null)
+        {
+            vo.setPartIndex(null);
+        }
+    }
+
+    /**
+     * Creates a hashed index for the ids, sids, and names of all VJoints in the tree that contains this VJoint, so that getPart, getPartById,
+     * getPartBySid and the methods based upon them no longer search the tree, but use (expected) constant time lookups.
+     * The index is shared by all VJoints of the tree, and is maintained when VJoints are added, removed or renamed;
+     * a tree that is added as a child of an indexed tree joins its index, a child that is removed drops it.
+     * Search results are the same as without index; when several VJoints in the tree share the requested identifier, the search is used.
+     */
+    public void createPartIndex()
+    {
+        VJoint root = this;
+        while (root.parent != null)
+        {
+            root = root.parent;
+        }
+        root.setPartIndex(new Index());
+    }
+
+    /**
+     * Removes the hashed index for the tree that contains this VJoint, if any.
+     */
+    public void removePartIndex()
+    {
+        VJoint root = this;
+        while (root.parent != null)
+        {
+            root = root.parent;
+        }
+        root.setPartIndex(null);
+    }
+
+    /**
+     * Returns true when the tree that contains this VJoint has a hashed index, see createPartIndex.
+     */
+    public boolean hasPartIndex()
+    {
+        return partIndex != null;
+    }
+
+    /* sets the index for the subtree with this VJoint as root, removing the subtree from its current index, and adding it to the new one */
+    private void setPartIndex(Index index)
+    {
+        if (partIndex != null) partIndex.remove(this);
+        partIndex = index;
+        if (index != null) index.add(this);
+        for (VJoint vchild : children)
+        {
+            vchild.setPartIndex(index);
+        }
+    }
+
+    /* returns vj if it is this VJoint or one of its descendants, else null */
+    private VJoint inSubtree(VJoint vj)
+    {
+        for (VJoint anc = vj; anc != null; anc = anc.parent)
+        {
+            if (anc == this) return vj;
+        }
+        return null;
+    }
+
+    /*
+     * A hashed index for the VJoints of a tree, by id, by sid, and by any of id, sid, or name. 
+     */
+    private static final class Index
+    {
+        final PartIndex<VJoint> byId = new PartIndex<>();
+        final PartIndex<VJoint> bySid = new PartIndex<>();
+        final PartIndex<VJoint> byIdent = new PartIndex<>();
+
+        @edu.umd.cs.findbugs.annotations.SuppressWarnings(value = "ES_COMPARING_STRINGS_WITH_EQ", justification = "String is interned")
+        void add(VJoint vj)
+        {
+            byId.add(vj.id, vj);
+            bySid.add(vj.sid, vj);
+            byIdent.add(vj.id, vj);
+            if (vj.sid != vj.id) byIdent.add(vj.sid, vj);
+            if (vj.name != vj.id && vj.name != vj.sid) byIdent.add(vj.name, vj);
+        }
+
+        @edu.umd.cs.findbugs.annotations.SuppressWarnings(value = "ES_COMPARING_STRINGS_WITH_EQ", justification = "String is interned")
+        void remove(VJoint vj)
+        {
+            byId.remove(vj.id, vj);
+            bySid.remove(vj.sid, vj);
+            byIdent.remove(vj.id, vj);
+            if (vj.sid != vj.id) byIdent.remove(vj.sid, vj);
+            if (vj.name != vj.id && vj.name != vj.sid) byIdent.remove(vj.name, vj);
+        }
     }
 
     /**
@@ -309,12 +415,16 @@ public class VJoint implements VObject
 
     /**
      * Returns the result of a depth first search for some part identified by either id, sid, or name.
+     * When the tree has a part index, see createPartIndex, the search is replaced by a hashed lookup.
      */
     public VJoint getPart(String partIdent)
     {
         if (partIdent == null) {
             return null;
         }
+        if (partIndex != null && partIndex.byIdent.count(partIdent) <= 1) {
+            return inSubtree(partIndex.byIdent.get(partIdent));
+        }
         return searchPart(partIdent.intern());
     }
 
@@ -343,6 +453,9 @@ public class VJoint implements VObject
         if (partId == null) {
             return null;
         }
+        if (partIndex != null && partIndex.byId.count(partId) <= 1) {
+            return inSubtree(partIndex.byId.get(partId));
+        }
         return searchPartById(partId.intern());
     }
 
@@ -371,6 +484,9 @@ public class VJoint implements VObject
         if (partSid == null) {
             return null;
         }
+        if (partIndex != null && partIndex.bySid.count(partSid) <= 1) {
+            return inSubtree(partIndex.bySid.get(partSid));
+        }
         return searchPartBySid(partSid.intern());
 
     }
@@ -674,6 +790,15 @@ public class VJoint implements VObject
         return translation;
     }
 
+    /*
+     * Returns the translation buffer, for reading only, without marking it as shared. Used by compiled copy and blend plans for source
+     * VJoints, which are read, but never written, by the plan.
+     */
+    float[] getTranslationRef()
+    {
+        return translation;
+    }
+
     /**
      * Sets the translation buffer. Should be taken from another VJoint.translation
      */
@@ -866,6 +991,14 @@ public class VJoint implements VObject
         return rotation;
     }
 
+    /*
+     * Returns the rotation buffer, for reading only, without marking it as shared. See getTranslationRef.
+     */
+    float[] getRotationRef()
+    {
+        return rotation;
+    }
+
     /**
      * Sets the rotation buffer. Should be taken from another VJoint.rotation
      */
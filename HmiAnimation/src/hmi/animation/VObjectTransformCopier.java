@@ -32,7 +32,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Copies transformations from a list of source VObject to a list of destination VObjects 
+ * Copies transformations from a list of source VObject to a list of destination VObjects.
+ * The configuration is compiled into an immutable CopyPlan. When all parts are VJoints, translations and rotations
+ * are copied directly from the source VJoint buffers. Reconfiguration installs a new plan, so copyConfig does not lock.
  * @author welberge
  */
 public class VObjectTransformCopier
@@ -44,8 +46,7 @@ public class VObjectTransformCopier
 
     private String configType;
 
-    private boolean hasRootTranslation, hasTranslation, hasRotation, hasScale, hasVelocity,
-            hasAngularVelocity;
+    private volatile CopyPlan plan; // immutable, replaced by setConfigType and compile
 
     private float[] buf = new float[4]; // local buffer for copying Vec3f and Quat4f values.
 
@@ -121,16 +122,62 @@ public class VObjectTransformCopier
     public void setConfigType(String configType)
     {
         this.configType = configType;
-        hasRootTranslation = configType.startsWith("T1");
-        if (!hasRootTranslation) hasTranslation = (configType.indexOf('T') >= 0);
-        hasRotation = configType.indexOf('R') >= 0;
-        hasScale = configType.indexOf('S') >= 0;
-        hasVelocity = configType.indexOf('V') >= 0;
-        hasAngularVelocity = configType.indexOf('W') >= 0;
+        compile();
     }
 
     /**
-     * Copies translation, rotation and,
+     * Compiles the current configuration into a new CopyPlan, and installs it. Called by setConfigType.
+     */
+    public final void compile()
+    {
+        plan = new CopyPlan(configType, srcParts, dstParts);
+    }
+
+    /*
+     * An immutable copy plan. For VJoint parts, the plan holds the VJoints, and the number of translations and rotations to be copied.
+     * Source buffers are read directly, and destinations are set by means of setTranslation and setRotation, which invalidate
+     * the local matrix. Buffers are looked up for every copy, so buffers replaced by VJoint.setMaster or setRotationBuffer are
+     * picked up, and destination buffers are not marked as shared. For other VObjects the joint arrays are null, and getters and setters are used.
+     */
+    private static final class CopyPlan
+    {
+        final boolean hasRootTranslation, hasTranslation, hasRotation, hasScale, hasVelocity, hasAngularVelocity;
+        final VJoint[] srcJoints, dstJoints;
+        final int nrOfTranslations, nrOfRotations;
+
+        CopyPlan(String configType, VObject[] srcParts, VObject[] dstParts)
+        {
+            hasRootTranslation = configType.startsWith("T1");
+            hasTranslation = !hasRootTranslation && configType.indexOf('T') >= 0;
+            hasRotation = configType.indexOf('R') >= 0;
+            hasScale = configType.indexOf('S') >= 0;
+            hasVelocity = configType.indexOf('V') >= 0;
+            hasAngularVelocity = configType.indexOf('W') >= 0;
+            boolean vjoints = srcParts != null && dstParts != null;
+            for (int i = 0; vjoints && i < srcParts.length; i++)
+            {
+                vjoints = srcParts[i] instanceof VJoint && dstParts[i] instanceof VJoint;
+            }
+            if (!vjoints)
+            {
+                srcJoints = dstJoints = null;
+                nrOfTranslations = nrOfRotations = 0;
+                return;
+            }
+            srcJoints = new VJoint[srcParts.length];
+            dstJoints = new VJoint[dstParts.length];
+            for (int i = 0; i < srcParts.length; i++)
+            {
+                srcJoints[i] = (VJoint) srcParts[i];
+                dstJoints[i] = (VJoint) dstParts[i];
+            }
+            nrOfTranslations = hasTranslation ? srcParts.length : (hasRootTranslation && srcParts.length > 0 ? 1 : 0);
+            nrOfRotations = hasRotation ? srcParts.length : 0;
+        }
+    }
+
+    /**
+     * Copies translation, rotation, scale, velocity and angular velocity, as specified by the config type.
      */
     public void copyConfig()
     {
@@ -139,12 +186,35 @@ public class VObjectTransformCopier
             logger.error("VObjectTreeCopier.copyConfig: null source or destination");
             return;
         }
-        if (hasRootTranslation)
+        CopyPlan p = plan;
+        if (p.srcJoints != null)
+        {
+            final VJoint[] src = p.srcJoints, dst = p.dstJoints;
+            for (int i = 0; i < p.nrOfTranslations; i++)
+            {
+                dst[i].setTranslation(src[i].getTranslationRef());
+            }
+            for (int i = 0; i < p.nrOfRotations; i++)
+            {
+                dst[i].setRotation(src[i].getRotationRef());
+            }
+        }
+        else
+        {
+            copyTranslationsAndRotations(p);
+        }
+        copyOthers(p);
+    }
+
+    /* copies translations and rotations by means of VObject getters and setters */
+    private void copyTranslationsAndRotations(CopyPlan p)
+    {
+        if (p.hasRootTranslation)
         {
             srcParts[0].getTranslation(buf);
             dstParts[0].setTranslation(buf);
         }
-        if (hasTranslation)
+        if (p.hasTranslation)
         {
             for (int i = 0; i < srcParts.length; i++)
             {
@@ -152,7 +222,7 @@ public class VObjectTransformCopier
                 dstParts[i].setTranslation(buf);
             }
         }
-        if (hasRotation)
+        if (p.hasRotation)
         {
             for (int i = 0; i < srcParts.length; i++)
             {
@@ -160,7 +230,12 @@ public class VObjectTransformCopier
                 dstParts[i].setRotation(buf);
             }
         }
-        if (hasScale)
+    }
+
+    /* copies scale, velocity and angular velocity, which have no raw buffers, by means of VObject getters and setters */
+    private void copyOthers(CopyPlan p)
+    {
+        if (p.hasScale)
         {
             for (int i = 0; i < srcParts.length; i++)
             {
@@ -168,7 +243,7 @@ public class VObjectTransformCopier
                 dstParts[i].setScale(buf);
             }
         }
-        if (hasVelocity)
+        if (p.hasVelocity)
         {
             for (int i = 0; i < srcParts.length; i++)
             {
@@ -176,7 +251,7 @@ public class VObjectTransformCopier
                 dstParts[i].setVelocity(buf);
             }
         }
-        if (hasAngularVelocity)
+        if (p.hasAngularVelocity)
         {
             for (int i = 0; i < srcParts.length; i++)
             {
@@ -12,10 +12,14 @@ import hmi.animation.motiongraph.metrics.JointAngles;
 import hmi.animation.motiongraph.split.DefaultSplit;
 import hmi.animation.motiongraph.split.ISplit;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 
@@ -291,56 +295,88 @@ public final class MotionGraph implements IMotionGraph {
 
     /**
      * Reconnect all Motions that have been cut in xml-format. Will not be needed in final implementation
+     * <p>
+     * Edges are indexed by the hash of their first frame, so that only Motions with equal hashes are compared.
      */
     private void connectMotions() {
 
         IEquals equals = new Equals();
 
+        Map<Integer, List<Edge>> edgesByStart = new HashMap<>();
+        for (Edge end : edges) {
+            int hash = equals.startHash(end.getMotion());
+            List<Edge> candidates = edgesByStart.get(hash);
+            if (candidates == null) {
+                candidates = new ArrayList<>();
+                edgesByStart.put(hash, candidates);
+            }
+            candidates.add(end);
+        }
+
+        Set<Node> deletedNodes = new HashSet<>();
         for (Edge start : edges) {
-            for (Edge end : edges) {
+            List<Edge> candidates = edgesByStart.get(equals.endHash(start.getMotion()));
+            if (candidates == null) {
+                continue;
+            }
+            for (Edge end : candidates) {
                 if (equals.startEndEquals(start.getMotion(), end.getMotion())) {
                     Node deletedNode = end.getStartNode();
-                    nodes.remove(deletedNode);
+                    deletedNodes.add(deletedNode);
                     deletedNode.getOutgoingEdges().remove(end);
                     end.setStartNode(start.getEndNode());
 
                 }
             }
         }
+        nodes.removeAll(deletedNodes);
 
     }
 
     /**
      * Connect all Motions that are similar enough with blends.
+     * <p>
+     * The distances between all candidate Motions are computed at once, by {@link IDistance#distances}, before
+     * blends are added. Distances only depend on the last and first {@link #DEFAULT_BLENDING_FRAMES} Frames of the
+     * Motions, which are kept by {@link #createBlending}, so the graph itself is modified on a single thread afterwards.
      */
     private void createBlends() {
-        List<Node> starts = new LinkedList<>();
+        List<Node> starts = new ArrayList<>();
+        List<SkeletonInterpolator> startMotions = new ArrayList<>();
         for (Node node : nodes) {
             if (!node.getIncomingEdges().isEmpty()) {
-                starts.add(node);
+                SkeletonInterpolator motion = node.getIncomingEdges().get(0).getMotion();
+                if (motion.size() >= DEFAULT_BLENDING_FRAMES) {
+                    starts.add(node);
+                    startMotions.add(motion);
+                }
             }
         }
-        List<Node> ends = new LinkedList<>();
+        List<Node> ends = new ArrayList<>();
+        List<SkeletonInterpolator> endMotions = new ArrayList<>();
         for (Node node : nodes) {
             if (node.hasNext()) {
-                ends.add(node);
+                SkeletonInterpolator motion = node.getOutgoingEdges().get(0).getMotion();
+                if (motion.size() >= DEFAULT_BLENDING_FRAMES) {
+                    ends.add(node);
+                    endMotions.add(motion);
+                }
             }
         }
 
-        for (Node start : starts) {
-            for (Node end : ends) {
+        double[] distances = metric.distances(startMotions, endMotions, DEFAULT_BLENDING_FRAMES);
+
+        for (int i = 0; i < starts.size(); i++) {
+            Node start = starts.get(i);
+            for (int j = 0; j < ends.size(); j++) {
+                Node end = ends.get(j);
                 if (start == end) {
                     //motions already connected
                     continue;
                 }
 
-                if (start.getIncomingEdges().get(0).getMotion().size() >= DEFAULT_BLENDING_FRAMES
-                        && end.getOutgoingEdges().get(0).getMotion().size() >= DEFAULT_BLENDING_FRAMES) {
-
-                    if (metric.distance(start.getIncomingEdges().get(0).getMotion(),
-                            end.getOutgoingEdges().get(0).getMotion(), DEFAULT_BLENDING_FRAMES) <= DEFAULT_THRESHOLD) {
-                        createBlending(start.getIncomingEdges().get(0), end.getOutgoingEdges().get(0));
-                    }
+                if (distances[i * ends.size() + j] <= DEFAULT_THRESHOLD) {
+                    createBlending(start.getIncomingEdges().get(0), end.getOutgoingEdges().get(0));
                 }
             }
 
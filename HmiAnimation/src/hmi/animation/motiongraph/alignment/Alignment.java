@@ -30,44 +30,14 @@ public class Alignment implements IAlignment {
         } // copy second.partIds
 
         float[] firstConfig = first.getConfig(first.size() - frames); // Frame where blending starts
+        float[] secondStart = second.getConfig(0);
 
-
-
-        float[] quat1 = {firstConfig[Quat4f.S + 3], firstConfig[Quat4f.X + 3], firstConfig[Quat4f.Y + 3], firstConfig[Quat4f.Z + 3]};
-        //Quaternion of first motion
-
-        float[] firstRollPitchYaw = new float[3];
-        Quat4f.getRollPitchYaw(quat1, firstRollPitchYaw);
-
-        float[] secondConf = {second.getConfig(0)[Quat4f.S + 3], second.getConfig(0)[Quat4f.X + 3],
-                second.getConfig(0)[Quat4f.Y + 3], second.getConfig(0)[Quat4f.Z + 3]};
-        float[] secondRollPitchYawConf0 = new float[3];
-        Quat4f.getRollPitchYaw(secondConf, secondRollPitchYawConf0);
-
+        float[] offset = new float[ROOT_OFFSET_SIZE];
+        float[] scratch = new float[ROOT_SCRATCH_SIZE];
+        rootOffset(firstConfig, secondStart, offset);
         for (int i = 0; i < second.getConfigList().size(); i++) {
             config = second.getConfig(i).clone();
-
-            // Adjust Translation
-            config[Vec3f.X] = config[Vec3f.X] - second.getConfig(0)[Vec3f.X] + firstConfig[Vec3f.X];
-            config[Vec3f.Y] = config[Vec3f.Y] - second.getConfig(0)[Vec3f.Y] + firstConfig[Vec3f.Y];
-            config[Vec3f.Z] = config[Vec3f.Z] - second.getConfig(0)[Vec3f.Z] + firstConfig[Vec3f.Z];
-
-
-            //Adjust Rotation
-
-            float[] quat2 = {config[Quat4f.S + 3], config[Quat4f.X + 3], config[Quat4f.Y + 3], config[Quat4f.Z + 3]};
-            // Quaterninon of second motion
-
-            float[] secondRollPitchYaw = new float[3];
-            Quat4f.getRollPitchYaw(quat2, secondRollPitchYaw);
-
-            secondRollPitchYaw[2] = secondRollPitchYaw[2] - secondRollPitchYawConf0[2] + firstRollPitchYaw[2];
-
-            Quat4f.setFromRollPitchYaw(quat2, secondRollPitchYaw[0], secondRollPitchYaw[1], secondRollPitchYaw[2]);
-            config[Quat4f.S + 3] = quat2[Quat4f.S];
-            config[Quat4f.X + 3] = quat2[Quat4f.X];
-            config[Quat4f.Y + 3] = quat2[Quat4f.Y];
-            config[Quat4f.Z + 3] = quat2[Quat4f.Z];
+            applyRootOffset(offset, config, scratch);
 
             configList.addConfig(second.getTime(i), config); //Set new config for new SkeletonInterplator
 
@@ -82,4 +52,39 @@ public class Alignment implements IAlignment {
          */
         return newSecond;
     }
+
+    /**
+     * {@inheritDoc} Aligns the root translation, and the yaw of the root rotation.
+     */
+    @Override
+    public void alignRoot(float[] firstConfig, float[] secondStart, float[] config) {
+        float[] offset = new float[ROOT_OFFSET_SIZE];
+        rootOffset(firstConfig, secondStart, offset);
+        applyRootOffset(offset, config, new float[ROOT_SCRATCH_SIZE]);
+    }
+
+    /**
+     * {@inheritDoc} The offset consists of the root translation, and the yaw of the root rotation, from secondStart to
+     * firstConfig.
+     */
+    @Override
+    public void rootOffset(float[] firstConfig, float[] secondStart, float[] offset) {
+        // the yaw of the first motion, where blending starts, minus the yaw of the start of the second motion
+        Quat4f.getRollPitchYaw(firstConfig, 3, offset);
+        float firstYaw = offset[2];
+        Quat4f.getRollPitchYaw(secondStart, 3, offset);
+        float secondYaw = offset[2];
+        Vec3f.sub(offset, 0, firstConfig, 0, secondStart, 0);
+        offset[3] = firstYaw - secondYaw;
+    }
+
+    @Override
+    public void applyRootOffset(float[] offset, float[] config, float[] scratch) {
+        // Adjust Translation
+        Vec3f.add(config, 0, offset, 0);
+
+        //Adjust Rotation
+        Quat4f.getRollPitchYaw(config, 3, scratch);
+        Quat4f.setFromRollPitchYaw(config, 3, scratch[0], scratch[1], scratch[2] + offset[3]);
+    }
 }
@@ -9,6 +9,16 @@ import hmi.animation.SkeletonInterpolator;
  */
 public interface IAlignment {
 
+    /**
+     * Minimum size of the offset arrays of {@link #rootOffset} and {@link #applyRootOffset}.
+     */
+    int ROOT_OFFSET_SIZE = 4;
+
+    /**
+     * Minimum size of the scratch arrays of {@link #applyRootOffset}.
+     */
+    int ROOT_SCRATCH_SIZE = 3;
+
     /**
      * Align motion's root positions before blending.
      * <p>
@@ -19,4 +29,37 @@ public interface IAlignment {
      * {@code second} can be modified.
      */
     SkeletonInterpolator align(SkeletonInterpolator first, SkeletonInterpolator second, int frames);
+
+    /**
+     * Aligns a single config of the motion to be blended in, in the same way as {@link #align} aligns every config of
+     * {@code second}. Only the root translation and root rotation, that is, the first 7 floats of a "T1R" config, are
+     * read and modified. This allows distance metrics to align frames without copying complete motions, so
+     * implementations should not keep state, and must be thread safe.
+     * <p>
+     * @param firstConfig config of the first motion where blending starts, i.e. frame {@code first.size() - frames}
+     * @param secondStart first config of the motion to be blended in
+     * @param config config of the motion to be blended in, aligned in place.
+     */
+    void alignRoot(float[] firstConfig, float[] secondStart, float[] config);
+
+    /**
+     * Computes the part of {@link #alignRoot} that depends only on {@code firstConfig} and {@code secondStart}, so
+     * that aligning many configs of the same pair of motions needs to compute it only once. The content of offset is
+     * implementation specific, and is meant to be passed to {@link #applyRootOffset}.
+     * <p>
+     * @param firstConfig config of the first motion where blending starts
+     * @param secondStart first config of the motion to be blended in
+     * @param offset result, at least {@link #ROOT_OFFSET_SIZE} floats.
+     */
+    void rootOffset(float[] firstConfig, float[] secondStart, float[] offset);
+
+    /**
+     * Aligns a single config like {@link #alignRoot}, with an offset computed by {@link #rootOffset}, without allocating
+     * memory.
+     * <p>
+     * @param offset offset computed by {@link #rootOffset}
+     * @param config config of the motion to be blended in, aligned in place.
+     * @param scratch scratch array, at least {@link #ROOT_SCRATCH_SIZE} floats.
+     */
+    void applyRootOffset(float[] offset, float[] config, float[] scratch);
 }
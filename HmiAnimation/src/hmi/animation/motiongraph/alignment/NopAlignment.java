@@ -11,4 +11,16 @@ public class NopAlignment implements IAlignment {
     public SkeletonInterpolator align(SkeletonInterpolator first, SkeletonInterpolator second, int frames) {
         return second;
     }
+
+    @Override
+    public void alignRoot(float[] firstConfig, float[] secondStart, float[] config) {
+    }
+
+    @Override
+    public void rootOffset(float[] firstConfig, float[] secondStart, float[] offset) {
+    }
+
+    @Override
+    public void applyRootOffset(float[] offset, float[] config, float[] scratch) {
+    }
 }
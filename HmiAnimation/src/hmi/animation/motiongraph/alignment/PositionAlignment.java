@@ -24,14 +24,11 @@ public class PositionAlignment implements IAlignment
         } // copy second.partIds
 
         float[] firstConfig = first.getConfig(first.size() - frames); // Frame where blending starts
+        float[] secondStart = second.getConfig(0);
         
         for (int i = 0; i < second.getConfigList().size(); i++) {
             config = second.getConfig(i).clone();
-
-            // Adjust Translation
-            config[Vec3f.X] = config[Vec3f.X] - second.getConfig(0)[Vec3f.X] + firstConfig[Vec3f.X];
-            config[Vec3f.Y] = config[Vec3f.Y] - second.getConfig(0)[Vec3f.Y] + firstConfig[Vec3f.Y];
-            config[Vec3f.Z] = config[Vec3f.Z] - second.getConfig(0)[Vec3f.Z] + firstConfig[Vec3f.Z];
+            alignRoot(firstConfig, secondStart, config);
             configList.addConfig(second.getTime(i), config); //Set new config for new SkeletonInterplator
 
         }
@@ -41,5 +38,27 @@ public class PositionAlignment implements IAlignment
         newSecond.setPartIds(partIds);        
         return newSecond;
     }
-    
+
+    @Override
+    public void alignRoot(float[] firstConfig, float[] secondStart, float[] config)
+    {
+        config[Vec3f.X] = config[Vec3f.X] - secondStart[Vec3f.X] + firstConfig[Vec3f.X];
+        config[Vec3f.Y] = config[Vec3f.Y] - secondStart[Vec3f.Y] + firstConfig[Vec3f.Y];
+        config[Vec3f.Z] = config[Vec3f.Z] - secondStart[Vec3f.Z] + firstConfig[Vec3f.Z];
+    }
+
+    /**
+     * {@inheritDoc} The offset is the root translation from secondStart to firstConfig.
+     */
+    @Override
+    public void rootOffset(float[] firstConfig, float[] secondStart, float[] offset)
+    {
+        Vec3f.sub(offset, 0, firstConfig, 0, secondStart, 0);
+    }
+
+    @Override
+    public void applyRootOffset(float[] offset, float[] config, float[] scratch)
+    {
+        Vec3f.add(config, 0, offset, 0);
+    }
 }
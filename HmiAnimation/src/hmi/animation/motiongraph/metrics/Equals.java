@@ -3,7 +3,9 @@ package hmi.animation.motiongraph.metrics;
 import hmi.animation.Hanim;
 import hmi.animation.SkeletonInterpolator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  *
@@ -74,4 +76,46 @@ public class Equals implements IEquals {
 
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int endHash(SkeletonInterpolator motion) {
+        return motion.size() == 0 ? 0 : frameHash(motion, motion.getConfig(motion.size() - 1));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int startHash(SkeletonInterpolator motion) {
+        return motion.size() == 0 ? 0 : frameHash(motion, motion.getConfig(0));
+    }
+
+    /**
+     * Hash code of the values compared by startEndEquals. Parts are matched by id, so the part hashes are combined
+     * independent of their order. For duplicate part ids, only the last part counts, like in startEndEquals.
+     */
+    private int frameHash(SkeletonInterpolator motion, float[] config) {
+        int i = 0;
+        if (motion.getConfigType().contains(SkeletonInterpolator.ROOT_TRANSFORM)) {
+            i += 3;
+        }
+        String[] partIds = motion.getPartIds();
+        Set<String> hashed = new HashSet<>();
+        int partsHash = 0;
+        for (int part = partIds.length - 1; part >= 0; part--) {
+            if (partIds[part].equals(Hanim.HumanoidRoot) || !hashed.add(partIds[part])) {
+                continue;
+            }
+            int partHash = partIds[part].hashCode();
+            for (int j = 0; j < 4; j++) {
+                float value = config[i + j + part * 3];
+                partHash = 31 * partHash + (value == 0f ? 0 : Float.floatToIntBits(value)); // 0f == -0f
+            }
+            partsHash += partHash;
+        }
+        return (31 * motion.getConfigType().hashCode() + config.length) * 31 + partsHash;
+    }
+
 }
@@ -2,6 +2,8 @@ package hmi.animation.motiongraph.metrics;
 
 import hmi.animation.SkeletonInterpolator;
 
+import java.util.List;
+
 /**
  * Interface for Distance-Metric.
  * <p>
@@ -48,4 +50,17 @@ public interface IDistance {
      */
     double distance(SkeletonInterpolator start, SkeletonInterpolator end, int frames);
 
+    /**
+     * Computes {@link #distance(SkeletonInterpolator start, SkeletonInterpolator end, int frames)} for every
+     * combination of a motion from {@code starts} and a motion from {@code ends}. Implementations can share work
+     * between pairs, and may compute pairs in parallel; the motions must not be modified meanwhile.
+     * <p>
+     * @param starts First Motions, each with at least {@code frames} Frames
+     * @param ends Second Motions, each with at least {@code frames} Frames
+     * @param frames Number of Frames to use to compare the Motions
+     * @return distance matrix, in row major order: the distance between {@code starts.get(i)} and
+     * {@code ends.get(j)} is at index {@code i * ends.size() + j}
+     */
+    double[] distances(List<SkeletonInterpolator> starts, List<SkeletonInterpolator> ends, int frames);
+
 }
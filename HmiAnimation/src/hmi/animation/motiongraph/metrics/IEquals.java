@@ -8,6 +8,16 @@ import hmi.animation.SkeletonInterpolator;
  */
 public interface IEquals {
     boolean startEndEquals(SkeletonInterpolator motion1, SkeletonInterpolator motion2);
-    
-    
+
+    /**
+     * Returns a hash code for the last frame of {@code motion}, such that {@code startEndEquals(motion1, motion2)}
+     * implies {@code endHash(motion1) == startHash(motion2)}. This allows to find equal motions without comparing all
+     * pairs.
+     */
+    int endHash(SkeletonInterpolator motion);
+
+    /**
+     * Returns a hash code for the first frame of {@code motion}, see {@link #endHash}.
+     */
+    int startHash(SkeletonInterpolator motion);
 }
@@ -4,10 +4,15 @@ import hmi.animation.SkeletonInterpolator;
 import hmi.animation.motiongraph.alignment.IAlignment;
 import hmi.math.Quat4f;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Implementation of {@code IDistance} which compares Joint Angles.
@@ -18,6 +23,11 @@ import java.util.Set;
  * TODO: Align compared frames, yet SkeletonInterpolator isn't like the same but translated or rotated
  * SkeletonInterpolator.
  * <p>
+ * For "T1R" motions, frame distances are computed from log-quaternion features, that are calculated once per motion
+ * rather than once per compared pair, and only the root of the compared frames is aligned, by means of an offset
+ * that is computed once per compared pair ({@link IAlignment#rootOffset}), and applied without allocating memory
+ * ({@link IAlignment#applyRootOffset}). Distance matrices for many motions ({@link #distances}) are computed in parallel.
+ * <p>
  * @author yannick-broeker
  */
 public final class JointAngles implements IDistance {
@@ -26,6 +36,18 @@ public final class JointAngles implements IDistance {
      * Default number of frames to be compared.
      */
     public static final int DEFAULT_COMPARED_FRAMES = 10;
+    /**
+     * Default (maximum) number of rows of a distance matrix computed by a single parallel task.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 4;
+    /**
+     * Config type of the motions for which features are used.
+     */
+    private static final String FEATURE_CONFIG_TYPE = SkeletonInterpolator.ROOT_TRANSFORM + SkeletonInterpolator.ROTATION;
+    /**
+     * Size of the root of a config: root translation and root rotation.
+     */
+    private static final int ROOT_SIZE = 7;
     /**
      * Weights for Joints
      */
@@ -35,6 +57,9 @@ public final class JointAngles implements IDistance {
      */
     private final IAlignment align;
 
+    private boolean parallel = true;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
     /**
      * Creates a new DistanceMetric based on comparing JointAngles.
      * 
@@ -44,6 +69,20 @@ public final class JointAngles implements IDistance {
         this.align = align;
     }
 
+    /**
+     * Enables or disables parallel computation of distance matrices. Enabled by default.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Sets the ForkJoinPool used for computing distance matrices. By default, the common pool is used.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
     /**
      * {@inheritDoc} This implementation calls
      * {@link #distance(SkeletonInterpolator, SkeletonInterpolator, int)} with
@@ -55,21 +94,126 @@ public final class JointAngles implements IDistance {
     }
 
     /**
-     * {@inheritDoc} This implementation calls
-     * {@link #distance(SkeletonInterpolator, SkeletonInterpolator, int, int)} for each
-     * pair of frames und sums the distances up.
+     * {@inheritDoc} This implementation sums the distances of each pair of frames, like
+     * {@link #distance(SkeletonInterpolator, SkeletonInterpolator, int, int)} does for the aligned motions.
      */
     @Override
     public double distance(SkeletonInterpolator start, SkeletonInterpolator end, int frames) {
+        Map<String, Integer> jointTable = new HashMap<>();
+        Features startFeatures = Features.create(start, start.size() - frames, frames, jointTable);
+        Features endFeatures = Features.create(end, 0, frames, jointTable);
+        if (startFeatures == null || endFeatures == null) {
+            return alignedDistance(start, end, frames);
+        }
+        float[] jointWeights = jointWeights(jointTable);
+        endFeatures.indexJoints(jointWeights.length);
+        return featureDistance(startFeatures, endFeatures, frames, jointWeights, new float[ROOT_SIZE], new float[4], new float[3],
+                new float[IAlignment.ROOT_OFFSET_SIZE], new float[IAlignment.ROOT_SCRATCH_SIZE]);
+    }
+
+    /**
+     * {@inheritDoc} Features are calculated once for every motion, where all motions share a single joint table.
+     * Rows of the matrix are computed in parallel, unless switched off by {@link #setParallel}.
+     */
+    @Override
+    public double[] distances(List<SkeletonInterpolator> starts, List<SkeletonInterpolator> ends, int frames) {
+        SkeletonInterpolator[] startMotions = starts.toArray(new SkeletonInterpolator[starts.size()]);
+        SkeletonInterpolator[] endMotions = ends.toArray(new SkeletonInterpolator[ends.size()]);
+        Map<String, Integer> jointTable = new HashMap<>();
+        Features[] startFeatures = new Features[startMotions.length];
+        for (int i = 0; i < startMotions.length; i++) {
+            startFeatures[i] = Features.create(startMotions[i], startMotions[i].size() - frames, frames, jointTable);
+        }
+        Features[] endFeatures = new Features[endMotions.length];
+        for (int j = 0; j < endMotions.length; j++) {
+            endFeatures[j] = Features.create(endMotions[j], 0, frames, jointTable);
+        }
+        float[] jointWeights = jointWeights(jointTable);
+        for (Features features : endFeatures) {
+            if (features != null) {
+                features.indexJoints(jointWeights.length);
+            }
+        }
+
+        DistanceTask task = new DistanceTask(new DistanceMatrix(startMotions, endMotions, startFeatures, endFeatures, jointWeights,
+                frames), 0, startMotions.length);
+        if (!parallel || startMotions.length <= DEFAULT_CHUNK_SIZE) {
+            task.computeRows();
+        } else if (ForkJoinTask.inForkJoinPool()) {
+            task.invoke();
+        } else {
+            pool.invoke(task);
+        }
+        return task.matrix.distances;
+    }
 
+    /* The original algorithm: aligns a copy of end, and compares frame by frame */
+    private double alignedDistance(SkeletonInterpolator start, SkeletonInterpolator end, int frames) {
         SkeletonInterpolator endAligned = align.align(start, end, frames);
 
-        
         float totalDist = 0;
         for (int i = 0; i < frames; i++) {
-            totalDist += distance(start, endAligned, frames -i, i);
+            totalDist += distance(start, endAligned, frames - i, i);
+        }
+
+        return totalDist;
+    }
+
+    /* weights for the joints of the joint table */
+    private float[] jointWeights(Map<String, Integer> jointTable) {
+        float[] jointWeights = new float[jointTable.size()];
+        for (Map.Entry<String, Integer> joint : jointTable.entrySet()) {
+            Float weight = weights.get(joint.getKey());
+            jointWeights[joint.getValue()] = weight != null ? weight : 1;
         }
+        return jointWeights;
+    }
+
+    /*
+     * Like alignedDistance, but based upon features. Only the root of the frames of end is aligned, and the log of its
+     * rotation is recalculated. The alignment offset is computed once for the pair. root, quat, log, offset and
+     * alignScratch are scratch arrays.
+     */
+    private double featureDistance(Features start, Features end, int frames, float[] jointWeights, float[] root, float[] quat,
+            float[] log, float[] offset, float[] alignScratch) {
+        float totalDist = 0;
+        align.rootOffset(start.firstRoot, end.firstRoot, offset);
+        for (int i = 0; i < frames; i++) {
+            System.arraycopy(end.roots, i * ROOT_SIZE, root, 0, ROOT_SIZE);
+            align.applyRootOffset(offset, root, alignScratch);
+
+            double rootTransformDist = 0;
+            int startRoot = i * ROOT_SIZE;
+            for (int k = 0; k < 3; k++) {
+                double d = start.roots[startRoot + k] - root[k];
+                rootTransformDist += d * d;
+            }
 
+            System.arraycopy(root, 3, quat, 0, 4);
+            Quat4f.log(log, quat);
+            double rotDist = 0;
+            int startLogs = i * start.nrOfParts * 3;
+            int endLogs = i * end.nrOfParts * 3;
+            for (int p = 0; p < start.nrOfParts; p++) {
+                int joint = start.joints[p];
+                int q = joint < end.parts.length ? end.parts[joint] : -1;
+                if (q < 0 || start.parts[joint] != p) {
+                    continue; // joint not in end, or a duplicate part id of start
+                }
+                int s = startLogs + p * 3;
+                float[] endLog = end.logs;
+                int e = endLogs + q * 3;
+                if (q == 0) { // the aligned root rotation
+                    endLog = log;
+                    e = 0;
+                }
+                float dx = start.logs[s] - endLog[e];
+                float dy = start.logs[s + 1] - endLog[e + 1];
+                float dz = start.logs[s + 2] - endLog[e + 2];
+                rotDist += jointWeights[joint] * (double) (dx * dx + dy * dy + dz * dz);
+            }
+            totalDist += rootTransformDist + rotDist;
+        }
         return totalDist;
     }
 
@@ -176,4 +320,143 @@ try {
 
     }
 
+    /**
+     * Log-quaternion features for a range of frames of a "T1R" motion.
+     */
+    private static final class Features {
+        /** number of parts of the motion */
+        private final int nrOfParts;
+        /** index within the joint table, for every part */
+        private final int[] joints;
+        /** root translation and root rotation, for every frame */
+        private final float[] roots;
+        /** root of the first frame of the motion range, used for alignment */
+        private final float[] firstRoot;
+        /** logarithm of the rotation of every part, for every frame */
+        private final float[] logs;
+        /** part index for every joint of the joint table, or -1 */
+        private int[] parts;
+
+        private Features(SkeletonInterpolator motion, int first, int frames, Map<String, Integer> jointTable) {
+            String[] partIds = motion.getPartIds();
+            nrOfParts = partIds.length;
+            joints = new int[nrOfParts];
+            for (int p = 0; p < nrOfParts; p++) {
+                Integer joint = jointTable.get(partIds[p]);
+                if (joint == null) {
+                    joint = jointTable.size();
+                    jointTable.put(partIds[p], joint);
+                }
+                joints[p] = joint;
+            }
+            roots = new float[frames * ROOT_SIZE];
+            logs = new float[frames * nrOfParts * 3];
+            float[] quat = new float[4];
+            float[] log = new float[3];
+            for (int i = 0; i < frames; i++) {
+                float[] config = motion.getConfig(first + i);
+                System.arraycopy(config, 0, roots, i * ROOT_SIZE, ROOT_SIZE);
+                for (int p = 0; p < nrOfParts; p++) {
+                    System.arraycopy(config, 3 + p * 4, quat, 0, 4);
+                    Quat4f.log(log, quat);
+                    System.arraycopy(log, 0, logs, (i * nrOfParts + p) * 3, 3);
+                }
+            }
+            firstRoot = new float[ROOT_SIZE];
+            System.arraycopy(roots, 0, firstRoot, 0, ROOT_SIZE);
+            indexJoints(jointTable.size());
+        }
+
+        /**
+         * Returns the features of {@code frames} frames of {@code motion}, starting at frame {@code first}, where new joints
+         * are added to the joint table. Returns null when features are not supported for the motion.
+         */
+        static Features create(SkeletonInterpolator motion, int first, int frames, Map<String, Integer> jointTable) {
+            if (!FEATURE_CONFIG_TYPE.equals(motion.getConfigType()) || frames <= 0 || first < 0 || first + frames > motion.size()
+                    || motion.getConfigSize() != 3 + 4 * motion.getPartIds().length || motion.getPartIds().length == 0) {
+                return null;
+            }
+            return new Features(motion, first, frames, jointTable);
+        }
+
+        /**
+         * (Re)calculates the part indices for the joint table, after joints have been added. For duplicate part ids,
+         * the last part is used.
+         */
+        void indexJoints(int nrOfJoints) {
+            parts = new int[nrOfJoints];
+            Arrays.fill(parts, -1);
+            for (int p = 0; p < nrOfParts; p++) {
+                parts[joints[p]] = p;
+            }
+        }
+    }
+
+    /**
+     * Input and result of a distance matrix computation.
+     */
+    private static final class DistanceMatrix {
+        private final SkeletonInterpolator[] starts;
+        private final SkeletonInterpolator[] ends;
+        private final Features[] startFeatures;
+        private final Features[] endFeatures;
+        private final float[] jointWeights;
+        private final int frames;
+        private final double[] distances;
+
+        DistanceMatrix(SkeletonInterpolator[] starts, SkeletonInterpolator[] ends, Features[] startFeatures, Features[] endFeatures,
+                float[] jointWeights, int frames) {
+            this.starts = starts;
+            this.ends = ends;
+            this.startFeatures = startFeatures;
+            this.endFeatures = endFeatures;
+            this.jointWeights = jointWeights;
+            this.frames = frames;
+            distances = new double[starts.length * ends.length];
+        }
+    }
+
+    /* Splits a range of rows of the distance matrix until it fits within a single chunk */
+    private final class DistanceTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final DistanceMatrix matrix;
+        private final int from;
+        private final int to;
+
+        DistanceTask(DistanceMatrix matrix, int from, int to) {
+            this.matrix = matrix;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= DEFAULT_CHUNK_SIZE) {
+                computeRows();
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new DistanceTask(matrix, from, mid), new DistanceTask(matrix, mid, to));
+            }
+        }
+
+        void computeRows() {
+            float[] root = new float[ROOT_SIZE];
+            float[] quat = new float[4];
+            float[] log = new float[3];
+            float[] offset = new float[IAlignment.ROOT_OFFSET_SIZE];
+            float[] alignScratch = new float[IAlignment.ROOT_SCRATCH_SIZE];
+            int nrOfEnds = matrix.ends.length;
+            for (int i = from; i < to; i++) {
+                for (int j = 0; j < nrOfEnds; j++) {
+                    Features start = matrix.startFeatures[i];
+                    Features end = matrix.endFeatures[j];
+                    matrix.distances[i * nrOfEnds + j] = (start == null || end == null)
+                            ? alignedDistance(matrix.starts[i], matrix.ends[j], matrix.frames)
+                            : featureDistance(start, end, matrix.frames, matrix.jointWeights, root, quat, log, offset,
+                                    alignScratch);
+                }
+            }
+        }
+    }
+
 }
@@ -1,5 +1,6 @@
 package hmi.animation;
 
+import static org.junit.Assert.assertEquals;
 import hmi.math.Quat4f;
 import hmi.testutil.math.Quat4fTestUtil;
 
@@ -119,4 +120,46 @@ public class AdditiveRotationBlendTest
         Quat4fTestUtil.assertQuat4fRotationEquivalent(Quat4f.getIdentity(), q3, PRECISION);
         Quat4fTestUtil.assertQuat4fRotationEquivalent(Quat4f.getQuat4fFromRollPitchYawDegrees(1,1,1), q4, PRECISION);
     }
+
+    @Test
+    public void testRemoveVJoint()
+    {
+        AdditiveRotationBlend blend = new AdditiveRotationBlend(vj1, ImmutableList.of(vj2, vj3), vjOut);
+        vj1.getPart("v2").setAxisAngle(0, 1, 0, (float) Math.PI * 1.0f / 3.0f);
+        vj2.getPart("v2").setAxisAngle(0, 1, 0, (float) Math.PI * 1.0f / 3.0f);
+        vj3.getPart("v2").setAxisAngle(0, 1, 0, (float) Math.PI * 1.0f / 3.0f);
+        blend.blend();
+        vjOut.getPart("v2").getRotation(q2);
+        Quat4fTestUtil.assertQuat4fRotationEquivalent(Quat4f.getQuat4fFromAxisAngle(0, 1, 0, (float) Math.PI), q2, PRECISION);
+
+        blend.removeVJoint(vj3);
+        blend.blend();
+        vjOut.getPart("v2").getRotation(q2);
+        Quat4fTestUtil.assertQuat4fRotationEquivalent(Quat4f.getQuat4fFromAxisAngle(0, 1, 0, (float) Math.PI * 2.0f / 3.0f), q2, PRECISION);
+    }
+
+    @Test
+    public void testReplacedOutputBuffer()
+    {
+        AdditiveRotationBlend blend = new AdditiveRotationBlend(vj1, vj2, vjOut);
+        float[] out = Quat4f.getIdentity();
+        vjOut.getPart("v2").setRotationBuffer(out);
+        vj1.getPart("v2").setAxisAngle(0, 1, 0, (float) Math.PI * 0.5f);
+        blend.blend();
+        Quat4fTestUtil.assertQuat4fRotationEquivalent(Quat4f.getQuat4fFromAxisAngle(0, 1, 0, (float) Math.PI * 0.5f), out, PRECISION);
+    }
+
+    @Test
+    public void testLocalMatrixUpdated()
+    {
+        AdditiveRotationBlend blend = new AdditiveRotationBlend(vj1, vj2, vjOut);
+        blend.blend();
+        vjOut.calculateMatrices();
+        vj1.setAxisAngle(0, 0, 1, 1f);
+        blend.blend();
+        vjOut.calculateMatrices();
+        float[] m = vjOut.getLocalMatrix();
+        assertEquals((float) Math.cos(1), m[0], PRECISION);
+        assertEquals((float) Math.sin(1), m[4], PRECISION);
+    }
 }
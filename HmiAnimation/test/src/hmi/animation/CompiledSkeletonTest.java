@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.animation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import hmi.math.Mat4f;
+import hmi.testutil.animation.HanimBody;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for CompiledSkeleton
+ */
+public class CompiledSkeletonTest
+{
+    private static final float PRECISION = 0.0001f;
+
+    private void randomizePose(VJoint root, Random random)
+    {
+        for (VJoint vj : root.getParts())
+        {
+            vj.setAxisAngle(random.nextFloat(), random.nextFloat(), random.nextFloat(), random.nextFloat() * 2);
+        }
+    }
+
+    private void assertSameGlobalMatrices(VJoint expected, VJoint actual)
+    {
+        for (VJoint vj : expected.getParts())
+        {
+            assertTrue(vj.getSid(), Mat4f.epsilonEquals(vj.getGlobalMatrix(), actual.getPart(vj.getSid()).getGlobalMatrix(), PRECISION));
+        }
+    }
+
+    @Test
+    public void testTopologicalOrder()
+    {
+        CompiledSkeleton skel = new CompiledSkeleton(HanimBody.getLOA2HanimBody());
+        assertEquals(-1, skel.getParentIndex(0));
+        for (int i = 1; i < skel.size(); i++)
+        {
+            int p = skel.getParentIndex(i);
+            assertTrue(p >= 0 && p < i);
+            assertTrue(skel.getJoint(p) == skel.getJoint(i).getParent());
+        }
+    }
+
+    @Test
+    public void testCalculateMatrices()
+    {
+        VJoint expected = HanimBody.getLOA2HanimBody();
+        VJoint actual = HanimBody.getLOA2HanimBody();
+        CompiledSkeleton skel = new CompiledSkeleton(actual);
+        Random random = new Random(7);
+        for (int n = 0; n < 3; n++)
+        {
+            long seed = random.nextLong();
+            randomizePose(expected, new Random(seed));
+            randomizePose(actual, new Random(seed));
+            expected.calculateMatrices();
+            skel.calculateMatrices();
+            assertSameGlobalMatrices(expected, actual);
+        }
+    }
+
+    @Test
+    public void testDirtySubtree()
+    {
+        VJoint expected = HanimBody.getLOA2HanimBody();
+        VJoint actual = HanimBody.getLOA2HanimBody();
+        CompiledSkeleton skel = new CompiledSkeleton(actual);
+        skel.calculateMatrices();
+        assertEquals(0, skel.syncFromJoints());
+        assertEquals(0, skel.calculateGlobalMatrices());
+
+        expected.getPart(Hanim.l_elbow).setAxisAngle(0, 0, 1, 1.2f);
+        actual.getPart(Hanim.l_elbow).setAxisAngle(0, 0, 1, 1.2f);
+        assertEquals(1, skel.syncFromJoints());
+        int subtreeSize = actual.getPart(Hanim.l_elbow).getParts().size();
+        assertEquals(subtreeSize, skel.calculateGlobalMatrices());
+        skel.syncToJoints();
+        expected.calculateMatrices();
+        assertSameGlobalMatrices(expected, actual);
+    }
+
+    @Test
+    public void testSkeleton()
+    {
+        VJoint expected = HanimBody.getLOA1HanimBody();
+        VJoint actual = HanimBody.getLOA1HanimBody();
+        Skeleton skeleton = new Skeleton("skel", actual);
+        skeleton.setUseCompiledSkeleton(true);
+        randomizePose(expected, new Random(3));
+        randomizePose(actual, new Random(3));
+        expected.calculateMatrices();
+        skeleton.updateJointMatrices();
+        assertSameGlobalMatrices(expected, actual);
+    }
+}
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.animation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import hmi.math.Quat4f;
+import hmi.testutil.math.Quat4fTestUtil;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the CompressedSkeletonInterpolator
+ */
+public class CompressedSkeletonInterpolatorTest
+{
+    private static final float PRECISION = 0.001f;
+    private static final int FRAMES = 200;
+
+    /* root translation moving along a straight line, joint j1 rotating at constant speed, joint j2 wobbling */
+    private SkeletonInterpolator createInterpolator()
+    {
+        ConfigList configs = new ConfigList(11);
+        for (int f = 0; f < FRAMES; f++)
+        {
+            double t = f / 100.0;
+            float[] conf = new float[11];
+            conf[0] = (float) t;
+            conf[1] = 1f;
+            conf[2] = (float) (-2 * t);
+            Quat4f.setFromAxisAngle4f(conf, 3, 0, 1, 0, (float) t);
+            Quat4f.setFromAxisAngle4f(conf, 7, 1, 0, 0, (float) (0.5 * Math.sin(10 * t)));
+            configs.addConfig(t, conf);
+        }
+        return new SkeletonInterpolator(new String[] { "j1", "j2" }, configs, "T1R");
+    }
+
+    @Test
+    public void testErrorBound()
+    {
+        SkeletonInterpolator ski = createInterpolator();
+        CompressedSkeletonInterpolator cski = new CompressedSkeletonInterpolator(ski, 0.01f, 0.001f);
+        assertEquals(FRAMES, cski.size());
+        assertEquals(11, cski.getConfigSize());
+        assertTrue(cski.getMaxRotationError() <= 0.01f);
+        assertTrue(cski.getMaxTranslationError() <= 0.001f);
+        assertTrue(cski.getNrOfKeys() < 3 * FRAMES / 4);
+
+        float[] expected = new float[11];
+        float[] conf = new float[11];
+        for (int f = 0; f < FRAMES; f++)
+        {
+            double t = ski.getTime(f) + 0.004;
+            ski.getInterpolatedConfig(t, expected);
+            cski.getInterpolatedConfig(t, conf);
+            for (int i = 0; i < 3; i++)
+            {
+                assertEquals(expected[i], conf[i], 0.002f);
+            }
+            Quat4fTestUtil.assertQuat4fRotationEquivalent(expected, 3, conf, 3, 0.02f);
+            Quat4fTestUtil.assertQuat4fRotationEquivalent(expected, 7, conf, 7, 0.02f);
+        }
+    }
+
+    @Test
+    public void testLinearMotion()
+    {
+        SkeletonInterpolator ski = new SkeletonInterpolator(new String[] { "j1" }, new ConfigList(7), "T1R");
+        ConfigList configs = ski.getConfigList();
+        for (int f = 0; f < FRAMES; f++)
+        {
+            double t = f / 100.0;
+            float[] conf = new float[7];
+            conf[0] = (float) t;
+            Quat4f.setFromAxisAngle4f(conf, 3, 0, 0, 1, (float) t);
+            configs.addConfig(t, conf);
+        }
+        CompressedSkeletonInterpolator cski = new CompressedSkeletonInterpolator(ski, 0.01f, 0.001f);
+        assertEquals(4, cski.getNrOfKeys()); // two keys for the root translation, and two for the rotation
+        assertEquals(ski.getStartTime(), cski.getStartTime(), PRECISION);
+        assertEquals(ski.getEndTime(), cski.getEndTime(), PRECISION);
+    }
+
+    @Test
+    public void testQuantize()
+    {
+        float[] q = Quat4f.getQuat4fFromAxisAngle(0.3f, -0.5f, 0.8f, 2.5f);
+        float[] result = new float[4];
+        short[] bits = new short[3];
+        CompressedSkeletonInterpolator.quantize(bits, 0, q, 0);
+        CompressedSkeletonInterpolator.dequantize(result, 0, bits, 0);
+        Quat4fTestUtil.assertQuat4fRotationEquivalent(q, result, 0.0001f);
+
+        for (int i = 0; i < 4; i++)
+        {
+            q[i] = -q[i];
+        }
+        CompressedSkeletonInterpolator.quantize(bits, 0, q, 0);
+        CompressedSkeletonInterpolator.dequantize(result, 0, bits, 0);
+        Quat4fTestUtil.assertQuat4fRotationEquivalent(q, result, 0.0001f);
+    }
+
+    @Test
+    public void testInterpolateTargetParts()
+    {
+        SkeletonInterpolator ski = createInterpolator();
+        CompressedSkeletonInterpolator cski = new CompressedSkeletonInterpolator(ski, 0.001f, 0.0001f);
+        VJoint root = new VJoint("j1", "j1");
+        VJoint child = new VJoint("j2", "j2");
+        root.addChild(child);
+        cski.setTarget(root);
+        cski.time(0.5);
+
+        float[] expected = ski.getInterpolatedConfig(0.5, null);
+        float[] v = new float[4];
+        root.getTranslation(v);
+        assertEquals(expected[0], v[0], PRECISION);
+        assertEquals(expected[1], v[1], PRECISION);
+        assertEquals(expected[2], v[2], PRECISION);
+        root.getRotation(v);
+        Quat4fTestUtil.assertQuat4fRotationEquivalent(expected, 3, v, 0, 0.005f);
+        child.getRotation(v);
+        Quat4fTestUtil.assertQuat4fRotationEquivalent(expected, 7, v, 0, 0.005f);
+    }
+
+    @Test
+    public void testDecompress()
+    {
+        SkeletonInterpolator ski = createInterpolator();
+        CompressedSkeletonInterpolator cski = new CompressedSkeletonInterpolator(ski, 0.01f, 0.001f);
+        SkeletonInterpolator decompressed = cski.decompress();
+        assertEquals(ski.size(), decompressed.size());
+        assertEquals(ski.getConfigType(), decompressed.getConfigType());
+        float[] conf = new float[11];
+        cski.getInterpolatedConfig(decompressed.getTime(10), conf);
+        float[] dconf = decompressed.getConfig(10);
+        for (int i = 0; i < 11; i++)
+        {
+            assertEquals(conf[i], dconf[i], PRECISION);
+        }
+    }
+}
@@ -153,6 +153,63 @@ public class ConfigListTest
         assertThat(Floats.asList(clistDecoded.getConfig(0)), IsIterableContainingInOrder.contains(1f, 2f, 3f, 4f, 5f, 6f, 7f, 8f));
     }
 
+    @Test
+    public void testBufferBacked()
+    {
+        java.nio.DoubleBuffer time = java.nio.DoubleBuffer.wrap(new double[] { 0.0, 1.1, 2.2 });
+        java.nio.FloatBuffer data = java.nio.FloatBuffer.allocate(24);
+        data.put(c0).put(c1).put(c2).flip();
+        ConfigList mapped = new ConfigList(8, time, data);
+        assertTrue(mapped.isMapped());
+        assertEquals(3, mapped.size());
+        assertEquals(2.2, mapped.getEndTime(), CONFIG_PRECISION);
+        assertArrayEquals(c1, mapped.getConfig(1, new float[8]), CONFIG_PRECISION);
+
+        ConfigList sub = mapped.subConfigList(1, 3);
+        assertTrue(sub.isMapped());
+        assertEquals(2, sub.size());
+        assertEquals(1.1, sub.getStartTime(), CONFIG_PRECISION);
+        assertArrayEquals(c2, sub.getConfig(1, new float[8]), CONFIG_PRECISION);
+
+        mapped.addConfig(3.3, c3);
+        assertFalse(mapped.isMapped());
+        assertEquals(4, mapped.size());
+        assertArrayEquals(c0, mapped.getConfig(0), CONFIG_PRECISION);
+        assertArrayEquals(c3, mapped.getConfig(3), CONFIG_PRECISION);
+    }
+
+    @Test
+    public void testFlat() throws java.io.IOException
+    {
+        ConfigList flat = new ConfigList(8, true);
+        flat.addConfig(2.2, c2);
+        flat.addConfig(0.0, c0);
+        flat.addConfig(1.1, c1);
+        c1[0] = 100f; // flat lists copy the config
+        assertTrue(flat.isFlat());
+        assertEquals(3, flat.size());
+        assertEquals(1.1, flat.getTime(1), CONFIG_PRECISION);
+        assertSame(flat.getData(0), flat.getData(2));
+        assertEquals(16, flat.getConfigOffset(2));
+        assertEquals(2f, flat.getData(1)[flat.getConfigOffset(1)], CONFIG_PRECISION);
+        assertArrayEquals(c2, flat.getConfig(2, new float[8]), CONFIG_PRECISION);
+
+        ConfigList sub = flat.subConfigList(1, 3);
+        assertTrue(sub.isFlat());
+        assertEquals(2, sub.size());
+        assertArrayEquals(c2, sub.getConfig(1, new float[8]), CONFIG_PRECISION);
+
+        ConfigList decoded = new ConfigList(new XMLTokenizer(flat.toXMLString()));
+        assertEquals(3, decoded.size());
+        assertArrayEquals(c0, decoded.getConfig(0), CONFIG_PRECISION);
+
+        float[] legacy = flat.getConfig(1);
+        assertFalse(flat.isFlat());
+        assertEquals(0, flat.getConfigOffset(1));
+        assertEquals(3f, legacy[1], CONFIG_PRECISION);
+        assertArrayEquals(c2, flat.getConfig(2), CONFIG_PRECISION);
+    }
+
     @Test
     public void test1ConfigToXML() throws java.io.IOException
     {
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.animation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import hmi.math.Mat4f;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for MatrixExchange
+ */
+public class MatrixExchangeTest
+{
+    private static final float PRECISION = 0.0001f;
+
+    @Test
+    public void testNothingPublished()
+    {
+        MatrixExchange exchange = new MatrixExchange(2);
+        assertFalse(exchange.acquire());
+        assertEquals(0, exchange.getFrameNumber());
+        float[] m = Mat4f.getMat4f();
+        exchange.getMatrix(1, m);
+        assertArrayEquals(Mat4f.getIdentity(), m, PRECISION);
+    }
+
+    @Test
+    public void testPublish()
+    {
+        MatrixExchange exchange = new MatrixExchange(2);
+        float[][] matrices = new float[][] { Mat4f.getIdentity(), Mat4f.getIdentity() };
+        Mat4f.setTranslation(matrices[1], new float[] { 1, 2, 3 });
+        exchange.publish(matrices);
+        Mat4f.setTranslation(matrices[1], new float[] { 4, 5, 6 });
+        assertTrue(exchange.acquire());
+        assertEquals(1, exchange.getFrameNumber());
+        assertEquals(3f, exchange.getReadBuffer()[16 + 11], PRECISION);
+        assertFalse(exchange.acquire());
+
+        exchange.publish(matrices);
+        exchange.putMatrix(1, Mat4f.getIdentity());
+        exchange.publish(); // overwrites the frame that was not acquired
+        assertTrue(exchange.acquire());
+        float[][] dest = new float[][] { null, Mat4f.getMat4f() };
+        exchange.getMatrices(dest);
+        assertArrayEquals(Mat4f.getIdentity(), dest[1], PRECISION);
+        assertEquals(2, exchange.getFrameNumber());
+    }
+
+    @Test
+    public void testConsistentFrames() throws InterruptedException
+    {
+        final int nrOfMatrices = 20;
+        final MatrixExchange exchange = new MatrixExchange(nrOfMatrices);
+        final int nrOfFrames = 10000;
+        Thread producer = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                for (int i = 1; i <= nrOfFrames; i++)
+                {
+                    float[] buf = exchange.getWriteBuffer();
+                    for (int j = 0; j < buf.length; j++)
+                    {
+                        buf[j] = i;
+                    }
+                    exchange.publish();
+                }
+            }
+        };
+        producer.start();
+        float last = 0;
+        while (last < nrOfFrames)
+        {
+            if (exchange.acquire())
+            {
+                float[] buf = exchange.getReadBuffer();
+                for (int j = 1; j < buf.length; j++)
+                {
+                    assertEquals(buf[0], buf[j], 0);
+                }
+                assertTrue(buf[0] > last);
+                last = buf[0];
+            }
+        }
+        producer.join();
+    }
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.animation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for MorphWeightChannel
+ */
+public class MorphWeightChannelTest
+{
+    private static final float PRECISION = 0.0001f;
+
+    @Test
+    public void testSlots()
+    {
+        MorphWeightChannel channel = new MorphWeightChannel("a", "b");
+        assertEquals(0, channel.getSlot("a"));
+        assertEquals(1, channel.getSlot("b"));
+        assertEquals(-1, channel.findSlot("c"));
+        assertEquals(2, channel.getSlot("c"));
+        assertEquals(2, channel.findSlot("c"));
+        assertEquals(3, channel.getNrOfSlots());
+        assertEquals("c", channel.getName(2));
+    }
+
+    @Test
+    public void testNothingPublished()
+    {
+        MorphWeightChannel channel = new MorphWeightChannel("a", "b");
+        assertTrue(channel.acquire());
+        assertArrayEquals(new float[] { 0, 0 }, channel.getSnapshotWeights(), PRECISION);
+        assertFalse(channel.acquire());
+    }
+
+    @Test
+    public void testPublish()
+    {
+        MorphWeightChannel channel = new MorphWeightChannel("a", "b");
+        channel.acquire();
+        channel.setWeight(0, 0.5f);
+        channel.addWeights(new int[] { 0, 1 }, new float[] { 0.25f, 0.5f });
+        assertFalse(channel.acquire());
+        channel.publish();
+        assertTrue(channel.acquire());
+        assertArrayEquals(new float[] { 0.75f, 0.5f }, channel.getSnapshotWeights(), PRECISION);
+
+        channel.setWeight(1, 0);
+        assertArrayEquals(new float[] { 0.75f, 0.5f }, channel.getSnapshotWeights(), PRECISION);
+        channel.publish();
+        channel.clearWeights();
+        channel.publish();
+        assertTrue(channel.acquire());
+        assertArrayEquals(new float[] { 0, 0 }, channel.getSnapshotWeights(), PRECISION);
+        assertFalse(channel.acquire());
+    }
+
+    @Test
+    public void testNewSlotAfterPublish()
+    {
+        MorphWeightChannel channel = new MorphWeightChannel("a");
+        channel.setWeight(0, 1);
+        channel.publish();
+        channel.acquire();
+        channel.setWeight(channel.getSlot("b"), 0.5f);
+        assertEquals(1, channel.getSnapshotNames().length);
+        channel.publish();
+        assertTrue(channel.acquire());
+        assertArrayEquals(new String[] { "a", "b" }, channel.getSnapshotNames());
+        assertArrayEquals(new float[] { 1, 0.5f }, channel.getSnapshotWeights(), PRECISION);
+    }
+
+    @Test
+    public void testConsistentSnapshots() throws InterruptedException
+    {
+        final MorphWeightChannel channel = new MorphWeightChannel("a", "b", "c");
+        final int nrOfFrames = 10000;
+        Thread producer = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                for (int i = 1; i <= nrOfFrames; i++)
+                {
+                    channel.setWeights(new int[] { 0, 1, 2 }, new float[] { i, i, i });
+                    channel.publish();
+                }
+            }
+        };
+        producer.start();
+        float last = 0;
+        while (last < nrOfFrames)
+        {
+            if (channel.acquire())
+            {
+                float[] w = channel.getSnapshotWeights();
+                assertEquals(w[0], w[1], 0);
+                assertEquals(w[0], w[2], 0);
+                assertTrue(w[0] >= last);
+                last = w[0];
+            }
+        }
+        producer.join();
+    }
+}
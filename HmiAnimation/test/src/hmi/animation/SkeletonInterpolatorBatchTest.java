@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.animation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import hmi.math.Quat4f;
+import hmi.testutil.animation.HanimBody;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for SkeletonInterpolatorBatch
+ */
+public class SkeletonInterpolatorBatchTest
+{
+    private static final float PRECISION = 0.0001f;
+    private static final String[] PARTS = { Hanim.HumanoidRoot, Hanim.l_shoulder, Hanim.r_elbow };
+
+    private SkeletonInterpolator createInterpolator(int seed)
+    {
+        ConfigList clist = new ConfigList(15, true);
+        for (int frame = 0; frame < 5; frame++)
+        {
+            float[] config = new float[15];
+            config[0] = seed;
+            config[1] = frame;
+            for (int part = 0; part < PARTS.length; part++)
+            {
+                Quat4f.setFromAxisAngle4f(config, 3 + 4 * part, 1, part, seed, 0.1f * (frame + part + seed));
+            }
+            clist.addConfig(0.1 * frame, config);
+        }
+        return new SkeletonInterpolator(PARTS.clone(), clist, "T1R");
+    }
+
+    private void assertSamePose(VJoint expected, VJoint actual)
+    {
+        float[] qExpected = Quat4f.getQuat4f();
+        float[] qActual = Quat4f.getQuat4f();
+        for (String part : PARTS)
+        {
+            expected.getPart(part).getRotation(qExpected);
+            actual.getPart(part).getRotation(qActual);
+            assertArrayEquals(qExpected, qActual, PRECISION);
+        }
+        float[] tExpected = new float[3];
+        float[] tActual = new float[3];
+        expected.getPart(Hanim.HumanoidRoot).getTranslation(tExpected);
+        actual.getPart(Hanim.HumanoidRoot).getTranslation(tActual);
+        assertArrayEquals(tExpected, tActual, PRECISION);
+    }
+
+    private void testBatch(boolean parallel)
+    {
+        int n = 9;
+        SkeletonInterpolator[] single = new SkeletonInterpolator[n];
+        SkeletonInterpolator[] batched = new SkeletonInterpolator[n];
+        VJoint[] singleTargets = new VJoint[n];
+        VJoint[] batchedTargets = new VJoint[n];
+        for (int i = 0; i < n; i++)
+        {
+            single[i] = createInterpolator(i);
+            singleTargets[i] = HanimBody.getLOA1HanimBody();
+            single[i].setTarget(singleTargets[i]);
+            batched[i] = createInterpolator(i);
+            batchedTargets[i] = HanimBody.getLOA1HanimBody();
+            batched[i].setTarget(batchedTargets[i]);
+        }
+        SkeletonInterpolatorBatch batch = new SkeletonInterpolatorBatch(batched);
+        batch.setParallel(parallel);
+        batch.setChunkSize(2);
+        assertEquals(n * 15, batch.getPose().length);
+        assertEquals(30, batch.getPoseOffset(2));
+        for (double t = -0.05; t < 0.5; t += 0.07)
+        {
+            batch.interpolateTargetParts(t);
+            for (int i = 0; i < n; i++)
+            {
+                single[i].interpolateTargetParts(t);
+                assertSamePose(singleTargets[i], batchedTargets[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testSequential()
+    {
+        testBatch(false);
+    }
+
+    @Test
+    public void testParallel()
+    {
+        testBatch(true);
+    }
+
+    @Test
+    public void testEmptyInterpolator()
+    {
+        SkeletonInterpolator empty = new SkeletonInterpolator(PARTS.clone(), new ConfigList(15), "T1R");
+        empty.setTarget(HanimBody.getLOA1HanimBody());
+        SkeletonInterpolatorBatch batch = new SkeletonInterpolatorBatch(empty, createInterpolator(1));
+        batch.interpolateTargetParts(0.1);
+        assertEquals(15, batch.getPoseOffset(1));
+    }
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.animation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for SkeletonInterpolatorBinaryIO
+ */
+public class SkeletonInterpolatorBinaryIOTest
+{
+    private static final float PRECISION = 0.0001f;
+    private SkeletonInterpolator ski;
+
+    @Before
+    public void setup()
+    {
+        ConfigList clist = new ConfigList(11);
+        clist.addConfig(0.0, new float[] { 0f, 1f, 2f, 3f, 4f, 5f, 6f, 1f, 0f, 0f, 0f });
+        clist.addConfig(0.5, new float[] { 1f, 2f, 3f, 4f, 5f, 6f, 7f, 0f, 1f, 0f, 0f });
+        clist.addConfig(1.0, new float[] { 2f, 3f, 4f, 5f, 6f, 7f, 8f, 0f, 0f, 1f, 0f });
+        ski = new SkeletonInterpolator(new String[] { "HumanoidRoot", "l_hip" }, clist, "T1R");
+    }
+
+    private void assertSameInterpolator(SkeletonInterpolator expected, SkeletonInterpolator actual)
+    {
+        assertArrayEquals(expected.getPartIds(), actual.getPartIds());
+        assertEquals(expected.getConfigType(), actual.getConfigType());
+        assertEquals(expected.getRotationEncoding(), actual.getRotationEncoding());
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.getConfigSize(), actual.getConfigSize());
+        float[] config = new float[actual.getConfigSize()];
+        for (int i = 0; i < expected.size(); i++)
+        {
+            assertEquals(expected.getTime(i), actual.getTime(i), 0);
+            assertArrayEquals(expected.getConfigList().getConfig(i, new float[expected.getConfigSize()]), actual
+                    .getConfigList().getConfig(i, config), 0);
+        }
+    }
+
+    @Test
+    public void testEncodeDecode() throws IOException
+    {
+        SkeletonInterpolator skiDecoded = SkeletonInterpolatorBinaryIO.decode(SkeletonInterpolatorBinaryIO.encode(ski));
+        assertTrue(skiDecoded.getConfigList().isMapped());
+        assertSameInterpolator(ski, skiDecoded);
+    }
+
+    @Test
+    public void testWriteRead() throws IOException
+    {
+        File file = File.createTempFile("skitest", SkeletonInterpolatorBinaryIO.FILE_EXTENSION);
+        file.deleteOnExit();
+        SkeletonInterpolatorBinaryIO.write(ski, file);
+        SkeletonInterpolator skiRead = SkeletonInterpolatorBinaryIO.read(file);
+        assertSameInterpolator(ski, skiRead);
+        assertTrue(file.delete());
+    }
+
+    @Test
+    public void testInterpolateMapped() throws IOException
+    {
+        SkeletonInterpolator skiDecoded = SkeletonInterpolatorBinaryIO.decode(SkeletonInterpolatorBinaryIO.encode(ski));
+        for (double t = -0.1; t < 1.2; t += 0.1)
+        {
+            assertArrayEquals(ski.getInterpolatedConfig(t, null), skiDecoded.getInterpolatedConfig(t, null), PRECISION);
+        }
+        assertTrue(skiDecoded.getConfigList().isMapped());
+    }
+
+    @Test
+    public void testModifyMapped() throws IOException
+    {
+        SkeletonInterpolator skiDecoded = SkeletonInterpolatorBinaryIO.decode(SkeletonInterpolatorBinaryIO.encode(ski));
+        skiDecoded.getConfig(1)[0] = 10f;
+        assertFalse(skiDecoded.getConfigList().isMapped());
+        assertEquals(10f, skiDecoded.getConfig(1)[0], 0);
+        assertEquals(1f, ski.getConfig(1)[0], 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotBinary() throws IOException
+    {
+        SkeletonInterpolatorBinaryIO.decode(ByteBuffer.wrap("<SkeletonInterpolator>".getBytes("UTF-8")));
+    }
+}
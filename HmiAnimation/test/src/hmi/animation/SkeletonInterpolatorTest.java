@@ -270,6 +270,25 @@ public class SkeletonInterpolatorTest
         assertTrue(dt7 == t7);
     }
 
+    @Test
+    public void testInterpolateFlat()
+    {
+        init1(); // prepare clist1
+        ConfigList flatList = new ConfigList(c0.length, true);
+        for (int i = clist1.size() - 1; i >= 0; i--)
+        {
+            flatList.addConfig(clist1.getTime(i), clist1.getConfig(i));
+        }
+        String[] partIds1 = new String[] { "Root", "Joint1" };
+        SkeletonInterpolator ski = new SkeletonInterpolator(partIds1, clist1, "T1R");
+        SkeletonInterpolator skiFlat = new SkeletonInterpolator(partIds1, flatList, "T1R");
+        for (double t = -0.01; t < t7 + 0.01; t += 0.003)
+        {
+            assertTrue(Vecf.equals(ski.getInterpolatedConfig(t, null), skiFlat.getInterpolatedConfig(t, null)));
+        }
+        assertTrue(flatList.isFlat());
+    }
+
     @Test
     public void testEmpty()
     {
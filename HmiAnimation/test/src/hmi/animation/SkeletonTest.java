@@ -27,7 +27,10 @@
 package hmi.animation;
 
 import static hmi.testutil.math.Quat4fTestUtil.assertQuat4fEquals;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import hmi.math.Mat4f;
 import hmi.math.Quat4f;
 import hmi.xml.XMLTokenizer;
 
@@ -265,4 +268,24 @@ public class SkeletonTest {
   
   
   
+    @Test
+    public void testPutGetData()
+    {
+        Skeleton skel = createSkeleton("testSkel");
+        float[][] tm = skel.getTransformMatricesRef();
+        skel.setUpdateOnWrite(true);
+        assertFalse(skel.getData());
+        skel.putData();
+        float[] published = Mat4f.getMat4f();
+        Mat4f.set(published, vj011.getGlobalMatrix());
+        vj0.setTranslation(5f, 5f, 5f);
+        vj0.calculateMatrices();
+        assertTrue(skel.getData());
+        assertArrayEquals(published, tm[4], PRECISION); // the last published pose, not the current one
+        skel.putData();
+        assertTrue(skel.getData());
+        assertArrayEquals(vj011.getGlobalMatrix(), tm[4], PRECISION);
+        assertFalse(skel.getData());
+    }
+  
 }
@@ -116,6 +116,37 @@ public class VJointTest
     }
   
 
+    @Test
+    public void testPartIndex()
+    {
+       vj012.setName("knee");
+       vj011.createPartIndex();
+       assertTrue(vj0.hasPartIndex());
+       assertTrue(vj0.getPartById("vj011") == vj011);
+       assertTrue(vj0.getPartBySid("rknee1") == vj011);
+       assertTrue(vj0.getPart("knee") == vj012);
+       assertTrue(vj01.getPart("rfoot") == vj0110);
+       assertTrue(vj00.getPart("rfoot") == null); // not within the subtree
+       assertTrue(vj0.getPart("none") == null);
+
+       vj0110.setSid("rknee1"); // shared sid, search order decides
+       assertTrue(vj0.getPartBySid("rknee1") == vj011);
+       vj011.setId("moved");
+       assertTrue(vj0.getPartById("vj011") == null);
+       assertTrue(vj0.getPart("moved") == vj011);
+
+       vj01.removeChild(vj011);
+       assertFalse(vj011.hasPartIndex());
+       assertTrue(vj0.getPart("moved") == null);
+       assertTrue(vj0.getPartBySid("rknee1") == null);
+       VJoint extra = new VJoint("extra", "x");
+       vj00.addChild(extra);
+       assertTrue(vj0.getPartBySid("x") == extra);
+       vj0.removePartIndex();
+       assertFalse(extra.hasPartIndex());
+       assertTrue(vj0.getPartBySid("x") == extra);
+    }
+
     @Test
     public void testGetParts()
     {
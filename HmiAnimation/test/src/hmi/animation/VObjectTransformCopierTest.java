@@ -0,0 +1,89 @@
+package hmi.animation;
+
+import static org.junit.Assert.assertArrayEquals;
+import hmi.math.Quat4f;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the VObjectTransformCopier
+ */
+public class VObjectTransformCopierTest
+{
+    private static final float PRECISION = 0.0001f;
+
+    private VJoint setupTestJointStructure(String id)
+    {
+        VJoint vj1 = new VJoint(id + "v1", "v1");
+        VJoint vj2 = new VJoint(id + "v2", "v2");
+        vj1.addChild(vj2);
+        return vj1;
+    }
+
+    private VJoint src = setupTestJointStructure("src");
+    private VJoint dst = setupTestJointStructure("dst");
+    private float[] buf = new float[4];
+
+    @Test
+    public void testCopyT1R()
+    {
+        VObjectTransformCopier copier = VObjectTransformCopier.newInstanceFromVJointTree(src, dst, "T1R");
+        src.setTranslation(1, 2, 3);
+        src.getPart("v2").setTranslation(4, 5, 6);
+        src.getPart("v2").setAxisAngle(0, 1, 0, 1f);
+        copier.copyConfig();
+        dst.getTranslation(buf);
+        assertArrayEquals(new float[] { 1, 2, 3 }, new float[] { buf[0], buf[1], buf[2] }, PRECISION);
+        dst.getPart("v2").getTranslation(buf);
+        assertArrayEquals(new float[] { 0, 0, 0 }, new float[] { buf[0], buf[1], buf[2] }, PRECISION);
+        dst.getPart("v2").getRotation(buf);
+        assertArrayEquals(Quat4f.getQuat4fFromAxisAngle(0, 1, 0, 1f), buf, PRECISION);
+    }
+
+    @Test
+    public void testReconfigure()
+    {
+        VObjectTransformCopier copier = VObjectTransformCopier.newInstanceFromVJointTree(src, dst, "R");
+        src.getPart("v2").setTranslation(4, 5, 6);
+        copier.copyConfig();
+        dst.getPart("v2").getTranslation(buf);
+        assertArrayEquals(new float[] { 0, 0, 0 }, new float[] { buf[0], buf[1], buf[2] }, PRECISION);
+        copier.setConfigType("TR");
+        copier.copyConfig();
+        dst.getPart("v2").getTranslation(buf);
+        assertArrayEquals(new float[] { 4, 5, 6 }, new float[] { buf[0], buf[1], buf[2] }, PRECISION);
+    }
+
+    @Test
+    public void testLocalMatrixUpdated()
+    {
+        VObjectTransformCopier copier = VObjectTransformCopier.newInstanceFromVJointTree(src, dst, "TR");
+        dst.calculateMatrices();
+        src.setTranslation(1, 2, 3);
+        copier.copyConfig();
+        dst.calculateMatrices();
+        float[] m = dst.getGlobalMatrix();
+        assertArrayEquals(new float[] { 1, 2, 3 }, new float[] { m[3], m[7], m[11] }, PRECISION);
+        dst.getPart("v2").calculateMatrices();
+        src.getPart("v2").setAxisAngle(0, 0, 1, 1f);
+        copier.copyConfig();
+        dst.getPart("v2").calculateMatrices();
+        float[] local = dst.getPart("v2").getLocalMatrix();
+        assertArrayEquals(new float[] { (float) Math.cos(1), (float) Math.sin(1) }, new float[] { local[0], local[4] }, PRECISION);
+    }
+
+    @Test
+    public void testReplacedBuffers()
+    {
+        VObjectTransformCopier copier = VObjectTransformCopier.newInstanceFromVJointTree(src, dst, "TR");
+        float[] srcTranslation = new float[] { 1, 2, 3 };
+        src.setTranslationBuffer(srcTranslation);
+        float[] dstRotation = Quat4f.getIdentity();
+        dst.getPart("v2").setRotationBuffer(dstRotation);
+        src.getPart("v2").setAxisAngle(0, 1, 0, 1f);
+        copier.copyConfig();
+        dst.getTranslation(buf);
+        assertArrayEquals(srcTranslation, new float[] { buf[0], buf[1], buf[2] }, PRECISION);
+        assertArrayEquals(Quat4f.getQuat4fFromAxisAngle(0, 1, 0, 1f), dstRotation, PRECISION);
+    }
+}
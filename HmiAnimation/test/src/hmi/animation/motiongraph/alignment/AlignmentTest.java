@@ -0,0 +1,59 @@
+package hmi.animation.motiongraph.alignment;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import hmi.math.Quat4f;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for Alignment
+ */
+public class AlignmentTest
+{
+    private static final float PRECISION = 1E-5f;
+    private final Alignment align = new Alignment();
+
+    private float[] createRoot(float tx, float ty, float tz, float roll, float pitch, float yaw)
+    {
+        float[] root = new float[7];
+        root[0] = tx;
+        root[1] = ty;
+        root[2] = tz;
+        Quat4f.setFromRollPitchYaw(root, 3, roll, pitch, yaw);
+        return root;
+    }
+
+    @Test
+    public void testAlignRoot()
+    {
+        float[] firstConfig = createRoot(1f, 2f, 3f, 0.1f, 0.2f, 0.8f);
+        float[] secondStart = createRoot(-1f, 0.5f, 2f, 0.3f, -0.1f, -0.4f);
+        float[] config = createRoot(-0.5f, 0.6f, 1f, 0.2f, 0.3f, 0.1f);
+        align.alignRoot(firstConfig, secondStart, config);
+
+        assertArrayEquals(new float[] { 1.5f, 2.1f, 2f }, new float[] { config[0], config[1], config[2] }, PRECISION);
+        float[] rpy = new float[3];
+        Quat4f.getRollPitchYaw(config, 3, rpy);
+        assertArrayEquals(new float[] { 0.2f, 0.3f, 0.1f + 0.4f + 0.8f }, rpy, PRECISION);
+    }
+
+    @Test
+    public void testApplyRootOffset()
+    {
+        float[] firstConfig = createRoot(1f, 2f, 3f, 0.1f, 0.2f, 0.8f);
+        float[] secondStart = createRoot(-1f, 0.5f, 2f, 0.3f, -0.1f, -0.4f);
+        float[] offset = new float[IAlignment.ROOT_OFFSET_SIZE];
+        float[] scratch = new float[IAlignment.ROOT_SCRATCH_SIZE];
+        align.rootOffset(firstConfig, secondStart, offset);
+        for (int i = 0; i < 5; i++)
+        {
+            float[] config = createRoot(0.1f * i, -0.2f * i, 0.3f, 0.05f * i, -0.1f * i, 0.2f * i - 0.5f);
+            float[] expected = config.clone();
+            align.alignRoot(firstConfig, secondStart, expected);
+            align.applyRootOffset(offset, config, scratch);
+            assertArrayEquals(expected, config, 0f);
+        }
+        assertEquals(1.2f, offset[3], PRECISION);
+    }
+}
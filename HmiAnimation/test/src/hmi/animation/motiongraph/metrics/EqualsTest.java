@@ -0,0 +1,40 @@
+package hmi.animation.motiongraph.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import hmi.animation.ConfigList;
+import hmi.animation.Hanim;
+import hmi.animation.SkeletonInterpolator;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for Equals
+ */
+public class EqualsTest
+{
+    private final Equals equals = new Equals();
+
+    private SkeletonInterpolator createMotion(float[]... configs)
+    {
+        ConfigList configList = new ConfigList(configs[0].length);
+        for (int i = 0; i < configs.length; i++)
+        {
+            configList.addConfig(i, configs[i]);
+        }
+        return new SkeletonInterpolator(new String[] { Hanim.HumanoidRoot, Hanim.l_hip }, configList, "T1R");
+    }
+
+    @Test
+    public void testHash()
+    {
+        float[] c1 = { 0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0 };
+        float[] c2 = { 5, 0, 0, 1, 0, 0, 0, 0.5f, 0.5f, 0.5f, -0f };
+        float[] c3 = { 0, 0, 0, 1, 0, 0, 0, 0.5f, 0.5f, 0.5f, 0f };
+        SkeletonInterpolator first = createMotion(c1, c2);
+        SkeletonInterpolator second = createMotion(c3, c1);
+        assertTrue(equals.startEndEquals(first, second));
+        assertEquals(equals.endHash(first), equals.startHash(second));
+        assertTrue(equals.endHash(second) != equals.startHash(second));
+    }
+}
@@ -0,0 +1,118 @@
+package hmi.animation.motiongraph.metrics;
+
+import static org.junit.Assert.assertEquals;
+import hmi.animation.ConfigList;
+import hmi.animation.Hanim;
+import hmi.animation.SkeletonInterpolator;
+import hmi.animation.motiongraph.alignment.Alignment;
+import hmi.animation.motiongraph.alignment.IAlignment;
+import hmi.math.Quat4f;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for JointAngles
+ */
+public class JointAnglesTest
+{
+    private static final int FRAMES = 10;
+    private static final String[] PARTS = { Hanim.HumanoidRoot, Hanim.l_hip, Hanim.l_knee, Hanim.skullbase, "unweighted" };
+    private final Random random = new Random(42);
+    private final IAlignment align = new Alignment();
+    private final JointAngles jointAngles = new JointAngles(align);
+
+    private SkeletonInterpolator createMotion(String[] partIds, int size)
+    {
+        int configSize = 3 + 4 * partIds.length;
+        ConfigList configs = new ConfigList(configSize);
+        for (int f = 0; f < size; f++)
+        {
+            float[] config = new float[configSize];
+            for (int i = 0; i < 3; i++)
+            {
+                config[i] = random.nextFloat();
+            }
+            for (int p = 0; p < partIds.length; p++)
+            {
+                Quat4f.setFromAxisAngle4f(config, 3 + 4 * p, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f,
+                        random.nextFloat() - 0.5f, 2 * random.nextFloat());
+                Quat4f.normalize(config, 3 + 4 * p);
+            }
+            configs.addConfig(f / 30.0, config);
+        }
+        return new SkeletonInterpolator(partIds.clone(), configs, "T1R");
+    }
+
+    /* distance computed frame by frame, on an aligned copy of end */
+    private double frameDistance(SkeletonInterpolator start, SkeletonInterpolator end, int frames)
+    {
+        SkeletonInterpolator endAligned = align.align(start, end, frames);
+        float totalDist = 0;
+        for (int i = 0; i < frames; i++)
+        {
+            totalDist += jointAngles.distance(start, endAligned, frames - i, i);
+        }
+        return totalDist;
+    }
+
+    @Test
+    public void testDistance()
+    {
+        SkeletonInterpolator start = createMotion(PARTS, 25);
+        SkeletonInterpolator end = createMotion(PARTS, 15);
+        double expected = frameDistance(start, end, FRAMES);
+        assertEquals(expected, jointAngles.distance(start, end, FRAMES), expected * 1E-5);
+    }
+
+    @Test
+    public void testDistanceDifferentParts()
+    {
+        SkeletonInterpolator start = createMotion(PARTS, 20);
+        SkeletonInterpolator end = createMotion(new String[] { Hanim.HumanoidRoot, Hanim.skullbase, "other", Hanim.l_hip }, 20);
+        double expected = frameDistance(start, end, FRAMES);
+        assertEquals(expected, jointAngles.distance(start, end, FRAMES), expected * 1E-5);
+    }
+
+    @Test
+    public void testDistances()
+    {
+        List<SkeletonInterpolator> motions = new ArrayList<>();
+        for (int i = 0; i < 12; i++)
+        {
+            motions.add(createMotion(PARTS, FRAMES + i));
+        }
+        motions.add(createMotion(new String[] { Hanim.HumanoidRoot, Hanim.l_knee }, FRAMES));
+        List<SkeletonInterpolator> ends = motions.subList(3, motions.size());
+        double[] distances = jointAngles.distances(motions, ends, FRAMES);
+        assertEquals(motions.size() * ends.size(), distances.length);
+        for (int i = 0; i < motions.size(); i++)
+        {
+            for (int j = 0; j < ends.size(); j++)
+            {
+                double expected = frameDistance(motions.get(i), ends.get(j), FRAMES);
+                assertEquals(expected, distances[i * ends.size() + j], expected * 1E-5);
+            }
+        }
+    }
+
+    @Test
+    public void testDistancesSequential()
+    {
+        List<SkeletonInterpolator> motions = new ArrayList<>();
+        for (int i = 0; i < 6; i++)
+        {
+            motions.add(createMotion(PARTS, 2 * FRAMES));
+        }
+        double[] parallel = jointAngles.distances(motions, motions, FRAMES);
+        jointAngles.setParallel(false);
+        double[] sequential = jointAngles.distances(motions, motions, FRAMES);
+        for (int i = 0; i < parallel.length; i++)
+        {
+            assertEquals(sequential[i], parallel[i], 0);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.benchmark;
+
+import hmi.animation.ConfigList;
+import hmi.animation.SkeletonInterpolator;
+import hmi.animation.SkeletonInterpolatorBatch;
+import hmi.animation.VJoint;
+import hmi.math.Quat4f;
+import hmi.testutil.animation.HanimBody;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks for SkeletonInterpolator evaluation, for a number of clips that play concurrently on full HAnim (LOA2) bodies.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AnimationBenchmark
+{
+    private static final int NR_OF_FRAMES = 600;
+    private static final double FRAME_DURATION = 1.0 / 60.0;
+
+    /** Number of concurrently playing interpolators, each on its own body */
+    @Param({ "1", "50" })
+    public int nrOfClips;
+
+    /** Whether the interpolators use flat ConfigList storage */
+    @Param({ "true", "false" })
+    public boolean flat;
+
+    private SkeletonInterpolator[] interpolators;
+    private SkeletonInterpolatorBatch batch;
+    private double time;
+
+    @Setup
+    public void setup()
+    {
+        Random random = new Random(42);
+        interpolators = new SkeletonInterpolator[nrOfClips];
+        for (int i = 0; i < nrOfClips; i++)
+        {
+            interpolators[i] = createClip(random);
+            interpolators[i].setTarget(HanimBody.getLOA2HanimBody());
+        }
+        batch = new SkeletonInterpolatorBatch(interpolators);
+        batch.setParallel(true);
+    }
+
+    private SkeletonInterpolator createClip(Random random)
+    {
+        List<VJoint> parts = HanimBody.getLOA2HanimBody().getParts();
+        String[] partIds = new String[parts.size()];
+        for (int i = 0; i < partIds.length; i++)
+        {
+            partIds[i] = parts.get(i).getSid();
+        }
+        int configSize = 3 + 4 * partIds.length;
+        ConfigList configs = new ConfigList(configSize, flat);
+        for (int f = 0; f < NR_OF_FRAMES; f++)
+        {
+            float[] config = new float[configSize];
+            config[1] = random.nextFloat();
+            for (int p = 0; p < partIds.length; p++)
+            {
+                Quat4f.setFromAxisAngle4f(config, 3 + 4 * p, random.nextFloat(), random.nextFloat(), 1f, random.nextFloat());
+            }
+            configs.addConfig(f * FRAME_DURATION, config);
+        }
+        return new SkeletonInterpolator(partIds, configs, "T1R");
+    }
+
+    private double nextTime()
+    {
+        time += FRAME_DURATION * 0.7;
+        if (time > NR_OF_FRAMES * FRAME_DURATION) time = 0;
+        return time;
+    }
+
+    @Benchmark
+    public SkeletonInterpolator[] interpolateTargetParts()
+    {
+        double t = nextTime();
+        for (SkeletonInterpolator ski : interpolators)
+        {
+            ski.interpolateTargetParts(t);
+        }
+        return interpolators;
+    }
+
+    @Benchmark
+    public SkeletonInterpolatorBatch batchInterpolateTargetParts()
+    {
+        batch.interpolateTargetParts(nextTime());
+        return batch;
+    }
+}
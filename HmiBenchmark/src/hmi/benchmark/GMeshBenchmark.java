@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.benchmark;
+
+import hmi.graphics.scenegraph.GMesh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark for GMesh.unifyIndices, on a synthetic mesh with separately indexed positions, normals, and texture coordinates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GMeshBenchmark
+{
+    @Param({ "30000", "300000" })
+    public int nrOfIndices;
+
+    private float[] coords, normals, texCoords;
+    private int[] coordIndices, normalIndices, texCoordIndices;
+    private GMesh gmesh;
+
+    @Setup(Level.Trial)
+    public void setupData()
+    {
+        Random random = new Random(42);
+        int nrOfCoords = nrOfIndices / 6;
+        coords = randomData(3 * nrOfCoords, random);
+        normals = randomData(3 * nrOfCoords, random);
+        texCoords = randomData(2 * nrOfCoords, random);
+        coordIndices = randomIndices(nrOfCoords, random);
+        normalIndices = randomIndices(nrOfCoords, random);
+        texCoordIndices = randomIndices(nrOfCoords, random);
+    }
+
+    private float[] randomData(int size, Random random)
+    {
+        float[] data = new float[size];
+        for (int i = 0; i < size; i++)
+        {
+            data[i] = random.nextFloat();
+        }
+        return data;
+    }
+
+    private int[] randomIndices(int range, Random random)
+    {
+        int[] indices = new int[nrOfIndices];
+        for (int i = 0; i < nrOfIndices; i++)
+        {
+            // mostly shared vertices, like in actual meshes
+            indices[i] = (i / 6 + random.nextInt(3)) % range;
+        }
+        return indices;
+    }
+
+    @Setup(Level.Invocation)
+    public void setupMesh()
+    {
+        gmesh = new GMesh();
+        gmesh.setIndexedVertexData("mcPosition", 3, coords, coordIndices);
+        gmesh.setIndexedVertexData("mcNormal", 3, normals, normalIndices);
+        gmesh.setIndexedVertexData("texCoord0", 2, texCoords, texCoordIndices);
+    }
+
+    @Benchmark
+    public GMesh unifyIndices()
+    {
+        gmesh.unifyIndices();
+        return gmesh;
+    }
+}
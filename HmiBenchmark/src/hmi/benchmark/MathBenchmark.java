@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.benchmark;
+
+import hmi.math.Mat4f;
+import hmi.math.Quat4f;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks for Quat4f and Mat4f operations
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MathBenchmark
+{
+    private float[] q1, q2, qr;
+    private float[] m1, m2, mr;
+    private float alpha;
+
+    @Setup
+    public void setup()
+    {
+        q1 = Quat4f.getQuat4fFromAxisAngle(1f, 2f, 3f, 0.4f);
+        q2 = Quat4f.getQuat4fFromAxisAngle(-1f, 0.5f, 2f, 1.3f);
+        qr = Quat4f.getQuat4f();
+        m1 = Mat4f.getMat4f();
+        m2 = Mat4f.getMat4f();
+        mr = Mat4f.getMat4f();
+        Mat4f.setFromTRS(m1, new float[] { 1f, 2f, 3f }, q1, 1.5f);
+        Mat4f.setFromTRS(m2, new float[] { -1f, 0f, 2f }, q2, 1f);
+        alpha = 0.3f;
+    }
+
+    @Benchmark
+    public float[] quat4fInterpolate()
+    {
+        Quat4f.interpolate(qr, 0, q1, 0, q2, 0, alpha);
+        return qr;
+    }
+
+    @Benchmark
+    public float[] quat4fMul()
+    {
+        Quat4f.mul(qr, q1, q2);
+        return qr;
+    }
+
+    @Benchmark
+    public float[] mat4fMul()
+    {
+        Mat4f.mul(mr, m1, m2);
+        return mr;
+    }
+}
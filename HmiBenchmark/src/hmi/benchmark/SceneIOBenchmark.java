@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.benchmark;
+
+import hmi.graphics.scenegraph.GScene;
+import hmi.graphics.util.SceneIO;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks for loading a scene with SceneIO, from a Collada .dae file and from the equivalent binary .bin files,
+ * in the original (v1) and the block (v2) binary format. The .bin files are created from the .dae file during setup. The daeFile parameter is a file path, relative to the
+ * working directory; the default refers to one of the HmiGraphics resources.
+ * readDae translates the Collada file, with the scene cache disabled; readDaeCached reads it with the scene cache enabled,
+ * where the cache is filled during setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SceneIOBenchmark
+{
+    @Param({ "../HmiGraphics/resource/dae/avatar.dae" })
+    public String daeFile;
+
+    private String daeURL;
+    private File binFile;
+    private String binURL;
+    private File binV1File;
+    private String binV1URL;
+    private File cacheDir;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        File dae = new File(daeFile);
+        if (!dae.isFile()) throw new IOException("SceneIOBenchmark: cannot find " + dae.getAbsolutePath());
+        daeURL = dae.toURI().toURL().toString();
+        binFile = File.createTempFile("sceneiobenchmark", ".bin");
+        SceneIO.setThrowExceptions(true);
+        SceneIO.setSceneCacheDirectory(null);
+        GScene gscene = SceneIO.readGScene(daeURL, SceneIO.NONE);
+        SceneIO.writeGScene(binFile.getAbsolutePath(), gscene);
+        binURL = binFile.toURI().toURL().toString();
+        binV1File = File.createTempFile("sceneiobenchmarkv1", ".bin");
+        SceneIO.writeGScene(binV1File.getAbsolutePath(), gscene, SceneIO.BINARY_V1);
+        binV1URL = binV1File.toURI().toURL().toString();
+        cacheDir = File.createTempFile("sceneiobenchmarkcache", "");
+        if (!cacheDir.delete() || !cacheDir.mkdir()) throw new IOException("SceneIOBenchmark: cannot create " + cacheDir);
+        readDaeCached(); // fills the cache
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        if (!binFile.delete()) binFile.deleteOnExit();
+        if (!binV1File.delete()) binV1File.deleteOnExit();
+        File[] cacheFiles = cacheDir.listFiles();
+        if (cacheFiles != null)
+        {
+            for (File f : cacheFiles)
+                f.delete();
+        }
+        cacheDir.delete();
+    }
+
+    @Benchmark
+    public GScene readDae()
+    {
+        return SceneIO.readGScene(daeURL, SceneIO.NONE);
+    }
+
+    @Benchmark
+    public GScene readDaeCached()
+    {
+        SceneIO.setSceneCacheDirectory(cacheDir);
+        try
+        {
+            return SceneIO.readGScene(daeURL, SceneIO.NONE);
+        }
+        finally
+        {
+            SceneIO.setSceneCacheDirectory(null);
+        }
+    }
+
+    @Benchmark
+    public GScene readBin()
+    {
+        return SceneIO.readGScene(binURL, SceneIO.NONE);
+    }
+
+    @Benchmark
+    public GScene readBinV1()
+    {
+        return SceneIO.readGScene(binV1URL, SceneIO.NONE);
+    }
+}
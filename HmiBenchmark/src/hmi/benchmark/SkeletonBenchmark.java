@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.benchmark;
+
+import hmi.animation.CompiledSkeleton;
+import hmi.animation.Hanim;
+import hmi.animation.VJoint;
+import hmi.testutil.animation.HanimBody;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks for the calculation of global matrices of a full HAnim (LOA2) body, where only one arm joint is modified,
+ * by means of the recursive VJoint.calculateMatrices and by means of a CompiledSkeleton.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SkeletonBenchmark
+{
+    private VJoint body;
+    private VJoint shoulder;
+    private CompiledSkeleton compiledBody;
+    private float angle;
+
+    @Setup
+    public void setup()
+    {
+        Random random = new Random(42);
+        body = HanimBody.getLOA2HanimBody();
+        for (VJoint vj : body.getParts())
+        {
+            vj.setAxisAngle(random.nextFloat(), random.nextFloat(), random.nextFloat(), random.nextFloat());
+        }
+        shoulder = body.getPart(Hanim.l_shoulder);
+        compiledBody = new CompiledSkeleton(body);
+    }
+
+    @Benchmark
+    public VJoint vjointCalculateMatrices()
+    {
+        angle += 0.01f;
+        shoulder.setAxisAngle(0f, 0f, 1f, angle);
+        body.calculateMatrices();
+        return body;
+    }
+
+    @Benchmark
+    public CompiledSkeleton compiledSkeletonCalculateMatrices()
+    {
+        angle += 0.01f;
+        shoulder.setAxisAngle(0f, 0f, 1f, angle);
+        compiledBody.calculateMatrices();
+        return compiledBody;
+    }
+}
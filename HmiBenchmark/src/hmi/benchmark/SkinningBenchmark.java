@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.benchmark;
+
+import hmi.animation.VJoint;
+import hmi.graphics.opengl.GLSkinnedMesh;
+import hmi.graphics.opengl.SkinningEngine;
+import hmi.graphics.scenegraph.VertexAttribute;
+import hmi.math.Mat4f;
+import hmi.testutil.animation.HanimBody;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks for CPU skinning (GLSkinnedMesh.deform) and morphing, on a synthetic mesh attached to a HAnim body.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SkinningBenchmark
+{
+    private static final int JOINTS_PER_VERTEX = 4;
+    private static final int NR_OF_MORPH_TARGETS = 40;
+
+    @Param({ "5000", "50000" })
+    public int nrOfVertices;
+
+    /** Skinning mode: original single threaded code, SkinningEngine on one thread, or SkinningEngine in parallel */
+    @Param({ "original", "engine", "parallel" })
+    public String mode;
+
+    private GLSkinnedMesh mesh;
+    private int[] morphTargets;
+    private float[][] morphWeights; // two weight sets, used alternately, so that every call changes the weights
+    private int[] allMorphTargets;
+    private float[][] allMorphWeights;
+    private int morphCall;
+
+    @Setup
+    public void setup()
+    {
+        SkinningEngine.setEnabled(!mode.equals("original"));
+        SkinningEngine.setParallel(mode.equals("parallel"));
+
+        Random random = new Random(42);
+        VJoint body = HanimBody.getLOA2HanimBody();
+        body.calculateMatrices();
+        List<VJoint> parts = body.getParts();
+        int nrOfJoints = parts.size();
+
+        float[] coords = new float[3 * nrOfVertices];
+        float[] normals = new float[3 * nrOfVertices];
+        for (int i = 0; i < coords.length; i++)
+        {
+            coords[i] = random.nextFloat();
+            normals[i] = random.nextFloat() - 0.5f;
+        }
+        int[] jointCount = new int[nrOfVertices];
+        int[] jointIndex = new int[JOINTS_PER_VERTEX * nrOfVertices];
+        float[] jointWeight = new float[JOINTS_PER_VERTEX * nrOfVertices];
+        for (int v = 0; v < nrOfVertices; v++)
+        {
+            jointCount[v] = JOINTS_PER_VERTEX;
+            for (int j = 0; j < JOINTS_PER_VERTEX; j++)
+            {
+                jointIndex[JOINTS_PER_VERTEX * v + j] = random.nextInt(nrOfJoints);
+                jointWeight[JOINTS_PER_VERTEX * v + j] = 1.0f / JOINTS_PER_VERTEX;
+            }
+        }
+        float[][] inverseBindMatrices = new float[nrOfJoints][];
+        for (int j = 0; j < nrOfJoints; j++)
+        {
+            inverseBindMatrices[j] = Mat4f.getIdentity();
+        }
+        mesh = new GLSkinnedMesh();
+        mesh.addGLVertexAttribute(new VertexAttribute("mcPosition", 3, coords));
+        mesh.addGLVertexAttribute(new VertexAttribute("mcNormal", 3, normals));
+        mesh.setJointVertexWeights(jointCount, jointIndex, jointWeight);
+        mesh.setInverseBindMatrices(inverseBindMatrices);
+        mesh.setVJoints(parts.toArray(new VJoint[nrOfJoints]));
+
+        String[] targetNames = new String[NR_OF_MORPH_TARGETS];
+        float[][] morphData = new float[NR_OF_MORPH_TARGETS][];
+        for (int t = 0; t < NR_OF_MORPH_TARGETS; t++)
+        {
+            targetNames[t] = "target" + t;
+            morphData[t] = coords.clone();
+            for (int i = random.nextInt(coords.length / 10); i < coords.length / 5; i++)
+            {
+                morphData[t][i] += 0.01f * random.nextFloat();
+            }
+        }
+        mesh.setMorphTargets(targetNames);
+        mesh.setVertexCoordMorphData(morphData);
+        morphTargets = new int[] { 1, 7, 12, 30 };
+        morphWeights = new float[][] { { 0.1f, 0.3f, 0.2f, 0.05f }, { 0.2f, 0.25f, 0.1f, 0.15f } };
+        allMorphTargets = new int[NR_OF_MORPH_TARGETS];
+        allMorphWeights = new float[2][NR_OF_MORPH_TARGETS];
+        for (int t = 0; t < NR_OF_MORPH_TARGETS; t++)
+        {
+            allMorphTargets[t] = t;
+            allMorphWeights[0][t] = 0.01f + 0.01f * random.nextFloat();
+            allMorphWeights[1][t] = 0.03f + 0.01f * random.nextFloat();
+        }
+        morphCall = 0;
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        SkinningEngine.setEnabled(true);
+        SkinningEngine.setParallel(true);
+    }
+
+    @Benchmark
+    public GLSkinnedMesh deform()
+    {
+        mesh.deform();
+        return mesh;
+    }
+
+    /**
+     * Changes the weights of four morph targets per call, which measures the incremental morph path
+     */
+    @Benchmark
+    public GLSkinnedMesh morph()
+    {
+        mesh.morph(morphTargets, morphWeights[morphCall++ & 1]);
+        return mesh;
+    }
+
+    /**
+     * Changes the weights of all morph targets per call, the worst case for incremental morphing
+     */
+    @Benchmark
+    public GLSkinnedMesh morphAllTargets()
+    {
+        mesh.morph(allMorphTargets, allMorphWeights[morphCall++ & 1]);
+        return mesh;
+    }
+}
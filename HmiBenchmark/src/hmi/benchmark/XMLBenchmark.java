@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.benchmark;
+
+import hmi.animation.ConfigList;
+import hmi.animation.SkeletonInterpolator;
+import hmi.animation.SkeletonInterpolatorBinaryIO;
+import hmi.xml.XMLTokenizer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks for XMLTokenizer based parsing of a (synthetic) motion capture clip, in both the line based
+ * and the block reading mode of the XMLTokenizer, compared with the memory mapped binary format.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class XMLBenchmark
+{
+    private static final int NR_OF_PARTS = 50;
+
+    @Param({ "1000" })
+    public int nrOfFrames;
+
+    private String xml;
+    private File binaryFile;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        Random random = new Random(42);
+        String[] partIds = new String[NR_OF_PARTS];
+        for (int p = 0; p < NR_OF_PARTS; p++)
+        {
+            partIds[p] = "joint" + p;
+        }
+        int configSize = 3 + 4 * NR_OF_PARTS;
+        ConfigList configs = new ConfigList(configSize);
+        for (int f = 0; f < nrOfFrames; f++)
+        {
+            float[] config = new float[configSize];
+            for (int i = 0; i < configSize; i++)
+            {
+                config[i] = random.nextFloat();
+            }
+            configs.addConfig(f / 120.0, config);
+        }
+        SkeletonInterpolator ski = new SkeletonInterpolator(partIds, configs, "T1R");
+        xml = ski.toXMLString();
+        binaryFile = File.createTempFile("xmlbenchmark", SkeletonInterpolatorBinaryIO.FILE_EXTENSION);
+        SkeletonInterpolatorBinaryIO.write(ski, binaryFile);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        if (!binaryFile.delete()) binaryFile.deleteOnExit();
+    }
+
+    private SkeletonInterpolator parse(boolean blockReading) throws IOException
+    {
+        XMLTokenizer tokenizer = new XMLTokenizer(new StringReader(xml));
+        tokenizer.setBlockReading(blockReading);
+        return new SkeletonInterpolator(tokenizer);
+    }
+
+    @Benchmark
+    public SkeletonInterpolator parseXML() throws IOException
+    {
+        return parse(false);
+    }
+
+    @Benchmark
+    public SkeletonInterpolator parseXMLBlockReading() throws IOException
+    {
+        return parse(true);
+    }
+
+    @Benchmark
+    public SkeletonInterpolator readBinary() throws IOException
+    {
+        return SkeletonInterpolatorBinaryIO.read(binaryFile);
+    }
+}
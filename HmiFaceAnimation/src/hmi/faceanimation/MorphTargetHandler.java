@@ -22,14 +22,15 @@
  *******************************************************************************/
 package hmi.faceanimation;
 
-import java.util.HashMap;
+import hmi.animation.MorphWeightChannel;
 
 import javax.annotation.concurrent.ThreadSafe;
 
 import com.google.common.collect.ImmutableMap;
 
 /**
- * Keeps track of morph target values
+ * Keeps track of morph target values. The values are kept in a MorphWeightChannel, so that a renderer can pick them up by slot,
+ * without locking and without allocation, after they have been published.
  * @author hvanwelbergen
  *
  */
@@ -37,78 +38,87 @@ import com.google.common.collect.ImmutableMap;
 public class MorphTargetHandler
 {
     /**
-     * The set of morph targets to be set by doMorph, maintained through addMorphTargets and removeMorphTargets
+     * The morph target weights to be set by doMorph, maintained through addMorphTargets and removeMorphTargets
      */
-    private HashMap<String, Float> desiredMorphTargets = new HashMap<String, Float>();
+    private final MorphWeightChannel channel = new MorphWeightChannel();
 
     /**
-     * Get an immutable copy of the current desired morph target configuration
+     * Returns the channel that holds the morph target weights.
      */
-    public synchronized ImmutableMap<String, Float> getDesiredMorphTargets()
+    public MorphWeightChannel getMorphWeightChannel()
     {
-        return ImmutableMap.copyOf(desiredMorphTargets);
+        return channel;
     }
-    
-    /** Add given weights for given morph targets to the list of desired targets */
-    public synchronized void addMorphTargets(String[] targetNames, float[] weights)
+
+    /**
+     * Makes the current morph target weights available to the consumer of the MorphWeightChannel
+     */
+    public void publishMorphTargets()
+    {
+        channel.publish();
+    }
+
+    /**
+     * Get an immutable copy of the current desired morph target configuration, containing the targets with non-zero weight
+     */
+    public ImmutableMap<String, Float> getDesiredMorphTargets()
     {
-        float w = 0;
-        for (int i = 0; i < targetNames.length; i++)
+        ImmutableMap.Builder<String, Float> builder = ImmutableMap.builder();
+        synchronized (channel)
         {
-            w = weights[i];
-            Float fl = desiredMorphTargets.get(targetNames[i]);
-            if (fl != null)
+            for (int slot = 0; slot < channel.getNrOfSlots(); slot++)
             {
-                w += fl.floatValue();
+                float w = channel.getWeight(slot);
+                if (w != 0)
+                {
+                    builder.put(channel.getName(slot), w);
+                }
             }
-            if (w == 0)
-            {
-                desiredMorphTargets.remove(targetNames[i]);
-            }
-            else
+        }
+        return builder.build();
+    }
+
+    /** Add given weights for given morph targets to the list of desired targets */
+    public void addMorphTargets(String[] targetNames, float[] weights)
+    {
+        synchronized (channel)
+        {
+            for (int i = 0; i < targetNames.length; i++)
             {
-                desiredMorphTargets.put(targetNames[i], new Float(w));
+                channel.addWeight(channel.getSlot(targetNames[i]), weights[i]);
             }
         }
     }
 
-    public synchronized void setMorphTargets(String[] targetNames, float[] weights)
+    public void setMorphTargets(String[] targetNames, float[] weights)
     {
-        for (int i = 0; i < targetNames.length; i++)
+        synchronized (channel)
         {
-            desiredMorphTargets.put(targetNames[i], new Float(weights[i]));
+            for (int i = 0; i < targetNames.length; i++)
+            {
+                channel.setWeight(channel.getSlot(targetNames[i]), weights[i]);
+            }
         }
     }
 
     /** Remove given weights for given morph targets from the list of desired targets */
-    public synchronized void removeMorphTargets(String[] targetNames, float[] weights)
+    public void removeMorphTargets(String[] targetNames, float[] weights)
     {
-        float w = 0;
-        for (int i = 0; i < targetNames.length; i++)
+        synchronized (channel)
         {
-            w = -weights[i];
-            Float fl = desiredMorphTargets.get(targetNames[i]);
-            if (fl != null)
-            {
-                w += fl.floatValue();
-            }
-            if (w == 0)
+            for (int i = 0; i < targetNames.length; i++)
             {
-                desiredMorphTargets.remove(targetNames[i]);
-            }
-            else
-            {
-                desiredMorphTargets.put(targetNames[i], new Float(w));
+                channel.addWeight(channel.getSlot(targetNames[i]), -weights[i]);
             }
         }
     }
-    
-    public synchronized float getCurrentWeight(String targetName)
+
+    public float getCurrentWeight(String targetName)
     {
-        if(desiredMorphTargets.containsKey(targetName))
+        synchronized (channel)
         {
-            return desiredMorphTargets.get(targetName);
+            int slot = channel.findSlot(targetName);
+            return slot < 0 ? 0 : channel.getWeight(slot);
         }
-        return 0;
     }
 }
@@ -35,8 +35,6 @@ import java.util.Collection;
 
 import lombok.Delegate;
 
-import com.google.common.collect.ImmutableMap;
-
 /**
  * The FaceController is the access point for deforming the face of an avatar, just like VJoints are the accesspoint for deforming its body.
  * 
@@ -68,6 +66,7 @@ public class HMIFaceController implements FaceController
     {
         theGLScene = gls;
         glHead = h;
+        theGLScene.setMorphWeightChannel(morphTargetHandler.getMorphWeightChannel());
     }
 
     public synchronized void setMPEG4Configuration(MPEG4Configuration config)
@@ -115,23 +114,14 @@ public class HMIFaceController implements FaceController
             glHead.deformWhenScheduled();
         }
 
-        ImmutableMap<String, Float> desiredMorphTargets = morphTargetHandler.getDesiredMorphTargets();
-        String[] targetNames = new String[desiredMorphTargets.size()];
-        float[] targetWeights = new float[desiredMorphTargets.size()];
-        int i = 0;
-        for (String targetName : desiredMorphTargets.keySet())
-        {
-            targetNames[i] = targetName;
-            targetWeights[i] = desiredMorphTargets.get(targetName);
-            i++;
-        }
-        theGLScene.setMorphTargets(targetNames, targetWeights);
+        // the GLScene takes the published weights from the shared MorphWeightChannel
+        morphTargetHandler.publishMorphTargets();
     }
 
     /*
      * ====================================================== Methods and attributes for maintaining a set of desired morph targets. - Add and remove
-     * weight from each target using addMorphTargets() and removeMorphTargets() - have GLScene execute the current set of targets and weights by
-     * calling doMorph() ==================================================
+     * weight from each target using addMorphTargets() and removeMorphTargets() - publish them with copy() - have GLScene execute the published set
+     * of targets and weights by calling doMorph() ==================================================
      */
 
     
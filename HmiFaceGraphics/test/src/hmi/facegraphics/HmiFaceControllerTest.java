@@ -22,12 +22,14 @@
  *******************************************************************************/
 package hmi.facegraphics;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import hmi.animation.MorphWeightChannel;
 import hmi.graphics.opengl.scenegraph.GLScene;
 
 import org.junit.Test;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
-import static org.mockito.Matchers.any;
 
 /**
  * unit tests for the HmiFaceController
@@ -46,7 +48,10 @@ public class HmiFaceControllerTest
         String targetNames[]={"x","y","z"};
         float weights[]={0.1f,0.2f,0.3f};
         fc.addMorphTargets(targetNames, weights);
+        verify(mockScene).setMorphWeightChannel(fc.getMorphWeightChannel());
         fc.copy();
-        verify(mockScene).setMorphTargets(any(String[].class),any(float[].class));
+        MorphWeightChannel channel = fc.getMorphWeightChannel();
+        assertTrue(channel.acquire());
+        assertEquals(0.2f, channel.getSnapshotWeights()[channel.findSlot("y")], 0.0001f);
     }
 }
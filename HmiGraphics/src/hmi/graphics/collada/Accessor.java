@@ -55,7 +55,7 @@ public class Accessor extends ColladaElement {
    private String[] names;
    private String[] idrefs;
    
-   private boolean resolved = false;
+   private volatile boolean resolved = false; // set after the data array has been resolved, possibly by another thread
    
    private static final int LISTSIZE = 4;
    private ArrayList<Param> params = new ArrayList<Param>(LISTSIZE);
@@ -116,8 +116,7 @@ public class Accessor extends ColladaElement {
     * method that should be called in order to resolve the source data array,
     * before the accessor can be used to actually access data.
     */
-   public void resolve() {
-      resolved = true;
+   public synchronized void resolve() {
       if (arrayId != null) return;
       arrayId = urlToId(sourceURL);
       arrayType = getCollada().getArrayType(arrayId);
@@ -137,6 +136,7 @@ public class Accessor extends ColladaElement {
        } else {
            getCollada().warning("Accessor: don't know how to resolve for array " + arrayId + " type : " + arrayType);
        }  
+       resolved = true;
    }
    
    /**
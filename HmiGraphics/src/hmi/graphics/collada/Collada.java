@@ -135,6 +135,7 @@ public class Collada extends ColladaElement {
    public static Collada forURL(String daeURL) throws IOException {
       URL sourceURL = new URL(daeURL);
       XMLTokenizer tokenizer = new XMLTokenizer(sourceURL);
+      tokenizer.setBlockReading(true);
       if (tokenizer.atEndOfDocument()) {
          Collada col = new Collada();
          col.severe("Collada.forURL \"" + daeURL + "\":  EMPTY or NULL DOCUMENT");
@@ -150,6 +151,7 @@ public class Collada extends ColladaElement {
     */
    public static Collada forResource(String daeFile) throws IOException {
       XMLTokenizer tokenizer = XMLTokenizer.forResource(daeFile);
+      tokenizer.setBlockReading(true);
       if (tokenizer.atEndOfDocument()) {
          Collada col = new Collada();
          col.severe("Collada.forResource \"" + daeFile + "\":  EMPTY or NULL DOCUMENT");
@@ -73,7 +73,7 @@ public class ColladaFloatVector extends ColladaElement {
 
    @Override
    public void decodeContent(XMLTokenizer tokenizer) throws IOException {
-      vec = decodeFloatArray(tokenizer.takeCharData(), vec);  // will allocate vec if it is null, otherwise, it will use vec
+      vec = decodeFloatArray(tokenizer.takeCharDataSequence(), vec);  // will allocate vec if it is null, otherwise, it will use vec
    }
  
 
@@ -98,7 +98,7 @@ public class FloatArray extends ColladaElement
         floats = new float[count];
         if (count > 0)
         {
-            decodeFloatArray(tokenizer.takeCharData(), floats);
+            decodeFloatArray(tokenizer.takeCharDataSequence(), floats);
         }
         getCollada().addFloatArray(getId(), floats);
     }
@@ -56,7 +56,7 @@ public class H extends ColladaElement {
 
    @Override
    public void decodeContent(XMLTokenizer tokenizer) throws IOException {
-      indices = decodeIntArray(tokenizer.takeCharData());
+      indices = decodeIntArray(tokenizer.takeCharDataSequence());
    }
 
    /*
@@ -92,7 +92,7 @@ public class IntArray extends ColladaElement {
    @Override
    public void decodeContent(XMLTokenizer tokenizer) throws IOException {
       ints = new int[count];
-      decodeIntArray(tokenizer.takeCharData(), ints);
+      decodeIntArray(tokenizer.takeCharDataSequence(), ints);
       getCollada().addIntArray(getId(), ints);
    }
 
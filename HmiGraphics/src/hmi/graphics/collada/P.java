@@ -64,7 +64,7 @@ public class P extends ColladaElement {
 
    @Override
    public void decodeContent(XMLTokenizer tokenizer) throws IOException {
-      indices = decodeIntArray(tokenizer.takeCharData());
+      indices = decodeIntArray(tokenizer.takeCharDataSequence());
    }
 
    /*
@@ -65,7 +65,7 @@ public class VCount extends ColladaElement {
 
    @Override
    public void decodeContent(XMLTokenizer tokenizer) throws IOException {
-      counts = decodeIntArray(tokenizer.takeCharData());
+      counts = decodeIntArray(tokenizer.takeCharDataSequence());
    }
 
 
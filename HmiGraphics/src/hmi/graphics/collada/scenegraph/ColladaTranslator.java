@@ -24,26 +24,38 @@
 package hmi.graphics.collada.scenegraph;
 
 import hmi.graphics.collada.Collada;
+import hmi.graphics.collada.Controller;
+import hmi.graphics.collada.Geometry;
 import hmi.graphics.collada.InstanceController;
 import hmi.graphics.collada.InstanceGeometry;
 import hmi.graphics.collada.Node;
+import hmi.graphics.collada.Morph;
 import hmi.graphics.collada.Scene;
+import hmi.graphics.collada.Skin;
 import hmi.graphics.collada.TransformNode;
 import hmi.graphics.collada.VisualScene;
 import hmi.graphics.scenegraph.GNode;
 import hmi.graphics.scenegraph.GScene;
+import hmi.graphics.scenegraph.GShape;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 import java.util.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Translates a Collada scene graph into a GScene/GNode based scene graph.
+ * The GNode tree is built first, on the calling thread. The GShapes for all instance geometries and instance controllers
+ * are then translated, and normalized, by independent tasks, in parallel on a ForkJoinPool. Finally, the resulting
+ * GShapes are added to their GNodes, on the calling thread, in document order, so the result does not depend on
+ * the order in which the tasks finish.
  * 
  * @author Job Zwiers
  */
@@ -51,11 +63,36 @@ public final class ColladaTranslator
 {
     private static Logger logger = LoggerFactory.getLogger(ColladaTranslator.class.getName());
 
+    private static volatile boolean parallel = true;
+    private static volatile ForkJoinPool pool = ForkJoinPool.commonPool();
+
     /***/
     private ColladaTranslator()
     {
     }
 
+    /**
+     * Enables or disables parallel translation of geometries and controllers. When disabled, all translation is done on the calling thread.
+     */
+    public static void setParallel(boolean par)
+    {
+        parallel = par;
+    }
+
+    /** Returns true when geometries and controllers are translated in parallel */
+    public static boolean isParallel()
+    {
+        return parallel;
+    }
+
+    /**
+     * Sets the ForkJoinPool used for parallel translation. By default, the common pool is used.
+     */
+    public static void setPool(ForkJoinPool forkJoinPool)
+    {
+        pool = forkJoinPool;
+    }
+
     // /**
     // * Translates a complete Collada document into a GScene. It contains the scene graph defined by the Collada scene element, possibly with multiple
     // * roots.
@@ -163,18 +200,25 @@ public final class ColladaTranslator
         GScene gscene = new GScene(url);
         List<Node> rootNodes = vscene.getNodes(); // The top-level nodes from the visual_scene
 
+        List<ShapeTask> shapeTasks = new ArrayList<ShapeTask>();
         for (Node rootNode : rootNodes)
         {
-            GNode gRootNode = colladaNodeToGNode(collada, rootNode);
+            GNode gRootNode = colladaNodeToGNode(collada, rootNode, shapeTasks);
             gscene.addRootNode(gRootNode);
         }
+        runShapeTasks(shapeTasks);
+        for (ShapeTask task : shapeTasks)
+        {
+            if (task.gshapeList != null) task.gnode.addGShapes(task.gshapeList);
+        }
         return gscene;
     }
 
     /**
-     * Translates a Collada Node tree recursively into an GNode tree.
+     * Translates a Collada Node tree recursively into an GNode tree. The translation of instance geometries and instance controllers
+     * is not done here, but appended to shapeTasks, in document order.
      */
-    private static GNode colladaNodeToGNode(Collada collada, Node node)
+    private static GNode colladaNodeToGNode(Collada collada, Node node, List<ShapeTask> shapeTasks)
     {
         if (node == null) return null;
         GNode gnode = new GNode();
@@ -192,40 +236,158 @@ public final class ColladaTranslator
         TransformTranslator.setTransform(transformList, gnode); // also handles null or empty list
 
         List<InstanceGeometry> instanceGeometries = node.getInstanceGeometries();
-        InstanceGeometryTranslator.addGShapes(collada, instanceGeometries, gnode);
+        if (instanceGeometries != null)
+        {
+            for (InstanceGeometry igeom : instanceGeometries)
+            {
+                shapeTasks.add(new ShapeTask(collada, gnode, igeom, null, false));
+            }
+        }
 
         // deal with instance controllers...
         List<InstanceController> instanceControllers = node.getInstanceControllers();
         if (!instanceControllers.isEmpty())
         {
             // First check for instances of skin controllers. (These might contain instances of morph controllers *inside* the skin controller)
-            List<InstanceController> instanceSkinControllers = new ArrayList<InstanceController>(instanceControllers.size());
             for (InstanceController ic : instanceControllers)
             {
-                if (ic.getController().getSkin() != null) instanceSkinControllers.add(ic);
+                if (ic.getController().getSkin() != null) shapeTasks.add(new ShapeTask(collada, gnode, null, ic, true));
             }
-            InstanceControllerTranslator.addInstanceSkinControllerGShapes(collada, instanceSkinControllers, gnode);
 
             // Next, check for instances of morph controllers that are not inside a skin controller.
-            List<InstanceController> instanceMorphControllers = new ArrayList<InstanceController>(instanceControllers.size());
             for (InstanceController ic : instanceControllers)
             {
-                if (ic.getController().getMorph() != null)
-                {
-                    instanceMorphControllers.add(ic);
-                }
+                if (ic.getController().getMorph() != null) shapeTasks.add(new ShapeTask(collada, gnode, null, ic, false));
             }
-            InstanceControllerTranslator.addInstanceMorphControllerGShapes(collada, instanceMorphControllers, gnode);
         }
         // finally, process child nodes recursively
         for (Node childNode : node.getNodes())
         {
-            GNode gchild = colladaNodeToGNode(collada, childNode);
+            GNode gchild = colladaNodeToGNode(collada, childNode, shapeTasks);
             gnode.addChildNode(gchild);
         }
         return gnode;
     }
 
+    /* Runs all tasks, in parallel when enabled */
+    private static void runShapeTasks(final List<ShapeTask> shapeTasks)
+    {
+        if (!parallel || shapeTasks.size() < 2)
+        {
+            for (ShapeTask task : shapeTasks)
+            {
+                task.translate();
+            }
+        }
+        else if (ForkJoinTask.inForkJoinPool())
+        {
+            ForkJoinTask.invokeAll(shapeTasks);
+        }
+        else
+        {
+            pool.invoke(new RecursiveAction()
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute()
+                {
+                    ForkJoinTask.invokeAll(shapeTasks);
+                }
+            });
+        }
+    }
+
+    /*
+     * Translates a single instance geometry, skin controller instance, or morph controller instance into a list of GShapes, and normalizes
+     * their meshes. Collada primitives are modified during translation, and a geometry might be instanced more than once, so the
+     * translation itself is synchronized on the (base) geometry. Normalization of the resulting meshes is done without locking.
+     */
+    private static final class ShapeTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private final Collada collada;
+        private final GNode gnode;
+        private final InstanceGeometry igeom;
+        private final InstanceController icontrol;
+        private final boolean skin;
+        private List<GShape> gshapeList;
+
+        ShapeTask(Collada collada, GNode gnode, InstanceGeometry igeom, InstanceController icontrol, boolean skin)
+        {
+            this.collada = collada;
+            this.gnode = gnode;
+            this.igeom = igeom;
+            this.icontrol = icontrol;
+            this.skin = skin;
+        }
+
+        @Override
+        protected void compute()
+        {
+            translate();
+        }
+
+        void translate()
+        {
+            synchronized (getLock())
+            {
+                if (igeom != null)
+                {
+                    Geometry geom = igeom.getGeometry();
+                    if (geom == null)
+                    {
+                        collada.warning("Collada InstanceGeometryTranslator: instance geometry: " + igeom.getURL() + " could not be found");
+                    }
+                    else
+                    {
+                        gshapeList = InstanceGeometryTranslator.getGShapeList(collada, geom, igeom.getBindMaterial());
+                    }
+                }
+                else if (skin)
+                {
+                    gshapeList = InstanceControllerTranslator.instanceSkinControllerToGShapeList(collada, icontrol);
+                }
+                else
+                {
+                    gshapeList = InstanceControllerTranslator.instanceMorphControllerToGShapeList(collada, icontrol);
+                }
+            }
+            if (gshapeList == null) return;
+            for (GShape gshape : gshapeList)
+            {
+                gshape.getGMesh().normalize();
+            }
+        }
+
+        /* Returns the (base) geometry that is translated, or else the Collada document */
+        private Object getLock()
+        {
+            Geometry geom = null;
+            if (igeom != null)
+            {
+                geom = igeom.getGeometry();
+            }
+            else
+            {
+                Controller controller = icontrol.getController();
+                Morph morph = null;
+                if (controller != null && skin && controller.getSkin() != null)
+                {
+                    Skin sk = controller.getSkin();
+                    geom = sk.getGeometry();
+                    if (geom == null && sk.getController() != null) morph = sk.getController().getMorph();
+                }
+                else if (controller != null)
+                {
+                    morph = controller.getMorph();
+                }
+                if (morph != null) geom = morph.getBaseGeometry();
+            }
+            return (geom == null) ? collada : geom;
+        }
+    }
+
     /**
      * Constructs a mapping that defines a joint renaming function for Collada skeleton structures. The specified renamingList String is assumed to be
      * an alternating sequence of old-name new-name Strings, separated by blank space characters. Here, &quot;old-name&quot; can be a fixed String
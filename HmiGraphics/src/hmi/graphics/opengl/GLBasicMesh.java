@@ -34,7 +34,8 @@ import java.util.ArrayList;
 import javax.media.opengl.*;   
 /**
  * A GLBasicMesh ...
- * 
+ * Static vertex attributes are kept in a GL_STATIC_DRAW vertex buffer, dynamic attributes, like the vertex coordinates and normals
+ * of skinned meshes, in a separate GL_STREAM_DRAW buffer. Only modified ranges of attributes are uploaded.
  */
 public class GLBasicMesh implements GLRenderObject
 {
@@ -53,12 +54,32 @@ public class GLBasicMesh implements GLRenderObject
    //private int normalAttributeIndex;       // attributeList index for the normal attribute
    
    
-   private int vertexBufferId;                    // OpenGL id for vertex buffer
+   private int vertexBufferId;                    // OpenGL id for vertex buffer, for static attributes
+   private int dynamicBufferId;                   // OpenGL id for vertex buffer, for dynamic attributes
+   private int staticBufferSize;                  // size of the static vertex buffer, in bytes
+   private int dynamicBufferSize;                 // size of the dynamic vertex buffer, in bytes
    private int indexBufferId;                     // OpenGL id for index buffer
    int geometryType = GL.GL_TRIANGLES;            // type of OpenGL primitives.
 
    private String id;
    
+   private static volatile boolean bufferOrphaning = true;
+   
+   /**
+    * When set, the dynamic vertex buffer is orphaned, i.e. reallocated by means of glBufferData, before all of its data is uploaded,
+    * which avoids synchronization with draw calls that still use the previous contents. Default: true.
+    */
+   public static void setBufferOrphaning(boolean orphaning) {
+      bufferOrphaning = orphaning;
+   }
+   
+   /**
+    * Returns the buffer orphaning mode.
+    */
+   public static boolean isBufferOrphaning() {
+      return bufferOrphaning;
+   }
+   
   
 
    /**
@@ -155,6 +176,30 @@ public class GLBasicMesh implements GLRenderObject
       attributeList.get(attrNum).setVertexData(vertexData);  
    }
    
+   /**
+    * Sets the vertex data for the vertices in the range [fromVertex, toVertex), for an attribute identified by its index number.
+    * vertexData contains data for all vertices; only the specified range is copied, and uploaded.
+    */
+   public void setVertexData(int attrNum, float[] vertexData, int fromVertex, int toVertex) {
+      attributeList.get(attrNum).setVertexData(vertexData, fromVertex, toVertex);  
+   }
+   
+   /**
+    * Sets the vertex data for an attribute, identified by its index number, where only the modified range is copied, and uploaded.
+    * Returns false when no data was modified.
+    */
+   public boolean updateVertexData(int attrNum, float[] vertexData) {
+      return attributeList.get(attrNum).updateVertexData(vertexData);  
+   }
+   
+   /**
+    * Marks an attribute, identified by its index number, as dynamic, i.e. modified frequently, or as static.
+    * Should be called before glInit.
+    */
+   public void setDynamic(int attrNum, boolean dynamic) {
+      attributeList.get(attrNum).setDynamic(dynamic);  
+   }
+   
    /**
     * Fills and returns the vertexData float array with the current contents
     * of the vertex data for the specified attribute.
@@ -221,14 +266,15 @@ public class GLBasicMesh implements GLRenderObject
     */
    public void glInit(GLRenderContext glc) {
       //int[] bufNames = new int[2];
-      IntBuffer bufNames = BufferUtil.directIntBuffer(2);
-      glc.gl2.glGenBuffers(2, bufNames);
+      IntBuffer bufNames = BufferUtil.directIntBuffer(3);
+      glc.gl.glGenBuffers(3, bufNames);
       vertexBufferId = bufNames.get(0);
       indexBufferId = bufNames.get(1);
+      dynamicBufferId = bufNames.get(2);
       
       // get current shader prog      
       int[] progarray = new int[1]; // was: int[16] ??
-      glc.gl2.glGetIntegerv(GL2.GL_CURRENT_PROGRAM, progarray, 0);
+      glc.gl.glGetIntegerv(GL2.GL_CURRENT_PROGRAM, progarray, 0);
       int prog = progarray[0];      
       
       bindShaderProg(glc, prog);
@@ -237,42 +283,59 @@ public class GLBasicMesh implements GLRenderObject
    }
    
    /**
-    * Binds the attribute indices, and defines the OGL Array Buffer for the specified 
-    * OGL Shader program
+    * Binds the attribute indices, and defines the OGL Array Buffers for the specified 
+    * OGL Shader program. All attribute data will be uploaded by the next glRender.
     */
    public void bindShaderProg(GLRenderContext glc, int prog) {
-      // determine the offsets within the VBO, for all (active) attributes:
-      int bufferOffset = 0;   
+      // determine the offsets within the VBOs, for all (active) attributes:
+      int staticOffset = 0;   
+      int dynamicOffset = 0;   
      // hmi.util.Console.println("GLBasicMesh.bindShaderProg  attributeList size: " + attributeList.size());
       for (GLVertexAttribute attr : attributeList) {
          int index = attr.setAttributeIndex(glc, prog); // will set the index for GLSL attributes, no effect on fixed function attributes
          //hmi.util.Console.println(" Attribute index for " + attr.getName() + " = " + index);
          if (index == -1) continue;                    // skip the rest of the loop body if not an active attribute    
-         //hmi.util.Console.println(" Attribute offset = " + bufferOffset);                 
-         attr.setArrayBufferOffset(bufferOffset);
-         //attr.glInit(gl);
-         
-         bufferOffset += attr.getByteBufferSize();    
-        // hmi.util.Console.println("GLBasicMesh bufferOffset after loading attribute " + attr.getAttributeName() + "  : " + bufferOffset);      
+         if (attr.isDynamic()) {
+            attr.setArrayBufferOffset(dynamicOffset);
+            dynamicOffset += attr.getByteBufferSize();    
+         } else {
+            attr.setArrayBufferOffset(staticOffset);
+            staticOffset += attr.getByteBufferSize();    
+         }
+         attr.setModified(); // the buffer storage is (re)allocated below
       }
       // allocate arraybuffer space      
-      int arrayBufferSize = bufferOffset;
-      glc.gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vertexBufferId);
-      glc.gl.glBufferData(GL.GL_ARRAY_BUFFER, arrayBufferSize, (FloatBuffer)null, GL2.GL_STREAM_DRAW);  
+      staticBufferSize = staticOffset;
+      dynamicBufferSize = dynamicOffset;
+      if (staticBufferSize > 0) {
+         glc.gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vertexBufferId);
+         glc.gl.glBufferData(GL.GL_ARRAY_BUFFER, staticBufferSize, (FloatBuffer)null, GL.GL_STATIC_DRAW);  
+      }
+      if (dynamicBufferSize > 0) {
+         glc.gl.glBindBuffer(GL.GL_ARRAY_BUFFER, dynamicBufferId);
+         glc.gl.glBufferData(GL.GL_ARRAY_BUFFER, dynamicBufferSize, (FloatBuffer)null, GL2.GL_STREAM_DRAW);  
+      }
    }
    
    /**
     * renders the mesh, using the vertexBuffer data.
     */
    public void glRender(GLRenderContext glc) {
-      glc.gl2.glDisableClientState(GL2.GL_INDEX_ARRAY);
-      glc.gl2.glBindBuffer(GL.GL_ARRAY_BUFFER, vertexBufferId); 
-      
-      for (GLVertexAttribute attr : attributeList) {
-//         if (getId()!= null ) {
-//            hmi.util.Console.println("GLBasicMesh " + getId() + " glRender attribute: " + attr.getName());
-//         }
-         attr.glRender(glc);
+      if (glc.gl2 != null) glc.gl2.glDisableClientState(GL2.GL_INDEX_ARRAY);
+      if (staticBufferSize > 0) {
+         glc.gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vertexBufferId); 
+         for (GLVertexAttribute attr : attributeList) {
+            if (!attr.isDynamic()) attr.glRender(glc);
+         }
+      }
+      if (dynamicBufferSize > 0) {
+         glc.gl.glBindBuffer(GL.GL_ARRAY_BUFFER, dynamicBufferId); 
+         if (bufferOrphaning && dynamicBufferFullyModified()) {
+            glc.gl.glBufferData(GL.GL_ARRAY_BUFFER, dynamicBufferSize, (FloatBuffer)null, GL2.GL_STREAM_DRAW);  
+         }
+         for (GLVertexAttribute attr : attributeList) {
+            if (attr.isDynamic()) attr.glRender(glc);
+         }
       }
       
       if (indexBuffer != null) {
@@ -284,8 +347,8 @@ public class GLBasicMesh implements GLRenderObject
             indexBufferModified = false;
          }  
          //gl.glEnableClientState(GLC.GL_INDEX_ARRAY);
-         glc.gl2.glDisableClientState(GL2.GL_INDEX_ARRAY);
-         glc.gl2.glDrawRangeElements(geometryType, 0, nrOfVertices, nrOfIndices, GL.GL_UNSIGNED_INT, 0L);
+         if (glc.gl2 != null) glc.gl2.glDisableClientState(GL2.GL_INDEX_ARRAY);
+         glc.gl2es3.glDrawRangeElements(geometryType, 0, nrOfVertices, nrOfIndices, GL.GL_UNSIGNED_INT, 0L);
         // gl.glDrawRangeElements(GLC.GL_TRIANGLES, 0, nrOfVertices, nrOfIndices, GLC.GL_UNSIGNED_INT, 0L);
       }
 //      if (vertexCoordBuffer != null)    gl.glDisableClientState(GLC.GL_VERTEX_ARRAY);
@@ -293,6 +356,14 @@ public class GLBasicMesh implements GLRenderObject
    }
 
 
+   /* true when all active dynamic attributes will be uploaded completely, so that the dynamic buffer can be orphaned */
+   private boolean dynamicBufferFullyModified() {
+      for (GLVertexAttribute attr : attributeList) {
+         if (attr.isDynamic() && attr.getAttributeIndex() >= 0 && !attr.isFullyModified()) return false;
+      }
+      return true;
+   }
+
 //   public String attributesToString() {
 //       StringBuilder buf = new StringBuilder();
 //       for (GLVertexAttribute va : attributeList) {
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.graphics.opengl;
+
+import hmi.math.Mat4f;
+
+import javax.media.opengl.GL2;
+
+/**
+ * A GLFrustum is a view frustum, defined by six planes, for culling bounding spheres. A bounding sphere is a float array
+ * (centerX, centerY, centerZ, radius). The planes are extracted from a combined projection and view matrix, in row major order,
+ * as usual for Mat4f matrices. The static methods transformSphere and unionSphere support the calculation of bounding spheres
+ * for transformed and skinned geometry.
+ */
+public final class GLFrustum {
+
+   private static final int NR_OF_PLANES = 6;
+   private final float[] planes = new float[4 * NR_OF_PLANES]; // (a, b, c, d) per plane, with unit normal (a, b, c) pointing inwards
+   private final float[] viewProjection = Mat4f.getMat4f();
+   private final float[] glMatrix = new float[16];
+   private final float[] glProjection = Mat4f.getMat4f();
+   
+   /**
+    * Creates a frustum that contains everything, until it is set.
+    */
+   public GLFrustum() {
+      for (int p = 0; p < NR_OF_PLANES; p++) planes[4 * p + 3] = Float.MAX_VALUE;
+   }
+   
+   /**
+    * Sets the frustum planes from a combined projection * view matrix, in row major order.
+    * Geometry is in view if its transformed clip coordinates (x, y, z, w) satisfy -w &lt;= x, y, z &lt;= w.
+    */
+   public void setFromMatrix(float[] projectionView) {
+      float[] m = projectionView;
+      for (int row = 0; row < 3; row++) {
+         for (int k = 0; k < 4; k++) {
+            planes[4 * (2 * row) + k] = m[12 + k] + m[4 * row + k];      // left, bottom, near
+            planes[4 * (2 * row + 1) + k] = m[12 + k] - m[4 * row + k];  // right, top, far
+         }
+      }
+      for (int p = 0; p < NR_OF_PLANES; p++) {
+         int o = 4 * p;
+         float len = (float) Math.sqrt(planes[o] * planes[o] + planes[o + 1] * planes[o + 1] + planes[o + 2] * planes[o + 2]);
+         if (len > 0.0f) {
+            for (int k = 0; k < 4; k++) planes[o + k] /= len;
+         }
+      }
+   }
+   
+   /**
+    * Sets the frustum planes from a projection matrix and a view matrix, both in row major order.
+    */
+   public void setFromMatrices(float[] projection, float[] view) {
+      Mat4f.mul(viewProjection, projection, view);
+      setFromMatrix(viewProjection);
+   }
+   
+   /**
+    * Sets the frustum planes from the current OpenGL projection and modelview matrices. This should be called
+    * when the modelview matrix contains the view transform only, that is, before any GLShape transform is applied.
+    */
+   public void setFromGL(GLRenderContext glc) {
+      glc.gl2.glGetFloatv(GL2.GL_PROJECTION_MATRIX, glMatrix, 0);
+      Mat4f.transpose(glProjection, glMatrix); // OpenGL matrices are in column major order
+      glc.gl2.glGetFloatv(GL2.GL_MODELVIEW_MATRIX, glMatrix, 0);
+      Mat4f.transpose(glMatrix);
+      setFromMatrices(glProjection, glMatrix);
+   }
+   
+   /**
+    * Returns true when the specified bounding sphere is (possibly) inside the frustum, and false when it is
+    * completely outside. Spheres with negative radius are considered empty, and are outside.
+    */
+   public boolean intersectsSphere(float[] sphere) {
+      if (sphere[3] < 0.0f) return false;
+      for (int p = 0; p < NR_OF_PLANES; p++) {
+         int o = 4 * p;
+         float distance = planes[o] * sphere[0] + planes[o + 1] * sphere[1] + planes[o + 2] * sphere[2] + planes[o + 3];
+         if (distance < -sphere[3]) return false;
+      }
+      return true;
+   }
+   
+   /**
+    * Transforms bounding sphere src by the row major Mat4f m, and stores the result in dest, which may be equal to src.
+    * The radius is scaled by the largest scaling factor of m, so the result bounds the transformed sphere.
+    */
+   public static void transformSphere(float[] m, float[] src, float[] dest) {
+      float x = src[0], y = src[1], z = src[2];
+      dest[0] = m[0] * x + m[1] * y + m[2] * z + m[3];
+      dest[1] = m[4] * x + m[5] * y + m[6] * z + m[7];
+      dest[2] = m[8] * x + m[9] * y + m[10] * z + m[11];
+      float sx = m[0] * m[0] + m[4] * m[4] + m[8] * m[8];
+      float sy = m[1] * m[1] + m[5] * m[5] + m[9] * m[9];
+      float sz = m[2] * m[2] + m[6] * m[6] + m[10] * m[10];
+      dest[3] = (src[3] < 0.0f) ? src[3] : src[3] * (float) Math.sqrt(Math.max(sx, Math.max(sy, sz)));
+   }
+   
+   /**
+    * Extends bounding sphere dest, such that it also bounds sphere src. Spheres with negative radius are empty.
+    */
+   public static void unionSphere(float[] dest, float[] src) {
+      if (src[3] < 0.0f) return;
+      if (dest[3] < 0.0f) {
+         System.arraycopy(src, 0, dest, 0, 4);
+         return;
+      }
+      float dx = src[0] - dest[0], dy = src[1] - dest[1], dz = src[2] - dest[2];
+      float distance = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+      if (distance + src[3] <= dest[3]) return;      // src inside dest
+      if (distance + dest[3] <= src[3]) {            // dest inside src
+         System.arraycopy(src, 0, dest, 0, 4);
+         return;
+      }
+      float radius = 0.5f * (distance + dest[3] + src[3]);
+      float t = (radius - dest[3]) / distance;
+      dest[0] += t * dx;
+      dest[1] += t * dy;
+      dest[2] += t * dz;
+      dest[3] = radius;
+   }
+}
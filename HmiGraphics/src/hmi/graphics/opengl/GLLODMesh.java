@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.graphics.opengl;
+
+import hmi.math.Mat4f;
+
+import java.util.ArrayList;
+
+/**
+ * A GLLODMesh is a GLRenderObject that renders one out of a chain of levels of detail, from fine to coarse, where level 0 is the full
+ * resolution mesh. The level is chosen by selectLevel, from the projected size of a bounding sphere: level i, for i &gt; 0, is used when
+ * the projected size, as a fraction of the viewport height, drops below the size for that level. The bounding sphere is defined in mesh
+ * coordinates, and is transformed by a linked transform matrix, optionally combined with a bind matrix. For skinned meshes, the
+ * latter are the global matrix and the inverse bind matrix of the first joint, so that the sphere follows the skeleton.
+ * Only the active level is rendered; for skinned meshes, GLScene also deforms and morphs only the active level.
+ */
+public class GLLODMesh implements GLRenderObject {
+
+   private ArrayList<GLBasicMesh> levels = new ArrayList<GLBasicMesh>(4);
+   private ArrayList<Float> levelSizes = new ArrayList<Float>(4);
+   private int activeLevel = 0;
+   
+   private float[] center = new float[3];   // bounding sphere center, in mesh coordinates
+   private float radius = 0.0f;             // bounding sphere radius, in mesh coordinates
+   private float[] transformMatrix;         // a reference to a Mat4f, in row major order, or null
+   private float[] bindMatrix;              // an optional Mat4f that is applied before transformMatrix
+   private float[] worldCenter = new float[3];
+   
+   /**
+    * Creates a new GLLODMesh, with the specified full resolution mesh as level 0.
+    */
+   public GLLODMesh(GLBasicMesh baseMesh) {
+      levels.add(baseMesh);
+      levelSizes.add(Float.MAX_VALUE);
+   }
+   
+   /**
+    * Adds a coarser level of detail, to be used when the projected size is below the specified size.
+    * Levels should be added from fine to coarse, with decreasing sizes.
+    */
+   public void addLevel(GLBasicMesh mesh, float size) {
+      levels.add(mesh);
+      levelSizes.add(size);
+   }
+   
+   /**
+    * Returns the number of levels, including level 0.
+    */
+   public int getNrOfLevels() {
+      return levels.size();
+   }
+   
+   /**
+    * Returns the mesh for the specified level.
+    */
+   public GLBasicMesh getLevel(int level) {
+      return levels.get(level);
+   }
+   
+   /**
+    * Returns the level that is currently rendered.
+    */
+   public int getActiveLevel() {
+      return activeLevel;
+   }
+   
+   /**
+    * Sets the level to be rendered.
+    */
+   public void setActiveLevel(int level) {
+      if (level < 0 || level >= levels.size()) throw new IllegalArgumentException("GLLODMesh: illegal level: " + level);
+      activeLevel = level;
+   }
+   
+   /**
+    * Returns the mesh that is currently rendered.
+    */
+   public GLBasicMesh getActiveMesh() {
+      return levels.get(activeLevel);
+   }
+   
+   /**
+    * Sets the bounding sphere, in mesh coordinates.
+    */
+   public void setBounds(float[] center, float radius) {
+      this.center[0] = center[0];
+      this.center[1] = center[1];
+      this.center[2] = center[2];
+      this.radius = radius;
+   }
+   
+   /**
+    * Sets a link to the matrix that transforms the bounding sphere, in row major order. The matrix is not copied.
+    */
+   public void linkToTransformMatrix(float[] transformMatrix) {
+      this.transformMatrix = transformMatrix;
+   }
+   
+   /**
+    * Sets an optional matrix, in row major order, that transforms the bounding sphere before the transform matrix is applied.
+    */
+   public void setBindMatrix(float[] bindMatrix) {
+      this.bindMatrix = bindMatrix;
+   }
+   
+   /**
+    * Returns the projected size of the bounding sphere, as seen from the specified eye position, as a fraction of the viewport height.
+    * projectionScale is 1/tan(fovy/2), for a vertical field of view fovy.
+    */
+   public float getProjectedSize(float[] eyePosition, float projectionScale) {
+      worldCenter[0] = center[0];
+      worldCenter[1] = center[1];
+      worldCenter[2] = center[2];
+      float scale = 1.0f;
+      if (bindMatrix != null) {
+         Mat4f.transformPoint(bindMatrix, worldCenter);
+         scale *= maxScale(bindMatrix);
+      }
+      if (transformMatrix != null) {
+         Mat4f.transformPoint(transformMatrix, worldCenter);
+         scale *= maxScale(transformMatrix);
+      }
+      float dx = worldCenter[0] - eyePosition[0];
+      float dy = worldCenter[1] - eyePosition[1];
+      float dz = worldCenter[2] - eyePosition[2];
+      float distance = (float) Math.sqrt(dx*dx + dy*dy + dz*dz);
+      float r = radius * scale;
+      if (distance <= r) return Float.MAX_VALUE;
+      return r * projectionScale / distance;
+   }
+   
+   /* An upper bound for the scaling by the upper left 3X3 part of a row major Mat4f */
+   private static float maxScale(float[] m) {
+      float sx = m[0]*m[0] + m[4]*m[4] + m[8]*m[8];
+      float sy = m[1]*m[1] + m[5]*m[5] + m[9]*m[9];
+      float sz = m[2]*m[2] + m[6]*m[6] + m[10]*m[10];
+      return (float) Math.sqrt(Math.max(sx, Math.max(sy, sz)));
+   }
+   
+   /**
+    * Selects the level of detail for the specified eye position and projection scale, see getProjectedSize.
+    * Returns true when the active level has changed.
+    */
+   public boolean selectLevel(float[] eyePosition, float projectionScale) {
+      float size = getProjectedSize(eyePosition, projectionScale);
+      int level = 0;
+      while (level + 1 < levels.size() && size < levelSizes.get(level + 1)) level++;
+      if (level == activeLevel) return false;
+      activeLevel = level;
+      return true;
+   }
+   
+   /**
+    * OpenGL initialization of all levels.
+    */
+   @Override
+   public void glInit(GLRenderContext glc) {
+      for (GLBasicMesh mesh : levels) mesh.glInit(glc);
+   }
+   
+   /**
+    * Renders the active level.
+    */
+   @Override
+   public void glRender(GLRenderContext glc) {
+      levels.get(activeLevel).glRender(glc);
+   }
+   
+   public StringBuilder appendTo(StringBuilder buf, int tab) {
+      GLUtil.appendSpaces(buf, tab);
+      buf.append("GLLODMesh, levels=").append(levels.size()).append(", active=").append(activeLevel);
+      return buf;
+   }
+   
+   @Override
+   public String toString() {
+      return appendTo(new StringBuilder(), 0).toString();
+   }
+}
@@ -25,6 +25,8 @@
 
 package hmi.graphics.opengl;
 
+import java.util.Arrays;
+
 import javax.media.opengl.*; 
 import javax.media.opengl.glu.gl2.*;
 
@@ -42,11 +44,24 @@ public class GLRenderContext {
    
    public GL2ES2 gl; // Our "lowest common denominator" GL. Common subset of GL2, GL3, and GLES2. (Only fixed function GLES1 is left out)
    public GL2 gl2;   // The specialization to GL2: includes "old style", now deprecated, functionality.
+   public GL2ES3 gl2es3; // Common subset of GL2, GL3 and GLES3: includes range drawing, next to the GL2ES2 buffer object functionality.
    public GL3 gl3;   // The specialization to GL3: includes only "new", non-deprecated OpenGL3.1+ functionality.
   // public GL4 gl4;   // The specialization to GL4. Seems to be just a tagging interface for now, so does not include more than GL3.
    
    
    public GLUgl2 glu;  // The GLUgl2 
+   
+   // Cached OpenGL state, for skipping redundant state changes while state caching is on. 
+   private static final int MAX_TEXTURE_UNITS = 32;
+   private static final int UNKNOWN = -1;
+   private boolean stateCaching = false;
+   private int currentProgram = UNKNOWN;
+   private int currentBlending = UNKNOWN; // 0: disabled, 1: enabled
+   private int currentSrcFactor = UNKNOWN;
+   private int currentDestFactor = UNKNOWN;
+   private int[] boundTextures = new int[MAX_TEXTURE_UNITS];
+   private Object currentMaterial;
+   private int stateChanges = 0;
 
    public void setGL(GLAutoDrawable gla) {
       gl = gla.getGL().getGL2ES2();  
@@ -54,6 +69,7 @@ public class GLRenderContext {
          gl2 = gl.getGL2();
          glu = new GLUgl2();  
       }
+      if (gl.isGL2ES3()) gl2es3 = gl.getGL2ES3();
       if (gl.isGL3()) gl3 = gl.getGL3();
    }
    
@@ -66,6 +82,10 @@ public class GLRenderContext {
       return gl2;
    }
    
+   public GL2ES3 getGL2ES3() {
+      return gl2es3;  
+   }
+   
    public GL3 getGL3() {
       return gl3;  
    }
@@ -74,6 +94,113 @@ public class GLRenderContext {
       return glu;  
    }
 
+   /**
+    * Switches state caching on or off. While on, useProgram, bindTexture, setBlending and setCurrentMaterial skip 
+    * state changes that are redundant with respect to the previous call. Since state changes made by other means are not tracked, 
+    * state caching should only be switched on for rendering code that uses these methods, like the GLRenderQueue.
+    * Switching caching on or off invalidates the cached state.
+    */
+   public void setStateCaching(boolean caching) {
+      stateCaching = caching;
+      invalidateStateCache();
+   }
+   
+   /**
+    * Returns whether state caching is on.
+    */
+   public boolean isStateCaching() {
+      return stateCaching;
+   }
+   
+   /**
+    * Forgets the cached state, so that the next state changes will be applied, also when state caching is on.
+    */
+   public void invalidateStateCache() {
+      currentProgram = UNKNOWN;
+      currentBlending = UNKNOWN;
+      currentSrcFactor = UNKNOWN;
+      currentDestFactor = UNKNOWN;
+      Arrays.fill(boundTextures, UNKNOWN);
+      currentMaterial = null;
+   }
+   
+   /**
+    * Returns the number of (non-redundant) state changes applied via useProgram, bindTexture, setBlending and 
+    * setCurrentMaterial since the last resetStateChanges call.
+    */
+   public int getStateChanges() {
+      return stateChanges;
+   }
+   
+   /**
+    * Resets the state change counter.
+    */
+   public void resetStateChanges() {
+      stateChanges = 0;
+   }
+   
+   /**
+    * Activates the specified shader program, unless it is already active, and state caching is on.
+    * Returns true when the program has been activated.
+    */
+   public boolean useProgram(int programId) {
+      if (stateCaching && programId == currentProgram) return false;
+      gl.glUseProgram(programId);
+      currentProgram = programId;
+      stateChanges++;
+      return true;
+   }
+   
+   /**
+    * Binds the specified 2D texture to the specified texture unit (GL_TEXTURE0, GL_TEXTURE1, ...),
+    * unless it is already bound, and state caching is on. Returns true when the texture has been bound.
+    */
+   public boolean bindTexture(int glTextureUnit, int textureId) {
+      int unit = glTextureUnit - GL.GL_TEXTURE0;
+      boolean cached = unit >= 0 && unit < MAX_TEXTURE_UNITS;
+      if (stateCaching && cached && boundTextures[unit] == textureId) return false;
+      gl.glActiveTexture(glTextureUnit);
+      gl.glBindTexture(GL.GL_TEXTURE_2D, textureId);
+      if (cached) boundTextures[unit] = textureId;
+      stateChanges++;
+      return true;
+   }
+   
+   /**
+    * Enables alpha blending with the specified blend factors, and disables depth buffer writing, or, when not enabled,
+    * disables blending and enables depth buffer writing. Redundant changes are skipped when state caching is on.
+    * Returns true when the state has been changed.
+    */
+   public boolean setBlending(boolean enabled, int srcFactor, int destFactor) {
+      int blending = enabled ? 1 : 0;
+      if (stateCaching && blending == currentBlending && (!enabled || (srcFactor == currentSrcFactor && destFactor == currentDestFactor))) {
+         return false;
+      }
+      if (enabled) {
+         gl.glEnable(GL.GL_BLEND);
+         gl.glBlendFunc(srcFactor, destFactor);
+         gl.glDepthMask(false);
+      } else {
+         gl.glDisable(GL.GL_BLEND);
+         gl.glDepthMask(true);
+      }
+      currentBlending = blending;
+      currentSrcFactor = srcFactor;
+      currentDestFactor = destFactor;
+      stateChanges++;
+      return true;
+   }
+   
+   /**
+    * Registers the specified material, typically a GLMaterial, as the current one. Returns false when state caching is on, 
+    * and the material is current already, in which case it need not be applied again. 
+    */
+   public boolean setCurrentMaterial(Object material) {
+      if (stateCaching && material == currentMaterial) return false;
+      currentMaterial = material;
+      return true;
+   }
+   
    void setPass(int pass) {
       this.pass = pass; 
    }
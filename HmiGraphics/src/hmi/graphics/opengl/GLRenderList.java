@@ -39,6 +39,7 @@ public class GLRenderList implements GLRenderObject {
    private GLRenderObject[] renderList = EMPTYLIST;
    private int arraySize = 0;       // current size of the arrays.
    private int size = 0;                // size of the List
+   private int modCount = 0;            // nr of modifications, see getModCount
    private static final int DEFAULTSIZE = 8;
    private static Logger logger = LoggerFactory.getLogger(GLRenderList.class.getName());
 
@@ -74,6 +75,14 @@ public class GLRenderList implements GLRenderObject {
    /** returns true iff the GLrenderList is empty */
    public boolean isEmpty() { return size==0; }
 
+   /**
+    * Returns the number of modifications (add, addAll, prepend) of this list, so that derived structures,
+    * like a GLRenderQueue, can detect that they are out of date.
+    */
+   public int getModCount() {
+      return modCount;
+   }
+
    /**
     * Adds some GLRenderObject to the list
     */
@@ -81,6 +90,7 @@ public class GLRenderList implements GLRenderObject {
       ensureArraySize(size+1);
       renderList[size] = ro;
       size++;  
+      modCount++;
    }
 
    /**
@@ -94,6 +104,7 @@ public class GLRenderList implements GLRenderObject {
          renderList[size+i] = rlist.renderList[i];
       }
       size += rlist.size;  
+      modCount++;
    }
 
    /**
@@ -108,6 +119,7 @@ public class GLRenderList implements GLRenderObject {
       }
       renderList[0] = ro;
       size++;  
+      modCount++;
    }
 
 
@@ -0,0 +1,332 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.graphics.opengl;
+
+import hmi.graphics.opengl.state.GLMaterial;
+
+import java.util.IdentityHashMap;
+
+/**
+ * A GLRenderQueue renders a collection of GLShapes in an order that minimizes OpenGL state changes.
+ * Other GLRenderObjects, like an OpenGLState at the front of a shape list, keep their position: only the GLShapes in between 
+ * two such objects are reordered. Every GLShape gets a 64 bit sort key. Opaque shapes come first, ordered by shader program, diffuse texture,
+ * and material. Alpha blended shapes come last, ordered back to front by the distance of their bounding sphere center
+ * (or their origin) to the eye position, so that blending remains correct. Keys are re-sorted every frame by means of a radix sort,
+ * which is stable, so shapes with equal keys keep their original order.
+ * During rendering, state caching of the GLRenderContext is switched on, so that redundant GLMaterial, shader program, texture and blending
+ * changes are skipped. The number of state changes for the last frame is available for profiling.
+ */
+public class GLRenderQueue implements GLRenderObject {
+
+   private static final int ID_BITS = 16;
+   private static final long ID_MASK = (1L << ID_BITS) - 1;
+   private static final int PROGRAM_SHIFT = 42;
+   private static final int TEXTURE_SHIFT = 26;
+   private static final int MATERIAL_SHIFT = 10;
+   private static final int DEPTH_SHIFT = 31;
+   private static final long TRANSPARENT_BIT = 1L << 63;
+   private static final int DEFAULT_CAPACITY = 16;
+   private static final int RADIX_BITS = 8;
+   private static final int RADIX = 1 << RADIX_BITS;
+
+   private GLRenderObject[] objects = new GLRenderObject[DEFAULT_CAPACITY];
+   private GLShape[] shapes = new GLShape[DEFAULT_CAPACITY]; // shapes[i] == objects[i] for GLShapes, null for other objects
+   private long[] stateKeys = new long[DEFAULT_CAPACITY];     // static part of the keys: state ids, and the transparency bit
+   private boolean[] transparent = new boolean[DEFAULT_CAPACITY];
+   private int size = 0;
+   private boolean keysValid = false;
+
+   // sort data, reused for every frame
+   private long[] keys = new long[DEFAULT_CAPACITY];
+   private int[] order = new int[DEFAULT_CAPACITY];
+   private int[] runOrder = new int[DEFAULT_CAPACITY];
+   private long[] keyScratch = new long[DEFAULT_CAPACITY];
+   private int[] orderScratch = new int[DEFAULT_CAPACITY];
+   private int[] counts = new int[RADIX];
+
+   private float[] eyePosition;
+   private float[] sphere = new float[4];
+   private int stateChanges = 0;
+   
+   private GLRenderList source;  // the list followed by this queue, or null
+   private int sourceModCount;
+
+   /**
+    * Creates an empty GLRenderQueue.
+    */
+   public GLRenderQueue() {
+   }
+
+   /**
+    * Creates a GLRenderQueue that follows the specified list: whenever GLRenderObjects are added to the list,
+    * the queue is rebuilt from the list, before the next sort or glRender.
+    */
+   public GLRenderQueue(GLRenderList shapeList) {
+      source = shapeList;
+      rebuild();
+   }
+
+   /**
+    * Adds a GLRenderObject. GLShapes are reordered, other objects keep their position.
+    */
+   public void add(GLRenderObject obj) {
+      ensureCapacity(size + 1);
+      objects[size] = obj;
+      shapes[size] = (obj instanceof GLShape) ? (GLShape) obj : null;
+      size++;
+      keysValid = false;
+   }
+
+   /**
+    * Adds all GLRenderObjects from the specified list.
+    */
+   public void addAll(GLRenderList shapeList) {
+      if (shapeList == null) return;
+      for (int i=0; i<shapeList.size(); i++) add(shapeList.get(i));
+   }
+
+   /**
+    * Removes all GLRenderObjects.
+    */
+   public void clear() {
+      for (int i=0; i<size; i++) {
+         objects[i] = null;
+         shapes[i] = null;
+      }
+      size = 0;
+      keysValid = false;
+   }
+   
+   /* rebuilds the queue from the source list */
+   private void rebuild() {
+      clear();
+      addAll(source);
+      if (source != null) sourceModCount = source.getModCount();
+   }
+
+   /**
+    * Returns the number of GLRenderObjects.
+    */
+   public int size() {
+      return size;
+   }
+
+   /**
+    * Signals that the state (materials, shaders, textures, or blending) of the GLShapes has been modified,
+    * so that the state part of the sort keys must be recalculated.
+    */
+   public void invalidate() {
+      keysValid = false;
+   }
+
+   /**
+    * Sets the eye position, in world coordinates, used for ordering alpha blended GLShapes back to front.
+    * The array is copied. When no eye position is set, alpha blended shapes keep their original order.
+    */
+   public void setEyePosition(float[] eyePosition) {
+      if (this.eyePosition == null) this.eyePosition = new float[3];
+      System.arraycopy(eyePosition, 0, this.eyePosition, 0, 3);
+   }
+
+   /**
+    * Returns the number of state changes performed during the last glRender call.
+    */
+   public int getStateChanges() {
+      return stateChanges;
+   }
+
+   /**
+    * Returns the GLRenderObject at position i in the current render order, as determined by the last sort (or glRender) call.
+    */
+   public GLRenderObject getSorted(int i) {
+      return objects[order[i]];
+   }
+
+   /**
+    * Calculates the sort keys, and sorts the GLShapes in between other GLRenderObjects. Called by glRender, for every frame.
+    */
+   public void sort() {
+      if (source != null && source.getModCount() != sourceModCount) rebuild();
+      if (!keysValid) calculateStateKeys();
+      int start = 0;
+      while (start < size) {
+         if (shapes[start] == null) { // not a GLShape: keeps its position
+            order[start] = start;
+            start++;
+            continue;
+         }
+         int n = 0;
+         while (start + n < size && shapes[start + n] != null) {
+            int i = start + n;
+            keys[n] = transparent[i] ? stateKeys[i] | (depthKey(shapes[i]) << DEPTH_SHIFT) : stateKeys[i];
+            runOrder[n] = i;
+            n++;
+         }
+         radixSort(keys, runOrder, n, keyScratch, orderScratch, counts);
+         System.arraycopy(runOrder, 0, order, start, n);
+         start += n;
+      }
+   }
+
+   /* Assigns dense ids to programs, textures and materials, in order of appearance, and combines them into the state keys */
+   private void calculateStateKeys() {
+      IdentityHashMap<Object, Integer> ids = new IdentityHashMap<Object, Integer>();
+      for (int i=0; i<size; i++) {
+         if (shapes[i] == null) continue;
+         GLMaterial material = shapes[i].getGLMaterial();
+         Object program = null;
+         Object texture = null;
+         boolean alpha = false;
+         if (material != null) {
+            GLShader shader = material.getGLShader();
+            program = (shader == null) ? null : shader.getShaderProgram();
+            texture = material.getDiffuseTexture();
+            alpha = material.getAlphaBlendingEnabled();
+         }
+         transparent[i] = alpha;
+         long programId = id(ids, program);
+         if (alpha) {
+            stateKeys[i] = TRANSPARENT_BIT | (programId << MATERIAL_SHIFT); // program only breaks ties between equal depths
+         } else {
+            stateKeys[i] = (programId << PROGRAM_SHIFT) | (id(ids, texture) << TEXTURE_SHIFT) | (id(ids, material) << MATERIAL_SHIFT);
+         }
+      }
+      keysValid = true;
+   }
+
+   /* returns a dense id for obj, where null has id 0. Ids that do not fit are wrapped, which only affects the quality of the sort */
+   private static long id(IdentityHashMap<Object, Integer> ids, Object obj) {
+      if (obj == null) return 0;
+      Integer id = ids.get(obj);
+      if (id == null) {
+         id = ids.size() + 1;
+         ids.put(obj, id);
+      }
+      return id & ID_MASK;
+   }
+
+   /* returns a 32 bit key that decreases with the distance between eye and shape, for back to front ordering */
+   private long depthKey(GLShape shape) {
+      if (eyePosition == null) return 0;
+      if (!shape.calculateBoundingSphere(sphere)) {
+         float[] m = shape.getTransformMatrix();
+         sphere[0] = m[3];
+         sphere[1] = m[7];
+         sphere[2] = m[11];
+      }
+      float dx = sphere[0] - eyePosition[0], dy = sphere[1] - eyePosition[1], dz = sphere[2] - eyePosition[2];
+      float distance2 = dx * dx + dy * dy + dz * dz;
+      // for non-negative floats, the int bits are ordered like the float values
+      return ~Float.floatToIntBits(distance2) & 0xFFFFFFFFL;
+   }
+
+   /**
+    * Sorts the first n keys, as unsigned longs, in ascending order, and permutes the values in the same way.
+    * The sort is a stable least significant digit radix sort, with 8 bit digits. Passes for digits that are equal for all keys are skipped.
+    * keyScratch and valueScratch must have length at least n, counts must have length at least 256.
+    */
+   public static void radixSort(long[] keys, int[] values, int n, long[] keyScratch, int[] valueScratch, int[] counts) {
+      long[] srcKeys = keys, destKeys = keyScratch;
+      int[] srcValues = values, destValues = valueScratch;
+      for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+         for (int d=0; d<RADIX; d++) counts[d] = 0;
+         for (int i=0; i<n; i++) counts[(int) (srcKeys[i] >>> shift) & (RADIX - 1)]++;
+         if (n == 0 || counts[(int) (srcKeys[0] >>> shift) & (RADIX - 1)] == n) continue; // all keys have the same digit
+         int offset = 0;
+         for (int d=0; d<RADIX; d++) {
+            int count = counts[d];
+            counts[d] = offset;
+            offset += count;
+         }
+         for (int i=0; i<n; i++) {
+            int pos = counts[(int) (srcKeys[i] >>> shift) & (RADIX - 1)]++;
+            destKeys[pos] = srcKeys[i];
+            destValues[pos] = srcValues[i];
+         }
+         long[] tk = srcKeys; srcKeys = destKeys; destKeys = tk;
+         int[] tv = srcValues; srcValues = destValues; destValues = tv;
+      }
+      if (srcKeys != keys) {
+         System.arraycopy(srcKeys, 0, keys, 0, n);
+         System.arraycopy(srcValues, 0, values, 0, n);
+      }
+   }
+
+   private void ensureCapacity(int capacity) {
+      if (capacity <= objects.length) return;
+      int newCapacity = Math.max(capacity, 2 * objects.length);
+      GLRenderObject[] newObjects = new GLRenderObject[newCapacity];
+      System.arraycopy(objects, 0, newObjects, 0, size);
+      objects = newObjects;
+      GLShape[] newShapes = new GLShape[newCapacity];
+      System.arraycopy(shapes, 0, newShapes, 0, size);
+      shapes = newShapes;
+      stateKeys = new long[newCapacity];
+      transparent = new boolean[newCapacity];
+      keys = new long[newCapacity];
+      order = new int[newCapacity];
+      runOrder = new int[newCapacity];
+      keyScratch = new long[newCapacity];
+      orderScratch = new int[newCapacity];
+   }
+
+   /**
+    * OpenGL initialization.
+    */
+   @Override
+   public void glInit(GLRenderContext glc) {
+      if (source != null && source.getModCount() != sourceModCount) rebuild();
+      for (int i=0; i<size; i++) objects[i].glInit(glc);
+   }
+
+   /**
+    * OpenGL rendering: sorts the GLShapes, and renders all GLRenderObjects with state caching switched on.
+    * Since other GLRenderObjects could change OpenGL state directly, the cached state is invalidated after rendering them.
+    */
+   @Override
+   public void glRender(GLRenderContext glc) {
+      sort();
+      boolean caching = glc.isStateCaching();
+      glc.setStateCaching(true);
+      int changes = glc.getStateChanges();
+      for (int i=0; i<size; i++) {
+         int k = order[i];
+         objects[k].glRender(glc);
+         if (shapes[k] == null) glc.invalidateStateCache();
+      }
+      stateChanges = glc.getStateChanges() - changes;
+      glc.setStateCaching(caching);
+   }
+
+   public StringBuilder appendTo(StringBuilder buf, int tab) {
+      GLUtil.appendSpaces(buf, tab);
+      buf.append("GLRenderQueue, objects=").append(size);
+      return buf;
+   }
+
+   @Override
+   public String toString() {
+      return appendTo(new StringBuilder(), 0).toString();
+   }
+}
@@ -306,6 +306,13 @@ public class GLShader implements GLRenderObject
       return shaderProgName;
    }
 
+   /**
+    * returns the shader program, possibly shared with other GLShaders, or null if it could not be loaded
+    */
+   public GLShaderProgram getShaderProgram() {
+      return prog;
+   }
+
   /* flag thaty determined the amount of detail for appendAttributesTo() and toString() */   
    private static boolean showDetail = true;
   
@@ -558,7 +565,7 @@ public class GLShader implements GLRenderObject
      */
     public final void glRender(GLRenderContext glc)
     {
-        glc.gl.glUseProgram(progId);
+        glc.useProgram(progId);
         for (int i = 0; i < nrOfUniforms; i++)
         {
             glSetUniformValue(glc, i);
@@ -48,6 +48,9 @@ public class GLShape implements GLRenderObject {
    private String name;
    protected float[] transformMatrix;      // a reference to a 16-float Mat4f array, in row major order
    private boolean visible = true;
+   private float[] boundingSphere;         // (centerX, centerY, centerZ, radius), in the coordinates of the geometry
+   private float[] worldSphere = new float[4];
+   private boolean culled = false;
    private static Logger logger = LoggerFactory.getLogger(GLShape.class.getName());
 
    
@@ -78,6 +81,8 @@ public class GLShape implements GLRenderObject {
    public GLRenderList getStateList() { return glStateList; }
    public void hide() { visible = false; }
    public void show() { visible = true; }
+   public boolean isCulled() { return culled; }
+   public void clearCulling() { culled = false; }
  
  
  
@@ -97,6 +102,17 @@ public class GLShape implements GLRenderObject {
    }
 
 
+    /**
+     * Returns the first GLMaterial from the state list, or null when there is none
+     */
+    public GLMaterial getGLMaterial() {
+        for (int j=0; j< glStateList.size(); j++) {
+            GLRenderObject state = glStateList.get(j);
+            if (state instanceof GLMaterial) return (GLMaterial) state;
+        } 
+        return null;
+    }
+
     /**
      * Searches for a GLMaterial with the specified id and returns it, or null when not found
      */
@@ -136,6 +152,69 @@ public class GLShape implements GLRenderObject {
    public void linkToTransformMatrix(float[] transformMatrix) {
       this.transformMatrix = transformMatrix;
    }
+   
+   /**
+    * Returns the (linked) transform matrix, in row-major order.
+    */
+   public float[] getTransformMatrix() {
+      return transformMatrix;
+   }
+
+   /**
+    * Sets the bounding sphere (centerX, centerY, centerZ, radius) of the geometry, in the coordinates of the geometry,
+    * that is, before transformation by the transform matrix. The sphere is not used for skinned geometry, see calculateBoundingSphere.
+    */
+   public void setBoundingSphere(float[] boundingSphere) {
+      this.boundingSphere = boundingSphere;
+   }
+   
+   /**
+    * Returns the bounding sphere of the geometry, in the coordinates of the geometry, or null when not set.
+    */
+   public float[] getBoundingSphere() {
+      return boundingSphere;
+   }
+   
+   /**
+    * Returns the GLSkinnedMesh that is rendered by this GLShape, if any, else null. For a GLLODMesh with skinned levels,
+    * the currently active level is returned.
+    */
+   public GLSkinnedMesh getSkinnedMesh() {
+      for (int i=0; i<glGeometryList.size(); i++) {
+         GLRenderObject geom = glGeometryList.get(i);
+         if (geom instanceof GLLODMesh) geom = ((GLLODMesh) geom).getActiveMesh();
+         if (geom instanceof GLSkinnedMesh) return (GLSkinnedMesh) geom;
+      }
+      return null;
+   }
+   
+   /**
+    * Calculates the bounding sphere of this GLShape in world coordinates, and stores it in dest. 
+    * For skinned geometry, the sphere is derived from the joint bounding spheres and the current joint matrices,
+    * so it is valid before the mesh has been deformed. Returns false when no bounding sphere is available.
+    */
+   public boolean calculateBoundingSphere(float[] dest) {
+      GLSkinnedMesh skinnedMesh = getSkinnedMesh();
+      if (skinnedMesh != null) {
+         if ( ! skinnedMesh.calculateBoundingSphere(dest)) return false;
+      } else if (boundingSphere != null) {
+         System.arraycopy(boundingSphere, 0, dest, 0, 4);
+      } else {
+         return false;
+      }
+      GLFrustum.transformSphere(transformMatrix, dest, dest);
+      return true;
+   }
+   
+   /**
+    * Determines whether this GLShape lies outside the specified frustum. If so, it is marked as culled, and will not be rendered, 
+    * until clearCulling is called, or until a later cull call finds it inside the frustum. GLShapes without bounding sphere are never culled.
+    * Returns the culled status.
+    */
+   public boolean cull(GLFrustum frustum) {
+      culled = calculateBoundingSphere(worldSphere) && ! frustum.intersectsSphere(worldSphere);
+      return culled;
+   }
 
    /**
     * OpenGL initialization.
@@ -153,7 +232,7 @@ public class GLShape implements GLRenderObject {
     */ 
    @Override
    public void glRender(GLRenderContext glc) {
-      if (!visible) return;
+      if (!visible || culled) return;
       glc.gl2.glPushMatrix();
 //         gl.glGetFloatv(GLC.GL_MODELVIEW_MATRIX, mv);
 //         String premv = Mat4f.toString(mv);
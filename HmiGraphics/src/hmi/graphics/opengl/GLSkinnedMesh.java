@@ -25,7 +25,9 @@
 
 package hmi.graphics.opengl;
 
+import hmi.animation.MatrixExchange;
 import hmi.animation.VJoint;
+import hmi.graphics.scenegraph.MorphDelta;
 import hmi.graphics.scenegraph.VertexAttribute;
 import hmi.math.Mat4f;
 import java.util.Arrays;
@@ -42,10 +44,15 @@ public class GLSkinnedMesh extends GLBasicMesh
     // nrOfVertices: inherited from GLBasicMesh
 
     private float[] vertexCoordBaseData; // unmodified vertex coords for the morph base mesh
-    private float[][] vertexCoordMorphData; // unmodified vertex coords for all morph targes
+    private MorphDelta[] vertexCoordMorphDeltas; // sparse vertex coord displacements for all morph targets
+    private float[] morphWeights; // morph target weights currently applied to vertexCoordMorphed
+    private float[] newMorphWeights; // scratch array for the weights requested by morph()
+    private int nrOfIncrementalMorphs; // nr of incremental updates since vertexCoordMorphed was last rebuilt from the base
+    private static final int MAX_INCREMENTAL_MORPHS = 256; // bounds the accumulation of rounding errors
     private float[] vertexCoordMorphed; // unmodified vertex coordinates or result of morph
     private float[] vertexCoordCurrent; // current, i.e. modified, vertex coordinates
     private int vertexCoordAttrIndex;
+    private int vertexCoordSize = 3; // nr of floats per vertex coordinate
 
     private float[] normalOriginal; // unmodified vertex normals
     private float[] normalCurrent; // current, i.e. modified, vertex normals
@@ -57,13 +64,22 @@ public class GLSkinnedMesh extends GLBasicMesh
     private int[] jointIndex; // joint indices
     private float[] jointWeight; // joint weights
     private int[] jointCount; // jointCount[v] = number of associated joints, for vertex v.
+    private int[] jointOffset; // jointOffset[v] = low(v), jointOffset[nrOfVertices] = total number of joint influences.
 
     private float[][] jointMatrices; // references (typically VJoint-) matrices that define joint transforms, not including inverse bind matrices.
+    private float[][] linkedJointMatrices; // references to the VJoint global matrices, as set by setVJoints
+    private MatrixExchange matrixExchange; // when set, jointMatrices are copies of the most recently acquired pose.
+    private long matrixExchangeFrame = -1; // the frame number of the pose that was last copied into jointMatrices
     private float[][] inverseBindMatrices; // locally stored inverse bind matrices.
     
    
 
     private float[][] transformMatrices; // locally stored transform matrices, combining jointMatrices with inverseBindMatrices
+    private float[] transformMatrixData; // flat copy of the top three rows of all transform matrices, used by the SkinningEngine
+    private float[] transformScratch = Mat4f.getMat4f();
+    private float[] jointBoundingSpheres; // bounding spheres for the vertices of every joint, in joint coordinates, 4 floats per joint
+    private float[] sphereScratch = new float[4];
+    private static final int TRANSFORM_SIZE = 12; // nr of floats per joint in transformMatrixData
     private String[] jointSIDs; // used to identify/resolve the VJoints from the skeleton, by means of VJoint sids.
     private String[] jointNames; // optional user friendly joint names
     private int[] parentIndex; // indices of parent joints, where -1 is used for a root joint.
@@ -73,11 +89,13 @@ public class GLSkinnedMesh extends GLBasicMesh
     private int[] fapIndex; // FAP indices
     private float[] fapWeight; // FAP weights
     private int[] fapCount; // fapCount[v] = number of associated FAPS, for vertex v.
+    private int[] fapOffset; // fapOffset[v] = first index in fapIndex and fapWeight for vertex v.
     float[][] directionVectors; // directionVectors[fapnr] is a Vec3f float array specifying the direction vector for FAP number fafnr.
 
     private float[][] fapDirectionVectors; // references Vec3f vectors that define the (semi-static) FAP directional vectors.
     private float[][] fapDisplacements; // references Vec3f vectors that define the current FAP displacement vectors.
     private float[] fapAmplitudes;
+    private float[] fapDisplacementData; // flat copy of the fapDisplacements, used by the SkinningEngine
 
     private String[] morphTargets = null;
     private int nrOfMorphTargets = -1;
@@ -119,6 +137,7 @@ public class GLSkinnedMesh extends GLBasicMesh
         int nrOfFaps = fapDirectionVectors.length;
         fapAmplitudes = new float[nrOfFaps];
         fapDisplacements = new float[nrOfFaps][];
+        fapDisplacementData = new float[3 * nrOfFaps];
         for (int fi = 0; fi < nrOfFaps; fi++)
         {
             fapDisplacements[fi] = new float[3];
@@ -176,16 +195,40 @@ public class GLSkinnedMesh extends GLBasicMesh
     }
 
     /**
-     * Sets the array of arrays, containing the coord data for all morph targets
+     * Sets the array of arrays, containing the coord data for all morph targets. The data is converted into sparse MorphDeltas, relative to the
+     * current vertex coordinates, that act as the morph base mesh.
      */
     public void setVertexCoordMorphData(float[][] vertexCoordMorphData)
     {
-        this.vertexCoordMorphData = vertexCoordMorphData;
+        MorphDelta[] deltas = new MorphDelta[vertexCoordMorphData.length];
+        for (int i = 0; i < deltas.length; i++)
+        {
+            deltas[i] = MorphDelta.fromTargetData(vertexCoordMorphed, vertexCoordMorphData[i], vertexCoordSize);
+        }
+        setVertexCoordMorphDeltas(deltas);
+    }
+
+    /**
+     * Sets the sparse vertex coord displacements for all morph targets, relative to the current vertex coordinates, that act as the morph base
+     * mesh.
+     */
+    public void setVertexCoordMorphDeltas(MorphDelta[] vertexCoordMorphDeltas)
+    {
+        this.vertexCoordMorphDeltas = vertexCoordMorphDeltas;
         if (nrOfMorphTargets < 0)
-            nrOfMorphTargets = vertexCoordMorphData.length;
-        vertexCoordBaseData = new float[vertexCoordMorphed.length];
-        for (int i = 0; i < vertexCoordBaseData.length; i++)
-            vertexCoordBaseData[i] = vertexCoordMorphed[i];
+            nrOfMorphTargets = vertexCoordMorphDeltas.length;
+        vertexCoordBaseData = Arrays.copyOf(vertexCoordMorphed, vertexCoordMorphed.length);
+        morphWeights = new float[vertexCoordMorphDeltas.length];
+        newMorphWeights = new float[vertexCoordMorphDeltas.length];
+        nrOfIncrementalMorphs = 0;
+    }
+
+    /**
+     * Returns the (shared, not copied) array with morphed, but not yet skinned, vertex coordinates.
+     */
+    public float[] getMorphedVertexCoordData()
+    {
+        return vertexCoordMorphed;
     }
 
     public void setJointSIDs(String[] jointSIDs)
@@ -205,14 +248,95 @@ public class GLSkinnedMesh extends GLBasicMesh
 
     public void setVJoints(VJoint[] vjoints)
     {
-        this.jointMatrices = new float[vjoints.length][];
+        linkedJointMatrices = new float[vjoints.length][];
         transformMatrices = new float[vjoints.length][];
+        transformMatrixData = new float[TRANSFORM_SIZE * vjoints.length];
         for (int m = 0; m < vjoints.length; m++)
         {
-            jointMatrices[m] = vjoints[m].getGlobalMatrix();
+            linkedJointMatrices[m] = vjoints[m].getGlobalMatrix();
             transformMatrices[m] = Mat4f.getIdentity();
         }
+        setMatrixExchange(matrixExchange);
+    }
+
+    /**
+     * Sets a MatrixExchange from which the joint matrices are taken, rather than from the global matrices of the VJoints. An animation thread
+     * publishes poses, consisting of the global matrices of the joints in the same order as the VJoints passed to setVJoints, for instance by
+     * means of Skeleton.putData. The render thread acquires the most recently published pose by calling acquirePose before deform (GLScene.deform
+     * does so for all its skinned meshes), so animation and rendering need not synchronize. A null exchange restores the direct links to the VJoint matrices.
+     */
+    public void setMatrixExchange(MatrixExchange exchange)
+    {
+        matrixExchange = exchange;
+        matrixExchangeFrame = -1;
+        if (exchange == null || linkedJointMatrices == null)
+        {
+            jointMatrices = linkedJointMatrices;
+            return;
+        }
+        if (exchange.getNrOfMatrices() != linkedJointMatrices.length)
+        {
+            throw new IllegalArgumentException("GLSkinnedMesh.setMatrixExchange: " + exchange.getNrOfMatrices() + " matrices for "
+                    + linkedJointMatrices.length + " joints");
+        }
+        jointMatrices = new float[linkedJointMatrices.length][];
+        for (int m = 0; m < jointMatrices.length; m++)
+        {
+            jointMatrices[m] = Mat4f.getIdentity();
+        }
+    }
+
+    /**
+     * Returns the MatrixExchange from which joint matrices are taken, or null when the VJoint matrices are used directly.
+     */
+    public MatrixExchange getMatrixExchange()
+    {
+        return matrixExchange;
+    }
 
+    /**
+     * Acquires the most recently published pose from the MatrixExchange, if any, and copies it to the joint matrices. Returns true when the
+     * joint matrices were modified. Should be called from the render thread. Several GLSkinnedMeshes can share a MatrixExchange, as long as
+     * they are used from the same thread.
+     */
+    public boolean acquirePose()
+    {
+        if (matrixExchange == null || jointMatrices == null) return false;
+        matrixExchange.acquire();
+        long frame = matrixExchange.getFrameNumber();
+        if (frame == matrixExchangeFrame) return false;
+        matrixExchange.getMatrices(jointMatrices);
+        matrixExchangeFrame = frame;
+        return true;
+    }
+
+    /**
+     * Sets the bounding spheres for the vertices influenced by each of the joints, 4 floats (centerX, centerY, centerZ, radius) per joint,
+     * in joint coordinates, i.e. after transformation by the inverse bind matrices. See GSkinnedMesh.calculateJointBoundingSpheres.
+     */
+    public void setJointBoundingSpheres(float[] jointBoundingSpheres)
+    {
+        this.jointBoundingSpheres = jointBoundingSpheres;
+    }
+
+    /**
+     * Calculates a bounding sphere for the skinned mesh in its current pose, from the joint bounding spheres and the current joint matrices,
+     * and stores it in dest. The result does not depend on deformed vertex data, so it can be used to decide whether to deform at all.
+     * Returns false, and leaves dest unmodified, when no joint bounding spheres have been set.
+     */
+    public boolean calculateBoundingSphere(float[] dest)
+    {
+        if (jointBoundingSpheres == null || jointMatrices == null) return false;
+        dest[3] = -1.0f;
+        int nrOfJoints = Math.min(jointMatrices.length, jointBoundingSpheres.length / 4);
+        for (int j = 0; j < nrOfJoints; j++)
+        {
+            if (jointBoundingSpheres[4 * j + 3] < 0.0f) continue;
+            System.arraycopy(jointBoundingSpheres, 4 * j, sphereScratch, 0, 4);
+            GLFrustum.transformSphere(jointMatrices[j], sphereScratch, sphereScratch);
+            GLFrustum.unionSphere(dest, sphereScratch);
+        }
+        return true;
     }
 
     /**
@@ -226,12 +350,15 @@ public class GLSkinnedMesh extends GLBasicMesh
         if (attrName.equals("mcPosition"))
         {
             vertexCoordAttrIndex = attrIndex;
+            setDynamic(attrIndex, true);
+            vertexCoordSize = va.getAttributeValueSize();
             vertexCoordMorphed = getVertexData(vertexCoordAttrIndex, null); // will *copy* data from the attribute
             vertexCoordCurrent = getVertexData(vertexCoordAttrIndex, null); // will copy data from the attribute
         }
         else if (attrName.equals("mcNormal"))
         {
             normalAttrIndex = attrIndex;
+            setDynamic(attrIndex, true);
             normalOriginal = getVertexData(normalAttrIndex, null); // will copy data from the attribute
             normalCurrent = getVertexData(normalAttrIndex, null); // will copy data from the attribute
         } // else: no special action needed. (in particular, tangents and binormals need NO special treatment)
@@ -247,6 +374,18 @@ public class GLSkinnedMesh extends GLBasicMesh
         this.jointCount = Arrays.copyOf(jointCount, jointCount.length);
         this.jointIndex = Arrays.copyOf(jointIndex, jointIndex.length);
         this.jointWeight = Arrays.copyOf(jointWeight, jointWeight.length);
+        this.jointOffset = calculateOffsets(jointCount);
+    }
+
+    /* offsets[v] = Sigma 0<=i<v count[i], for v in [0..count.length] */
+    private static int[] calculateOffsets(int[] count)
+    {
+        int[] offsets = new int[count.length + 1];
+        for (int v = 0; v < count.length; v++)
+        {
+            offsets[v + 1] = offsets[v] + count[v];
+        }
+        return offsets;
     }
 
     /**
@@ -258,6 +397,7 @@ public class GLSkinnedMesh extends GLBasicMesh
         this.fapCount = Arrays.copyOf(fapCount, fapCount.length);
         this.fapIndex = Arrays.copyOf(fapIndex, fapIndex.length);
         this.fapWeight = Arrays.copyOf(fapWeight, fapWeight.length);
+        this.fapOffset = calculateOffsets(fapCount);
     }
 
     /**
@@ -347,6 +487,34 @@ public class GLSkinnedMesh extends GLBasicMesh
 
     }
 
+    /**
+     * (re)calculates the flat transformMatrixData, containing the top three rows of jointMatrices[i] * inverseBindMatrices[i], and the flat FAP
+     * displacements.
+     */
+    private void calculateFlatMatricesAndFaps()
+    {
+        if (inverseBindMatrices == null)
+        {
+            logger.error("NULL inverseBindMatrices");
+            return;
+        }
+        int nrOfJoints = jointMatrices.length;
+        for (int i = 0; i < nrOfJoints; i++)
+        {
+            Mat4f.mul(transformScratch, jointMatrices[i], inverseBindMatrices[i]);
+            System.arraycopy(transformScratch, 0, transformMatrixData, TRANSFORM_SIZE * i, TRANSFORM_SIZE);
+        }
+        if (useFaps)
+        {
+            for (int fi = 0; fi < fapDirectionVectors.length; fi++)
+            {
+                fapDisplacementData[3 * fi] = fapDirectionVectors[fi][0] * fapAmplitudes[fi];
+                fapDisplacementData[3 * fi + 1] = fapDirectionVectors[fi][1] * fapAmplitudes[fi];
+                fapDisplacementData[3 * fi + 2] = fapDirectionVectors[fi][2] * fapAmplitudes[fi];
+            }
+        }
+    }
+
     // public void resetSkeleton() {
     // }
 
@@ -415,16 +583,13 @@ public class GLSkinnedMesh extends GLBasicMesh
      */
     public void morph(int target, float weight)
     {
-        if (nrOfMorphTargets <= 0)
+        if (nrOfMorphTargets <= 0 || vertexCoordMorphDeltas == null)
             return;
-        if (target < 0 || target >= nrOfMorphTargets)
+        if (target < 0 || target >= vertexCoordMorphDeltas.length)
             return;
-        float baseWeight = 1.0f - weight;
-        float[] targetData = vertexCoordMorphData[target];
-        for (int i = 0; i < vertexCoordMorphed.length; i++)
-        {
-            vertexCoordMorphed[i] = baseWeight * vertexCoordBaseData[i] + weight * targetData[i];
-        }
+        Arrays.fill(newMorphWeights, 0.0f);
+        newMorphWeights[target] = weight;
+        applyMorphWeights();
     }
 
     /**
@@ -448,51 +613,171 @@ public class GLSkinnedMesh extends GLBasicMesh
      */
     public void morph(int[] targets, float[] weights)
     {
-        if (nrOfMorphTargets <= 0 || targets == null || weights == null)
+        if (nrOfMorphTargets <= 0 || vertexCoordMorphDeltas == null || targets == null || weights == null)
             return;
         int tlen = targets.length < weights.length ? targets.length : weights.length;
         if (tlen == 0)
             return;
-        // first, set all to zero
-        for (int i = 0; i < vertexCoordMorphed.length; i++)
-        {
-            vertexCoordMorphed[i] = 0;
-        }
-        // then, add all targets that are valid
-        float totalWeight = 0.0f;
+        Arrays.fill(newMorphWeights, 0.0f);
         for (int ti = 0; ti < tlen; ti++)
         {
+            int target = targets[ti];
             float weight = weights[ti];
-            if ((targets[ti] == -1) || (weight <= 0.0f)) // don't morph: too small target, or no valid target
+            if (target < 0 || target >= newMorphWeights.length || weight <= 0.0f) // don't morph: too small target, or no valid target
             {
+                continue;
             }
-            else
-            // do morph;
+            newMorphWeights[target] += weight;
+        }
+        applyMorphWeights();
+    }
+
+    /*
+     * Brings vertexCoordMorphed from the currently applied morphWeights to newMorphWeights. The result is the base mesh plus the weighted sum of
+     * the morph deltas, which equals the weighted sum of the morph targets plus the remaining (1 - total weight) of the base. Only targets whose
+     * weight has changed are touched, and only at the vertices they displace. The result is rebuilt from the base data when all weights are zero,
+     * and after MAX_INCREMENTAL_MORPHS incremental updates, to prevent accumulation of rounding errors.
+     */
+    private void applyMorphWeights()
+    {
+        boolean allZero = true;
+        for (int t = 0; t < newMorphWeights.length; t++)
+        {
+            if (newMorphWeights[t] != 0.0f)
             {
-                totalWeight += weight; // to later adjust base weight
-                float[] targetData = vertexCoordMorphData[targets[ti]];
-                for (int i = 0; i < vertexCoordMorphed.length; i++)
-                {
-                    vertexCoordMorphed[i] += weight * targetData[i];
-                }
+                allZero = false;
+                break;
             }
         }
-        float baseWeight = 1.0f - totalWeight; // NB could become negative!
-        // always use remainder of base
-        for (int i = 0; i < vertexCoordMorphed.length; i++)
+        if (allZero || nrOfIncrementalMorphs >= MAX_INCREMENTAL_MORPHS)
         {
-            vertexCoordMorphed[i] += baseWeight * vertexCoordBaseData[i];
+            System.arraycopy(vertexCoordBaseData, 0, vertexCoordMorphed, 0, vertexCoordMorphed.length);
+            for (int t = 0; t < newMorphWeights.length; t++)
+            {
+                vertexCoordMorphDeltas[t].addTo(vertexCoordMorphed, newMorphWeights[t]);
+            }
+            nrOfIncrementalMorphs = 0;
         }
+        else
+        {
+            for (int t = 0; t < newMorphWeights.length; t++)
+            {
+                if (newMorphWeights[t] != morphWeights[t])
+                {
+                    vertexCoordMorphDeltas[t].addTo(vertexCoordMorphed, newMorphWeights[t] - morphWeights[t]);
+                }
+            }
+            nrOfIncrementalMorphs++;
+        }
+        float[] swap = morphWeights;
+        morphWeights = newMorphWeights;
+        newMorphWeights = swap;
     }
 
     /**
-     * Transforms the mesh attributes.
+     * Transforms the mesh attributes. When the SkinningEngine is enabled, vertices are deformed using flat matrix data, possibly in parallel,
+     * else the original single threaded code is used.
      */
     public void deform()
     {
         // hmi.util.Console.println("Deform...");
-        calculateMatricesAndFaps();
-        deformCN();
+        if (SkinningEngine.isEnabled())
+        {
+            calculateFlatMatricesAndFaps();
+            SkinningEngine.skin(this, nrOfVertices);
+            updateVertexData(vertexCoordAttrIndex, vertexCoordCurrent);
+            updateVertexData(normalAttrIndex, normalCurrent);
+        }
+        else
+        {
+            calculateMatricesAndFaps();
+            deformCN();
+        }
+    }
+
+    /**
+     * transforms vertex coordinates and vertex normals for vertices in the range [vFrom, vTo), using the flat transformMatrixData. Different
+     * ranges write disjoint parts of vertexCoordCurrent and normalCurrent, so ranges can be deformed in parallel. Array references are copied
+     * into local variables, and there are no nested array accesses, which lets the JIT eliminate most bounds checks.
+     */
+    void deformRange(int vFrom, int vTo)
+    {
+        final float[] coordIn = vertexCoordMorphed;
+        final float[] normalIn = normalOriginal;
+        final float[] coordOut = vertexCoordCurrent;
+        final float[] normalOut = normalCurrent;
+        final float[] tm = transformMatrixData;
+        final int[] jIndex = jointIndex;
+        final float[] jWeight = jointWeight;
+        final int[] jOffset = jointOffset;
+        final boolean faps = useFaps;
+        final int[] fIndex = fapIndex;
+        final float[] fWeight = fapWeight;
+        final int[] fOffset = fapOffset;
+        final float[] fDisplacement = fapDisplacementData;
+
+        for (int v = vFrom; v < vTo; v++)
+        {
+            int vertexBase = 3 * v;
+            float vx = coordIn[vertexBase];
+            float vy = coordIn[vertexBase + 1];
+            float vz = coordIn[vertexBase + 2];
+            float nx = normalIn[vertexBase];
+            float ny = normalIn[vertexBase + 1];
+            float nz = normalIn[vertexBase + 2];
+            if (faps)
+            {
+                for (int p = fOffset[v]; p < fOffset[v + 1]; p++)
+                {
+                    int fb = 3 * fIndex[p];
+                    float fw = fWeight[p];
+                    vx += fw * fDisplacement[fb];
+                    vy += fw * fDisplacement[fb + 1];
+                    vz += fw * fDisplacement[fb + 2];
+                }
+            }
+            float mvx = 0.0f;
+            float mvy = 0.0f;
+            float mvz = 0.0f;
+            float mnx = 0.0f;
+            float mny = 0.0f;
+            float mnz = 0.0f;
+            for (int p = jOffset[v]; p < jOffset[v + 1]; p++)
+            {
+                int mb = TRANSFORM_SIZE * jIndex[p];
+                float jw = jWeight[p];
+                float m0 = tm[mb];
+                float m1 = tm[mb + 1];
+                float m2 = tm[mb + 2];
+                float m3 = tm[mb + 3];
+                float m4 = tm[mb + 4];
+                float m5 = tm[mb + 5];
+                float m6 = tm[mb + 6];
+                float m7 = tm[mb + 7];
+                float m8 = tm[mb + 8];
+                float m9 = tm[mb + 9];
+                float m10 = tm[mb + 10];
+                float m11 = tm[mb + 11];
+
+                mvx += jw * (m0 * vx + m1 * vy + m2 * vz + m3);
+                mvy += jw * (m4 * vx + m5 * vy + m6 * vz + m7);
+                mvz += jw * (m8 * vx + m9 * vy + m10 * vz + m11);
+
+                mnx += jw * (m0 * nx + m1 * ny + m2 * nz);
+                mny += jw * (m4 * nx + m5 * ny + m6 * nz);
+                mnz += jw * (m8 * nx + m9 * ny + m10 * nz);
+            }
+            coordOut[vertexBase] = mvx;
+            coordOut[vertexBase + 1] = mvy;
+            coordOut[vertexBase + 2] = mvz;
+
+            // (re)normalize the normal vector:
+            double mnLenSq = mnx * mnx + mny * mny + mnz * mnz;
+            float mnfactor = (mnLenSq == 0.0) ? 1.0f : (float) (1.0 / Math.sqrt(mnLenSq));
+            normalOut[vertexBase] = mnx * mnfactor;
+            normalOut[vertexBase + 1] = mny * mnfactor;
+            normalOut[vertexBase + 2] = mnz * mnfactor;
+        }
     }
 
     /**
@@ -572,8 +857,8 @@ public class GLSkinnedMesh extends GLBasicMesh
             normalCurrent[vertexBase + 2] = mnz * mnfactor;
 
         }
-        setVertexData(vertexCoordAttrIndex, vertexCoordCurrent);
-        setVertexData(normalAttrIndex, normalCurrent);
+        updateVertexData(vertexCoordAttrIndex, vertexCoordCurrent);
+        updateVertexData(normalAttrIndex, normalCurrent);
     }
 
     /**
@@ -243,11 +243,7 @@ public class GLTexture implements GLRenderObject  {
     * sets the correct texture unit and binds the texture.
     */
    public final void glRender(GLRenderContext glc) {
-     // if (textureId != currentTextureId)  {
-         glc.gl.glActiveTexture(glTextureUnit);
-         glc.gl.glBindTexture(GL.GL_TEXTURE_2D, textureId ); 
-     //    currentTextureId = textureId;
-     // }
+      glc.bindTexture(glTextureUnit, textureId); // skips redundant binds while state caching is on
       
    }
    
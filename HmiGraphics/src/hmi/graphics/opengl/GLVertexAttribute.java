@@ -44,7 +44,10 @@ public class GLVertexAttribute
     private int floatBufferSize; // size of the vertexData buffer, in number of floats
     private int byteBufferSize; // size of the vertexData buffer, in number of bytes.
     private int attribSize; // size of a single vertex attribute, in bytes.
-    private boolean bufferModified; // "Dirty bit", set to true when the buffer contents have been modified.
+    // The dirty range [dirtyFrom, dirtyTo), in floats, of data modified since the last upload. The range is empty when dirtyFrom >= dirtyTo.
+    private int dirtyFrom;
+    private int dirtyTo;
+    private boolean dynamic; // dynamic attributes are modified frequently, and are kept in a separate buffer
     // For rendering, this data is copied into a region of a OpenGL VBO (a GL_ARRAY_BUFFER), starting at bufferOffset:
     private int bufferOffset; // the GL_ARRAY_BUFFER offset
     private int nrOfVertices;
@@ -160,14 +163,107 @@ public class GLVertexAttribute
     }
 
     /**
-     * Sets vertex data, by copying from the specified array.
+     * Marks this attribute as dynamic, i.e. modified frequently, or as static. See GLBasicMesh.
+     */
+    public void setDynamic(boolean dynamic)
+    {
+        this.dynamic = dynamic;
+    }
+
+    /**
+     * Returns whether this attribute is dynamic.
+     */
+    public boolean isDynamic()
+    {
+        return dynamic;
+    }
+
+    /**
+     * Sets vertex data, by copying from the specified array. All data will be uploaded by the next glRender.
      */
     public void setVertexData(float[] vertexData)
     {
         logger.debug("GLVertexAttribute.setVertexData length = " + vertexData.length + " floatBufferSize = " + floatBufferSize);
         vertexDataBuffer.clear();
         vertexDataBuffer.put(vertexData, 0, floatBufferSize);
-        bufferModified = true;
+        setModified();
+    }
+
+    /**
+     * Sets vertex data for the vertices in the range [fromVertex, toVertex), by copying from the corresponding part of the specified array,
+     * which contains data for all vertices. Only this range will be uploaded by the next glRender, unless other ranges are modified as well.
+     */
+    public void setVertexData(float[] vertexData, int fromVertex, int toVertex)
+    {
+        int from = fromVertex * attribSize;
+        int to = toVertex * attribSize;
+        if (from >= to) return;
+        vertexDataBuffer.clear();
+        vertexDataBuffer.position(from);
+        vertexDataBuffer.put(vertexData, from, to - from);
+        addDirtyRange(from, to);
+    }
+
+    /**
+     * Sets vertex data, by copying from the specified array, like setVertexData, but only the range from the first up to
+     * the last modified float is copied, and will be uploaded by the next glRender. Returns false when no data was modified.
+     * This is more efficient than setVertexData for data that is modified partially, or not at all.
+     */
+    public boolean updateVertexData(float[] vertexData)
+    {
+        int first = 0;
+        while (first < floatBufferSize && vertexDataBuffer.get(first) == vertexData[first])
+            first++;
+        if (first == floatBufferSize)
+            return false;
+        int last = floatBufferSize - 1;
+        while (vertexDataBuffer.get(last) == vertexData[last])
+            last--;
+        vertexDataBuffer.clear();
+        vertexDataBuffer.position(first);
+        vertexDataBuffer.put(vertexData, first, last + 1 - first);
+        addDirtyRange(first, last + 1);
+        return true;
+    }
+
+    /**
+     * Marks all vertex data as modified, so that it will be uploaded by the next glRender.
+     */
+    public void setModified()
+    {
+        dirtyFrom = 0;
+        dirtyTo = floatBufferSize;
+    }
+
+    /**
+     * Returns true when some vertex data has been modified since the last upload.
+     */
+    public boolean isModified()
+    {
+        return dirtyFrom < dirtyTo;
+    }
+
+    /**
+     * Returns true when all vertex data has been modified since the last upload.
+     */
+    public boolean isFullyModified()
+    {
+        return dirtyFrom == 0 && dirtyTo == floatBufferSize;
+    }
+
+    /* extends the dirty range, so that it includes [from, to) */
+    private void addDirtyRange(int from, int to)
+    {
+        if (dirtyFrom >= dirtyTo)
+        {
+            dirtyFrom = from;
+            dirtyTo = to;
+        }
+        else
+        {
+            dirtyFrom = Math.min(dirtyFrom, from);
+            dirtyTo = Math.max(dirtyTo, to);
+        }
     }
 
     /**
@@ -183,6 +279,14 @@ public class GLVertexAttribute
         return vertexData;
     }
 
+    /**
+     * Returns the GLSL attribute index, or -1 if not an active attribute.
+     */
+    public int getAttributeIndex()
+    {
+        return attributeIndex;
+    }
+
     /**
      * Sets the GLSL attribute index for the specified shader program, by querying for the attribute location. If the attribute name is not an active
      * variable for this shader, the index is set to -1, which effectively disables this attribute for rendering. Returns the assigned attribute
@@ -200,21 +304,24 @@ public class GLVertexAttribute
     }
 
     /**
-     * GL render for this attribute. Basically, copies vertex data to the GL_ARRAY_BUFFER buffer, if data has been modified, and sets the gl vertex
-     * data pointer to the buffer data.
+     * GL render for this attribute. Basically, copies the modified range of the vertex data to the currently bound GL_ARRAY_BUFFER buffer, 
+     * and sets the gl vertex data pointer to the buffer data.
      */
     public void glRender(GLRenderContext glc)
     {
         if (attributeIndex < 0)
             return; // not an active attribute (could be because shader has optimized an attribute away, such as normals when not used.
-        if (bufferModified)
+        if (dirtyFrom < dirtyTo)
         {
+            vertexDataBuffer.clear();
+            vertexDataBuffer.position(dirtyFrom); // JOGL uploads from the buffer position onwards
+            glc.gl.glBufferSubData(GL.GL_ARRAY_BUFFER, bufferOffset + 4 * dirtyFrom, 4 * (dirtyTo - dirtyFrom), vertexDataBuffer);
             vertexDataBuffer.rewind();
-            glc.gl.glBufferSubData(GL.GL_ARRAY_BUFFER, bufferOffset, byteBufferSize, vertexDataBuffer);
-            bufferModified = false;
+            dirtyFrom = 0;
+            dirtyTo = 0;
         }
-        glc.gl2.glVertexAttribPointer(attributeIndex, attribSize, GL.GL_FLOAT, false, 0, bufferOffset);
-        glc.gl2.glEnableVertexAttribArray(attributeIndex);
+        glc.gl.glVertexAttribPointer(attributeIndex, attribSize, GL.GL_FLOAT, false, 0, bufferOffset);
+        glc.gl.glEnableVertexAttribArray(attributeIndex);
 
     }
 
@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.graphics.opengl;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * SkinningEngine schedules the CPU skinning of GLSkinnedMeshes. When enabled (the default), a GLSkinnedMesh keeps its joint transforms
+ * in a single flat float array, and deforms its vertices in chunks of (at most) chunkSize vertices, processed in parallel on a ForkJoinPool.
+ * GLScene.deform uses the engine to deform all of its skinned meshes in parallel as well. When disabled, GLSkinnedMesh falls back to the
+ * original, single threaded, deform code, and meshes are deformed one after the other.
+ */
+public final class SkinningEngine
+{
+
+    /** Default number of vertices per parallel chunk */
+    public static final int DEFAULT_CHUNK_SIZE = 2048;
+
+    private static volatile boolean enabled = true;
+    private static volatile boolean parallel = true;
+    private static volatile int chunkSize = DEFAULT_CHUNK_SIZE;
+    private static volatile ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /* No instances */
+    private SkinningEngine()
+    {
+    }
+
+    /**
+     * Enables or disables the skinning engine. When disabled, GLSkinnedMesh uses the original single threaded deform code.
+     */
+    public static void setEnabled(boolean enable)
+    {
+        enabled = enable;
+    }
+
+    /** Returns true when the skinning engine is enabled */
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables parallel processing. With parallel processing disabled, but the engine enabled, the flat array skinning code is still
+     * used, but on the calling thread only.
+     */
+    public static void setParallel(boolean par)
+    {
+        parallel = par;
+    }
+
+    /** Returns true when meshes and vertex chunks are processed in parallel */
+    public static boolean isParallel()
+    {
+        return parallel;
+    }
+
+    /**
+     * Sets the (maximum) number of vertices per parallel chunk. Meshes with no more vertices than this are deformed on a single thread.
+     */
+    public static void setChunkSize(int size)
+    {
+        if (size <= 0) throw new IllegalArgumentException("SkinningEngine: chunk size should be positive: " + size);
+        chunkSize = size;
+    }
+
+    /** Returns the (maximum) number of vertices per parallel chunk */
+    public static int getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    /**
+     * Sets the ForkJoinPool used for parallel skinning. By default, the common pool is used.
+     */
+    public static void setPool(ForkJoinPool forkJoinPool)
+    {
+        pool = forkJoinPool;
+    }
+
+    /**
+     * Deforms all skinned meshes from the list; in parallel, when the engine is enabled and parallel processing is on.
+     */
+    public static void deform(List<GLSkinnedMesh> skinnedMeshes)
+    {
+        int nrOfMeshes = skinnedMeshes.size();
+        if (!enabled || !parallel || nrOfMeshes < 2)
+        {
+            for (int i = 0; i < nrOfMeshes; i++)
+            {
+                skinnedMeshes.get(i).deform();
+            }
+            return;
+        }
+        run(new MeshTask(skinnedMeshes, 0, nrOfMeshes));
+    }
+
+    /*
+     * Deforms the vertices of the specified mesh, called by GLSkinnedMesh, after the transform matrices have been calculated.
+     */
+    static void skin(GLSkinnedMesh mesh, int nrOfVertices)
+    {
+        int size = chunkSize;
+        if (!parallel || nrOfVertices <= size)
+        {
+            mesh.deformRange(0, nrOfVertices);
+        }
+        else
+        {
+            run(new VertexChunkTask(mesh, 0, nrOfVertices, size));
+        }
+    }
+
+    /* runs the task within the current pool when called from a ForkJoin worker thread, or else submits it to the pool */
+    private static void run(ForkJoinTask<?> task)
+    {
+        if (ForkJoinTask.inForkJoinPool())
+        {
+            task.invoke();
+        }
+        else
+        {
+            pool.invoke(task);
+        }
+    }
+
+    /* Splits a vertex range until it fits within a single chunk */
+    private static final class VertexChunkTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private final GLSkinnedMesh mesh;
+        private final int from;
+        private final int to;
+        private final int size;
+
+        VertexChunkTask(GLSkinnedMesh mesh, int from, int to, int size)
+        {
+            this.mesh = mesh;
+            this.from = from;
+            this.to = to;
+            this.size = size;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= size)
+            {
+                mesh.deformRange(from, to);
+            }
+            else
+            {
+                int mid = (from + to) >>> 1;
+                invokeAll(new VertexChunkTask(mesh, from, mid, size), new VertexChunkTask(mesh, mid, to, size));
+            }
+        }
+    }
+
+    /* Splits a list of meshes until a single mesh remains, which is deformed (possibly using VertexChunkTasks) */
+    private static final class MeshTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private final List<GLSkinnedMesh> meshes;
+        private final int from;
+        private final int to;
+
+        MeshTask(List<GLSkinnedMesh> meshes, int from, int to)
+        {
+            this.meshes = meshes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from == 1)
+            {
+                meshes.get(from).deform();
+            }
+            else
+            {
+                int mid = (from + to) >>> 1;
+                invokeAll(new MeshTask(meshes, from, mid), new MeshTask(meshes, mid, to));
+            }
+        }
+    }
+
+}
@@ -23,18 +23,25 @@
 
 package hmi.graphics.opengl.scenegraph;
 
+import hmi.animation.MorphWeightChannel;
 import hmi.animation.VJoint;
+import hmi.graphics.opengl.GLFrustum;
+import hmi.graphics.opengl.GLLODMesh;
 import hmi.graphics.opengl.GLRenderContext;
 import hmi.graphics.opengl.GLRenderList;
 import hmi.graphics.opengl.GLRenderObject;
+import hmi.graphics.opengl.GLRenderQueue;
 import hmi.graphics.opengl.GLShape;
 import hmi.graphics.opengl.GLSkinnedMesh;
 import hmi.graphics.opengl.GLUtil;
+import hmi.graphics.opengl.SkinningEngine;
 import hmi.graphics.opengl.state.GLMaterial;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,8 +65,22 @@ public class GLScene implements GLRenderObject
    // We need a list of skinned meshes that reside somewhere inside the scene graph, so we can deform/update when needed.
    private ArrayList<GLSkinnedMesh> skinnedMeshList = new  ArrayList<GLSkinnedMesh>();
    
+   // The skinned meshes that are actually deformed and morphed: for meshes with levels of detail, the active level replaces the mesh.
+   private ArrayList<GLSkinnedMesh> activeSkinnedMeshList = new  ArrayList<GLSkinnedMesh>();
+   
+   // Meshes with levels of detail, for which selectLODs chooses the level to be rendered.
+   private ArrayList<GLLODMesh> lodMeshList = new ArrayList<GLLODMesh>();
+   
+   // The active skinned meshes that are not culled, deformed instead of activeSkinnedMeshList while culling is on.
+   private ArrayList<GLSkinnedMesh> visibleSkinnedMeshList = new  ArrayList<GLSkinnedMesh>();
+   private Set<GLSkinnedMesh> culledSkinnedMeshes = Collections.newSetFromMap(new IdentityHashMap<GLSkinnedMesh, Boolean>());
+   private boolean culling = false;
+   private int nrOfCulledShapes = 0;
+   
    /** The GLRenderList shapeList specifies GLRenderObjects to be rendered. */
    private GLRenderList shapeList = new GLRenderList();
+   
+   private GLRenderQueue renderQueue; // state sorted shapeList, created on demand
  
    private static Logger logger = LoggerFactory.getLogger(GLScene.class.getName());
 
@@ -236,6 +257,96 @@ public class GLScene implements GLRenderObject
     */
    public void addSkinnedMeshes(List<GLSkinnedMesh> skinnedMeshes) {   
       skinnedMeshList.addAll(skinnedMeshes);
+      activeSkinnedMeshList.addAll(skinnedMeshes);
+      morphPending = true; // new meshes catch up with the current morph weights
+   }
+   
+   /**
+    * Adds some meshes with levels of detail. For skinned meshes, level 0 should have been added by means of addSkinnedMeshes.
+    */
+   public void addLODMeshes(List<GLLODMesh> lodMeshes) {
+      lodMeshList.addAll(lodMeshes);
+      updateActiveSkinnedMeshes();
+   }
+   
+   /**
+    * Returns the list with meshes that have levels of detail.
+    */
+   public List<GLLODMesh> getLODMeshList() {
+      return lodMeshList;
+   }
+   
+   /**
+    * Selects the level of detail for all meshes with levels of detail, from their projected size as seen from the specified 
+    * eye position, in world coordinates. projectionScale is 1/tan(fovy/2), for a vertical field of view fovy. 
+    * Should be called before doMorph and deform, so that only the active levels of skinned meshes are morphed and deformed.
+    */
+   public void selectLODs(float[] eyePosition, float projectionScale) {
+      boolean changed = false;
+      for (int i = 0; i < lodMeshList.size(); i++) {
+         changed |= lodMeshList.get(i).selectLevel(eyePosition, projectionScale);
+      }
+      if (changed) {
+         updateActiveSkinnedMeshes();
+         morphPending = true; // newly activated levels catch up with the current morph weights
+      }
+   }
+   
+   /**
+    * Culls all GLShapes against the specified view frustum: shapes with a bounding sphere outside the frustum are not rendered,
+    * and their skinned meshes are not deformed by the next deform calls. Skinned bounds are derived from the current joint matrices,
+    * so cull should be called after the skeleton has been updated, or after acquirePoses, and before deform. When levels of detail are used,
+    * selectLODs should be called before cull. Culling stays in effect until the next cull or clearCulling call.
+    */
+   public void cull(GLFrustum frustum) {
+      culling = true;
+      nrOfCulledShapes = 0;
+      culledSkinnedMeshes.clear();
+      for (int i=0; i<shapeList.size(); i++) {
+         GLRenderObject obj = shapeList.get(i);
+         if (obj instanceof GLShape) {
+            GLShape shape = (GLShape) obj;
+            if (shape.cull(frustum)) {
+               nrOfCulledShapes++;
+               GLSkinnedMesh skinnedMesh = shape.getSkinnedMesh();
+               if (skinnedMesh != null) culledSkinnedMeshes.add(skinnedMesh);
+            }
+         }
+      }
+      visibleSkinnedMeshList.clear();
+      for (int m=0; m<activeSkinnedMeshList.size(); m++) {
+         GLSkinnedMesh skinnedMesh = activeSkinnedMeshList.get(m);
+         if ( ! culledSkinnedMeshes.contains(skinnedMesh)) visibleSkinnedMeshList.add(skinnedMesh);
+      }
+   }
+   
+   /**
+    * Switches culling off: all GLShapes are rendered, and all (active) skinned meshes are deformed.
+    */
+   public void clearCulling() {
+      culling = false;
+      nrOfCulledShapes = 0;
+      for (int i=0; i<shapeList.size(); i++) {
+         GLRenderObject obj = shapeList.get(i);
+         if (obj instanceof GLShape) ((GLShape) obj).clearCulling();
+      }
+   }
+   
+   /**
+    * Returns the number of GLShapes that were culled by the last cull call.
+    */
+   public int getNrOfCulledShapes() {
+      return nrOfCulledShapes;
+   }
+   
+   /* Replaces skinned meshes with levels of detail by their active level */
+   private void updateActiveSkinnedMeshes() {
+      activeSkinnedMeshList.clear();
+      activeSkinnedMeshList.addAll(skinnedMeshList);
+      for (GLLODMesh lodMesh : lodMeshList) {
+         int index = skinnedMeshList.indexOf(lodMesh.getLevel(0));
+         if (index >= 0) activeSkinnedMeshList.set(index, (GLSkinnedMesh) lodMesh.getActiveMesh());
+      }
    }
    
    
@@ -262,40 +373,26 @@ public class GLScene implements GLRenderObject
    
    
    /**
-    * sorts the shapeList, where transparency enabled shapes are put at the end of the list
+    * Sorts the shapeList in order of rendering state: opaque shapes first, grouped by shader program, texture and material,
+    * and alpha blended shapes at the end of the list. GLRenderObjects other than GLShapes keep their position. For per-frame back to front ordering of alpha blended shapes,
+    * and for skipping redundant state changes, the GLRenderQueue from getRenderQueue should be rendered instead of the shapeList.
     */
    public void sortGLShapeList() {
-      int listSize = shapeList.size();
-      
-      GLRenderList newList = new GLRenderList(listSize);
-      GLRenderList alphaList = new GLRenderList(listSize);
-      
-      for (int i=0; i<listSize; i++) {
-           GLShape shape = (GLShape) shapeList.get(i); 
-           int stateListSize = shape.getStateList().size();
-           GLMaterial glMat = null;
-           for (int j=0; j<stateListSize; j++) {
-              GLRenderObject sc = shape.getStateList().get(j);
-              if (sc instanceof GLMaterial) {
-                 glMat = (GLMaterial) sc;
-                 break;
-              }
-            
-           }
-           if (glMat != null) {
-                  logger.debug(" GLMaterial found for GLShape");
-                  if (glMat.getAlphaBlendingEnabled()) {
-                     alphaList.add(shape);
-                  } else {
-                     newList.add(shape);  
-                  }
-                  
-           } else {
-                  logger.error(" No GLMaterial found for GLShape");
-           }           
-       }
-       newList.addAll(alphaList);
-       shapeList = newList;
+      GLRenderQueue queue = new GLRenderQueue(shapeList);
+      queue.sort();
+      GLRenderList newList = new GLRenderList(shapeList.size());
+      for (int i=0; i<queue.size(); i++) newList.add(queue.getSorted(i));
+      shapeList = newList;
+      renderQueue = null;
+   }
+   
+   /**
+    * Returns a GLRenderQueue for the shapeList of this GLScene, rendered by glRender.
+    * The queue follows additions to the shapeList, also those made via getGLShapeList.
+    */
+   public GLRenderQueue getRenderQueue() {
+      if (renderQueue == null) renderQueue = new GLRenderQueue(shapeList);
+      return renderQueue;
    }
    
    
@@ -326,12 +423,26 @@ public class GLScene implements GLRenderObject
    }
    
    /**
-    * Deforms all skinned meshes 
+    * Acquires the most recently published poses for all active skinned meshes that take their joint matrices from a MatrixExchange.
+    * Called by deform; should be called explicitly before cull, so that skinned bounds are derived from the same pose.
+    * Returns true when some pose was modified.
     */
-   public void deform() {
-      for (GLSkinnedMesh gsm : skinnedMeshList) {
-          gsm.deform();  
+   public boolean acquirePoses() {
+      boolean acquired = false;
+      for (int m=0; m<activeSkinnedMeshList.size(); m++) {
+         acquired |= activeSkinnedMeshList.get(m).acquirePose();
       }
+      return acquired;
+   }
+   
+   /**
+    * Deforms all skinned meshes, in parallel when the SkinningEngine is enabled.
+    * For meshes with levels of detail, only the active level is deformed. While culling is on, meshes of culled shapes are skipped.
+    * Poses are acquired first, on the calling thread, see acquirePoses.
+    */
+   public void deform() {
+      acquirePoses();
+      SkinningEngine.deform(culling ? visibleSkinnedMeshList : activeSkinnedMeshList);
    }
    
    /**
@@ -398,95 +509,120 @@ public class GLScene implements GLRenderObject
      Methods and attributes for maintaining a set of 
      desired morph targets.
      - Add and remove weight from each target using 
-       addMorphTargets() and removeMorphTargets()
-     - have GLScene execute the current set of targets
-       and weights by calling doMorph()
+       addMorphTargets() and removeMorphTargets(), or
+       directly via the MorphWeightChannel
+     - have GLScene execute the most recently published
+       set of targets and weights by calling doMorph()
    ================================================== */
 
-   /** The set of morph targets to be set by doMorph, maintained
-   through addMorphTargets and removeMorphTargets */
-   private HashMap<String,Float> desiredMorphTargets = new HashMap<String,Float>();
+   /** The morph target weights to be set by doMorph, maintained
+   through addMorphTargets and removeMorphTargets, or by some other producer */
+   private MorphWeightChannel morphWeightChannel = new MorphWeightChannel();
    
-   /** Perform morph as specified in desiredMorphTargets */
+   /* For every skinned mesh, the mesh morph target index for every channel slot, or -1 */
+   private int[][] morphSlotTargets = new int[0][];
+   private String[] morphSlotNames = null; // the channel slot names for which morphSlotTargets was resolved
+   private boolean morphPending = true; // set when the next doMorph should morph, even without a newly published snapshot
+   
+   /**
+    * Sets the channel from which doMorph takes its morph target weights.
+    */
+   public void setMorphWeightChannel(MorphWeightChannel channel)
+   {
+      morphWeightChannel = channel;
+      morphSlotNames = null;
+      morphPending = true;
+   }
+   
+   /**
+    * Returns the channel from which doMorph takes its morph target weights.
+    */
+   public MorphWeightChannel getMorphWeightChannel()
+   {
+      return morphWeightChannel;
+   }
+   
+   /** Perform morph as specified by the most recently published weights of the MorphWeightChannel.
+   Nothing is done when nothing was published since the last doMorph, no skinned meshes were added, and no other level of detail was selected. */
    public void doMorph()
    {
-      String[] desiredTargetNames = new String[desiredMorphTargets.size()];
-      float[] desiredTargetWeights = new float[desiredMorphTargets.size()];
-      int i = 0;
-      for (String targetName:desiredMorphTargets.keySet())
+      if (!morphWeightChannel.acquire() && !morphPending) return;
+      morphPending = false;
+      String[] slotNames = morphWeightChannel.getSnapshotNames();
+      if (slotNames != morphSlotNames || morphSlotTargets.length != skinnedMeshList.size())
+      {
+         resolveMorphSlots(slotNames);
+      }
+      float[] weights = morphWeightChannel.getSnapshotWeights();
+      for (int m = 0; m < morphSlotTargets.length; m++)
+      {
+         activeSkinnedMeshList.get(m).morph(morphSlotTargets[m], weights); // levels of detail share the morph target order of level 0
+      }
+   }
+   
+   /* Resolves the channel slots to morph target indices, for all skinned meshes */
+   private void resolveMorphSlots(String[] slotNames)
+   {
+      morphSlotTargets = new int[skinnedMeshList.size()][slotNames.length];
+      for (int m = 0; m < morphSlotTargets.length; m++)
       {
-         desiredTargetNames[i] = targetName;
-         desiredTargetWeights[i] = desiredMorphTargets.get(targetName);
-         i++;
+         GLSkinnedMesh gsm = skinnedMeshList.get(m);
+         for (int slot = 0; slot < slotNames.length; slot++)
+         {
+            morphSlotTargets[m][slot] = gsm.getMorphTargetIndexFor(slotNames[slot]);
+         }
       }
-      morph(desiredTargetNames, desiredTargetWeights);
+      morphSlotNames = slotNames;
    }
   
    /** Add given weights for given morph targets to the list of desired targets */
    public void addMorphTargets(String[] targetNames, float[] weights)
    {
-      float w = 0;
-      for (int i = 0; i < targetNames.length; i++) 
+      synchronized (morphWeightChannel)
       {
-         w = weights[i];
-         Float fl = desiredMorphTargets.get(targetNames[i]);
-         if (fl!=null)
+         for (int i = 0; i < targetNames.length; i++) 
          {
-            w+=fl.floatValue();
-         }
-         if (w==0)
-         {
-            desiredMorphTargets.remove(targetNames[i]);
-         }
-         else
-         {
-            desiredMorphTargets.put(targetNames[i],new Float(w));
+            morphWeightChannel.addWeight(morphWeightChannel.getSlot(targetNames[i]), weights[i]);
          }
+         morphWeightChannel.publish();
       }
    }
 
    /** Remove given weights for given morph targets from the list of desired targets */
    public void removeMorphTargets(String[] targetNames, float[] weights)
    {
-      float w = 0;
-      for (int i = 0; i < targetNames.length; i++) 
+      synchronized (morphWeightChannel)
       {
-         w = -weights[i];
-         Float fl = desiredMorphTargets.get(targetNames[i]);
-         if (fl!=null)
-         {
-            w+=fl.floatValue();
-         }
-         if (w==0)
-         {
-            desiredMorphTargets.remove(targetNames[i]);
-         }
-         else
+         for (int i = 0; i < targetNames.length; i++) 
          {
-            desiredMorphTargets.put(targetNames[i],new Float(w));
+            morphWeightChannel.addWeight(morphWeightChannel.getSlot(targetNames[i]), -weights[i]);
          }
+         morphWeightChannel.publish();
       }
    }
 
    /** Overwrite current morph targets with given targets */
    public void setMorphTargets(String[] targetNames, float[] weights)
    {
-      desiredMorphTargets.clear();
-      float w = 0;
-      for (int i = 0; i < targetNames.length; i++) 
+      synchronized (morphWeightChannel)
       {
-         w = weights[i];
-         desiredMorphTargets.put(targetNames[i],new Float(w));         
+         morphWeightChannel.clearWeights();
+         for (int i = 0; i < targetNames.length; i++) 
+         {
+            morphWeightChannel.setWeight(morphWeightChannel.getSlot(targetNames[i]), weights[i]);
+         }
+         morphWeightChannel.publish();
       }
    }
    
 
    
    /**
-    * OpenGL rendering.
+    * OpenGL rendering: renders the GLShapes in state sorted order, see getRenderQueue.
     */
    @Override
    public void glRender(GLRenderContext glc) {    
+      getRenderQueue().glRender(glc);
    }
    
    
@@ -25,6 +25,7 @@ package hmi.graphics.opengl.scenegraph;
 
 import hmi.animation.VJoint;
 import hmi.graphics.opengl.GLBasicMesh;
+import hmi.graphics.opengl.GLLODMesh;
 import hmi.graphics.opengl.GLRenderList;
 import hmi.graphics.opengl.GLShape;
 import hmi.graphics.opengl.GLSkinnedMesh;
@@ -35,6 +36,7 @@ import hmi.graphics.scenegraph.GNode;
 import hmi.graphics.scenegraph.GScene;
 import hmi.graphics.scenegraph.GShape;
 import hmi.graphics.scenegraph.GSkinnedMesh;
+import hmi.graphics.scenegraph.MorphDelta;
 import hmi.graphics.scenegraph.VertexAttribute;
 import hmi.graphics.scenegraph.VertexWeights;
 
@@ -65,10 +67,12 @@ public final class ScenegraphTranslator {
         // rootGNode.removeScaling(); // NB does not correctly handle reflection (via scaling with <0 factors)
          GLRenderList shapeList = new GLRenderList();
          List<GLSkinnedMesh> skinnedMeshes = new ArrayList<GLSkinnedMesh>();
-         VJoint root = fromGNodeToVJoint(rootGNode, shapeList, skinnedMeshes);
+         List<GLLODMesh> lodMeshes = new ArrayList<GLLODMesh>();
+         VJoint root = fromGNodeToVJoint(rootGNode, shapeList, skinnedMeshes, lodMeshes);
          glScene.addVJointRoot(root);
          glScene.addGLShapes(shapeList);
          glScene.addSkinnedMeshes(skinnedMeshes);
+         glScene.addLODMeshes(lodMeshes);
         // hmi.util.Console.println("GSceneToGLScene, skinned meshes: " + skinnedMeshes.size());
          
          
@@ -98,17 +102,26 @@ public final class ScenegraphTranslator {
    private static boolean addVertexWeightColors = false;
       
    public static GLSkinnedMesh fromGSkinnedMeshToGLSkinnedMesh(GSkinnedMesh gmesh) {
+      return fromGSkinnedMeshToGLSkinnedMesh(gmesh, gmesh);
+   }
+   
+   /*
+    * Translates gmesh, where the skeleton data is taken from skeletonMesh. For levels of detail, the latter is the full resolution mesh,
+    * since skeleton joints are resolved for the full resolution mesh only.
+    */
+   private static GLSkinnedMesh fromGSkinnedMeshToGLSkinnedMesh(GSkinnedMesh gmesh, GSkinnedMesh skeletonMesh) {
       GLSkinnedMesh glsm = new GLSkinnedMesh();
       addGLBasicMeshAttributes(gmesh, glsm);
       //hmi.util.Console.println("GSkinnedMeshToGLSkinnedMesh: " + gmesh.getId());
       glsm.setId(gmesh.getId());
       
       // SIDs and names are not essential for GLSkinnedmeshes, but are useful for debugging purposes
-      glsm.setJointSIDs(gmesh.getJointSIDs());
-      glsm.setJointNames(gmesh.getJointNames());
-      glsm.setVJoints(gmesh.getVJoints());
-      glsm.setInverseBindMatrices(gmesh.getInvBindMatrices());
-      glsm.setParentIndex(gmesh.getParentIndex());
+      glsm.setJointSIDs(skeletonMesh.getJointSIDs());
+      glsm.setJointNames(skeletonMesh.getJointNames());
+      glsm.setVJoints(skeletonMesh.getVJoints());
+      glsm.setInverseBindMatrices(skeletonMesh.getInvBindMatrices());
+      glsm.setParentIndex(skeletonMesh.getParentIndex());
+      glsm.setJointBoundingSpheres(gmesh.calculateJointBoundingSpheres()); // levels of detail share the inverse bind matrices
       
       VertexWeights vw = gmesh.getVertexWeights();
       glsm.setJointVertexWeights(vw.getJCounts(), vw.getJointIndices(), vw.getJointWeights());
@@ -132,11 +145,11 @@ public final class ScenegraphTranslator {
          
          glsm.setMorphTargets(morphTargets);
        
-         float[][] morphData = gmesh.getMorphData("mcPosition");
-         if (morphData == null) {
+         MorphDelta[] morphDeltas = gmesh.getMorphDeltas("mcPosition");
+         if (morphDeltas == null) {
             logger.error(gmesh.getId() + ": Morphed mesh with null morph data");
          } else {
-            glsm.setVertexCoordMorphData(morphData);
+            glsm.setVertexCoordMorphDeltas(morphDeltas);
          }
          
         // float[][] morphData = gmesh.getMorphData("mcPosition");
@@ -207,11 +220,25 @@ public final class ScenegraphTranslator {
    }   
   
    /**
-    * Translates a scenegraph GShape into an opengl GLShape
+    * Translates a scenegraph GShape into an opengl GLShape. Levels of detail of the GShape are ignored.
     */
    public static GLShape fromGShapeToGLShape(GShape gshape, List<GLSkinnedMesh> glSkinnedMeshes) {
+      return fromGShapeToGLShape(gshape, glSkinnedMeshes, null, null);
+   }
+   
+   /**
+    * Translates a scenegraph GShape into an opengl GLShape. When the GShape has levels of detail, and glLODMeshes is not null,
+    * the GLShape geometry is a GLLODMesh, which is added to glLODMeshes. Its bounding sphere is linked to transformMatrix,
+    * or, for skinned meshes, to the first skeleton joint.
+    */
+   public static GLShape fromGShapeToGLShape(GShape gshape, List<GLSkinnedMesh> glSkinnedMeshes, List<GLLODMesh> glLODMeshes, 
+                                             float[] transformMatrix) {
+      if (gshape.getNrOfLODs() > 0 && glLODMeshes != null) {
+         return fromLODGShapeToGLShape(gshape, glSkinnedMeshes, glLODMeshes, transformMatrix);
+      }
       GMesh gmesh = gshape.getGMesh();
       GLShape glshape = new GLShape(gshape.getName());
+      glshape.setBoundingSphere(gmesh.calculateBoundingSphere());
       GMaterial gmaterial = gshape.getGMaterial();
 
       GLMaterial glmaterial = GMaterialTranslator.fromGMaterialToGLMaterial(gmaterial);   
@@ -231,19 +258,70 @@ public final class ScenegraphTranslator {
       return glshape;  
    }
      
+   /* Translates a GShape with levels of detail */
+   private static GLShape fromLODGShapeToGLShape(GShape gshape, List<GLSkinnedMesh> glSkinnedMeshes, List<GLLODMesh> glLODMeshes, 
+                                                 float[] transformMatrix) {
+      GMesh gmesh = gshape.getGMesh();
+      GLShape glshape = new GLShape(gshape.getName());
+      float[] boundingSphere = gmesh.calculateBoundingSphere();
+      glshape.setBoundingSphere(boundingSphere);
+      glshape.addGLState(GMaterialTranslator.fromGMaterialToGLMaterial(gshape.getGMaterial()));
+      GMesh[] lodMeshes = gshape.getLODMeshes();
+      float[] lodSizes = gshape.getLODSizes();
+      GLLODMesh gllm;
+      if (gmesh instanceof GSkinnedMesh) {
+         GSkinnedMesh gsm = (GSkinnedMesh) gmesh;
+         GLSkinnedMesh glsm = fromGSkinnedMeshToGLSkinnedMesh(gsm);
+         glSkinnedMeshes.add(glsm);
+         gllm = new GLLODMesh(glsm);
+         for (int i = 0; i < lodMeshes.length; i++) {
+            gllm.addLevel(fromGSkinnedMeshToGLSkinnedMesh((GSkinnedMesh) lodMeshes[i], gsm), lodSizes[i]);
+         }
+         VJoint[] vjoints = gsm.getVJoints();
+         float[][] invBindMatrices = gsm.getInvBindMatrices();
+         if (vjoints.length > 0) {
+            gllm.linkToTransformMatrix(vjoints[0].getGlobalMatrix());
+            if (invBindMatrices != null) gllm.setBindMatrix(invBindMatrices[0]);
+         }
+      } else {
+         gllm = new GLLODMesh(fromGMeshToGLBasicMesh(gmesh));
+         for (int i = 0; i < lodMeshes.length; i++) {
+            gllm.addLevel(fromGMeshToGLBasicMesh(lodMeshes[i]), lodSizes[i]);
+         }
+         gllm.linkToTransformMatrix(transformMatrix);
+      }
+      if (boundingSphere != null) gllm.setBounds(boundingSphere, boundingSphere[3]);
+      glshape.addGLGeometry(gllm);
+      glLODMeshes.add(gllm);
+      return glshape;
+   }
+   
    /**
     * Translates a GNode base scenegraph into a VJoint based scenegraph plus 
     * a list of GLShape RenderObjects. The latter are linked to the VJoints,
     * via their transform matrices.
     * The root VJoint is returned. The GLRenderObjects are added to a shapeList.
+    * Levels of detail are ignored.
     */
    public static VJoint fromGNodeToVJoint(GNode gnode, GLRenderList glShapeList, List<GLSkinnedMesh> glSkinnedMeshes ) {
+      return fromGNodeToVJoint(gnode, glShapeList, glSkinnedMeshes, null);
+   }
+     
+   /**
+    * Translates a GNode base scenegraph into a VJoint based scenegraph plus 
+    * a list of GLShape RenderObjects. The latter are linked to the VJoints,
+    * via their transform matrices.
+    * The root VJoint is returned. The GLRenderObjects are added to a shapeList.
+    * GLLODMeshes for GShapes with levels of detail are added to glLODMeshes, unless the latter is null.
+    */
+   public static VJoint fromGNodeToVJoint(GNode gnode, GLRenderList glShapeList, List<GLSkinnedMesh> glSkinnedMeshes, 
+                                          List<GLLODMesh> glLODMeshes) {
       VJoint vjoint = gnode.getVJoint();
       float[] jointMatrix = vjoint.getGlobalMatrix();   
       List<GShape> gshapeList = gnode.getGShapes();
       if (gshapeList != null) {
          for (GShape gshape : gshapeList) {
-            GLShape glshape = fromGShapeToGLShape(gshape, glSkinnedMeshes); 
+            GLShape glshape = fromGShapeToGLShape(gshape, glSkinnedMeshes, glLODMeshes, jointMatrix); 
             glshape.linkToTransformMatrix(jointMatrix);
             glShapeList.add(glshape);
          }
@@ -253,7 +331,7 @@ public final class ScenegraphTranslator {
       if (gnodeList != null) {
          for (GNode gchild : gnodeList ) {
             //VJoint child = fromGNodeToVJoint(gchild, glShapeList, glSkinnedMeshes);
-            fromGNodeToVJoint(gchild, glShapeList, glSkinnedMeshes);
+            fromGNodeToVJoint(gchild, glShapeList, glSkinnedMeshes, glLODMeshes);
             //vjoint.addChild(child);      // redundant: link should already be present
          }
       }
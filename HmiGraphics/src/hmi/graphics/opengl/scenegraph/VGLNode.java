@@ -26,6 +26,7 @@ package hmi.graphics.opengl.scenegraph;
 import hmi.animation.VJoint;
 import hmi.graphics.opengl.GLRenderContext;
 import hmi.graphics.opengl.GLRenderList;
+import hmi.graphics.opengl.GLRenderQueue;
 import hmi.graphics.opengl.GLRenderObject;
 import hmi.graphics.opengl.GLShape;
 import hmi.graphics.opengl.GLUtil;
@@ -45,6 +46,9 @@ public class VGLNode implements GLRenderObject
    
    /** The GLRenderList shapeList specifies GLRenderObjects to be rendered. */
    private GLRenderList shapeList;
+   
+   /** When not null, renders the shapeList in state sorted order. */
+   private GLRenderQueue renderQueue;
   // private GLRenderObject marker;
   
   private static final ArrayList<VGLNode> EMPTYLIST = new ArrayList<VGLNode>(0);
@@ -90,6 +94,14 @@ public class VGLNode implements GLRenderObject
       this.shapeList.addAll(shapeList);
    }
    
+   /**
+    * Sets a GLRenderQueue for the shapeList, like the one from GLScene.getRenderQueue, which is then rendered
+    * instead of the shapeList itself. A null queue renders the shapeList in list order.
+    */
+   public void setRenderQueue(GLRenderQueue renderQueue) {
+      this.renderQueue = renderQueue;
+   }
+   
    
    public VJoint getRoot() {
       return root;
@@ -143,7 +155,11 @@ public class VGLNode implements GLRenderObject
     */
    @Override
    public void glRender(GLRenderContext gl) {    
-      shapeList.glRender(gl);
+      if (renderQueue != null) {
+         renderQueue.glRender(gl);
+      } else {
+         shapeList.glRender(gl);
+      }
       if (! collectShapes) {
          for (VGLNode child : children) child.glRender(gl);
       }
@@ -24,7 +24,6 @@
 package hmi.graphics.opengl.state;
 
 
-import javax.media.opengl.*; 
 import hmi.graphics.opengl.GLRenderContext;
 import hmi.graphics.opengl.GLShader;
 import hmi.graphics.opengl.GLTexture;
@@ -100,6 +99,11 @@ public class GLMaterial implements GLStateComponent {
       }
    }
    
+   /** Returns the GLShader, or null if not set */
+   public GLShader getGLShader() {
+      return shader;
+   }
+   
    public boolean getAlphaBlendingEnabled() {
       return alphaBlendingEnabled;
    }
@@ -165,6 +169,12 @@ public class GLMaterial implements GLStateComponent {
       diffuseTextureUnit = texUnit;
    }
    
+   /** Returns the diffuse texture, or null if not set */
+   public GLTexture getDiffuseTexture() { return diffuseTexture; }
+   
+   /** Returns the transparency texture, or null if not set */
+   public GLTexture getTransparentTexture() { return transparentTexture; }
+   
    /** Sets the repeat factor for the S coordinate  */
    public void setRepeatS(float r) { repeatS = r; }
    
@@ -258,20 +268,15 @@ public class GLMaterial implements GLStateComponent {
    
    /**
     * Required by GLRenderObject interface.
+    * While state caching is on for the GLRenderContext, applying the same GLMaterial twice in a row is skipped,
+    * as are redundant blending, texture and shader program changes.
     */
    @Override
    public final void glRender(GLRenderContext glc) {
      
-      GL2ES2 gl = glc.gl;
       if (debugMode) return;
-      if (alphaBlendingEnabled) {
-         gl.glEnable(GL.GL_BLEND);
-         gl.glBlendFunc(srcFactor, destFactor);
-         gl.glDepthMask(false);
-      } else {
-         gl.glDisable(GL.GL_BLEND);
-         gl.glDepthMask(true);
-      }
+      if ( ! glc.setCurrentMaterial(this)) return;
+      glc.setBlending(alphaBlendingEnabled, srcFactor, destFactor);
       if (diffuseTexture!= null ) {
          diffuseTexture.glRender(glc);
       } else {
@@ -287,7 +292,7 @@ public class GLMaterial implements GLStateComponent {
       if (shader != null) {
          shader.glRender(glc);
       } else {
-         gl.glUseProgram(0);  
+         glc.useProgram(0);  
       }
    }
    
@@ -37,6 +37,7 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
@@ -222,6 +223,26 @@ public class GMesh extends XMLStructureAdapter implements BinaryExternalizable,
         return morphData;
     }
 
+    /**
+     * returns sparse MorphDeltas for a specified attribute name, relative to the base mesh data for that attribute. So
+     * getMorphDeltas("mcPosition")[2] lists the displaced vertices for morph target 2. Returns null when there are no morph targets, or when the
+     * base mesh has no such attribute.
+     */
+    public MorphDelta[] getMorphDeltas(String semantic)
+    {
+        if (morphTargets == null) return null;
+        VertexAttribute baseAttr = getVertexAttribute(semantic);
+        if (baseAttr == null) return null;
+        float[] baseData = baseAttr.getVertexData();
+        float[][] morphData = getMorphData(semantic);
+        MorphDelta[] deltas = new MorphDelta[morphData.length];
+        for (int i = 0; i < deltas.length; i++)
+        {
+            deltas[i] = MorphDelta.fromTargetData(baseData, morphData[i], baseAttr.getAttributeValueSize());
+        }
+        return deltas;
+    }
+
     /**
      * returns the number of morph targets, or 0 when no morph targets have been defined
      */
@@ -885,6 +906,219 @@ public class GMesh extends XMLStructureAdapter implements BinaryExternalizable,
 
     }
 
+    /**
+     * Ensures that this GMesh has unified indices, and has Triangle type, by applying unifyIndices and triangulate where needed.
+     */
+    public void normalize()
+    {
+        if (!hasUnifiedIndexData()) unifyIndices();
+        if (getMeshType() == GMesh.MeshType.Polylist || getMeshType() == GMesh.MeshType.Polygons)
+        {
+            triangulate();
+        }
+    }
+
+    /**
+     * Optimizes the index and vertex order of this GMesh for rendering: triangles are reordered for the post-transform vertex cache, and
+     * vertices are renumbered in order of first use, so that vertex data is fetched sequentially. The mesh is normalized first;
+     * meshes that are not of Triangles type are left unchanged.
+     */
+    public void optimizeVertexOrder()
+    {
+        normalize();
+        if (getMeshType() != MeshType.Triangles || indexData == null) return;
+        indexData = MeshOptimizer.optimizeVertexCache(indexData, nrOfVertices);
+        int[] map = MeshOptimizer.optimizeVertexFetch(indexData, nrOfVertices);
+        remapVertices(map);
+    }
+
+    /**
+     * Reorders the (unified) vertex data of all attributes, including morph target attributes, such that new vertex i is old vertex map[i].
+     * Overridden in GSkinnedMesh, to remap the vertex weights as well.
+     */
+    protected void remapVertices(int[] map)
+    {
+        for (VertexAttribute attr : attributeList)
+        {
+            attr.remapData(nrOfVertices, map);
+        }
+        if (morphAttributeLists != null)
+        {
+            for (ArrayList<VertexAttribute> atList : morphAttributeLists)
+            {
+                for (VertexAttribute attr : atList)
+                {
+                    attr.remapData(nrOfVertices, map);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a simplified version of this GMesh, with approximately triangleRatio times the current number of triangles, for use
+     * as a level of detail. The mesh is normalized first. The result refers to a subset of the vertices of this GMesh, with unchanged
+     * attribute values, also for morph targets; unreferenced vertices are removed. Returns null when this GMesh has no Triangles data,
+     * or no mcPosition attribute.
+     */
+    public GMesh createLOD(float triangleRatio)
+    {
+        normalize();
+        VertexAttribute positions = getVertexAttribute("mcPosition");
+        if (getMeshType() != MeshType.Triangles || indexData == null || positions == null) return null;
+        int targetTriangles = (int) (triangleRatio * (indexData.length / 3));
+        int[] lodIndices = MeshSimplifier.simplify(indexData, positions.getVertexData(), positions.getAttributeValueSize(), nrOfVertices,
+                targetTriangles, Float.MAX_VALUE);
+        int[] map = MeshOptimizer.optimizeVertexFetch(lodIndices, nrOfVertices);
+        int nrOfLODVertices = 0;
+        for (int i = 0; i < lodIndices.length; i++)
+        {
+            nrOfLODVertices = Math.max(nrOfLODVertices, lodIndices[i] + 1);
+        }
+        GMesh lod = remappedCopy(nrOfLODVertices, map);
+        lod.indexData = lodIndices;
+        return lod;
+    }
+
+    /**
+     * Returns a new GMesh with the same id, type, and morph targets as this GMesh, and with copies of all (unified) vertex data, where
+     * new vertex i is vertex map[i] of this GMesh, for i in [0..nrOfCopiedVertices-1]. The index data of the result is not set.
+     * Overridden in GSkinnedMesh, to copy the skeleton data and vertex weights as well.
+     */
+    protected GMesh remappedCopy(int nrOfCopiedVertices, int[] map)
+    {
+        GMesh copy = new GMesh(this);
+        copy.initRemappedCopy(this, nrOfCopiedVertices, map);
+        return copy;
+    }
+
+    /* Replaces the (shared) vertex data of this copy of base by remapped copies */
+    private void initRemappedCopy(GMesh base, int nrOfCopiedVertices, int[] map)
+    {
+        attributeList = remappedCopy(base.attributeList, nrOfCopiedVertices, map);
+        if (base.morphAttributeLists != null)
+        {
+            morphAttributeLists = new ArrayList<ArrayList<VertexAttribute>>(base.morphAttributeLists.size());
+            for (ArrayList<VertexAttribute> atList : base.morphAttributeLists)
+            {
+                morphAttributeLists.add(remappedCopy(atList, nrOfCopiedVertices, map));
+            }
+        }
+        vcounts = null;
+        indexData = null;
+        nrOfVertices = nrOfCopiedVertices;
+    }
+
+    private static ArrayList<VertexAttribute> remappedCopy(ArrayList<VertexAttribute> atList, int nrOfCopiedVertices, int[] map)
+    {
+        ArrayList<VertexAttribute> result = new ArrayList<VertexAttribute>(atList.size());
+        for (VertexAttribute attr : atList)
+        {
+            VertexAttribute copy = new VertexAttribute(attr.getName(), attr.getAttributeValueSize(), attr.getVertexData());
+            copy.remapData(nrOfCopiedVertices, map); // allocates new vertex data
+            result.add(copy);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the vertex coordinate arrays of the base mesh and of all morph targets, as far as present. Each array has
+     * getPositionSize() floats per vertex.
+     */
+    protected List<float[]> getPositionData()
+    {
+        List<float[]> result = new ArrayList<float[]>();
+        VertexAttribute positions = getVertexAttribute("mcPosition");
+        if (positions == null) return result;
+        result.add(positions.getVertexData());
+        if (morphAttributeLists != null)
+        {
+            for (ArrayList<VertexAttribute> atList : morphAttributeLists)
+            {
+                for (VertexAttribute attr : atList)
+                {
+                    if (attr.getName().equals("mcPosition") && attr.getVertexData() != null) result.add(attr.getVertexData());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of floats per vertex coordinate, or -1 when there is no mcPosition attribute.
+     */
+    protected int getPositionSize()
+    {
+        VertexAttribute positions = getVertexAttribute("mcPosition");
+        return (positions == null) ? -1 : positions.getAttributeValueSize();
+    }
+
+    /**
+     * Returns the axis aligned bounding box of the vertex coordinates, including those of all morph targets, as an array
+     * (minX, minY, minZ, maxX, maxY, maxZ), or null when there are no vertex coordinates.
+     */
+    public float[] calculateBoundingBox()
+    {
+        int size = getPositionSize();
+        float[] box = new float[] { Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE };
+        boolean empty = true;
+        for (float[] data : getPositionData())
+        {
+            for (int offset = 0; offset + 2 < data.length; offset += size)
+            {
+                for (int k = 0; k < 3; k++)
+                {
+                    box[k] = Math.min(box[k], data[offset + k]);
+                    box[k + 3] = Math.max(box[k + 3], data[offset + k]);
+                }
+                empty = false;
+            }
+        }
+        return empty ? null : box;
+    }
+
+    /**
+     * Returns a bounding sphere (centerX, centerY, centerZ, radius) for the vertex coordinates, including those of all morph targets,
+     * or null when there are no vertex coordinates. The center is the center of the bounding box.
+     */
+    public float[] calculateBoundingSphere()
+    {
+        float[] box = calculateBoundingBox();
+        if (box == null) return null;
+        float[] sphere = new float[] { 0.5f * (box[0] + box[3]), 0.5f * (box[1] + box[4]), 0.5f * (box[2] + box[5]), 0.0f };
+        int size = getPositionSize();
+        float radius2 = 0.0f;
+        for (float[] data : getPositionData())
+        {
+            for (int offset = 0; offset + 2 < data.length; offset += size)
+            {
+                float dx = data[offset] - sphere[0], dy = data[offset + 1] - sphere[1], dz = data[offset + 2] - sphere[2];
+                radius2 = Math.max(radius2, dx * dx + dy * dy + dz * dz);
+            }
+        }
+        sphere[3] = (float) Math.sqrt(radius2);
+        return sphere;
+    }
+
+    /**
+     * Returns the average cache miss ratio (vertex transforms per triangle) for this GMesh, for a FIFO vertex cache of the specified size.
+     * Returns -1 when the mesh has no unified Triangles index data.
+     */
+    public float getACMR(int cacheSize)
+    {
+        if (!hasUnifiedIndexData() || getMeshType() != MeshType.Triangles || indexData == null) return -1.0f;
+        return MeshOptimizer.calculateACMR(indexData, nrOfVertices, cacheSize);
+    }
+
+    /**
+     * Returns the average transform to vertex ratio for this GMesh, for a FIFO vertex cache of the specified size.
+     * Returns -1 when the mesh has no unified Triangles index data.
+     */
+    public float getATVR(int cacheSize)
+    {
+        if (!hasUnifiedIndexData() || getMeshType() != MeshType.Triangles || indexData == null) return -1.0f;
+        return MeshOptimizer.calculateATVR(indexData, nrOfVertices, cacheSize);
+    }
+
     /**
      * returns true when a single, i.e. shared, index is used for all vertexattributes.
      */
@@ -925,11 +1159,32 @@ public class GMesh extends XMLStructureAdapter implements BinaryExternalizable,
         calculateTuples(); // so that we can override calculateTuples in GSkinnedMesh
     }
 
-    private static final double TUPLEINDEX_GROW_GUESTIMATE = 1.5;
+    private static final int EMPTY_SLOT = -1;
+
+    /*
+     * Hash code for the index tuple (indices[0][i], ..., indices[nrOfAttributes-1][i]). The final mixing step spreads the bits, so that the low
+     * order bits, used for addressing the tuple table, depend on all attribute indices.
+     */
+    private static int tupleHash(int[][] indices, int i)
+    {
+        int h = 0;
+        for (int att = 0; att < indices.length; att++)
+        {
+            h = 31 * h + indices[att][i];
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
 
     /**
      * calculates tuples for all new indices, together with the data remapping tables. The remapping for vertexData is returned (for usage within the
-     * GSkinnedMesh class)
+     * GSkinnedMesh class). Distinct tuples are found by means of an open addressing hash table, with linear probing, that stores tuple numbers; the
+     * tuple values themselves are kept in the map arrays. Tuples are numbered in order of first occurrence, so the resulting indexData and map arrays
+     * do not depend on the hashing.
      */
     protected int[] calculateTuples()
     {
@@ -953,14 +1208,6 @@ public class GMesh extends XMLStructureAdapter implements BinaryExternalizable,
         }
         indexData = new int[indexLength];
 
-        // try to guess the number of different tuples.
-        int maxVertexDataSize = 0;
-        for (VertexAttribute attr : attributeList)
-        {
-            if (attr.getVertexData().length > maxVertexDataSize) maxVertexDataSize = attr.getVertexData().length;
-        }
-        int tupleIndexSize = (int) (TUPLEINDEX_GROW_GUESTIMATE * maxVertexDataSize); // guestimate
-
         int nrOfTuples = 0;
         int[][] indices = new int[nrOfAttributes][]; // arrays with existing attribute-specific indices, one array for each attribute
 
@@ -970,47 +1217,48 @@ public class GMesh extends XMLStructureAdapter implements BinaryExternalizable,
         {
             VertexAttribute attr = attributeList.get(att);
             indices[att] = attr.getIndexData();
-            map[att] = new int[tupleIndexSize];
+            map[att] = new int[indexLength]; // there are at most indexLength distinct tuples
             if (attr.getName().equals("mcPosition")) vertexCoordIndex = att;
         }
+        // hash table size: a power of two, at least twice the maximum number of tuples, so the load factor stays below 0.5
+        int tableSize = 2;
+        while (tableSize < 2 * indexLength)
+        {
+            tableSize <<= 1;
+        }
+        int mask = tableSize - 1;
+        int[] tupleTable = new int[tableSize];
+        Arrays.fill(tupleTable, EMPTY_SLOT);
+
         for (int i = 0; i < indexLength; i++)
         { // create tuple for common index i
-            if (nrOfTuples >= tupleIndexSize)
-            {
-                tupleIndexSize = 2 * tupleIndexSize;
+            int slot = tupleHash(indices, i) & mask;
+            int tuple = tupleTable[slot];
+            while (tuple != EMPTY_SLOT)
+            { // compare tuple at index "tuple" with new tuple i
+                boolean tupleDiffers = false;
                 for (int attr = 0; attr < nrOfAttributes; attr++)
                 {
-                    int[] oldTupleIndices = map[attr];
-
-                    map[attr] = new int[tupleIndexSize];
-                    System.arraycopy(oldTupleIndices, 0, map, 0, nrOfTuples);
+                    tupleDiffers = (map[attr][tuple] != indices[attr][i]);
+                    if (tupleDiffers) break;
                 }
+                if (!tupleDiffers) break; // already present, at index "tuple"
+                slot = (slot + 1) & mask;
+                tuple = tupleTable[slot];
             }
-            for (int attr = 0; attr < nrOfAttributes; attr++)
-            {
-                map[attr][nrOfTuples] = indices[attr][i];
-            }
-            boolean isNew = true;
-            int tuple = 0;
-            for (tuple = 0; tuple < nrOfTuples; tuple++)
-            { // compare tuple at index "tuple" with new tuple at top
-                boolean tupleDiffers = false;
+            if (tuple == EMPTY_SLOT)
+            { // really new tuple: add it, and increase tuple count
+                tuple = nrOfTuples;
                 for (int attr = 0; attr < nrOfAttributes; attr++)
                 {
-                    tupleDiffers = (map[attr][tuple] != map[attr][nrOfTuples]);
-                    if (tupleDiffers) break;
+                    map[attr][tuple] = indices[attr][i];
                 }
-                isNew = tupleDiffers;
-                if (!isNew) break; // already prsesent, at index "tuple"
-            }
-            indexData[i] = tuple; // if new, tuple = nrOfTuples, else it is the number of the tuple found above.
-
-            if (isNew)
-            { // really new tuple: increase tuple count
+                tupleTable[slot] = tuple;
                 nrOfTuples++;
             }
-            unifiedIndexData = true;
+            indexData[i] = tuple;
         }
+        unifiedIndexData = true;
         nrOfVertices = nrOfTuples; // i.e. the number of *distinct* vertices, not the number of indexed Mesh vertices
         // hmi.util.Console.println("GMesh.calculateTuples, remapData nrOfTuples= " + nrOfTuples);
         for (int att = 0; att < nrOfAttributes; att++)
@@ -1073,6 +1321,12 @@ public class GMesh extends XMLStructureAdapter implements BinaryExternalizable,
 
         }
 
+        if (hasUnifiedIndexData() && getMeshType() == MeshType.Triangles && indexData != null)
+        {
+            logger.info("GMesh {}: {} vertices, {} triangles, ACMR {}, ATVR {}", getId(), nrOfVertices, indexData.length / 3,
+                    getACMR(MeshOptimizer.DEFAULT_CACHE_SIZE), getATVR(MeshOptimizer.DEFAULT_CACHE_SIZE));
+        }
+
         // boolean indexConsistent = checkIndexIntegrity();
         // hmi.util.Console.println("Consistent indices: " + indexConsistent);
     }
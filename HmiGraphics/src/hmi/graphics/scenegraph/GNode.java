@@ -30,6 +30,7 @@ import hmi.math.Vec3f;
 import hmi.util.BinUtil;
 import hmi.util.BinaryExternalizable;
 import hmi.util.Diff;
+import hmi.util.PartIndex;
 import hmi.xml.XMLFormatting;
 import hmi.xml.XMLStructureAdapter;
 import hmi.xml.XMLTokenizer;
@@ -69,6 +70,7 @@ public class GNode extends XMLStructureAdapter implements BinaryExternalizable,
    private List<GNode> gnodes;         // list of child nodes in the scene graph
    private List<GShape> gshapes;       // list of gshapes, containing geometry and materials
    private VJoint joint = new VJoint(); // a link to a VJoint that determines the rotation, translation, and scaling for this GNode.
+   private Index partIndex;            // optional hashed index, shared by all GNodes in the scene graph, null when not indexed
    
    
    private static final List<GNode> EMPTYGNODELIST = new ArrayList<GNode>(0);
@@ -140,7 +142,12 @@ public class GNode extends XMLStructureAdapter implements BinaryExternalizable,
    /** 
     * Sets the id attribute.
     */
-   public void setId(String id) {  this.id = (id==null) ? null : id.intern();  joint.setId(id); }
+   public void setId(String id) {  
+      if (partIndex != null) partIndex.remove(this);
+      this.id = (id==null) ? null : id.intern();  
+      if (partIndex != null) partIndex.add(this);
+      joint.setId(id); 
+   }
    
    /** 
     * Returns the id attribute.
@@ -150,7 +157,12 @@ public class GNode extends XMLStructureAdapter implements BinaryExternalizable,
    /** 
     * Sets the Collada sid attribute.
     */
-   public void setSid(String sid) { this.sid = (sid==null) ? null : sid.intern(); joint.setSid(sid);  }
+   public void setSid(String sid) { 
+      if (partIndex != null) partIndex.remove(this);
+      this.sid = (sid==null) ? null : sid.intern(); 
+      if (partIndex != null) partIndex.add(this);
+      joint.setSid(sid);  
+   }
    
    /** 
     * Returns the Collada sid attribute.
@@ -240,6 +252,7 @@ public class GNode extends XMLStructureAdapter implements BinaryExternalizable,
       gnodes.add(sn);
       sn.parent = this;
       joint.addChild(sn.getVJoint());
+      if (sn.partIndex != partIndex) sn.setPartIndex(partIndex); // joins the index of this scene graph, if any
    }
 
    /**
@@ -248,7 +261,75 @@ public class GNode extends XMLStructureAdapter implements BinaryExternalizable,
     */
    public void removeChildNode(GNode sn) {
       if (gnodes == null) return;
-      gnodes.remove(sn);  
+      if (gnodes.remove(sn) && sn.partIndex != null) sn.setPartIndex(null);  
+   }
+   
+   /**
+    * Creates a hashed index for the ids and sids of all GNodes in the scene graph that contains this GNode, 
+    * so that getPart, getPartById, and getPartBySid use (expected) constant time lookups rather than recursive searches.
+    * The index is shared by all GNodes of the scene graph, and is maintained when child nodes are added or removed, 
+    * and when ids or sids are modified. Results are the same as without index; for identifiers that are shared by 
+    * several GNodes, the recursive search is used. The VJoints of the GNodes are indexed as well.
+    */
+   public void createPartIndex() {
+      GNode root = this;
+      while (root.parent != null) root = root.parent;
+      root.setPartIndex(new Index());
+      joint.createPartIndex();
+   }
+   
+   /**
+    * Removes the hashed index for the scene graph that contains this GNode, and for its VJoints.
+    */
+   public void removePartIndex() {
+      GNode root = this;
+      while (root.parent != null) root = root.parent;
+      root.setPartIndex(null);
+      joint.removePartIndex();
+   }
+   
+   /**
+    * Returns true when the scene graph that contains this GNode has a hashed index, see createPartIndex.
+    */
+   public boolean hasPartIndex() {
+      return partIndex != null;
+   }
+   
+   /* sets the index for the subtree with this GNode as root */
+   private void setPartIndex(Index index) {
+      if (partIndex != null) partIndex.remove(this);
+      partIndex = index;
+      if (index != null) index.add(this);
+      for (GNode childNode : getChildNodes()) childNode.setPartIndex(index);
+   }
+   
+   /* returns gn if it is this GNode or one of its offspring, else null */
+   private GNode inSubtree(GNode gn) {
+      for (GNode anc = gn; anc != null; anc = anc.parent) {
+         if (anc == this) return gn;
+      }
+      return null;
+   }
+   
+   /* A hashed index for the GNodes of a scene graph, by id, by sid, and by either of them */
+   private static final class Index {
+      final PartIndex<GNode> byId = new PartIndex<GNode>();
+      final PartIndex<GNode> bySid = new PartIndex<GNode>();
+      final PartIndex<GNode> byIdOrSid = new PartIndex<GNode>();
+      
+      void add(GNode gn) {
+         byId.add(gn.id, gn);
+         bySid.add(gn.sid, gn);
+         byIdOrSid.add(gn.id, gn);
+         if (gn.sid != null && ! gn.sid.equals(gn.id)) byIdOrSid.add(gn.sid, gn);
+      }
+      
+      void remove(GNode gn) {
+         byId.remove(gn.id, gn);
+         bySid.remove(gn.sid, gn);
+         byIdOrSid.remove(gn.id, gn);
+         if (gn.sid != null && ! gn.sid.equals(gn.id)) byIdOrSid.remove(gn.sid, gn);
+      }
    }
 
    /**
@@ -312,6 +393,7 @@ public class GNode extends XMLStructureAdapter implements BinaryExternalizable,
     * among the child nodes of this GNode, and include this GNode as well.
     */
    public GNode getPartBySid(String sid) {
+      if (partIndex != null && partIndex.bySid.count(sid) <= 1) return inSubtree(partIndex.bySid.get(sid));
       if  (this.sid != null && this.sid.equals(sid)) return this;
       for (GNode childNode : getChildNodes()) {
           GNode gn = childNode.getPartBySid(sid);
@@ -325,6 +407,7 @@ public class GNode extends XMLStructureAdapter implements BinaryExternalizable,
     * among the child nodes of this GNode, and include this GNode as well.
     */
    public GNode getPartById(String id) {
+      if (partIndex != null && partIndex.byId.count(id) <= 1) return inSubtree(partIndex.byId.get(id));
       if  (this.id != null && this.id.equals(id)) return this;
       for (GNode childNode : getChildNodes()) {
           GNode gn = childNode.getPartById(id);
@@ -338,6 +421,7 @@ public class GNode extends XMLStructureAdapter implements BinaryExternalizable,
     * among the child nodes of this GNode, and include this GNode as well.
     */
    public GNode getPart(String id_or_sid) {
+      if (partIndex != null && partIndex.byIdOrSid.count(id_or_sid) <= 1) return inSubtree(partIndex.byIdOrSid.get(id_or_sid));
       if  (this.sid != null && this.sid.equals(id_or_sid) ) return this;
       if  (this.id != null && this.id.equals(id_or_sid)   ) return this;
       for (GNode childNode : getChildNodes()) {
@@ -299,17 +299,60 @@ public class GScene extends XMLStructureAdapter implements Diff.Differentiable
     {
         for (GShape gshape : gnode.getGShapes())
         {
-            GMesh gmesh = gshape.getGMesh();
-            if (!gmesh.hasUnifiedIndexData()) gmesh.unifyIndices();
-            if (gmesh.getMeshType() == GMesh.MeshType.Polylist || gmesh.getMeshType() == GMesh.MeshType.Polygons)
-            {
-                gmesh.triangulate();
-            }
+            gshape.getGMesh().normalize();
         }
         for (GNode gchild : gnode.getChildNodes())
             normalizeMeshes(gchild);
     }
 
+    /**
+     * Optimizes the index and vertex order of all GMeshes, including all GSkinnedMeshes, for the GPU vertex cache and vertex fetch.
+     */
+    public void optimizeMeshes()
+    {
+        for (GNode rootGNode : getRootNodes())
+        {
+            optimizeMeshes(rootGNode);
+        }
+    }
+
+    /**
+     * Optimizes the index and vertex order of all GMeshes, including all GSkinnedMeshes, inside the tree with gnode as its root.
+     */
+    public void optimizeMeshes(GNode gnode)
+    {
+        for (GShape gshape : gnode.getGShapes())
+        {
+            gshape.getGMesh().optimizeVertexOrder();
+        }
+        for (GNode gchild : gnode.getChildNodes())
+            optimizeMeshes(gchild);
+    }
+
+    /**
+     * Generates levels of detail for all GShapes, see GShape.generateLODs.
+     */
+    public void generateLODs(int nrOfLODs, float triangleRatio)
+    {
+        for (GNode rootGNode : getRootNodes())
+        {
+            generateLODs(rootGNode, nrOfLODs, triangleRatio);
+        }
+    }
+
+    /**
+     * Generates levels of detail for all GShapes inside the tree with gnode as its root.
+     */
+    public void generateLODs(GNode gnode, int nrOfLODs, float triangleRatio)
+    {
+        for (GShape gshape : gnode.getGShapes())
+        {
+            gshape.generateLODs(nrOfLODs, triangleRatio);
+        }
+        for (GNode gchild : gnode.getChildNodes())
+            generateLODs(gchild, nrOfLODs, triangleRatio);
+    }
+
     public void analyzeMeshes()
     {
         for (GNode rootGNode : getRootNodes())
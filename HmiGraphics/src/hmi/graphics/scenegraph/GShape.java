@@ -33,6 +33,7 @@ import hmi.xml.XMLTokenizer;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,6 +49,12 @@ public class GShape extends XMLStructureAdapter implements BinaryExternalizable,
    private GMesh gmesh;
    private GMaterial gmaterial;
    private String name = "";
+   private GMesh[] lodMeshes;  // optional simplified versions of gmesh, from fine to coarse
+   private float[] lodSizes;   // lodMeshes[i] should be used when the projected size of the shape is below lodSizes[i]
+   
+   /** The projected size below which the first generated LOD is used, as a fraction of the viewport height */
+   public static final float DEFAULT_LOD_SIZE = 0.5f;
+   private static final int LODS_FLAG = 16; // added to the binary mesh class code when LODs follow the mesh
    private static Logger logger = LoggerFactory.getLogger(GShape.class.getName());
 
    /**
@@ -131,9 +138,77 @@ public class GShape extends XMLStructureAdapter implements BinaryExternalizable,
       return name;
    }
     
+   /**
+    * Sets the levels of detail: simplified versions of the GMesh, ordered from fine to coarse. 
+    * lodMeshes[i] is to be used when the projected size of the shape drops below lodSizes[i], where sizes are fractions
+    * of the viewport height. Null arrays remove the levels of detail.
+    */
+   public void setLODs(GMesh[] lodMeshes, float[] lodSizes) {
+      if (lodMeshes != null && (lodSizes == null || lodSizes.length != lodMeshes.length)) {
+         throw new IllegalArgumentException("GShape.setLODs: lodSizes should have the same length as lodMeshes");
+      }
+      this.lodMeshes = lodMeshes;
+      this.lodSizes = lodSizes;
+   }
+   
+   /**
+    * Returns the number of levels of detail, not including the GMesh itself.
+    */
+   public int getNrOfLODs() {
+      return (lodMeshes == null) ? 0 : lodMeshes.length;
+   }
+   
+   /**
+    * Returns the simplified GMeshes, from fine to coarse, or null when not defined.
+    */
+   public GMesh[] getLODMeshes() {
+      return lodMeshes;
+   }
+   
+   /**
+    * Returns the projected sizes below which the LOD meshes are to be used, or null when not defined.
+    */
+   public float[] getLODSizes() {
+      return lodSizes;
+   }
+   
+   /**
+    * Generates a chain of nrOfLODs levels of detail, where every level has triangleRatio times the number 
+    * of triangles of the previous level. The first level is used below DEFAULT_LOD_SIZE; since the number of
+    * triangles on screen scales with the projected area, the size for every next level is sqrt(triangleRatio) times smaller.
+    * Generation stops early when a mesh can not be simplified any further.
+    */
+   public void generateLODs(int nrOfLODs, float triangleRatio) {
+      if (gmesh == null || nrOfLODs <= 0) {
+         setLODs(null, null);
+         return;
+      }
+      ArrayList<GMesh> meshes = new ArrayList<GMesh>(nrOfLODs);
+      GMesh previous = gmesh;
+      for (int i = 0; i < nrOfLODs; i++) {
+         GMesh lod = previous.createLOD(triangleRatio);
+         if (lod == null || lod.getNrOfIndices() >= previous.getNrOfIndices() || lod.getNrOfIndices() == 0) break;
+         lod.setId(gmesh.getId() + "-lod" + (i+1));
+         meshes.add(lod);
+         previous = lod;
+      }
+      if (meshes.isEmpty()) {
+         setLODs(null, null);
+         return;
+      }
+      float[] sizes = new float[meshes.size()];
+      float sizeRatio = (float) Math.sqrt(triangleRatio);
+      sizes[0] = DEFAULT_LOD_SIZE;
+      for (int i = 1; i < sizes.length; i++) sizes[i] = sizes[i-1] * sizeRatio;
+      setLODs(meshes.toArray(new GMesh[meshes.size()]), sizes);
+   }
+    
    public void affineTransform(float[] mat4x4) { 
       logger.debug("GShape "+ name + ": affineTransform");
       if (gmesh != null) gmesh.affineTransform(mat4x4);
+      if (lodMeshes != null) {
+         for (GMesh lod : lodMeshes) lod.affineTransform(mat4x4);
+      }
    } 
     
    /**
@@ -202,7 +277,8 @@ public class GShape extends XMLStructureAdapter implements BinaryExternalizable,
    }  
       
    /**
-    * Writes a binary encoding to dataOut
+    * Writes a binary encoding to dataOut. Levels of detail are encoded by means of a flag in the mesh class code,
+    * so encodings without levels of detail are unchanged.
     */
    public void writeBinary(DataOutput dataOut) throws IOException { 
       dataOut.writeUTF(name);
@@ -210,10 +286,24 @@ public class GShape extends XMLStructureAdapter implements BinaryExternalizable,
       if (gmesh == null) {
          dataOut.writeInt(-1);
       } else {
-          dataOut.writeInt( (gmesh instanceof GSkinnedMesh) ? 2 : 1);
+          int lodFlag = (getNrOfLODs() > 0) ? LODS_FLAG : 0;
+          dataOut.writeInt( ((gmesh instanceof GSkinnedMesh) ? 2 : 1) + lodFlag);
           gmesh.writeBinary(dataOut);
+          if (lodFlag != 0) {
+             dataOut.writeInt(lodMeshes.length);
+             for (int i = 0; i < lodMeshes.length; i++) {
+                dataOut.writeFloat(lodSizes[i]);
+                dataOut.writeInt( (lodMeshes[i] instanceof GSkinnedMesh) ? 2 : 1);
+                lodMeshes[i].writeBinary(dataOut);
+             }
+          }
       } 
    }
+   
+   /* Allocates a GMesh or GSkinnedMesh, for the specified binary mesh class code */
+   private static GMesh newGMesh(int gmeshClass) {
+      return (gmeshClass == 1) ? new GMesh() : new GSkinnedMesh();
+   }
     
    /**
     * Reads a binary encoding from dataIn
@@ -222,15 +312,24 @@ public class GShape extends XMLStructureAdapter implements BinaryExternalizable,
       name = dataIn.readUTF().intern();
       gmaterial = BinUtil.readOptionalBinary(dataIn, GMaterial.class);
       int gmeshClass = dataIn.readInt();
+      lodMeshes = null;
+      lodSizes = null;
       if (gmeshClass < 0) {
          gmesh = null;
          return;
-      } else if (gmeshClass == 1) {
-         gmesh = new GMesh();
-      } else {
-         gmesh = new GSkinnedMesh();
-      }
+      } 
+      gmesh = newGMesh(gmeshClass & ~LODS_FLAG);
       gmesh.readBinary(dataIn);
+      if ((gmeshClass & LODS_FLAG) != 0) {
+         int nrOfLODs = dataIn.readInt();
+         lodMeshes = new GMesh[nrOfLODs];
+         lodSizes = new float[nrOfLODs];
+         for (int i = 0; i < nrOfLODs; i++) {
+            lodSizes[i] = dataIn.readFloat();
+            lodMeshes[i] = newGMesh(dataIn.readInt());
+            lodMeshes[i].readBinary(dataIn);
+         }
+      }
    }    
       
 } 
@@ -375,6 +375,116 @@ public class GSkinnedMesh extends GMesh implements BinaryExternalizable
 
     }
 
+    /**
+     * Returns a GSkinnedMesh with remapped copies of the vertex data and vertex weights, sharing the skeleton data of this GSkinnedMesh.
+     * Overrides remappedCopy from GMesh.
+     */
+    @Override
+    protected GMesh remappedCopy(int nrOfCopiedVertices, int[] map)
+    {
+        GSkinnedMesh copy = new GSkinnedMesh(super.remappedCopy(nrOfCopiedVertices, map));
+        copy.setId(getId());
+        copy.skeletonIds = skeletonIds;
+        copy.jointNames = jointNames;
+        copy.jointSIDs = jointSIDs;
+        copy.parentIndex = parentIndex;
+        copy.inverseBindMatrices = inverseBindMatrices;
+        copy.skeletonRoots = skeletonRoots;
+        copy.jointNodes = jointNodes;
+        if (vertexWeights != null)
+        {
+            copy.vertexWeights = new VertexWeights(vertexWeights.getJCounts(), vertexWeights.getJointIndices(), vertexWeights.getJointWeights());
+            copy.vertexWeights.remapData(nrOfCopiedVertices, map); // allocates new weight data
+        }
+        return copy;
+    }
+
+    /**
+     * Returns bounding spheres for the vertices influenced by each of the joints, 4 floats (centerX, centerY, centerZ, radius) per joint,
+     * in joint coordinates, i.e. after transformation by the inverse bind matrix of the joint. Vertex coordinates of morph targets are
+     * included. During animation, transforming the sphere for joint j by the global matrix of that joint yields a bounding sphere for its
+     * vertices, so the union of the transformed spheres bounds the skinned mesh. Joints that do not influence any vertex have radius -1.
+     * Returns null when vertex weights, inverse bind matrices, or vertex coordinates are missing.
+     */
+    public float[] calculateJointBoundingSpheres()
+    {
+        int size = getPositionSize();
+        if (vertexWeights == null || inverseBindMatrices == null || size < 0) return null;
+        int nrOfJoints = inverseBindMatrices.length;
+        int[] jcount = vertexWeights.getJCounts();
+        int[] jointIndices = vertexWeights.getJointIndices();
+        float[] jointWeights = vertexWeights.getJointWeights();
+        float[] box = new float[6 * nrOfJoints];
+        for (int j = 0; j < nrOfJoints; j++)
+        {
+            for (int k = 0; k < 3; k++)
+            {
+                box[6 * j + k] = Float.MAX_VALUE;
+                box[6 * j + k + 3] = -Float.MAX_VALUE;
+            }
+        }
+        float[] p = new float[3];
+        List<float[]> positionData = getPositionData();
+        for (int pass = 0; pass < 2; pass++) // pass 0: bounding boxes, pass 1: radii around the box centers
+        {
+            float[] spheres = (pass == 0) ? null : new float[4 * nrOfJoints];
+            if (spheres != null)
+            {
+                for (int j = 0; j < nrOfJoints; j++)
+                {
+                    for (int k = 0; k < 3; k++)
+                        spheres[4 * j + k] = 0.5f * (box[6 * j + k] + box[6 * j + k + 3]);
+                    spheres[4 * j + 3] = (box[6 * j] > box[6 * j + 3]) ? -1.0f : 0.0f;
+                }
+            }
+            for (float[] data : positionData)
+            {
+                int offset = 0;
+                for (int v = 0; v < jcount.length && size * v + 2 < data.length; v++)
+                {
+                    for (int i = offset; i < offset + jcount[v]; i++)
+                    {
+                        if (jointWeights[i] <= 0.0f) continue;
+                        int j = jointIndices[i];
+                        p[0] = data[size * v];
+                        p[1] = data[size * v + 1];
+                        p[2] = data[size * v + 2];
+                        Mat4f.transformPoint(inverseBindMatrices[j], p);
+                        if (spheres == null)
+                        {
+                            for (int k = 0; k < 3; k++)
+                            {
+                                box[6 * j + k] = Math.min(box[6 * j + k], p[k]);
+                                box[6 * j + k + 3] = Math.max(box[6 * j + k + 3], p[k]);
+                            }
+                        }
+                        else
+                        {
+                            float dx = p[0] - spheres[4 * j], dy = p[1] - spheres[4 * j + 1], dz = p[2] - spheres[4 * j + 2];
+                            spheres[4 * j + 3] = Math.max(spheres[4 * j + 3], (float) Math.sqrt(dx * dx + dy * dy + dz * dz));
+                        }
+                    }
+                    offset += jcount[v];
+                }
+            }
+            if (spheres != null) return spheres;
+        }
+        return null;
+    }
+
+    /**
+     * Reorders the vertex data, including the vertex weights. Overrides remapVertices from GMesh.
+     */
+    @Override
+    protected void remapVertices(int[] map)
+    {
+        super.remapVertices(map);
+        if (vertexWeights != null)
+        {
+            vertexWeights.remapData(getNrOfVertices(), map);
+        }
+    }
+
     /**
      * Resolves the skeleton root node(s) within the GNode scenegraph adds these root(s) to skelRootList.
      */
@@ -841,7 +951,7 @@ public class GSkinnedMesh extends GMesh implements BinaryExternalizable
                 for (int i = 0; i < count; i++)
                 {
                     tokenizer.takeSTag("matrix");
-                    decodeFloatArray(tokenizer.takeOptionalCharData(), inverseBindMatrices[i]);
+                    decodeFloatArray(tokenizer.takeOptionalCharDataSequence(), inverseBindMatrices[i]);
                     tokenizer.takeETag("matrix");
                 }
                 tokenizer.takeETag("inversebindmatrices");
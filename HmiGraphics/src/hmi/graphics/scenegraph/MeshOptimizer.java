@@ -0,0 +1,278 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.graphics.scenegraph;
+
+import java.util.Arrays;
+
+/**
+ * Reorders the index and vertex data of triangle meshes for the GPU. optimizeVertexCache reorders triangles with Tom Forsyth's
+ * linear-speed vertex cache optimization, so that consecutive triangles share vertices that are still present in the post-transform
+ * vertex cache. optimizeVertexFetch then renumbers vertices in order of first use, so that vertex data is fetched from memory sequentially.
+ * The ACMR (average cache miss ratio: transformed vertices per triangle) and ATVR (average transform to vertex ratio: transformed vertices
+ * per distinct vertex) measure the result, for a simulated FIFO cache.
+ */
+public final class MeshOptimizer
+{
+    /** Default size of the simulated vertex cache */
+    public static final int DEFAULT_CACHE_SIZE = 32;
+
+    private static final float CACHE_DECAY_POWER = 1.5f;
+    private static final float LAST_TRIANGLE_SCORE = 0.75f;
+    private static final float VALENCE_BOOST_SCALE = 2.0f;
+    private static final float VALENCE_BOOST_POWER = 0.5f;
+
+    /* No instances */
+    private MeshOptimizer()
+    {
+    }
+
+    /**
+     * Returns a new triangle index array, with the triangles from indices reordered for a vertex cache of DEFAULT_CACHE_SIZE vertices.
+     */
+    public static int[] optimizeVertexCache(int[] indices, int nrOfVertices)
+    {
+        return optimizeVertexCache(indices, nrOfVertices, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Returns a new triangle index array, with the triangles from indices reordered for a vertex cache of cacheSize vertices.
+     * The orientation of the triangles is not changed.
+     */
+    public static int[] optimizeVertexCache(int[] indices, int nrOfVertices, int cacheSize)
+    {
+        int nrOfTriangles = indices.length / 3;
+        // triangle adjacency per vertex, in compressed form: the triangles for vertex v are adjacency[adjOffset[v] .. adjOffset[v+1]-1]
+        int[] adjOffset = new int[nrOfVertices + 1];
+        for (int i = 0; i < 3 * nrOfTriangles; i++)
+        {
+            adjOffset[indices[i] + 1]++;
+        }
+        for (int v = 0; v < nrOfVertices; v++)
+        {
+            adjOffset[v + 1] += adjOffset[v];
+        }
+        int[] adjacency = new int[3 * nrOfTriangles];
+        int[] remaining = new int[nrOfVertices]; // nr of triangles not yet emitted, per vertex
+        for (int i = 0; i < 3 * nrOfTriangles; i++)
+        {
+            int v = indices[i];
+            adjacency[adjOffset[v] + remaining[v]] = i / 3;
+            remaining[v]++;
+        }
+
+        int[] cachePos = new int[nrOfVertices];
+        Arrays.fill(cachePos, -1);
+        float[] vertexScore = new float[nrOfVertices];
+        for (int v = 0; v < nrOfVertices; v++)
+        {
+            vertexScore[v] = score(-1, remaining[v], cacheSize);
+        }
+        float[] triangleScore = new float[nrOfTriangles];
+        for (int t = 0; t < nrOfTriangles; t++)
+        {
+            triangleScore[t] = vertexScore[indices[3 * t]] + vertexScore[indices[3 * t + 1]] + vertexScore[indices[3 * t + 2]];
+        }
+        boolean[] emitted = new boolean[nrOfTriangles];
+        int[] emitStamp = new int[nrOfVertices]; // emitStamp[v] == n + 1 iff v is a vertex of the n-th emitted triangle
+
+        int[] cache = new int[cacheSize + 3];
+        int[] newCache = new int[cacheSize + 3];
+        int cacheCount = 0;
+        int[] result = new int[3 * nrOfTriangles];
+        int scanPos = 0; // all triangles before scanPos have been emitted
+        int best = -1;
+        for (int n = 0; n < nrOfTriangles; n++)
+        {
+            if (best < 0)
+            { // no candidate from the cache: take the best scoring triangle that was not yet emitted
+                while (emitted[scanPos])
+                {
+                    scanPos++;
+                }
+                best = scanPos;
+                for (int t = scanPos + 1; t < nrOfTriangles; t++)
+                {
+                    if (!emitted[t] && triangleScore[t] > triangleScore[best]) best = t;
+                }
+            }
+            emitted[best] = true;
+            int newCount = 0;
+            for (int k = 0; k < 3; k++)
+            {
+                int v = indices[3 * best + k];
+                result[3 * n + k] = v;
+                // remove the emitted triangle from the adjacency of v
+                int end = adjOffset[v] + remaining[v] - 1;
+                for (int a = adjOffset[v]; a <= end; a++)
+                {
+                    if (adjacency[a] == best)
+                    {
+                        adjacency[a] = adjacency[end];
+                        break;
+                    }
+                }
+                remaining[v]--;
+                if (emitStamp[v] != n + 1) newCache[newCount++] = v; // degenerate triangles have duplicate vertices
+                emitStamp[v] = n + 1;
+            }
+            for (int c = 0; c < cacheCount; c++)
+            {
+                int v = cache[c];
+                if (emitStamp[v] != n + 1) newCache[newCount++] = v; // not one of the vertices of the emitted triangle
+            }
+            // update cache positions and vertex scores; vertices beyond cacheSize drop out of the cache
+            for (int c = 0; c < newCount; c++)
+            {
+                int v = newCache[c];
+                cachePos[v] = (c < cacheSize) ? c : -1;
+                vertexScore[v] = score(cachePos[v], remaining[v], cacheSize);
+            }
+            // update triangle scores for all triangles of vertices in the (old and new) cache, and pick the best one
+            best = -1;
+            float bestScore = -1.0f;
+            for (int c = 0; c < newCount; c++)
+            {
+                int v = newCache[c];
+                for (int a = adjOffset[v]; a < adjOffset[v] + remaining[v]; a++)
+                {
+                    int t = adjacency[a];
+                    float s = vertexScore[indices[3 * t]] + vertexScore[indices[3 * t + 1]] + vertexScore[indices[3 * t + 2]];
+                    triangleScore[t] = s;
+                    if (s > bestScore)
+                    {
+                        bestScore = s;
+                        best = t;
+                    }
+                }
+            }
+            cacheCount = Math.min(newCount, cacheSize);
+            int[] swap = cache;
+            cache = newCache;
+            newCache = swap;
+        }
+        return result;
+    }
+
+    /* Forsyth's vertex score, for a vertex at the specified cache position (or -1), with the specified nr of remaining triangles */
+    private static float score(int cachePosition, int remainingTriangles, int cacheSize)
+    {
+        if (remainingTriangles == 0) return -1.0f;
+        float s = 0.0f;
+        if (cachePosition >= 0)
+        {
+            if (cachePosition < 3)
+            {
+                s = LAST_TRIANGLE_SCORE;
+            }
+            else
+            {
+                float scaler = 1.0f / (cacheSize - 3);
+                s = (float) Math.pow(1.0f - (cachePosition - 3) * scaler, CACHE_DECAY_POWER);
+            }
+        }
+        s += VALENCE_BOOST_SCALE * (float) Math.pow(remainingTriangles, -VALENCE_BOOST_POWER);
+        return s;
+    }
+
+    /**
+     * Renumbers vertices in order of first occurrence within indices, which is modified in place. Vertices that are not referenced
+     * keep their relative order, after all referenced vertices. The result is the vertex map: new vertex i is old vertex map[i],
+     * as required for VertexAttribute and VertexWeights remapping.
+     */
+    public static int[] optimizeVertexFetch(int[] indices, int nrOfVertices)
+    {
+        int[] newIndex = new int[nrOfVertices];
+        Arrays.fill(newIndex, -1);
+        int[] map = new int[nrOfVertices];
+        int count = 0;
+        for (int i = 0; i < indices.length; i++)
+        {
+            int v = indices[i];
+            if (newIndex[v] < 0)
+            {
+                newIndex[v] = count;
+                map[count] = v;
+                count++;
+            }
+            indices[i] = newIndex[v];
+        }
+        for (int v = 0; v < nrOfVertices; v++)
+        {
+            if (newIndex[v] < 0)
+            {
+                map[count] = v;
+                count++;
+            }
+        }
+        return map;
+    }
+
+    /* Returns the nr of cache misses, for a FIFO cache of cacheSize vertices */
+    private static int cacheMisses(int[] indices, int nrOfVertices, int cacheSize)
+    {
+        int[] timeStamp = new int[nrOfVertices]; // the nr of misses, including its own, when the vertex entered the cache
+        int misses = 0;
+        for (int i = 0; i < indices.length; i++)
+        {
+            int v = indices[i];
+            if (timeStamp[v] == 0 || misses - timeStamp[v] >= cacheSize)
+            {
+                misses++;
+                timeStamp[v] = misses;
+            }
+        }
+        return misses;
+    }
+
+    /**
+     * Returns the average cache miss ratio, i.e. the average number of vertex transforms per triangle, for a FIFO cache
+     * of cacheSize vertices. The value lies between 0.5 (ideal, for large meshes) and 3.
+     */
+    public static float calculateACMR(int[] indices, int nrOfVertices, int cacheSize)
+    {
+        int nrOfTriangles = indices.length / 3;
+        if (nrOfTriangles == 0) return 0.0f;
+        return (float) cacheMisses(indices, nrOfVertices, cacheSize) / nrOfTriangles;
+    }
+
+    /**
+     * Returns the average transform to vertex ratio, i.e. the average number of transforms per referenced vertex, for a FIFO cache
+     * of cacheSize vertices. The value is 1 for an ideal ordering.
+     */
+    public static float calculateATVR(int[] indices, int nrOfVertices, int cacheSize)
+    {
+        boolean[] referenced = new boolean[nrOfVertices];
+        int nrOfReferenced = 0;
+        for (int i = 0; i < indices.length; i++)
+        {
+            if (!referenced[indices[i]])
+            {
+                referenced[indices[i]] = true;
+                nrOfReferenced++;
+            }
+        }
+        if (nrOfReferenced == 0) return 0.0f;
+        return (float) cacheMisses(indices, nrOfVertices, cacheSize) / nrOfReferenced;
+    }
+}
@@ -0,0 +1,345 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.graphics.scenegraph;
+
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+/**
+ * Simplifies triangle meshes by means of quadric error edge collapses (Garland and Heckbert). Collapses are half-edge collapses:
+ * a vertex is removed by moving it onto one of its neighbours, so the remaining vertices keep their original data. As a result, the
+ * simplified mesh refers to a subset of the original vertices, and all vertex attributes, vertex weights, and morph target data
+ * remain valid without interpolation. Vertices on a boundary edge, i.e. an edge with only one adjacent triangle, are never removed;
+ * since index unification duplicates vertices along texture and normal seams, this also keeps seams intact.
+ */
+public final class MeshSimplifier
+{
+    private static final int QUADRIC_SIZE = 10; // symmetric 4x4 matrix: a2 ab ac ad b2 bc bd c2 cd d2
+
+    private final float[] positions;
+    private final int[] indices; // triangle indices, modified by collapses
+    private final boolean[] triangleRemoved;
+    private int nrOfTriangles;
+
+    private final int[][] vertexTriangles; // for every vertex, the triangles that (used to) contain it
+    private final int[] vertexTriangleCount;
+    private final double[] quadrics;
+    private final boolean[] locked;
+    private final boolean[] removed;
+    private final int[] version; // incremented whenever the collapse candidate of a vertex is recalculated
+    private final PriorityQueue<Candidate> queue = new PriorityQueue<Candidate>();
+
+    /* A collapse of vertex onto target, valid as long as the version of vertex has not changed */
+    private static final class Candidate implements Comparable<Candidate>
+    {
+        final double cost;
+        final int vertex;
+        final int target;
+        final int version;
+
+        Candidate(double cost, int vertex, int target, int version)
+        {
+            this.cost = cost;
+            this.vertex = vertex;
+            this.target = target;
+            this.version = version;
+        }
+
+        @Override
+        public int compareTo(Candidate other)
+        {
+            return Double.compare(cost, other.cost);
+        }
+    }
+
+    private MeshSimplifier(int[] indices, float[] positions, int positionSize, int nrOfVertices)
+    {
+        this.indices = indices.clone();
+        this.positions = new float[3 * nrOfVertices];
+        for (int v = 0; v < nrOfVertices; v++)
+        {
+            for (int k = 0; k < 3; k++)
+                this.positions[3 * v + k] = positions[positionSize * v + k];
+        }
+        nrOfTriangles = indices.length / 3;
+        triangleRemoved = new boolean[nrOfTriangles];
+        vertexTriangleCount = new int[nrOfVertices];
+        for (int i = 0; i < 3 * nrOfTriangles; i++)
+        {
+            vertexTriangleCount[indices[i]]++;
+        }
+        vertexTriangles = new int[nrOfVertices][];
+        for (int v = 0; v < nrOfVertices; v++)
+        {
+            vertexTriangles[v] = new int[vertexTriangleCount[v]];
+            vertexTriangleCount[v] = 0;
+        }
+        for (int i = 0; i < 3 * nrOfTriangles; i++)
+        {
+            int v = indices[i];
+            vertexTriangles[v][vertexTriangleCount[v]++] = i / 3;
+        }
+        quadrics = new double[QUADRIC_SIZE * nrOfVertices];
+        locked = new boolean[nrOfVertices];
+        removed = new boolean[nrOfVertices];
+        version = new int[nrOfVertices];
+    }
+
+    /**
+     * Returns a new triangle index array for a simplified version of the mesh defined by indices and positions, with at most
+     * targetTriangles triangles, if possible. positions contains positionSize floats per vertex, of which the first three are used.
+     * Simplification stops earlier when the next collapse would have a quadric error above maxError; the error is a sum of squared
+     * distances to the original triangle planes, weighted by twice the triangle areas.
+     * The result refers to the same vertices as indices; vertices that are no longer referenced can be removed afterwards.
+     */
+    public static int[] simplify(int[] indices, float[] positions, int positionSize, int nrOfVertices, int targetTriangles, float maxError)
+    {
+        MeshSimplifier simplifier = new MeshSimplifier(indices, positions, positionSize, nrOfVertices);
+        simplifier.initQuadrics();
+        simplifier.lockBoundaryVertices();
+        for (int v = 0; v < nrOfVertices; v++)
+        {
+            simplifier.updateCandidate(v);
+        }
+        simplifier.collapse(targetTriangles, maxError);
+        return simplifier.remainingIndices();
+    }
+
+    /* Accumulates the area weighted plane quadric of every triangle in the quadrics of its vertices */
+    private void initQuadrics()
+    {
+        float[] n = new float[3];
+        for (int t = 0; t < nrOfTriangles; t++)
+        {
+            int a = indices[3 * t], b = indices[3 * t + 1], c = indices[3 * t + 2];
+            double area = normal(a, b, c, null, 0, n); // n is normalized, area is twice the triangle area
+            if (area == 0.0) continue;
+            double d = -(n[0] * positions[3 * a] + n[1] * positions[3 * a + 1] + n[2] * positions[3 * a + 2]);
+            double[] q = { n[0] * n[0], n[0] * n[1], n[0] * n[2], n[0] * d, n[1] * n[1], n[1] * n[2], n[1] * d, n[2] * n[2], n[2] * d, d * d };
+            for (int k = 0; k < 3; k++)
+            {
+                int offset = QUADRIC_SIZE * indices[3 * t + k];
+                for (int i = 0; i < QUADRIC_SIZE; i++)
+                    quadrics[offset + i] += area * q[i];
+            }
+        }
+    }
+
+    /* Locks all vertices on edges that do not have exactly two adjacent triangles */
+    private void lockBoundaryVertices()
+    {
+        HashMap<Long, Integer> edgeCount = new HashMap<Long, Integer>();
+        for (int t = 0; t < nrOfTriangles; t++)
+        {
+            for (int k = 0; k < 3; k++)
+            {
+                Long key = edgeKey(indices[3 * t + k], indices[3 * t + (k + 1) % 3]);
+                Integer count = edgeCount.get(key);
+                edgeCount.put(key, (count == null) ? 1 : count + 1);
+            }
+        }
+        for (int t = 0; t < nrOfTriangles; t++)
+        {
+            for (int k = 0; k < 3; k++)
+            {
+                int a = indices[3 * t + k];
+                int b = indices[3 * t + (k + 1) % 3];
+                if (edgeCount.get(edgeKey(a, b)) != 2)
+                {
+                    locked[a] = true;
+                    locked[b] = true;
+                }
+            }
+        }
+    }
+
+    private static Long edgeKey(int a, int b)
+    {
+        return (a < b) ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+
+    /* Evaluates the quadric error of the combined quadrics of u and v, at the position of v */
+    private double collapseCost(int u, int v)
+    {
+        double x = positions[3 * v], y = positions[3 * v + 1], z = positions[3 * v + 2];
+        int ou = QUADRIC_SIZE * u, ov = QUADRIC_SIZE * v;
+        double[] q = quadrics;
+        double a2 = q[ou] + q[ov], ab = q[ou + 1] + q[ov + 1], ac = q[ou + 2] + q[ov + 2], ad = q[ou + 3] + q[ov + 3];
+        double b2 = q[ou + 4] + q[ov + 4], bc = q[ou + 5] + q[ov + 5], bd = q[ou + 6] + q[ov + 6];
+        double c2 = q[ou + 7] + q[ov + 7], cd = q[ou + 8] + q[ov + 8], d2 = q[ou + 9] + q[ov + 9];
+        return a2 * x * x + 2 * ab * x * y + 2 * ac * x * z + 2 * ad * x + b2 * y * y + 2 * bc * y * z + 2 * bd * y + c2 * z * z + 2 * cd * z
+                + d2;
+    }
+
+    /* Determines the cheapest valid collapse for vertex u, and adds it to the queue */
+    private void updateCandidate(int u)
+    {
+        version[u]++;
+        if (locked[u] || removed[u]) return;
+        double bestCost = Double.MAX_VALUE;
+        int bestTarget = -1;
+        int[] tris = vertexTriangles[u];
+        for (int i = 0; i < vertexTriangleCount[u]; i++)
+        {
+            int t = tris[i];
+            if (triangleRemoved[t]) continue;
+            for (int k = 0; k < 3; k++)
+            {
+                int v = indices[3 * t + k];
+                if (v == u) continue;
+                double cost = collapseCost(u, v);
+                if (cost < bestCost && isValidCollapse(u, v))
+                {
+                    bestCost = cost;
+                    bestTarget = v;
+                }
+            }
+        }
+        if (bestTarget >= 0) queue.add(new Candidate(bestCost, u, bestTarget, version[u]));
+    }
+
+    private final float[] oldNormal = new float[3];
+    private final float[] newNormal = new float[3];
+    private final float[] moved = new float[3];
+
+    /* A collapse of u onto v is valid when none of the remaining triangles around u flips or degenerates */
+    private boolean isValidCollapse(int u, int v)
+    {
+        moved[0] = positions[3 * v];
+        moved[1] = positions[3 * v + 1];
+        moved[2] = positions[3 * v + 2];
+        int[] tris = vertexTriangles[u];
+        for (int i = 0; i < vertexTriangleCount[u]; i++)
+        {
+            int t = tris[i];
+            if (triangleRemoved[t]) continue;
+            int a = indices[3 * t], b = indices[3 * t + 1], c = indices[3 * t + 2];
+            if (a == v || b == v || c == v) continue; // removed by the collapse
+            if (normal(a, b, c, null, 0, oldNormal) == 0.0) continue;
+            // the same triangle, with u moved to the position of v:
+            if (normal(a == u ? -1 : a, b == u ? -1 : b, c == u ? -1 : c, moved, 0, newNormal) == 0.0) return false;
+            if (oldNormal[0] * newNormal[0] + oldNormal[1] * newNormal[1] + oldNormal[2] * newNormal[2] < 0.2f) return false;
+        }
+        return true;
+    }
+
+    /*
+     * Calculates the unit normal for triangle (a, b, c), and returns twice the triangle area. A vertex index of -1 denotes the
+     * position alt[altOffset .. altOffset+2] instead of a position from the positions array.
+     */
+    private float normal(int a, int b, int c, float[] alt, int altOffset, float[] n)
+    {
+        float[] pa = (a < 0) ? alt : positions, pb = (b < 0) ? alt : positions, pc = (c < 0) ? alt : positions;
+        int oa = (a < 0) ? altOffset : 3 * a, ob = (b < 0) ? altOffset : 3 * b, oc = (c < 0) ? altOffset : 3 * c;
+        float e1x = pb[ob] - pa[oa], e1y = pb[ob + 1] - pa[oa + 1], e1z = pb[ob + 2] - pa[oa + 2];
+        float e2x = pc[oc] - pa[oa], e2y = pc[oc + 1] - pa[oa + 1], e2z = pc[oc + 2] - pa[oa + 2];
+        n[0] = e1y * e2z - e1z * e2y;
+        n[1] = e1z * e2x - e1x * e2z;
+        n[2] = e1x * e2y - e1y * e2x;
+        float len = (float) Math.sqrt(n[0] * n[0] + n[1] * n[1] + n[2] * n[2]);
+        if (len == 0.0f) return 0.0f;
+        n[0] /= len;
+        n[1] /= len;
+        n[2] /= len;
+        return len;
+    }
+
+    /* Performs collapses, cheapest first, until the target is reached or the error becomes too large */
+    private void collapse(int targetTriangles, float maxError)
+    {
+        while (nrOfTriangles > targetTriangles && !queue.isEmpty())
+        {
+            Candidate candidate = queue.poll();
+            int u = candidate.vertex;
+            int v = candidate.target;
+            if (candidate.version != version[u] || removed[u] || removed[v]) continue;
+            if (candidate.cost > maxError) break;
+            int[] tris = vertexTriangles[u];
+            for (int i = 0; i < vertexTriangleCount[u]; i++)
+            {
+                int t = tris[i];
+                if (triangleRemoved[t]) continue;
+                int a = indices[3 * t], b = indices[3 * t + 1], c = indices[3 * t + 2];
+                if (a == v || b == v || c == v)
+                {
+                    triangleRemoved[t] = true;
+                    nrOfTriangles--;
+                }
+                else
+                {
+                    for (int k = 0; k < 3; k++)
+                    {
+                        if (indices[3 * t + k] == u) indices[3 * t + k] = v;
+                    }
+                    addVertexTriangle(v, t);
+                }
+            }
+            removed[u] = true;
+            version[u]++;
+            for (int i = 0; i < QUADRIC_SIZE; i++)
+                quadrics[QUADRIC_SIZE * v + i] += quadrics[QUADRIC_SIZE * u + i];
+            // the candidates of v and of all its neighbours may have changed
+            updateCandidate(v);
+            int[] vtris = vertexTriangles[v];
+            for (int i = 0; i < vertexTriangleCount[v]; i++)
+            {
+                int t = vtris[i];
+                if (triangleRemoved[t]) continue;
+                for (int k = 0; k < 3; k++)
+                {
+                    int w = indices[3 * t + k];
+                    if (w != v) updateCandidate(w);
+                }
+            }
+        }
+    }
+
+    private void addVertexTriangle(int v, int t)
+    {
+        int count = vertexTriangleCount[v];
+        if (count == vertexTriangles[v].length)
+        {
+            int[] grown = new int[2 * count + 4];
+            System.arraycopy(vertexTriangles[v], 0, grown, 0, count);
+            vertexTriangles[v] = grown;
+        }
+        vertexTriangles[v][count] = t;
+        vertexTriangleCount[v] = count + 1;
+    }
+
+    /* The indices of all remaining triangles, in their original order */
+    private int[] remainingIndices()
+    {
+        int[] result = new int[3 * nrOfTriangles];
+        int n = 0;
+        for (int t = 0; t < triangleRemoved.length; t++)
+        {
+            if (triangleRemoved[t]) continue;
+            result[n++] = indices[3 * t];
+            result[n++] = indices[3 * t + 1];
+            result[n++] = indices[3 * t + 2];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.graphics.scenegraph;
+
+/**
+ * A sparse morph target: the list of vertices that are actually displaced by the target, together with their displacement relative to the base
+ * mesh. Facial blend shapes typically move only a small fraction of all vertices, so applying a MorphDelta costs time proportional to the
+ * number of displaced vertices rather than to the size of the mesh.
+ */
+public final class MorphDelta
+{
+    private final int valueSize; // nr of floats per vertex, typically 3
+    private final int[] vertexIndices; // indices of the displaced vertices
+    private final float[] deltas; // valueSize floats per displaced vertex: target value minus base value
+
+    /**
+     * Creates a new MorphDelta from explicit vertex indices and deltas; deltas should contain valueSize floats for every vertex index.
+     */
+    public MorphDelta(int valueSize, int[] vertexIndices, float[] deltas)
+    {
+        if (deltas.length != valueSize * vertexIndices.length)
+        {
+            throw new IllegalArgumentException("MorphDelta: " + deltas.length + " deltas for " + vertexIndices.length + " vertices of size "
+                    + valueSize);
+        }
+        this.valueSize = valueSize;
+        this.vertexIndices = vertexIndices;
+        this.deltas = deltas;
+    }
+
+    /**
+     * Derives a MorphDelta from dense base and target vertex data, both with valueSize floats per vertex. Only vertices for which the target
+     * differs from the base are included. A null target yields an empty MorphDelta.
+     */
+    public static MorphDelta fromTargetData(float[] baseData, float[] targetData, int valueSize)
+    {
+        if (targetData == null)
+        {
+            return new MorphDelta(valueSize, new int[0], new float[0]);
+        }
+        if (targetData.length != baseData.length)
+        {
+            throw new IllegalArgumentException("MorphDelta: target data length " + targetData.length + " differs from base data length "
+                    + baseData.length);
+        }
+        int nrOfVertices = baseData.length / valueSize;
+        int count = 0;
+        for (int v = 0; v < nrOfVertices; v++)
+        {
+            if (differs(baseData, targetData, v * valueSize, valueSize)) count++;
+        }
+        int[] indices = new int[count];
+        float[] deltas = new float[count * valueSize];
+        int di = 0;
+        for (int v = 0; v < nrOfVertices; v++)
+        {
+            int offset = v * valueSize;
+            if (differs(baseData, targetData, offset, valueSize))
+            {
+                indices[di] = v;
+                for (int k = 0; k < valueSize; k++)
+                {
+                    deltas[di * valueSize + k] = targetData[offset + k] - baseData[offset + k];
+                }
+                di++;
+            }
+        }
+        return new MorphDelta(valueSize, indices, deltas);
+    }
+
+    private static boolean differs(float[] baseData, float[] targetData, int offset, int valueSize)
+    {
+        for (int k = 0; k < valueSize; k++)
+        {
+            if (targetData[offset + k] != baseData[offset + k]) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds weight times the deltas to the displaced vertices within dest.
+     */
+    public void addTo(float[] dest, float weight)
+    {
+        if (weight == 0.0f) return;
+        int di = 0;
+        for (int i = 0; i < vertexIndices.length; i++)
+        {
+            int offset = vertexIndices[i] * valueSize;
+            for (int k = 0; k < valueSize; k++)
+            {
+                dest[offset + k] += weight * deltas[di++];
+            }
+        }
+    }
+
+    /**
+     * Returns the number of floats per vertex.
+     */
+    public int getValueSize()
+    {
+        return valueSize;
+    }
+
+    /**
+     * Returns the number of displaced vertices.
+     */
+    public int getNrOfVertices()
+    {
+        return vertexIndices.length;
+    }
+
+    /**
+     * Returns the (shared, not copied) indices of the displaced vertices.
+     */
+    public int[] getVertexIndices()
+    {
+        return vertexIndices;
+    }
+
+    /**
+     * Returns the (shared, not copied) deltas, valueSize floats per displaced vertex.
+     */
+    public float[] getDeltas()
+    {
+        return deltas;
+    }
+}
@@ -463,7 +463,7 @@ public class VertexAttribute extends XMLStructureAdapter implements BinaryExtern
     */
    @Override
    public void decodeContent(XMLTokenizer tokenizer) throws IOException {
-      vertexData = decodeFloatArray(tokenizer.takeCharData());
+      vertexData = decodeFloatArray(tokenizer.takeCharDataSequence());
    }
 
  
@@ -295,20 +295,20 @@ public class VertexWeights extends XMLStructureAdapter implements BinaryExternal
             int count = getRequiredIntAttribute("count", tokenizer.getAttributes(), tokenizer);
             int[] jc = new int[count];
             tokenizer.takeSTag("jcount");
-            decodeIntArray(tokenizer.takeOptionalCharData(), jc);
+            decodeIntArray(tokenizer.takeOptionalCharDataSequence(), jc);
             setJCounts(jc);
             tokenizer.takeETag("jcount");
          } else if (tag.equals("jointindices")) {
             int count = getRequiredIntAttribute("count", tokenizer.getAttributes(), tokenizer);
             jointIndices = new int[count];
             tokenizer.takeSTag("jointindices");
-            decodeIntArray(tokenizer.takeOptionalCharData(), jointIndices);
+            decodeIntArray(tokenizer.takeOptionalCharDataSequence(), jointIndices);
             tokenizer.takeETag("jointindices");
          } else if (tag.equals("jointweights")) {
             int count = getRequiredIntAttribute("count", tokenizer.getAttributes(), tokenizer);
             jointWeights = new float[count];
             tokenizer.takeSTag("jointweights");
-            decodeFloatArray(tokenizer.takeOptionalCharData(), jointWeights);
+            decodeFloatArray(tokenizer.takeOptionalCharDataSequence(), jointWeights);
             tokenizer.takeETag("jointweights");
          } else {
             logger.warn(tokenizer.getErrorMessage("VertexWeights: skip : " + tokenizer.getTagName()));
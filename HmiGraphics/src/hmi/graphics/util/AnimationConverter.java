@@ -282,6 +282,7 @@ public class AnimationConverter
         {
             File inFile = new File(infileName);
             XMLTokenizer tk = new XMLTokenizer(inFile);
+            tk.setBlockReading(true);
             SkeletonInterpolator ski = new SkeletonInterpolator(tk);
             // tk.closeReader();
             SkeletonInterpolator adaptedSki = adaptSkeletonInterpolator(ski);
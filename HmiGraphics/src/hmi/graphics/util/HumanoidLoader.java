@@ -104,6 +104,7 @@ public final class HumanoidLoader
         renameRoot(id);
         // the avatarAnimationRootJoint is not important here; it could be null!
         avatarRenderNode = new VGLNode(avatarAnimationRootJoint, glScene.getGLShapeList());
+        avatarRenderNode.setRenderQueue(glScene.getRenderQueue());
         afterLoad();
     }
     
@@ -32,14 +32,25 @@ import hmi.graphics.opengl.scenegraph.VGLNode;
 import hmi.graphics.scenegraph.GNode;
 import hmi.graphics.scenegraph.GScene;
 import hmi.graphics.scenegraph.Skeletons;
+import hmi.util.BlockDataInput;
+import hmi.util.BlockDataOutput;
+import hmi.util.ByteBufferInputStream;
 
-import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -64,8 +75,91 @@ public final class SceneIO
     public static final String BLUEGUY = "BLUEGUY";
     public static final String NONE = "NONE";
 
+    /** The original binary format, with arrays encoded element by element */
+    public static final int BINARY_V1 = 1;
+    /** The block binary format, with arrays encoded as aligned little endian blocks, see BlockDataOutput */
+    public static final int BINARY_V2 = BlockDataOutput.VERSION;
+
+    /** System property for the scene cache directory, which enables the cache; the value "none" disables it */
+    public static final String SCENE_CACHE_PROPERTY = "hmi.graphics.scenecache";
+    /* Part of every cache key, to be incremented when cached scenes from older versions are no longer valid */
+    private static final int SCENE_CACHE_VERSION = 2;
+
     private static boolean throwExceptions = false;
 
+    private static volatile boolean optimizeMeshes = false;
+
+    private static volatile int nrOfLODs = 0;
+    private static volatile float lodTriangleRatio = 0.5f;
+
+    private static File sceneCacheDir = defaultSceneCacheDirectory();
+
+    /* The directory from the SCENE_CACHE_PROPERTY, or else null: the cache is off by default */
+    private static File defaultSceneCacheDirectory()
+    {
+        String dir = System.getProperty(SCENE_CACHE_PROPERTY);
+        if (dir == null || dir.equals("") || dir.equalsIgnoreCase("none")) return null;
+        return new File(dir);
+    }
+
+    /**
+     * Sets the directory for the scene cache. When reading a Collada file, readGScene first looks in this directory
+     * for a binary version of the resulting GScene, including postprocessing and bind pose adjustment. Cache files
+     * are keyed by a hash of the Collada file contents and the processing options, so a modified Collada file
+     * is translated again, and the result is cached anew. Only the most recently written entry is kept for every
+     * Collada file name, so entries for older contents or other options are removed. A null directory disables the cache.
+     * The cache is disabled by default, unless the hmi.graphics.scenecache system property specifies a directory.
+     */
+    public static void setSceneCacheDirectory(File dir)
+    {
+        sceneCacheDir = dir;
+    }
+
+    /**
+     * Returns the scene cache directory, or null when the cache is disabled.
+     */
+    public static File getSceneCacheDirectory()
+    {
+        return sceneCacheDir;
+    }
+
+    /**
+     * When set, the index and vertex order of all meshes is optimized for the GPU vertex cache, see GScene.optimizeMeshes.
+     * This is applied to scenes translated from Collada files, before they are cached. Scenes passed to writeGScene are not
+     * modified; call GScene.optimizeMeshes explicitly before writing, for optimized binary files. The default is false.
+     */
+    public static void setOptimizeMeshes(boolean optimize)
+    {
+        optimizeMeshes = optimize;
+    }
+
+    /**
+     * Returns whether meshes are optimized when reading Collada files.
+     */
+    public static boolean isOptimizeMeshes()
+    {
+        return optimizeMeshes;
+    }
+
+    /**
+     * Sets the number of levels of detail that are generated for scenes translated from Collada files, before they are cached,
+     * where every level has triangleRatio times the number of triangles of the previous one. See GScene.generateLODs.
+     * The levels of detail are included in binary files. The default is 0, i.e. no levels of detail.
+     */
+    public static void setLODGeneration(int lods, float triangleRatio)
+    {
+        lodTriangleRatio = triangleRatio;
+        nrOfLODs = lods;
+    }
+
+    /**
+     * Returns the number of levels of detail that are generated for scenes translated from Collada files.
+     */
+    public static int getNrOfLODs()
+    {
+        return nrOfLODs;
+    }
+
     /**
      * Sets the status of &quot;throwExceptions&quot;
      * When false (the default) IOExceptions are caught and logged, and null results are returned.
@@ -147,15 +241,24 @@ public final class SceneIO
      * Reads a GScene from the specified file.
      * postProcess can be one of the predefined processing modes, for setting HAnim poses.
      * The file type, derived from the postfix, determines whether to read a Collada file
-     * (.dae or .DAE) or a binaray file (.bin)
+     * (.dae or .DAE) or a binaray file (.bin). Both binary versions are recognized; binary files
+     * that reside in the file system are memory mapped. The result of reading a Collada file is
+     * cached, see setSceneCacheDirectory.
      */
     public static GScene readGScene(String file, String postProcess, boolean adjustBindPoses)
     {
         GScene gscene = null;
+        String cacheKey = null;
         try
         {
             if (file.endsWith(".dae") || file.endsWith(".DAE"))
             {
+                if (sceneCacheDir != null)
+                {
+                    cacheKey = sceneCacheKey(file, postProcess, adjustBindPoses);
+                    GScene cached = readSceneCache(cacheKey);
+                    if (cached != null) return cached;
+                }
                 Collada col = null;
                 if (file.startsWith("file:"))
                 {
@@ -167,29 +270,12 @@ public final class SceneIO
                 }
                 if (col == null) throw new RuntimeException("SceneIO.readGScene: null Collada input");
                 gscene = ColladaTranslator.colladaToGSkinnedMeshScene(col, adjustBindPoses);
+                if (optimizeMeshes) gscene.optimizeMeshes();
 
             }
             else if (file.endsWith(".bin"))
             {
-                InputStream inps = null;
-                if (file.startsWith("file:"))
-                {
-                    URL url = new URL(file);
-                    inps = url.openStream();
-                }
-                else
-                {
-                    inps = hmi.graphics.util.SceneIO.class.getClassLoader().getResourceAsStream(file);
-                }
-
-                if (inps == null) throw new RuntimeException("SceneIO.readGScene: null binary input");
-                DataInputStream dataIn = new DataInputStream(new BufferedInputStream(inps));
-                // DataInputStream dataIn = new DataInputStream(inps);
-                gscene = new GScene("");
-                gscene.readBinary(dataIn);
-                dataIn.close();
-                gscene.collectSkinnedMeshes();
-                gscene.resolveSkinnedMeshJoints(); // resolve skeleton roots and skeleton joints
+                gscene = readBinaryGScene(readBinaryData(file));
             }
             else
             {
@@ -234,23 +320,264 @@ public final class SceneIO
         }
 
         gscene.calculateVJointMatrices(); // needed
+        if (nrOfLODs > 0 && (file.endsWith(".dae") || file.endsWith(".DAE"))) gscene.generateLODs(nrOfLODs, lodTriangleRatio);
+        if (cacheKey != null) writeSceneCache(cacheKey, gscene);
+        return gscene;
+    }
+
+    /* Reads a GScene from a binary encoding, version 1 or version 2 */
+    private static GScene readBinaryGScene(ByteBuffer data) throws IOException
+    {
+        DataInputStream dataIn = null;
+        if (BlockDataInput.isBlockData(data))
+        {
+            dataIn = new BlockDataInput(data); // version 2
+        }
+        else
+        {
+            dataIn = new DataInputStream(new ByteBufferInputStream(data)); // version 1
+        }
+        return readBinaryGScene(dataIn, "");
+    }
+
+    /* Reads a GScene, with the specified id, from dataIn, and closes dataIn */
+    private static GScene readBinaryGScene(DataInputStream dataIn, String id) throws IOException
+    {
+        GScene gscene = new GScene(id);
+        gscene.readBinary(dataIn);
+        dataIn.close();
+        gscene.collectSkinnedMeshes();
+        gscene.resolveSkinnedMeshJoints(); // resolve skeleton roots and skeleton joints
         return gscene;
     }
 
+    /*
+     * Returns the cache key for a Collada file: the file name, followed by a SHA-1 hash of the file contents,
+     * the processing options, and the cache format version.
+     */
+    private static String sceneCacheKey(String file, String postProcess, boolean adjustBindPoses) throws IOException
+    {
+        URL url = resolveURL(file);
+        if (url == null) throw new RuntimeException("SceneIO.readGScene: null Collada input");
+        MessageDigest digest = null;
+        try
+        {
+            digest = MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IOException("SceneIO: " + e);
+        }
+        InputStream inps = url.openStream();
+        try
+        {
+            byte[] chunk = new byte[65536];
+            int n;
+            while ((n = inps.read(chunk)) > 0)
+            {
+                digest.update(chunk, 0, n);
+            }
+        }
+        finally
+        {
+            inps.close();
+        }
+        String options = "|" + postProcess + "|" + adjustBindPoses + "|" + optimizeMeshes + "|" + nrOfLODs + "|" + lodTriangleRatio + "|" + BINARY_V2 + "|" + SCENE_CACHE_VERSION;
+        digest.update(options.getBytes("UTF-8"));
+        StringBuilder key = new StringBuilder();
+        String baseName = file.substring(Math.max(file.lastIndexOf('/'), file.lastIndexOf('\\')) + 1);
+        key.append(baseName.replaceAll("[^A-Za-z0-9_.-]", "_")).append('-');
+        for (byte b : digest.digest())
+        {
+            key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return key.toString();
+    }
+
+    /*
+     * Returns the cached GScene for the specified key, or null when it is not (or not validly) cached.
+     * Invalid cache files are removed. A cache file is a version 2 binary file, where the GScene binary encoding
+     * is preceded by the GScene id, which is not part of that encoding.
+     */
+    private static GScene readSceneCache(String cacheKey)
+    {
+        File cacheFile = new File(sceneCacheDir, cacheKey + ".bin");
+        if (!cacheFile.isFile()) return null;
+        try
+        {
+            ByteBuffer data = readBinaryData(cacheFile.toURI().toURL().toString());
+            if (!BlockDataInput.isBlockData(data)) throw new IOException("not a version 2 binary scene");
+            BlockDataInput dataIn = new BlockDataInput(data);
+            String id = dataIn.readUTF();
+            GScene gscene = readBinaryGScene(dataIn, id);
+            gscene.calculateVJointMatrices();
+            return gscene;
+        }
+        catch (Exception e)
+        {
+            logger.warn("SceneIO: removing invalid scene cache file " + cacheFile + ": " + e);
+            if (!cacheFile.delete()) logger.warn("SceneIO: could not remove " + cacheFile);
+            return null;
+        }
+    }
+
+    /*
+     * Writes the GScene to the cache. The file is written under a temporary name first, and then renamed,
+     * so concurrent readers never see a partially written cache file. Other entries for the same file name are removed.
+     */
+    private static void writeSceneCache(String cacheKey, GScene gscene)
+    {
+        File cacheFile = new File(sceneCacheDir, cacheKey + ".bin");
+        File tmpFile = null;
+        try
+        {
+            if (!sceneCacheDir.isDirectory() && !sceneCacheDir.mkdirs())
+            {
+                logger.warn("SceneIO: could not create scene cache directory " + sceneCacheDir);
+                return;
+            }
+            tmpFile = File.createTempFile(cacheKey, ".tmp", sceneCacheDir);
+            BlockDataOutput outps = new BlockDataOutput();
+            outps.writeUTF(gscene.getId());
+            gscene.writeBinary(outps);
+            outps.writeTo(tmpFile);
+            if (!tmpFile.renameTo(cacheFile))
+            {
+                cacheFile.delete();
+                if (!tmpFile.renameTo(cacheFile))
+                {
+                    logger.warn("SceneIO: could not write scene cache file " + cacheFile);
+                    return;
+                }
+            }
+            removeStaleSceneCacheEntries(cacheKey);
+        }
+        catch (Exception e)
+        {
+            logger.warn("SceneIO: could not write scene cache file " + cacheFile + ": " + e);
+        }
+        finally
+        {
+            if (tmpFile != null && tmpFile.exists()) tmpFile.delete();
+        }
+    }
+
+    /*
+     * Removes the cache files with the same file name part as cacheKey, but another hash, i.e. those for older
+     * Collada file contents or other options, which would otherwise never be used nor removed.
+     */
+    private static void removeStaleSceneCacheEntries(String cacheKey)
+    {
+        String prefix = cacheKey.substring(0, cacheKey.lastIndexOf('-') + 1);
+        int keyLength = cacheKey.length();
+        File[] files = sceneCacheDir.listFiles();
+        if (files == null) return;
+        for (File file : files)
+        {
+            String name = file.getName();
+            if (name.length() == keyLength + 4 && name.startsWith(prefix) && name.endsWith(".bin") && !name.startsWith(cacheKey))
+            {
+                if (!file.delete()) logger.warn("SceneIO: could not remove stale scene cache file " + file);
+            }
+        }
+    }
+
+    /* Returns the URL for a "file:" URL String, or for a resource */
+    private static URL resolveURL(String file) throws IOException
+    {
+        if (file.startsWith("file:"))
+        {
+            return new URL(file);
+        }
+        else
+        {
+            return hmi.graphics.util.SceneIO.class.getClassLoader().getResource(file.replace('\\', '/'));
+        }
+    }
+
+    /*
+     * Returns the contents of a binary file or resource. Files, and resources that reside in the file system,
+     * are memory mapped, other resources, like those inside jar files, are read into a heap buffer.
+     */
+    private static ByteBuffer readBinaryData(String file) throws IOException
+    {
+        URL url = resolveURL(file);
+        if (url == null) throw new RuntimeException("SceneIO.readGScene: null binary input");
+        if ("file".equals(url.getProtocol()))
+        {
+            try
+            {
+                RandomAccessFile raf = new RandomAccessFile(new File(url.toURI()), "r");
+                try
+                {
+                    FileChannel channel = raf.getChannel();
+                    return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+                finally
+                {
+                    raf.close(); // the mapping remains valid after closing the channel
+                }
+            }
+            catch (URISyntaxException e)
+            {
+                // fall through, and read the resource as a stream
+            }
+        }
+        InputStream inps = url.openStream();
+        try
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] chunk = new byte[65536];
+            int n;
+            while ((n = inps.read(chunk)) > 0)
+            {
+                bytes.write(chunk, 0, n);
+            }
+            return ByteBuffer.wrap(bytes.toByteArray());
+        }
+        finally
+        {
+            inps.close();
+        }
+    }
+
     /**
      * Writes a GScene to file, where the file format is determined by the postfix.
-     * For the time being, only .bin files are allowed
+     * For the time being, only .bin files are allowed. Binary files are written in the BINARY_V2 format.
      */
     public static void writeGScene(String fileName, GScene gscene)
+    {
+        writeGScene(fileName, gscene, BINARY_V2);
+    }
+
+    /**
+     * Writes a GScene to file, where the file format is determined by the postfix.
+     * For the time being, only .bin files are allowed. binaryVersion should be BINARY_V1 or BINARY_V2.
+     * readGScene recognizes both versions.
+     */
+    public static void writeGScene(String fileName, GScene gscene, int binaryVersion)
     {
         if (fileName.endsWith(".bin"))
         {
             File outFile = new File(fileName);
             try
             {
-                DataOutputStream outps = new DataOutputStream(new FileOutputStream(outFile));
-                gscene.writeBinary(outps);
-                outps.close();
+                if (binaryVersion == BINARY_V1)
+                {
+                    DataOutputStream outps = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outFile)));
+                    gscene.writeBinary(outps);
+                    outps.close();
+                }
+                else if (binaryVersion == BINARY_V2)
+                {
+                    BlockDataOutput outps = new BlockDataOutput();
+                    gscene.writeBinary(outps);
+                    outps.writeTo(outFile);
+                }
+                else
+                {
+                    logger.error("writeGScene: unsupported binary version: " + binaryVersion);
+                }
             }
             catch (Exception e)
             {
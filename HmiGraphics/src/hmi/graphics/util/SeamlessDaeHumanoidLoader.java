@@ -102,6 +102,7 @@ public final class SeamlessDaeHumanoidLoader implements DaeHumanoidLoader
         renameRoot(id);
         // the avatarAnimationRootJoint is not important here; it could be null!
         avatarRenderNode = new VGLNode(avatarAnimationRootJoint, glScene.getGLShapeList());
+        avatarRenderNode.setRenderQueue(glScene.getRenderQueue());
         afterLoad();
     }
     
@@ -117,6 +118,7 @@ public final class SeamlessDaeHumanoidLoader implements DaeHumanoidLoader
         renameRoot(id);
         // the avatarAnimationRootJoint is not important here; it could be null!
         avatarRenderNode = new VGLNode(avatarAnimationRootJoint, glScene.getGLShapeList());
+        avatarRenderNode.setRenderQueue(glScene.getRenderQueue());
         afterLoad();
     }
     
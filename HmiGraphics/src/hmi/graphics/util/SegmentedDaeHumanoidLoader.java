@@ -98,6 +98,7 @@ public final class SegmentedDaeHumanoidLoader implements DaeHumanoidLoader
         avatarAnimationRootJoint = gscene.getPartBySid(Hanim.HumanoidRoot).getVJoint();
         renameRoot(id, avatarAnimationRootJoint);
         avatarRenderNode = new VGLNode(avatarAnimationRootJoint, glScene.getGLShapeList());
+        avatarRenderNode.setRenderQueue(glScene.getRenderQueue());
         afterLoad();
     }
     
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.graphics.opengl;
+
+import static org.junit.Assert.*;
+import hmi.graphics.scenegraph.VertexAttribute;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.media.opengl.GL;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * JUnit test for the vertex buffer uploads of hmi.graphics.opengl.GLBasicMesh, using a recording GL stub.
+ */
+public class GLBasicMeshTest
+{
+    private static final int NR_OF_VERTICES = 4;
+
+    @After
+    public void tearDown()
+    {
+        GLBasicMesh.setBufferOrphaning(true);
+    }
+
+    private float[] coords()
+    {
+        float[] coords = new float[3 * NR_OF_VERTICES];
+        for (int i = 0; i < coords.length; i++) coords[i] = i;
+        return coords;
+    }
+
+    private GLBasicMesh createMesh()
+    {
+        GLBasicMesh mesh = new GLBasicMesh();
+        int position = mesh.addGLVertexAttribute(new VertexAttribute("mcPosition", 3, coords()));
+        mesh.addGLVertexAttribute(new VertexAttribute("texCoord1", 2, new float[2 * NR_OF_VERTICES]));
+        mesh.setDynamic(position, true);
+        mesh.setIndexData(new int[] { 0, 1, 2, 0, 2, 3 });
+        return mesh;
+    }
+
+    /* returns, for every glBufferSubData call, the name of the GL_ARRAY_BUFFER that was bound at the time of the call */
+    private List<Long> uploadTargets(RecordingGL rec)
+    {
+        List<Long> targets = new ArrayList<Long>();
+        long bound = 0;
+        for (RecordingGL.Call call : rec.getCalls())
+        {
+            if (call.name.equals("glBindBuffer") && call.longArg(0) == GL.GL_ARRAY_BUFFER) bound = call.longArg(1);
+            if (call.name.equals("glBufferSubData")) targets.add(bound);
+        }
+        return targets;
+    }
+
+    @Test
+    public void staticAndDynamicBuffers()
+    {
+        RecordingGL rec = new RecordingGL();
+        GLRenderContext glc = rec.getRenderContext();
+        GLBasicMesh mesh = createMesh();
+        mesh.glInit(glc);
+        List<RecordingGL.Call> allocations = rec.getCalls("glBufferData");
+        assertEquals(2, allocations.size());
+        assertEquals(4 * 2 * NR_OF_VERTICES, allocations.get(0).longArg(1)); // static buffer: texture coordinates
+        assertEquals(4 * 3 * NR_OF_VERTICES, allocations.get(1).longArg(1)); // dynamic buffer: vertex coordinates
+
+        rec.clear();
+        mesh.glRender(glc);
+        List<RecordingGL.Call> uploads = rec.getCalls("glBufferSubData");
+        assertEquals(2, uploads.size());
+        assertEquals(Arrays.asList(1L, 3L), uploadTargets(rec)); // static buffer first, then the dynamic buffer
+        assertEquals(0, uploads.get(0).longArg(1));
+        assertArrayEquals(new float[2 * NR_OF_VERTICES], uploads.get(0).getData(), 0f);
+        assertEquals(0, uploads.get(1).longArg(1));
+        assertArrayEquals(coords(), uploads.get(1).getData(), 0f);
+        assertEquals(1, rec.getCalls("glDrawRangeElements").size());
+
+        rec.clear();
+        mesh.glRender(glc);
+        assertEquals(0, rec.getCalls("glBufferSubData").size());
+        assertEquals(0, rec.getCalls("glBufferData").size());
+    }
+
+    @Test
+    public void dirtyRangeUpload()
+    {
+        RecordingGL rec = new RecordingGL();
+        GLRenderContext glc = rec.getRenderContext();
+        GLBasicMesh mesh = createMesh();
+        mesh.glInit(glc);
+        mesh.glRender(glc);
+
+        float[] coords = coords();
+        assertFalse(mesh.updateVertexData(0, coords));
+        coords[6] = 100f; // vertex 2
+        coords[8] = 101f;
+        assertTrue(mesh.updateVertexData(0, coords));
+        rec.clear();
+        mesh.glRender(glc);
+        List<RecordingGL.Call> uploads = rec.getCalls("glBufferSubData");
+        assertEquals(1, uploads.size());
+        assertEquals(4 * 6, uploads.get(0).longArg(1)); // offset
+        assertEquals(4 * 3, uploads.get(0).longArg(2)); // size
+        assertArrayEquals(new float[] { 100f, 7f, 101f }, uploads.get(0).getData(), 0f);
+        assertEquals(Arrays.asList(3L), uploadTargets(rec)); // dynamic buffer
+        assertEquals(0, rec.getCalls("glBufferData").size()); // partial upload: no orphaning
+        assertArrayEquals(coords, mesh.getVertexData(0, null), 0f);
+
+        mesh.setVertexData(0, coords, 1, 3);
+        rec.clear();
+        mesh.glRender(glc);
+        uploads = rec.getCalls("glBufferSubData");
+        assertEquals(1, uploads.size());
+        assertEquals(4 * 3, uploads.get(0).longArg(1));
+        assertEquals(4 * 6, uploads.get(0).longArg(2));
+        assertArrayEquals(Arrays.copyOfRange(coords, 3, 9), uploads.get(0).getData(), 0f);
+    }
+
+    @Test
+    public void orphaning()
+    {
+        RecordingGL rec = new RecordingGL();
+        GLRenderContext glc = rec.getRenderContext();
+        GLBasicMesh mesh = createMesh();
+        mesh.glInit(glc);
+        mesh.glRender(glc);
+
+        mesh.setVertexData(0, coords());
+        rec.clear();
+        mesh.glRender(glc);
+        assertEquals(1, rec.getCalls("glBufferData").size());
+
+        GLBasicMesh.setBufferOrphaning(false);
+        mesh.setVertexData(0, coords());
+        rec.clear();
+        mesh.glRender(glc);
+        assertEquals(0, rec.getCalls("glBufferData").size());
+        List<RecordingGL.Call> uploads = rec.getCalls("glBufferSubData");
+        assertEquals(1, uploads.size());
+        assertEquals(0, uploads.get(0).longArg(1));
+        assertEquals(4 * 3 * NR_OF_VERTICES, uploads.get(0).longArg(2));
+    }
+}
@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.graphics.opengl;
+
+import static org.junit.Assert.*;
+import hmi.graphics.opengl.state.GLMaterial;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * JUnit test for hmi.graphics.opengl.GLRenderQueue
+ */
+public class GLRenderQueueTest
+{
+    private final List<String> rendered = new ArrayList<String>();
+
+    /* A GLShape that logs its rendering, and renders its state, but not its (fixed function) transform */
+    private class LoggingShape extends GLShape
+    {
+        LoggingShape(String name, GLMaterial material)
+        {
+            super(name);
+            addGLState(material);
+        }
+
+        @Override
+        public void glRender(GLRenderContext glc)
+        {
+            rendered.add(getId());
+            getStateList().glRender(glc);
+        }
+    }
+
+    /* Some other GLRenderObject, like an OpenGLState, that logs its rendering */
+    private class LoggingObject implements GLRenderObject
+    {
+        private final String name;
+
+        LoggingObject(String name)
+        {
+            this.name = name;
+        }
+
+        @Override
+        public void glInit(GLRenderContext glc)
+        {
+        }
+
+        @Override
+        public void glRender(GLRenderContext glc)
+        {
+            rendered.add(name);
+        }
+    }
+
+    private static GLMaterial transparentMaterial()
+    {
+        GLMaterial material = new GLMaterial("transparent");
+        material.setAlphaBlendingEnabled(true);
+        return material;
+    }
+
+    @Test
+    public void drawOrder()
+    {
+        GLMaterial mat1 = new GLMaterial("mat1");
+        GLMaterial mat2 = new GLMaterial("mat2");
+        GLRenderList list = new GLRenderList();
+        list.add(new LoggingShape("a", mat1));
+        list.add(new LoggingShape("t", transparentMaterial()));
+        list.add(new LoggingShape("b", mat2));
+        list.add(new LoggingShape("c", mat1));
+        list.prepend(new LoggingObject("state"));
+        GLRenderQueue queue = new GLRenderQueue(list);
+        RecordingGL rec = new RecordingGL();
+        queue.glRender(rec.getRenderContext());
+        assertEquals(Arrays.asList("state", "a", "c", "b", "t"), rendered);
+        assertEquals(5, queue.size());
+        assertEquals("state", ((LoggingObject) queue.getSorted(0)).name);
+    }
+
+    @Test
+    public void otherObjectsKeepPosition()
+    {
+        GLMaterial mat1 = new GLMaterial("mat1");
+        GLMaterial mat2 = new GLMaterial("mat2");
+        GLRenderQueue queue = new GLRenderQueue();
+        queue.add(new LoggingShape("a", mat1));
+        queue.add(new LoggingShape("b", mat2));
+        queue.add(new LoggingObject("x"));
+        queue.add(new LoggingShape("c", mat2));
+        queue.add(new LoggingShape("d", mat1));
+        queue.glRender(new RecordingGL().getRenderContext());
+        assertEquals(Arrays.asList("a", "b", "x", "d", "c"), rendered); // sorted by material, but not across x
+    }
+
+    @Test
+    public void redundantStateChangesSkipped()
+    {
+        GLMaterial mat1 = new GLMaterial("mat1");
+        GLMaterial mat2 = new GLMaterial("mat2");
+        GLRenderQueue queue = new GLRenderQueue();
+        queue.add(new LoggingShape("a", mat1));
+        queue.add(new LoggingShape("b", mat2));
+        queue.add(new LoggingShape("c", mat1));
+        queue.add(new LoggingShape("t", transparentMaterial()));
+        RecordingGL rec = new RecordingGL();
+        GLRenderContext glc = rec.getRenderContext();
+        queue.glRender(glc);
+        // a: blending off, program 0; c: same material, skipped; b: no changes; t: blending on
+        assertEquals(3, queue.getStateChanges());
+        assertEquals(1, rec.getCalls("glUseProgram").size());
+        assertEquals(1, rec.getCalls("glDisable").size());
+        assertEquals(1, rec.getCalls("glEnable").size());
+        assertFalse(glc.isStateCaching());
+
+        rec.clear();
+        queue.add(new LoggingObject("x")); // could change state, so cached state is invalidated after rendering it
+        queue.add(new LoggingShape("d", mat1));
+        queue.glRender(glc);
+        assertEquals(5, queue.getStateChanges());
+        assertEquals(2, rec.getCalls("glUseProgram").size());
+    }
+
+    @Test
+    public void followsListModifications()
+    {
+        GLMaterial mat1 = new GLMaterial("mat1");
+        GLMaterial mat2 = new GLMaterial("mat2");
+        GLRenderList list = new GLRenderList();
+        list.add(new LoggingShape("a", mat1));
+        list.add(new LoggingShape("b", mat2));
+        GLRenderQueue queue = new GLRenderQueue(list);
+        GLRenderContext glc = new RecordingGL().getRenderContext();
+        queue.glRender(glc);
+        assertEquals(Arrays.asList("a", "b"), rendered);
+
+        list.add(new LoggingShape("c", mat1));
+        list.prepend(new LoggingObject("state"));
+        rendered.clear();
+        queue.glRender(glc);
+        assertEquals(4, queue.size());
+        assertEquals(Arrays.asList("state", "a", "c", "b"), rendered);
+    }
+    private void sort(long[] keys, int[] values)
+    {
+        int n = keys.length;
+        GLRenderQueue.radixSort(keys, values, n, new long[n], new int[n], new int[256]);
+    }
+
+    @Test
+    public void radixSortIsUnsigned()
+    {
+        long[] keys = new long[] { 1L << 63, 5L, -1L, 0L, 1L << 40 };
+        int[] values = new int[] { 0, 1, 2, 3, 4 };
+        sort(keys, values);
+        assertArrayEquals(new long[] { 0L, 5L, 1L << 40, 1L << 63, -1L }, keys);
+        assertArrayEquals(new int[] { 3, 1, 4, 0, 2 }, values);
+    }
+
+    @Test
+    public void radixSortIsStable()
+    {
+        Random random = new Random(7);
+        int n = 500;
+        long[] keys = new long[n];
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++)
+        {
+            keys[i] = ((long) random.nextInt(4) << 60) | ((long) random.nextInt(3) << 20);
+            values[i] = i;
+        }
+        long[] expected = keys.clone();
+        for (int i = 0; i < n; i++) expected[i] ^= Long.MIN_VALUE; // signed order of flipped keys equals unsigned order
+        Arrays.sort(expected);
+        for (int i = 0; i < n; i++) expected[i] ^= Long.MIN_VALUE;
+        sort(keys, values);
+        assertArrayEquals(expected, keys);
+        for (int i = 1; i < n; i++)
+        {
+            if (keys[i] == keys[i - 1]) assertTrue(values[i] > values[i - 1]);
+        }
+    }
+
+    @Test
+    public void emptyQueue()
+    {
+        GLRenderQueue queue = new GLRenderQueue();
+        queue.sort();
+        assertEquals(0, queue.size());
+        sort(new long[0], new int[0]);
+    }
+}
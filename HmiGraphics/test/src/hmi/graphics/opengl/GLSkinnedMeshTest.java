@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.graphics.opengl;
+
+import static org.junit.Assert.*;
+import hmi.animation.MatrixExchange;
+import hmi.animation.VJoint;
+import hmi.graphics.scenegraph.VertexAttribute;
+import hmi.math.Mat4f;
+import hmi.math.Quat4f;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * JUnit test for hmi.graphics.opengl.GLSkinnedMesh and hmi.graphics.opengl.SkinningEngine
+ */
+public class GLSkinnedMeshTest
+{
+    private static final int NR_OF_JOINTS = 3;
+
+    @After
+    public void tearDown()
+    {
+        SkinningEngine.setEnabled(true);
+        SkinningEngine.setParallel(true);
+        SkinningEngine.setChunkSize(SkinningEngine.DEFAULT_CHUNK_SIZE);
+    }
+
+    private VJoint[] createJoints()
+    {
+        VJoint root = new VJoint("root", "root");
+        VJoint j1 = new VJoint("j1", "j1");
+        VJoint j2 = new VJoint("j2", "j2");
+        root.addChild(j1);
+        j1.addChild(j2);
+        root.setTranslation(0.1f, 0.2f, 0.3f);
+        j1.setTranslation(0f, 1f, 0f);
+        j1.setRotation(Quat4f.getQuat4fFromAxisAngle(1f, 0f, 0f, 0.5f));
+        j2.setTranslation(0f, 1f, 0f);
+        j2.setRotation(Quat4f.getQuat4fFromAxisAngle(0f, 0f, 1f, -0.7f));
+        root.calculateMatrices();
+        return new VJoint[] { root, j1, j2 };
+    }
+
+    private GLSkinnedMesh createMesh(int nrOfVertices, long seed)
+    {
+        Random random = new Random(seed);
+        float[] coords = new float[3 * nrOfVertices];
+        float[] normals = new float[3 * nrOfVertices];
+        for (int i = 0; i < coords.length; i++)
+        {
+            coords[i] = random.nextFloat();
+            normals[i] = random.nextFloat() - 0.5f;
+        }
+        int[] jointCount = new int[nrOfVertices];
+        List<Integer> jointIndices = new ArrayList<Integer>();
+        List<Float> jointWeights = new ArrayList<Float>();
+        for (int v = 0; v < nrOfVertices; v++)
+        {
+            jointCount[v] = 1 + random.nextInt(NR_OF_JOINTS);
+            for (int j = 0; j < jointCount[v]; j++)
+            {
+                jointIndices.add(random.nextInt(NR_OF_JOINTS));
+                jointWeights.add(1.0f / jointCount[v]);
+            }
+        }
+        int[] jointIndex = new int[jointIndices.size()];
+        float[] jointWeight = new float[jointWeights.size()];
+        for (int i = 0; i < jointIndex.length; i++)
+        {
+            jointIndex[i] = jointIndices.get(i);
+            jointWeight[i] = jointWeights.get(i);
+        }
+        float[][] inverseBindMatrices = new float[NR_OF_JOINTS][];
+        for (int j = 0; j < NR_OF_JOINTS; j++)
+        {
+            inverseBindMatrices[j] = Mat4f.getIdentity();
+            Mat4f.setTranslation(inverseBindMatrices[j], new float[] { 0f, -j, 0f });
+        }
+        GLSkinnedMesh mesh = new GLSkinnedMesh();
+        mesh.addGLVertexAttribute(new VertexAttribute("mcPosition", 3, coords));
+        mesh.addGLVertexAttribute(new VertexAttribute("mcNormal", 3, normals));
+        mesh.setJointVertexWeights(jointCount, jointIndex, jointWeight);
+        mesh.setInverseBindMatrices(inverseBindMatrices);
+        mesh.setVJoints(createJoints());
+        return mesh;
+    }
+
+    private float[][] deformed(GLSkinnedMesh mesh)
+    {
+        mesh.deform();
+        return new float[][] { mesh.getVertexData(0, null), mesh.getVertexData(1, null) };
+    }
+
+    @Test
+    public void engineMatchesOriginalDeform()
+    {
+        GLSkinnedMesh mesh = createMesh(1000, 17);
+        SkinningEngine.setEnabled(false);
+        float[][] expected = deformed(mesh);
+
+        SkinningEngine.setEnabled(true);
+        SkinningEngine.setParallel(false);
+        float[][] sequential = deformed(createMesh(1000, 17));
+        assertArrayEquals(expected[0], sequential[0], 0f);
+        assertArrayEquals(expected[1], sequential[1], 0f);
+
+        SkinningEngine.setParallel(true);
+        SkinningEngine.setChunkSize(64);
+        float[][] parallel = deformed(createMesh(1000, 17));
+        assertArrayEquals(expected[0], parallel[0], 0f);
+        assertArrayEquals(expected[1], parallel[1], 0f);
+    }
+
+    @Test
+    public void deformMeshList()
+    {
+        List<GLSkinnedMesh> meshes = new ArrayList<GLSkinnedMesh>();
+        float[][][] expected = new float[5][][];
+        SkinningEngine.setEnabled(false);
+        for (int i = 0; i < expected.length; i++)
+        {
+            expected[i] = deformed(createMesh(300 + i, i));
+            meshes.add(createMesh(300 + i, i));
+        }
+        SkinningEngine.setEnabled(true);
+        SkinningEngine.setChunkSize(100);
+        SkinningEngine.deform(meshes);
+        for (int i = 0; i < expected.length; i++)
+        {
+            assertArrayEquals(expected[i][0], meshes.get(i).getVertexData(0, null), 0f);
+            assertArrayEquals(expected[i][1], meshes.get(i).getVertexData(1, null), 0f);
+        }
+    }
+
+    @Test
+    public void posesFromMatrixExchange()
+    {
+        float[][] expected = deformed(createMesh(100, 5));
+        GLSkinnedMesh mesh = createMesh(100, 5);
+        MatrixExchange exchange = new MatrixExchange(NR_OF_JOINTS);
+        mesh.setMatrixExchange(exchange);
+        VJoint[] joints = createJoints();
+        float[][] globalMatrices = new float[NR_OF_JOINTS][];
+        for (int j = 0; j < NR_OF_JOINTS; j++)
+        {
+            globalMatrices[j] = joints[j].getGlobalMatrix();
+        }
+        exchange.publish(globalMatrices);
+        joints[0].setTranslation(5f, 5f, 5f);
+        joints[0].calculateMatrices(); // not published
+        assertTrue(mesh.acquirePose());
+        assertFalse(mesh.acquirePose());
+        float[][] result = deformed(mesh);
+        assertArrayEquals(expected[0], result[0], 0f);
+        assertArrayEquals(expected[1], result[1], 0f);
+    }
+
+    /* The base coordinates plus the weighted morph target displacements, computed from scratch */
+    private static float[] morphedFromScratch(float[] base, float[][] targets, float[] weights)
+    {
+        float[] result = base.clone();
+        for (int t = 0; t < targets.length; t++)
+        {
+            for (int i = 0; i < base.length; i++)
+            {
+                result[i] += weights[t] * (targets[t][i] - base[i]);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void sequentialMorphWeights()
+    {
+        GLSkinnedMesh mesh = createMesh(200, 11);
+        float[] base = mesh.getMorphedVertexCoordData().clone();
+        Random random = new Random(3);
+        float[][] targets = new float[3][];
+        for (int t = 0; t < targets.length; t++)
+        {
+            targets[t] = base.clone();
+            for (int v = t; v < 200; v += 3 + t) // sparse, partially overlapping displacements
+            {
+                for (int k = 0; k < 3; k++)
+                    targets[t][3 * v + k] += random.nextFloat() - 0.5f;
+            }
+        }
+        mesh.setMorphTargets(new String[] { "t0", "t1", "t2" });
+        mesh.setVertexCoordMorphData(targets);
+
+        int[] all = new int[] { 0, 1, 2 };
+        float[][] sequence = new float[][] { { 0.5f, 0f, 0f }, { 0.5f, 0.3f, 0f }, { 0.2f, 0.3f, 0.8f }, { 0f, 0.9f, 0.8f },
+                { 0f, 0f, 0f }, { 0.7f, 0f, 0.1f }, { 0.7f, 0f, 0f }, { 1f, 1f, 1f } };
+        for (float[] weights : sequence)
+        {
+            mesh.morph(all, weights);
+            assertArrayEquals(morphedFromScratch(base, targets, weights), mesh.getMorphedVertexCoordData(), 1E-5f);
+        }
+        mesh.morph(all, new float[3]);
+        assertArrayEquals(base, mesh.getMorphedVertexCoordData(), 0f); // back to zero: exactly the base mesh
+
+        float[] weights = new float[3];
+        for (int i = 0; i < 600; i++) // passes the periodic rebuild from the base data
+        {
+            for (int t = 0; t < 3; t++)
+                weights[t] = random.nextInt(4) == 0 ? 0f : random.nextFloat();
+            mesh.morph(all, weights);
+            assertArrayEquals(morphedFromScratch(base, targets, weights), mesh.getMorphedVertexCoordData(), 1E-4f);
+        }
+        mesh.morph("t1", 0.4f);
+        assertArrayEquals(morphedFromScratch(base, targets, new float[] { 0f, 0.4f, 0f }), mesh.getMorphedVertexCoordData(), 1E-4f);
+        mesh.morph("t1", 0f);
+        assertArrayEquals(base, mesh.getMorphedVertexCoordData(), 0f);
+    }
+}
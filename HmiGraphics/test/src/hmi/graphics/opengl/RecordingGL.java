@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.graphics.opengl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.media.opengl.GL2ES3;
+
+/**
+ * A recording stub for the JOGL GL2ES3 interface, for testing without an OpenGL context. Every GL call is recorded, with its arguments.
+ * For glBufferSubData calls with float data, the uploaded floats are recorded as well.
+ * Calls return default values, except for glGenBuffers, which generates consecutive buffer names, and glGetAttribLocation,
+ * which returns consecutive attribute locations.
+ * The stub covers the buffer object calls, not the full GL2 interface: the latter has too many methods for a java.lang.reflect.Proxy.
+ */
+public class RecordingGL implements InvocationHandler
+{
+    /** A recorded GL call */
+    public static class Call
+    {
+        public final String name;
+        public final Object[] args;
+        float[] data;
+
+        Call(String name, Object[] args)
+        {
+            this.name = name;
+            this.args = (args == null) ? new Object[0] : args;
+        }
+
+        /** Returns the uploaded floats, for glBufferSubData calls with float data, or else null */
+        public float[] getData()
+        {
+            return data;
+        }
+
+        /** Returns argument i as a long, for integral arguments */
+        public long longArg(int i)
+        {
+            return ((Number) args[i]).longValue();
+        }
+
+        @Override
+        public String toString()
+        {
+            return name + Arrays.toString(args);
+        }
+    }
+
+    private final List<Call> calls = new ArrayList<Call>();
+    private int nextBufferName = 1;
+    private int nextAttribLocation = 0;
+    private final GL2ES3 gl;
+
+    public RecordingGL()
+    {
+        gl = (GL2ES3) Proxy.newProxyInstance(GL2ES3.class.getClassLoader(), new Class<?>[] { GL2ES3.class }, this);
+    }
+
+    /**
+     * Returns a GLRenderContext that uses the recording stub, without GL2 specialization.
+     */
+    public GLRenderContext getRenderContext()
+    {
+        GLRenderContext glc = new GLRenderContext();
+        glc.gl = gl;
+        glc.gl2es3 = gl;
+        return glc;
+    }
+
+    /** Returns the recorded calls with the specified name */
+    public List<Call> getCalls(String name)
+    {
+        List<Call> result = new ArrayList<Call>();
+        for (Call call : calls)
+        {
+            if (call.name.equals(name)) result.add(call);
+        }
+        return result;
+    }
+
+    /** Returns all recorded calls */
+    public List<Call> getCalls()
+    {
+        return calls;
+    }
+
+    /** Forgets all recorded calls */
+    public void clear()
+    {
+        calls.clear();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args)
+    {
+        String name = method.getName();
+        if (method.getDeclaringClass() == Object.class)
+        {
+            if (name.equals("equals")) return proxy == args[0];
+            if (name.equals("hashCode")) return System.identityHashCode(proxy);
+            return "RecordingGL";
+        }
+        Call call = new Call(name, args);
+        calls.add(call);
+        if (name.equals("glBufferSubData") && args[3] instanceof FloatBuffer)
+        {
+            FloatBuffer buf = ((FloatBuffer) args[3]).duplicate();
+            call.data = new float[(int) (call.longArg(2) / 4)];
+            buf.get(call.data);
+        }
+        if (name.equals("glGenBuffers") && args[1] instanceof IntBuffer)
+        {
+            IntBuffer buf = (IntBuffer) args[1];
+            for (int i = 0; i < (Integer) args[0]; i++) buf.put(buf.position() + i, nextBufferName++);
+        }
+        if (name.equals("glGetAttribLocation")) return nextAttribLocation++;
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0f;
+        if (type == double.class) return 0d;
+        if (type == short.class) return (short) 0;
+        if (type == byte.class) return (byte) 0;
+        if (type == char.class) return (char) 0;
+        return null;
+    }
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.graphics.opengl.scenegraph;
+
+import static org.junit.Assert.assertArrayEquals;
+import hmi.graphics.opengl.GLSkinnedMesh;
+import hmi.graphics.scenegraph.VertexAttribute;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * JUnit test for morphing by hmi.graphics.opengl.scenegraph.GLScene
+ */
+public class GLSceneTest
+{
+    private static final float[] BASE = new float[] { 0f, 0f, 0f, 1f, 0f, 0f };
+    private static final float[] TARGET = new float[] { 0f, 2f, 0f, 1f, 2f, 0f };
+
+    private GLSkinnedMesh createMesh()
+    {
+        GLSkinnedMesh mesh = new GLSkinnedMesh();
+        mesh.addGLVertexAttribute(new VertexAttribute("mcPosition", 3, BASE.clone()));
+        mesh.setMorphTargets(new String[] { "smile" });
+        mesh.setVertexCoordMorphData(new float[][] { TARGET.clone() });
+        return mesh;
+    }
+
+    @Test
+    public void morphPublishedWeights()
+    {
+        GLScene scene = new GLScene("scene");
+        GLSkinnedMesh mesh = createMesh();
+        scene.addSkinnedMeshes(Arrays.asList(mesh));
+        scene.addMorphTargets(new String[] { "smile" }, new float[] { 0.5f });
+        scene.doMorph();
+        assertArrayEquals(new float[] { 0f, 1f, 0f, 1f, 1f, 0f }, mesh.getMorphedVertexCoordData(), 1E-6f);
+    }
+
+    @Test
+    public void meshAddedAfterPublishIsMorphed()
+    {
+        GLScene scene = new GLScene("scene");
+        GLSkinnedMesh first = createMesh();
+        scene.addSkinnedMeshes(Arrays.asList(first));
+        scene.addMorphTargets(new String[] { "smile" }, new float[] { 0.5f });
+        scene.doMorph();
+
+        GLSkinnedMesh second = createMesh();
+        scene.addSkinnedMeshes(Arrays.asList(second));
+        scene.doMorph(); // nothing new was published
+        assertArrayEquals(new float[] { 0f, 1f, 0f, 1f, 1f, 0f }, second.getMorphedVertexCoordData(), 1E-6f);
+        assertArrayEquals(new float[] { 0f, 1f, 0f, 1f, 1f, 0f }, first.getMorphedVertexCoordData(), 1E-6f);
+    }
+}
@@ -307,4 +307,79 @@ public class GMeshTest {
     } 
   
   
+    @Test
+    public void unifyIndicesTest() {
+       GMesh gmesh = new GMesh();
+       float[] coords = new float[] {0f, 0f, 0f,   1f, 0f, 0f,   0f, 1f, 0f,   1f, 1f, 0f};
+       float[] texCoords = new float[] {0f, 0f,   1f, 0f,   0f, 1f};
+       int[] coordIndices = new int[] {0, 1, 2,   2, 1, 3,   0, 1, 2};
+       int[] texCoordIndices = new int[] {0, 1, 2,   2, 0, 1,   0, 1, 1};
+       gmesh.setIndexedVertexData("mcPosition", 3, coords, coordIndices);
+       gmesh.setIndexedVertexData("texCoord0", 2, texCoords, texCoordIndices);
+       assertTrue( ! gmesh.hasUnifiedIndexData());
+       gmesh.unifyIndices();
+       assertTrue(gmesh.hasUnifiedIndexData());
+       // distinct tuples, numbered in order of first occurrence: (0,0) (1,1) (2,2) (1,0) (3,1) (2,1)
+       assertArrayEquals(new int[] {0, 1, 2,   2, 3, 4,   0, 1, 5}, gmesh.getIndexData());
+       assertTrue(gmesh.getNrOfVertices() == 6);
+       assertArrayEquals(new float[] {0f, 0f, 0f,   1f, 0f, 0f,   0f, 1f, 0f,   1f, 0f, 0f,   1f, 1f, 0f,   0f, 1f, 0f},
+             gmesh.getVertexData("mcPosition"), 0f);
+       assertArrayEquals(new float[] {0f, 0f,   1f, 0f,   0f, 1f,   0f, 0f,   1f, 0f,   1f, 0f},
+             gmesh.getVertexData("texCoord0"), 0f);
+    }
+
+    @Test
+    public void unifyIndicesLargeTest() {
+       // compare with a straightforward quadratic search for tuples
+       Random random = new Random(1234);
+       int nrOfIndices = 3000;
+       int nrOfCoords = 200;
+       int nrOfNormals = 50;
+       float[] coords = new float[3*nrOfCoords];
+       for (int i=0; i<coords.length; i++) coords[i] = random.nextFloat();
+       float[] normals = new float[3*nrOfNormals];
+       for (int i=0; i<normals.length; i++) normals[i] = random.nextFloat();
+       int[] coordIndices = new int[nrOfIndices];
+       int[] normalIndices = new int[nrOfIndices];
+       for (int i=0; i<nrOfIndices; i++) {
+          coordIndices[i] = random.nextInt(nrOfCoords);
+          normalIndices[i] = random.nextInt(nrOfNormals);
+       }
+       int[] expectedIndices = new int[nrOfIndices];
+       List<int[]> tuples = new ArrayList<int[]>();
+       for (int i=0; i<nrOfIndices; i++) {
+          int t = 0;
+          while (t < tuples.size() && (tuples.get(t)[0] != coordIndices[i] || tuples.get(t)[1] != normalIndices[i])) t++;
+          if (t == tuples.size()) tuples.add(new int[] {coordIndices[i], normalIndices[i]});
+          expectedIndices[i] = t;
+       }
+       GMesh gmesh = new GMesh();
+       gmesh.setIndexedVertexData("mcPosition", 3, coords, coordIndices);
+       gmesh.setIndexedVertexData("mcNormal", 3, normals, normalIndices);
+       gmesh.unifyIndices();
+       assertArrayEquals(expectedIndices, gmesh.getIndexData());
+       assertTrue(gmesh.getNrOfVertices() == tuples.size());
+       float[] newCoords = gmesh.getVertexData("mcPosition");
+       float[] newNormals = gmesh.getVertexData("mcNormal");
+       for (int t=0; t<tuples.size(); t++) {
+          for (int k=0; k<3; k++) {
+             assertTrue(newCoords[3*t+k] == coords[3*tuples.get(t)[0]+k]);
+             assertTrue(newNormals[3*t+k] == normals[3*tuples.get(t)[1]+k]);
+          }
+       }
+    }
+
+    @Test
+    public void boundingVolumes() {
+       GMesh gmesh = new GMesh();
+       assertTrue(gmesh.calculateBoundingBox() == null);
+       assertTrue(gmesh.calculateBoundingSphere() == null);
+       float[] coords = new float[] { -1f, 0f, 2f,   3f, 2f, 2f,   1f, -2f, 4f,   1f, 0f, 3f };
+       gmesh.setVertexData("mcPosition", 3, coords);
+       assertArrayEquals(new float[] { -1f, -2f, 2f, 3f, 2f, 4f }, gmesh.calculateBoundingBox(), 0f);
+       float[] sphere = gmesh.calculateBoundingSphere();
+       assertArrayEquals(new float[] { 1f, 0f, 3f }, Arrays.copyOf(sphere, 3), 0f);
+       assertEquals(3.0, sphere[3], 1.0E-6);
+    }
+
 }
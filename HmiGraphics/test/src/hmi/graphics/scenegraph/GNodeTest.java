@@ -187,6 +187,37 @@ public class GNodeTest {
     } 
     
     
+    @Test
+    /* Test lookups with a part index, maintained while the tree is modified */
+    public void partIndexTest() {
+       buildTree1();
+       gnode212.setSid("S");
+       gnode.createPartIndex();
+       assertTrue(gnode.hasPartIndex());
+       assertTrue(gnode213.hasPartIndex());
+       assertTrue(gnode.getPartById("N213") == gnode213);
+       assertTrue(gnode.getPartBySid("S") == gnode212);
+       assertTrue(gnode.getPart("S") == gnode212);
+       assertTrue(gnode1.getPartById("N213") == null); // not within the subtree
+       assertTrue(gnode.getPartById("X") == null);
+       assertTrue(gnode.getVJoint().getPartById("N213") == gnode213.getVJoint());
+       
+       gnode12.setSid("S"); // shared sid, search order decides
+       assertTrue(gnode.getPartBySid("S") == gnode12);
+       assertTrue(gnode2.getPartBySid("S") == gnode212);
+       gnode212.setId("M");
+       assertTrue(gnode.getPartById("N212") == null);
+       assertTrue(gnode.getPart("M") == gnode212);
+       
+       gnode2.removeChildNode(gnode21);
+       assertFalse(gnode21.hasPartIndex());
+       assertTrue(gnode.getPartById("N213") == null);
+       GNode extra = new GNode("E");
+       gnode3.addChildNode(extra);
+       assertTrue(gnode.getPart("E") == extra);
+    }
+    
+    
     @Test
     /* Test the getChildNodes method  */
     public void getChildNodesTest() {  
@@ -32,6 +32,7 @@ import java.util.*;
 import hmi.util.*;
 import java.io.*;
 import hmi.xml.*;
+import hmi.math.Mat4f;
 
 /**
  * JUnit test for hmi.graphics.scenegraph.GSkinnedMesh
@@ -392,4 +393,22 @@ public class GSkinnedMeshTest {
     } 
   
   
+    @Test
+    public void jointBoundingSpheres() {
+       GSkinnedMesh gmesh = new GSkinnedMesh();
+       assertTrue(gmesh.calculateJointBoundingSpheres() == null);
+       gmesh.setVertexData("mcPosition", 3, new float[] { 0f, 0f, 0f, 2f, 0f, 0f, 0f, 4f, 0f });
+       float[] invBind1 = Mat4f.getIdentity();
+       Mat4f.setTranslation(invBind1, new float[] { 0f, -4f, 0f });
+       gmesh.setInvBindMatrices(new float[][] { Mat4f.getIdentity(), invBind1, Mat4f.getIdentity() });
+       // vertex 0 and 1 for joint 0, vertex 1 and 2 for joint 1, nothing for joint 2
+       gmesh.setVertexWeights(new VertexWeights(new int[] { 1, 2, 1 }, new int[] { 0, 0, 1, 1 }, new float[] { 1f, 0.5f, 0.5f, 1f }));
+       float[] spheres = gmesh.calculateJointBoundingSpheres();
+       assertEquals(12, spheres.length);
+       assertArrayEquals(new float[] { 1f, 0f, 0f, 1f }, Arrays.copyOfRange(spheres, 0, 4), 1.0E-6f);
+       assertArrayEquals(new float[] { 1f, -2f, 0f }, Arrays.copyOfRange(spheres, 4, 7), 1.0E-6f);
+       assertEquals(Math.sqrt(5.0), spheres[7], 1.0E-6);
+       assertTrue(spheres[11] < 0f);
+    }
+
 }
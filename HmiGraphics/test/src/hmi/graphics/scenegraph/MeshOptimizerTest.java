@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.graphics.scenegraph;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * JUnit test for hmi.graphics.scenegraph.MeshOptimizer
+ */
+public class MeshOptimizerTest
+{
+    private static final float PRECISION = 0.0001f;
+    private static final int GRID = 20;
+
+    /* Triangles for a GRID x GRID grid of quads, ordered column by column, which is bad for the vertex cache */
+    private static int[] gridIndices()
+    {
+        int[] indices = new int[GRID * GRID * 6];
+        int n = 0;
+        for (int x = 0; x < GRID; x++)
+        {
+            for (int y = 0; y < GRID; y++)
+            {
+                int v = y * (GRID + 1) + x;
+                int[] quad = { v, v + 1, v + GRID + 1, v + 1, v + GRID + 2, v + GRID + 1 };
+                for (int q : quad)
+                    indices[n++] = q;
+            }
+        }
+        return indices;
+    }
+
+    /* Sorted list of triangles, each rotated such that its smallest index comes first */
+    private static String triangles(int[] indices)
+    {
+        String[] tris = new String[indices.length / 3];
+        for (int t = 0; t < tris.length; t++)
+        {
+            int a = indices[3 * t], b = indices[3 * t + 1], c = indices[3 * t + 2];
+            if (b < a && b < c) tris[t] = b + "," + c + "," + a;
+            else if (c < a && c < b) tris[t] = c + "," + a + "," + b;
+            else tris[t] = a + "," + b + "," + c;
+        }
+        Arrays.sort(tris);
+        return Arrays.toString(tris);
+    }
+
+    @Test
+    public void optimizeVertexCache()
+    {
+        int nrOfVertices = (GRID + 1) * (GRID + 1);
+        int[] indices = gridIndices();
+        int[] optimized = MeshOptimizer.optimizeVertexCache(indices, nrOfVertices, 16);
+        assertEquals(triangles(indices), triangles(optimized));
+        float before = MeshOptimizer.calculateACMR(indices, nrOfVertices, 16);
+        float after = MeshOptimizer.calculateACMR(optimized, nrOfVertices, 16);
+        assertTrue(after < before);
+        assertTrue(MeshOptimizer.calculateATVR(optimized, nrOfVertices, 16) >= 1.0f);
+    }
+
+    /* The triangles from indices, in random order */
+    private static int[] shuffledTriangles(int[] indices, long seed)
+    {
+        Random random = new Random(seed);
+        int nrOfTriangles = indices.length / 3;
+        int[] shuffled = indices.clone();
+        for (int t = nrOfTriangles - 1; t > 0; t--)
+        {
+            int r = random.nextInt(t + 1);
+            for (int k = 0; k < 3; k++)
+            {
+                int tmp = shuffled[3 * t + k];
+                shuffled[3 * t + k] = shuffled[3 * r + k];
+                shuffled[3 * r + k] = tmp;
+            }
+        }
+        return shuffled;
+    }
+
+    @Test
+    public void vertexCacheReferenceACMR()
+    {
+        // Forsyth's algorithm reaches an ACMR of about 0.68 on regular grids, for a cache of 32 vertices, regardless of the input order
+        int nrOfVertices = (GRID + 1) * (GRID + 1);
+        int[] shuffled = shuffledTriangles(gridIndices(), 1L);
+        int[] optimized = MeshOptimizer.optimizeVertexCache(shuffled, nrOfVertices, 32);
+        assertEquals(triangles(shuffled), triangles(optimized));
+        assertTrue(MeshOptimizer.calculateACMR(shuffled, nrOfVertices, 32) > 2.0f);
+        assertTrue(MeshOptimizer.calculateACMR(optimized, nrOfVertices, 32) < 0.7f);
+    }
+
+    @Test
+    public void vertexCacheNotWorse()
+    {
+        int nrOfVertices = (GRID + 1) * (GRID + 1);
+        for (int cacheSize : new int[] { 8, 16, 32 })
+        {
+            int[] optimized = MeshOptimizer.optimizeVertexCache(gridIndices(), nrOfVertices, cacheSize);
+            float acmr = MeshOptimizer.calculateACMR(optimized, nrOfVertices, cacheSize);
+            int[] reoptimized = MeshOptimizer.optimizeVertexCache(optimized, nrOfVertices, cacheSize);
+            assertTrue(MeshOptimizer.calculateACMR(reoptimized, nrOfVertices, cacheSize) <= acmr);
+        }
+    }
+
+    @Test
+    public void vertexCacheDegenerateTriangles()
+    {
+        int[] indices = { 0, 1, 2, 2, 2, 3, 1, 3, 2, 4, 4, 4, 3, 1, 4 };
+        int[] optimized = MeshOptimizer.optimizeVertexCache(indices, 5, 4);
+        assertEquals(triangles(indices), triangles(optimized));
+    }
+
+    @Test
+    public void optimizeVertexFetch()
+    {
+        int[] indices = { 3, 1, 4, 4, 1, 0 };
+        int[] map = MeshOptimizer.optimizeVertexFetch(indices, 6);
+        assertArrayEquals(new int[] { 0, 1, 2, 2, 1, 3 }, indices);
+        assertArrayEquals(new int[] { 3, 1, 4, 0, 2, 5 }, map);
+    }
+
+    @Test
+    public void cacheMetrics()
+    {
+        int[] indices = { 0, 1, 2, 2, 1, 3 };
+        assertEquals(2.0f, MeshOptimizer.calculateACMR(indices, 4, 16), PRECISION);
+        assertEquals(1.0f, MeshOptimizer.calculateATVR(indices, 4, 16), PRECISION);
+        assertEquals(2.5f, MeshOptimizer.calculateACMR(indices, 4, 1), PRECISION);
+    }
+
+    /* Sorted list of triangles, with the x coordinate and texture s coordinate for each corner */
+    private static String cornerData(GMesh gmesh)
+    {
+        int[] indices = gmesh.getIndexData();
+        float[] coords = gmesh.getVertexData("mcPosition");
+        float[] texCoords = gmesh.getVertexData("mcTexCoord");
+        String[] tris = new String[indices.length / 3];
+        for (int t = 0; t < tris.length; t++)
+        {
+            StringBuilder buf = new StringBuilder();
+            for (int k = 0; k < 3; k++)
+            {
+                int v = indices[3 * t + k];
+                buf.append(coords[3 * v]).append('/').append(texCoords[2 * v]).append(' ');
+            }
+            tris[t] = buf.toString();
+        }
+        Arrays.sort(tris);
+        return Arrays.toString(tris);
+    }
+
+    @Test
+    public void optimizeGMesh()
+    {
+        GMesh gmesh = new GMesh();
+        gmesh.setMeshType(GMesh.MeshType.Triangles);
+        float[] coords = { 0, 0, 0, 1, 0, 0, 2, 0, 0, 3, 0, 0 };
+        float[] texCoords = { 0, 0, 0.5f, 0, 1, 0 };
+        gmesh.setIndexedVertexData("mcPosition", 3, coords, new int[] { 3, 2, 1, 1, 2, 0 });
+        gmesh.setIndexedVertexData("mcTexCoord", 2, texCoords, new int[] { 2, 1, 0, 0, 1, 0 });
+        gmesh.unifyIndices();
+        String before = cornerData(gmesh);
+        int nrOfVertices = gmesh.getNrOfVertices();
+        gmesh.optimizeVertexOrder();
+        assertEquals(nrOfVertices, gmesh.getNrOfVertices());
+        assertEquals(before, cornerData(gmesh));
+        assertEquals(0, gmesh.getIndexData()[0]);
+    }
+}
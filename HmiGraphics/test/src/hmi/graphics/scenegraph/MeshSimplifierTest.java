@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.graphics.scenegraph;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * JUnit test for hmi.graphics.scenegraph.MeshSimplifier, and the generation of levels of detail for GShapes
+ */
+public class MeshSimplifierTest
+{
+    private static final int N = 40;
+    private static final int M = 20;
+
+    /* Vertex coordinates for a closed N x M torus */
+    private static float[] torusPositions()
+    {
+        float[] positions = new float[3 * N * M];
+        for (int i = 0; i < N; i++)
+        {
+            for (int j = 0; j < M; j++)
+            {
+                double u = 2 * Math.PI * i / N;
+                double v = 2 * Math.PI * j / M;
+                int offset = 3 * (i * M + j);
+                positions[offset] = (float) ((1 + 0.3 * Math.cos(v)) * Math.cos(u));
+                positions[offset + 1] = (float) ((1 + 0.3 * Math.cos(v)) * Math.sin(u));
+                positions[offset + 2] = (float) (0.3 * Math.sin(v));
+            }
+        }
+        return positions;
+    }
+
+    /* Triangle indices for the torus; when open is true, the last ring of quads is left out */
+    private static int[] torusIndices(boolean open)
+    {
+        int rings = open ? N - 1 : N;
+        int[] indices = new int[6 * rings * M];
+        int n = 0;
+        for (int i = 0; i < rings; i++)
+        {
+            for (int j = 0; j < M; j++)
+            {
+                int v00 = i * M + j;
+                int v10 = ((i + 1) % N) * M + j;
+                int v01 = i * M + (j + 1) % M;
+                int v11 = ((i + 1) % N) * M + (j + 1) % M;
+                int[] quad = { v00, v10, v11, v00, v11, v01 };
+                for (int q : quad)
+                    indices[n++] = q;
+            }
+        }
+        return indices;
+    }
+
+    @Test
+    public void simplify()
+    {
+        int[] indices = torusIndices(false);
+        int[] simplified = MeshSimplifier.simplify(indices, torusPositions(), 3, N * M, indices.length / 12, Float.MAX_VALUE);
+        assertEquals(indices.length / 4, simplified.length);
+        for (int t = 0; t < simplified.length / 3; t++)
+        {
+            int a = simplified[3 * t], b = simplified[3 * t + 1], c = simplified[3 * t + 2];
+            assertTrue(a != b && b != c && a != c);
+        }
+    }
+
+    @Test
+    public void maxError()
+    {
+        int[] indices = torusIndices(false);
+        int[] bounded = MeshSimplifier.simplify(indices, torusPositions(), 3, N * M, 0, 0.0001f);
+        int[] unbounded = MeshSimplifier.simplify(indices, torusPositions(), 3, N * M, 0, Float.MAX_VALUE);
+        assertTrue(bounded.length > unbounded.length);
+    }
+
+    @Test
+    public void boundaryIsKept()
+    {
+        int[] indices = torusIndices(true);
+        int[] simplified = MeshSimplifier.simplify(indices, torusPositions(), 3, N * M, 0, Float.MAX_VALUE);
+        boolean[] used = new boolean[N * M];
+        for (int index : simplified)
+            used[index] = true;
+        for (int j = 0; j < M; j++)
+        {
+            assertTrue(used[j]); // first ring
+            assertTrue(used[(N - 1) * M + j]); // last ring
+        }
+    }
+
+    private static GShape torusShape()
+    {
+        GMesh gmesh = new GMesh();
+        gmesh.setId("torus");
+        gmesh.setMeshType(GMesh.MeshType.Triangles);
+        int[] indices = torusIndices(false);
+        gmesh.setIndexedVertexData("mcPosition", 3, torusPositions(), indices);
+        float[] colors = new float[N * M];
+        for (int v = 0; v < colors.length; v++)
+            colors[v] = v;
+        gmesh.setIndexedVertexData("color", 1, colors, indices.clone());
+        gmesh.unifyIndices();
+        return new GShape(gmesh, null, "torus");
+    }
+
+    @Test
+    public void generateLODs()
+    {
+        GShape gshape = torusShape();
+        gshape.generateLODs(3, 0.5f);
+        assertEquals(3, gshape.getNrOfLODs());
+        float[] sizes = gshape.getLODSizes();
+        assertEquals(GShape.DEFAULT_LOD_SIZE, sizes[0], 0.0001f);
+        int previous = gshape.getGMesh().getNrOfIndices();
+        for (int i = 0; i < 3; i++)
+        {
+            GMesh lod = gshape.getLODMeshes()[i];
+            assertEquals(previous / 2, lod.getNrOfIndices());
+            previous = lod.getNrOfIndices();
+            if (i > 0) assertTrue(sizes[i] < sizes[i - 1]);
+            // every LOD vertex is an original vertex, with its original attribute values
+            float[] positions = lod.getVertexData("mcPosition");
+            float[] colors = lod.getVertexData("color");
+            float[] original = torusPositions();
+            assertEquals(lod.getNrOfVertices(), colors.length);
+            for (int v = 0; v < colors.length; v++)
+            {
+                int ov = (int) colors[v];
+                assertArrayEquals(new float[] { original[3 * ov], original[3 * ov + 1], original[3 * ov + 2] },
+                        new float[] { positions[3 * v], positions[3 * v + 1], positions[3 * v + 2] }, 0.0f);
+            }
+        }
+    }
+
+    @Test
+    public void binaryLODs() throws IOException
+    {
+        GShape gshape = torusShape();
+        gshape.generateLODs(2, 0.25f);
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        gshape.writeBinary(new DataOutputStream(bout));
+        GShape read = new GShape();
+        read.readBinary(new DataInputStream(new ByteArrayInputStream(bout.toByteArray())));
+        assertEquals(2, read.getNrOfLODs());
+        assertArrayEquals(gshape.getLODSizes(), read.getLODSizes(), 0.0f);
+        assertArrayEquals(gshape.getLODMeshes()[1].getIndexData(), read.getLODMeshes()[1].getIndexData());
+    }
+}
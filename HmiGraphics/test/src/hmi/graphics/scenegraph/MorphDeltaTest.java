@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.graphics.scenegraph;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * JUnit test for hmi.graphics.scenegraph.MorphDelta
+ */
+public class MorphDeltaTest
+{
+    private static final float PRECISION = 0.0001f;
+
+    @Test
+    public void fromTargetData()
+    {
+        float[] base = { 0, 0, 0, 1, 1, 1, 2, 2, 2, 3, 3, 3 };
+        float[] target = { 0, 0, 0, 1, 1.5f, 1, 2, 2, 2, 3, 3, 4 };
+        MorphDelta md = MorphDelta.fromTargetData(base, target, 3);
+        assertEquals(3, md.getValueSize());
+        assertEquals(2, md.getNrOfVertices());
+        assertArrayEquals(new int[] { 1, 3 }, md.getVertexIndices());
+        assertArrayEquals(new float[] { 0, 0.5f, 0, 0, 0, 1 }, md.getDeltas(), PRECISION);
+    }
+
+    @Test
+    public void nullTarget()
+    {
+        MorphDelta md = MorphDelta.fromTargetData(new float[] { 1, 2, 3 }, null, 3);
+        assertEquals(0, md.getNrOfVertices());
+    }
+
+    @Test
+    public void addTo()
+    {
+        float[] base = { 0, 0, 0, 1, 1, 1, 2, 2, 2 };
+        float[] target = { 0, 0, 0, 3, 1, 1, 2, 2, 2 };
+        MorphDelta md = MorphDelta.fromTargetData(base, target, 3);
+        float[] dest = base.clone();
+        md.addTo(dest, 0.5f);
+        assertArrayEquals(new float[] { 0, 0, 0, 2, 1, 1, 2, 2, 2 }, dest, PRECISION);
+        md.addTo(dest, -0.5f);
+        assertArrayEquals(base, dest, PRECISION);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void inconsistentLengths()
+    {
+        new MorphDelta(3, new int[] { 0, 1 }, new float[3]);
+    }
+}
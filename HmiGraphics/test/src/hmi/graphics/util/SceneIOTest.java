@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+package hmi.graphics.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import hmi.graphics.scenegraph.GScene;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test for hmi.graphics.util.SceneIO
+ */
+public class SceneIOTest
+{
+    private static final String DAE_RESOURCE = "dae/simplebox.dae";
+
+    private File tmpDir;
+
+    @Before
+    public void setup() throws IOException
+    {
+        tmpDir = File.createTempFile("sceneiotest", "");
+        tmpDir.delete();
+        tmpDir.mkdirs();
+        SceneIO.setSceneCacheDirectory(null);
+    }
+
+    @After
+    public void tearDown()
+    {
+        SceneIO.setOptimizeMeshes(false);
+        SceneIO.setSceneCacheDirectory(null);
+        deleteAll(tmpDir);
+    }
+
+    private static void deleteAll(File file)
+    {
+        File[] children = file.listFiles();
+        if (children != null)
+        {
+            for (File child : children)
+                deleteAll(child);
+        }
+        file.delete();
+    }
+
+    /* Copies the DAE_RESOURCE to the temp directory, and returns its URL */
+    private String copyDae() throws IOException
+    {
+        File dae = new File(tmpDir, "box.dae");
+        InputStream inps = SceneIO.class.getClassLoader().getResourceAsStream(DAE_RESOURCE);
+        OutputStream outps = new FileOutputStream(dae);
+        try
+        {
+            byte[] chunk = new byte[4096];
+            int n;
+            while ((n = inps.read(chunk)) > 0)
+            {
+                outps.write(chunk, 0, n);
+            }
+        }
+        finally
+        {
+            inps.close();
+            outps.close();
+        }
+        return dae.toURI().toURL().toString();
+    }
+
+    /* Enables the scene cache, within the temp directory, and returns the cache directory */
+    private File enableCache()
+    {
+        File cacheDir = new File(tmpDir, "cache");
+        SceneIO.setSceneCacheDirectory(cacheDir);
+        return cacheDir;
+    }
+
+    private static int nrOfFiles(File dir)
+    {
+        File[] files = dir.listFiles();
+        return (files == null) ? 0 : files.length;
+    }
+
+    @Test
+    public void cacheDisabledByDefault()
+    {
+        if (System.getProperty(SceneIO.SCENE_CACHE_PROPERTY) == null)
+        {
+            assertNull(SceneIO.getSceneCacheDirectory());
+        }
+    }
+
+    @Test
+    public void cacheHit() throws IOException
+    {
+        String dae = copyDae();
+        File cacheDir = enableCache();
+        GScene cold = SceneIO.readGScene(dae, SceneIO.NONE);
+        assertNotNull(cold);
+        assertEquals(1, nrOfFiles(cacheDir));
+        File cacheFile = cacheDir.listFiles()[0];
+        assertTrue(cacheFile.setLastModified(0L));
+
+        GScene cached = SceneIO.readGScene(dae, SceneIO.NONE);
+        assertEquals(0L, cacheFile.lastModified()); // read from the cache, not rewritten
+        assertEquals(1, nrOfFiles(cacheDir));
+        assertNotEquals("", cold.getId());
+        assertEquals(cold.getId(), cached.getId());
+        assertEquals("", cold.showDiff(cached));
+        assertEquals(cold.toXMLString(), cached.toXMLString());
+    }
+
+    @Test
+    public void changedSourceMissesCache() throws IOException
+    {
+        String dae = copyDae();
+        File cacheDir = enableCache();
+        assertNotNull(SceneIO.readGScene(dae, SceneIO.NONE));
+        assertEquals(1, nrOfFiles(cacheDir));
+        String oldName = cacheDir.listFiles()[0].getName();
+
+        OutputStream outps = new FileOutputStream(new File(tmpDir, "box.dae"), true);
+        outps.write("\n".getBytes("UTF-8")); // still the same scene, but different file contents
+        outps.close();
+        GScene gscene = SceneIO.readGScene(dae, SceneIO.NONE);
+        assertNotNull(gscene);
+        assertEquals(1, nrOfFiles(cacheDir)); // the stale entry is replaced
+        assertNotEquals(oldName, cacheDir.listFiles()[0].getName());
+    }
+
+    @Test
+    public void changedOptionMissesCache() throws IOException
+    {
+        String dae = copyDae();
+        File cacheDir = enableCache();
+        GScene plain = SceneIO.readGScene(dae, SceneIO.NONE);
+        assertEquals(1, nrOfFiles(cacheDir));
+        String plainName = cacheDir.listFiles()[0].getName();
+
+        SceneIO.setOptimizeMeshes(true);
+        GScene optimized = SceneIO.readGScene(dae, SceneIO.NONE);
+        assertEquals(1, nrOfFiles(cacheDir));
+        String optimizedName = cacheDir.listFiles()[0].getName();
+        assertNotEquals(plainName, optimizedName);
+        assertNotEquals(plain.toXMLString(), optimized.toXMLString());
+
+        SceneIO.readGScene(dae, SceneIO.NONE, false);
+        assertEquals(1, nrOfFiles(cacheDir));
+        assertNotEquals(optimizedName, cacheDir.listFiles()[0].getName());
+    }
+
+    @Test
+    public void otherFilesKeepCacheEntries() throws IOException
+    {
+        String dae = copyDae();
+        File other = new File(tmpDir, "other.dae");
+        assertTrue(new File(tmpDir, "box.dae").renameTo(other));
+        String otherDae = other.toURI().toURL().toString();
+        dae = copyDae();
+        File cacheDir = enableCache();
+        SceneIO.readGScene(dae, SceneIO.NONE);
+        SceneIO.readGScene(otherDae, SceneIO.NONE);
+        assertEquals(2, nrOfFiles(cacheDir));
+    }
+
+    @Test
+    public void writeDoesNotModifyScene()
+    {
+        GScene gscene = SceneIO.readGScene(DAE_RESOURCE, SceneIO.NONE);
+        assertNotNull(gscene);
+        String xml = gscene.toXMLString();
+        GScene optimized = SceneIO.readGScene(DAE_RESOURCE, SceneIO.NONE);
+        optimized.optimizeMeshes();
+        assertNotEquals(xml, optimized.toXMLString());
+
+        SceneIO.setOptimizeMeshes(true);
+        SceneIO.writeGScene(new File(tmpDir, "scene.bin").getAbsolutePath(), gscene);
+        assertEquals(xml, gscene.toXMLString());
+    }
+}
@@ -887,6 +887,49 @@ public final class Mat4f
         dest[M33] = mt33;
     }
 
+    /**
+     * Multiplies Mat4f matrix a, starting at aIndex, with Mat4f matrix b, starting at bIndex, and stores the result in dest, starting at dIndex.
+     * The dest array is allowed to be aliased with a and/or b: dest = a * b
+     */
+    public static void mul(float[] dest, int dIndex, float[] a, int aIndex, float[] b, int bIndex)
+    {
+        float mt00 = a[aIndex + M00] * b[bIndex + M00] + a[aIndex + M01] * b[bIndex + M10] + a[aIndex + M02] * b[bIndex + M20] + a[aIndex + M03] * b[bIndex + M30];
+        float mt01 = a[aIndex + M00] * b[bIndex + M01] + a[aIndex + M01] * b[bIndex + M11] + a[aIndex + M02] * b[bIndex + M21] + a[aIndex + M03] * b[bIndex + M31];
+        float mt02 = a[aIndex + M00] * b[bIndex + M02] + a[aIndex + M01] * b[bIndex + M12] + a[aIndex + M02] * b[bIndex + M22] + a[aIndex + M03] * b[bIndex + M32];
+        float mt03 = a[aIndex + M00] * b[bIndex + M03] + a[aIndex + M01] * b[bIndex + M13] + a[aIndex + M02] * b[bIndex + M23] + a[aIndex + M03] * b[bIndex + M33];
+
+        float mt10 = a[aIndex + M10] * b[bIndex + M00] + a[aIndex + M11] * b[bIndex + M10] + a[aIndex + M12] * b[bIndex + M20] + a[aIndex + M13] * b[bIndex + M30];
+        float mt11 = a[aIndex + M10] * b[bIndex + M01] + a[aIndex + M11] * b[bIndex + M11] + a[aIndex + M12] * b[bIndex + M21] + a[aIndex + M13] * b[bIndex + M31];
+        float mt12 = a[aIndex + M10] * b[bIndex + M02] + a[aIndex + M11] * b[bIndex + M12] + a[aIndex + M12] * b[bIndex + M22] + a[aIndex + M13] * b[bIndex + M32];
+        float mt13 = a[aIndex + M10] * b[bIndex + M03] + a[aIndex + M11] * b[bIndex + M13] + a[aIndex + M12] * b[bIndex + M23] + a[aIndex + M13] * b[bIndex + M33];
+
+        float mt20 = a[aIndex + M20] * b[bIndex + M00] + a[aIndex + M21] * b[bIndex + M10] + a[aIndex + M22] * b[bIndex + M20] + a[aIndex + M23] * b[bIndex + M30];
+        float mt21 = a[aIndex + M20] * b[bIndex + M01] + a[aIndex + M21] * b[bIndex + M11] + a[aIndex + M22] * b[bIndex + M21] + a[aIndex + M23] * b[bIndex + M31];
+        float mt22 = a[aIndex + M20] * b[bIndex + M02] + a[aIndex + M21] * b[bIndex + M12] + a[aIndex + M22] * b[bIndex + M22] + a[aIndex + M23] * b[bIndex + M32];
+        float mt23 = a[aIndex + M20] * b[bIndex + M03] + a[aIndex + M21] * b[bIndex + M13] + a[aIndex + M22] * b[bIndex + M23] + a[aIndex + M23] * b[bIndex + M33];
+
+        float mt30 = a[aIndex + M30] * b[bIndex + M00] + a[aIndex + M31] * b[bIndex + M10] + a[aIndex + M32] * b[bIndex + M20] + a[aIndex + M33] * b[bIndex + M30];
+        float mt31 = a[aIndex + M30] * b[bIndex + M01] + a[aIndex + M31] * b[bIndex + M11] + a[aIndex + M32] * b[bIndex + M21] + a[aIndex + M33] * b[bIndex + M31];
+        float mt32 = a[aIndex + M30] * b[bIndex + M02] + a[aIndex + M31] * b[bIndex + M12] + a[aIndex + M32] * b[bIndex + M22] + a[aIndex + M33] * b[bIndex + M32];
+        float mt33 = a[aIndex + M30] * b[bIndex + M03] + a[aIndex + M31] * b[bIndex + M13] + a[aIndex + M32] * b[bIndex + M23] + a[aIndex + M33] * b[bIndex + M33];
+        dest[dIndex + M00] = mt00;
+        dest[dIndex + M01] = mt01;
+        dest[dIndex + M02] = mt02;
+        dest[dIndex + M03] = mt03;
+        dest[dIndex + M10] = mt10;
+        dest[dIndex + M11] = mt11;
+        dest[dIndex + M12] = mt12;
+        dest[dIndex + M13] = mt13;
+        dest[dIndex + M20] = mt20;
+        dest[dIndex + M21] = mt21;
+        dest[dIndex + M22] = mt22;
+        dest[dIndex + M23] = mt23;
+        dest[dIndex + M30] = mt30;
+        dest[dIndex + M31] = mt31;
+        dest[dIndex + M32] = mt32;
+        dest[dIndex + M33] = mt33;
+    }
+
     /**
      * Multiplies two Mat4f matrices, assuming that the fourth row is of the form (0, 0, 0, 1). Whether the fourth row is actually present or not is
      * not important; The Mat4f coding stores these in the last four elements of a float[16] array. This method does not read nor write these
@@ -368,14 +368,26 @@ public final class Quat4f
      */
     public static void getRollPitchYaw(float[] q, float[] result)
     {
-        double sqw = q[s] * q[s];
-        double sqx = q[x] * q[x];
-        double sqy = q[y] * q[y];
-        double sqz = q[z] * q[z];
-
-        result[0] = (float) Math.atan2(2 * (q[x] * q[y] + q[z] * q[s]), sqw + sqy - sqx - sqz);
-        result[1] = (float) Math.asin(-2 * (q[z] * q[y] - q[x] * q[s]));
-        result[2] = (float) Math.atan2(2 * (q[z] * q[x] + q[y] * q[s]), sqw + sqz - sqx - sqy);
+        getRollPitchYaw(q, 0, result);
+    }
+
+    /**
+     * calculates the roll,pitch, and yaw angles from a quaternion, specified by an array with offset
+     */
+    public static void getRollPitchYaw(float[] q, int qIndex, float[] result)
+    {
+        float qs = q[s + qIndex];
+        float qx = q[x + qIndex];
+        float qy = q[y + qIndex];
+        float qz = q[z + qIndex];
+        double sqw = qs * qs;
+        double sqx = qx * qx;
+        double sqy = qy * qy;
+        double sqz = qz * qz;
+
+        result[0] = (float) Math.atan2(2 * (qx * qy + qz * qs), sqw + sqy - sqx - sqz);
+        result[1] = (float) Math.asin(-2 * (qz * qy - qx * qs));
+        result[2] = (float) Math.atan2(2 * (qz * qx + qy * qs), sqw + sqz - sqx - sqy);
     }
 
     public static void getRollPitchYawDegrees(float[] q, float[] result)
@@ -54,7 +54,7 @@ public final class SpatialArticulatedBodyInertiaTensor
     /**
      * Idst = I1 + I2 
      */
-    public void add(float[] destTensor, float[] tensor1, float[] tensor2)
+    public static void add(float[] destTensor, float[] tensor1, float[] tensor2)
     {
       Mat3f.add(destTensor, tensor1, tensor2);
       Mat3f.add(destTensor,H,tensor1,H,tensor2,H);
@@ -64,10 +64,10 @@ public final class SpatialArticulatedBodyInertiaTensor
     /**
      * Idst = I1 + I2 
      */
-    public void add(float []destTensor, int dstIndex, float[] tensor1, int index1, float[] tensor2, int index2)
+    public static void add(float []destTensor, int dstIndex, float[] tensor1, int index1, float[] tensor2, int index2)
     {
       Mat3f.add(destTensor, dstIndex,tensor1,index1,tensor2,index2);
-      Mat3f.add(destTensor,H+dstIndex,tensor1,H+index2,tensor2,H+index2);
+      Mat3f.add(destTensor,H+dstIndex,tensor1,H+index1,tensor2,H+index2);
       Mat3f.add(destTensor,M+dstIndex,tensor1,M+index1,tensor2,M+index2);
     }
     
@@ -112,91 +112,108 @@ public final class SpatialArticulatedBodyInertiaTensor
      */
     public static void transformSpatialVec(float[] vdest, float[] tensor, float[] v)
     {
-      //vdest = (Iw+Hv,Mv+H^Tw)
-      
-      //I w+Hv
-      Mat3f.transform(vdest,3,tensor,0,v,0);
-      Mat3f.transform(vdest,0,tensor,H,v,3);
-      Vec3f.add(vdest, 0,vdest,0,vdest,3);
-      
-      float[] tmp=new float[3];
-      //Mv+H^Tw)
-      Mat3f.transform(tmp, 0,tensor,M,v,3);
-      Mat3f.transformTranspose(vdest, 3,tensor,H,v,0);
-      Vec3f.add(vdest,3,tmp,0);
+      transformSpatialVec(vdest, 0, tensor, 0, v, 0);
     }
     
     /**
-     * vdest = I*v
+     * vdest = I*v, vdest is allowed to be aliased with v
      */
     public static void transformSpatialVec(float[] vdest,int dstIndex, float[] tensor, int iIndex, float[] v, int vIndex)
     {
-      //vdest = (Iw+Hv,Mv+H^Tw)
+      //vdest = (Iw+Hv,H^Tw+Mv)
+      float wx = v[vIndex];
+      float wy = v[vIndex+1];
+      float wz = v[vIndex+2];
+      float vx = v[vIndex+3];
+      float vy = v[vIndex+4];
+      float vz = v[vIndex+5];
+      int i = iIndex+I;
+      int h = iIndex+H;
+      int m = iIndex+M;
       
       //I w+Hv
-      Mat3f.transform(vdest,3+dstIndex,tensor,iIndex,v,vIndex);
-      Mat3f.transform(vdest,dstIndex,tensor,iIndex+H,v,3+vIndex);
-      Vec3f.add(vdest,dstIndex,vdest,dstIndex,vdest,3+dstIndex);
+      vdest[dstIndex]   = tensor[i]  *wx + tensor[i+1]*wy + tensor[i+2]*wz + tensor[h]  *vx + tensor[h+1]*vy + tensor[h+2]*vz;
+      vdest[dstIndex+1] = tensor[i+3]*wx + tensor[i+4]*wy + tensor[i+5]*wz + tensor[h+3]*vx + tensor[h+4]*vy + tensor[h+5]*vz;
+      vdest[dstIndex+2] = tensor[i+6]*wx + tensor[i+7]*wy + tensor[i+8]*wz + tensor[h+6]*vx + tensor[h+7]*vy + tensor[h+8]*vz;
       
-      float[] tmp=new float[3];
-      //Mv+H^Tw)
-      Mat3f.transform(tmp, 0,tensor,iIndex+M,v,vIndex+3);
-      Mat3f.transformTranspose(vdest, dstIndex+3,tensor,iIndex+H,v,vIndex);
-      Vec3f.add(vdest,dstIndex+3,tmp,0);
+      //H^Tw+Mv
+      vdest[dstIndex+3] = tensor[h]  *wx + tensor[h+3]*wy + tensor[h+6]*wz + tensor[m]  *vx + tensor[m+1]*vy + tensor[m+2]*vz;
+      vdest[dstIndex+4] = tensor[h+1]*wx + tensor[h+4]*wy + tensor[h+7]*wz + tensor[m+3]*vx + tensor[m+4]*vy + tensor[m+5]*vz;
+      vdest[dstIndex+5] = tensor[h+2]*wx + tensor[h+5]*wy + tensor[h+8]*wz + tensor[m+6]*vx + tensor[m+7]*vy + tensor[m+8]*vz;
     }
     
     /**
      * destTensor = tensor* srcTensor tensor^-1 
      */
     public static void xstarIXinv(float[] destTensor,float[] tensor,float[] srcTensor)
+    {
+        xstarIXinv(destTensor, 0, tensor, 0, srcTensor, 0);
+    }
+    
+    /**
+     * destTensor = tensor* srcTensor tensor^-1, destTensor is not allowed to be aliased with srcTensor 
+     */
+    public static void xstarIXinv(float[] destTensor, int dstIndex, float[] tensor, int tIndex, float[] srcTensor, int srcIndex)
     {
       //abi(M,H,I) = E M E^T, E(H-rxM)E^T, E(I-rxH^T+(H-rxM)rx)E^T))
+        int dI = dstIndex+I;
+        int dH = dstIndex+H;
+        int dM = dstIndex+M;
         
         //destTensor[M]=rx
-        Mat3f.skew(destTensor,M,tensor,SpatialTransform.R);
+        Mat3f.skew(destTensor,dM,tensor,tIndex+SpatialTransform.R);
         
         //destTensor[H]=rxM                             =destTensor[M] M 
-        Mat3f.mul(destTensor, H,srcTensor,M);
+        Mat3f.mul(destTensor, dH, destTensor, dM, srcTensor, srcIndex+M);
         
         //destTensor[H]=H-rxM                           = H - destTensor[H] 
-        Mat3f.sub(destTensor,H, srcTensor,H,destTensor,H);
+        Mat3f.sub(destTensor,dH, srcTensor,srcIndex+H,destTensor,dH);
         
-        //destTensor[I]=(H-rxM)rx                       =destTensor[H] destTensor[I]
-        Mat3f.mul(destTensor,I,destTensor,H,destTensor,M);
+        //destTensor[I]=(H-rxM)rx                       =destTensor[H] destTensor[M]
+        Mat3f.mul(destTensor,dI,destTensor,dH,destTensor,dM);
         
         //destTensor[M] = rx H^T                        =destTensor[M] H^T
-        Mat3f.mulTransposeRight(destTensor,M,destTensor,M, srcTensor,H);
+        Mat3f.mulTransposeRight(destTensor,dM,destTensor,dM, srcTensor,srcIndex+H);
         
         //destTensor[I] = (H-rxM)rx-rxH^T               =destTensor[I]-destTensor[M]
-        Mat3f.sub(destTensor,I,destTensor,M);
+        Mat3f.sub(destTensor,dI,destTensor,dM);
         
         //destTensor[I] = (H-rxM)rx-rxH^T+I
-        Mat3f.add(destTensor,I, srcTensor,I);
+        Mat3f.add(destTensor,dI, srcTensor,srcIndex+I);
         
         //destTensor[I] = ((H-rxM)rx-rxH^T+I)E^T
-        Mat3f.mulTransposeRight(destTensor,I, destTensor, I, tensor, 0);
+        Mat3f.mulTransposeRight(destTensor,dI, destTensor, dI, tensor, tIndex);
         
         //destTensor[I] = E((H-rxM)rx-rxH^T+I)E^T
-        Mat3f.mul(destTensor,I, tensor, 0, destTensor,I);
+        Mat3f.mul(destTensor,dI, tensor, tIndex, destTensor,dI);
         
         //destTensor[H] = E(H-rxM)
-        Mat3f.mul(destTensor, H,tensor, 0, destTensor,H);
+        Mat3f.mul(destTensor, dH,tensor, tIndex, destTensor,dH);
         
         //destTensor[H] = E(H-rxM)E^T
-        Mat3f.mulTransposeRight(destTensor, H, destTensor,H, tensor, 0);
+        Mat3f.mulTransposeRight(destTensor, dH, destTensor,dH, tensor, tIndex);
         
         //destTensor[M] = E M
-        Mat3f.mul(destTensor,M, tensor, 0, srcTensor,M);
+        Mat3f.mul(destTensor,dM, tensor, tIndex, srcTensor,srcIndex+M);
         
         //destTensor[M] = E M E^T
-        Mat3f.mulTransposeRight(destTensor, M, destTensor,M, tensor, 0);
+        Mat3f.mulTransposeRight(destTensor, dM, destTensor,dM, tensor, tIndex);
     }
     
     public static void setFromSpatialInertiaTensor(float[] destTensor, float[] spatialTensor)
     {
-        Mat3f.set(destTensor, I, spatialTensor,SpatialInertiaTensor.I);
-        Mat3f.skew(destTensor, H, spatialTensor, SpatialInertiaTensor.H);
-        Mat3f.scale(destTensor, M, Mat3f.getIdentity(), 0, spatialTensor[SpatialInertiaTensor.M]);
+        setFromSpatialInertiaTensor(destTensor, 0, spatialTensor, 0);
+    }
+    
+    /**
+     * Sets the articulated body inertia tensor from a (13 element) spatial inertia tensor
+     */
+    public static void setFromSpatialInertiaTensor(float[] destTensor, int dstIndex, float[] spatialTensor, int sIndex)
+    {
+        Mat3f.set(destTensor, dstIndex+I, spatialTensor,sIndex+SpatialInertiaTensor.I);
+        Mat3f.skew(destTensor, dstIndex+H, spatialTensor, sIndex+SpatialInertiaTensor.H);
+        Mat3f.setIdentity(destTensor, dstIndex+M);
+        Mat3f.scale(destTensor, dstIndex+M, spatialTensor[sIndex+SpatialInertiaTensor.M]);
     }
     
     /**
@@ -171,7 +171,7 @@ public final class SpatialTransform
         Vec3f.sub(dest, 0, src, 0, dest, 3);
         
         //E(n - r x f)
-        Mat3f.transform(trans,0, dest, 3);
+        Mat3f.transform(trans,0, dest, 0);
         
         //E * f
         Mat3f.transform(trans,0,dest, 3,src,3);
@@ -498,6 +498,32 @@ public class Mat4fTest
         assertTrue(Mat4f.epsilonEquals(Mat4f.ID, m, 0.00001f));
     }
 
+    @Test
+    public void testMulIndexed()
+    {
+        float m1[] = new float[16];
+        float m2[] = new float[16];
+        float q[] = new float[4];
+        Quat4f.setFromAxisAngle4f(q, 1, 1, -2, 1.2f);
+        Mat4f.setFromTRS(m1, new float[] { 1, 2, 3 }, q, 2);
+        Quat4f.setFromAxisAngle4f(q, 0, 1, 3, -0.7f);
+        Mat4f.setFromTRS(m2, new float[] { -1, 4, 0.5f }, q, 1);
+        float expected[] = new float[16];
+        Mat4f.mul(expected, m1, m2);
+
+        float buf[] = new float[50];
+        System.arraycopy(m1, 0, buf, 1, 16);
+        System.arraycopy(m2, 0, buf, 17, 16);
+        Mat4f.mul(buf, 33, buf, 1, buf, 17);
+        float m[] = new float[16];
+        System.arraycopy(buf, 33, m, 0, 16);
+        assertTrue(Mat4f.epsilonEquals(expected, m, 0.00001f));
+
+        Mat4f.mul(buf, 1, buf, 1, buf, 17); // aliased
+        System.arraycopy(buf, 1, m, 0, 16);
+        assertTrue(Mat4f.epsilonEquals(expected, m, 0.00001f));
+    }
+
     @Test
     public void setFromTMat3f()
     {
@@ -23,6 +23,7 @@
 package hmi.math;
 
 import static hmi.testutil.math.Quat4fTestUtil.assertQuat4fRotationEquivalent;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import hmi.testutil.math.Quat4fTestUtil;
@@ -937,6 +938,18 @@ public class Quat4fTest
         Quat4fTestUtil.assertQuat4fRotationEquivalent(qExpected, q, PRECISION);
     }
 
+    @Test
+    public void testGetRollPitchYawWithOffset()
+    {
+        float q[] = new float[6];
+        Quat4f.setFromRollPitchYaw(q, 2, 1f, 0.5f, -2f);
+        float rpy[] = new float[3];
+        Quat4f.getRollPitchYaw(q, 2, rpy);
+        float rpyExpected[] = new float[3];
+        Quat4f.getRollPitchYaw(Quat4f.getQuat4fFromRollPitchYaw(1f, 0.5f, -2f), rpyExpected);
+        assertArrayEquals(rpyExpected, rpy, 0f);
+    }
+
     @Test
     public void testGetRollPitchYawDegrees()
     {
@@ -53,4 +53,60 @@ public class SpatialArticulatedBodyInertiaTensorTest
         SpatialArticulatedBodyInertiaTensor.xstarIXinv(Idest, X, Ia);
         assertTrue(SpatialArticulatedBodyInertiaTensor.epsilonEquals(Idest, Ia, 0.0001f));
     }
+    
+    private float[] getArticulatedBodyInertiaTensor()
+    {
+        float I[]=SpatialInertiaTensor.getSpatialInertiaTensor();
+        float rotI[]=new float[]{1,0.1f,0.2f, 0.1f,2,0.3f, 0.2f,0.3f,3};
+        SpatialInertiaTensor.set(I, rotI, new float[]{1,2,3}, 2);
+        float Ia[]=SpatialArticulatedBodyInertiaTensor.getSpatialArticulatedBodyInertiaTensor();
+        SpatialArticulatedBodyInertiaTensor.setFromSpatialInertiaTensor(Ia, I);
+        return Ia;
+    }
+    
+    @Test
+    public void testTransformSpatialVec()
+    {
+        float I[]=SpatialInertiaTensor.getSpatialInertiaTensor();
+        float rotI[]=new float[]{1,0.1f,0.2f, 0.1f,2,0.3f, 0.2f,0.3f,3};
+        SpatialInertiaTensor.set(I, rotI, new float[]{1,2,3}, 2);
+        float Ia[]=SpatialArticulatedBodyInertiaTensor.getSpatialArticulatedBodyInertiaTensor();
+        SpatialArticulatedBodyInertiaTensor.setFromSpatialInertiaTensor(Ia, I);
+        
+        float v[]=new float[]{1,-2,3,4,5,-6};
+        float expected[]=new float[6];
+        SpatialInertiaTensor.transformSpatialVec(expected, I, v);
+        float f[]=new float[6];
+        SpatialArticulatedBodyInertiaTensor.transformSpatialVec(f, Ia, v);
+        assertTrue(SpatialVec.epsilonEquals(expected, f, 0.0001f));
+        
+        //aliased
+        SpatialArticulatedBodyInertiaTensor.transformSpatialVec(v, Ia, v);
+        assertTrue(SpatialVec.epsilonEquals(expected, v, 0.0001f));
+    }
+    
+    @Test
+    public void testXstarIXinvTransform()
+    {
+        //(X* Ia X^-1) v = X* (Ia (X^-1 v))
+        float Ia[]=getArticulatedBodyInertiaTensor();
+        float q[]=Quat4f.getQuat4fFromAxisAngle(1, 2, 3, 0.7f);
+        float X[]=SpatialTransform.getSpatialTransform();
+        SpatialTransform.setFromQuat4fVec3f(X, q, new float[]{-1,0.5f,2});
+        float Xinv[]=SpatialTransform.getSpatialTransform();
+        SpatialTransform.transpose(Xinv, X);
+        
+        float v[]=new float[]{1,-2,3,4,5,-6};
+        float temp[]=new float[6];
+        float f[]=new float[6];
+        float expected[]=new float[6];
+        SpatialTransform.transformMotion(temp, Xinv, v);
+        SpatialArticulatedBodyInertiaTensor.transformSpatialVec(f, Ia, temp);
+        SpatialTransform.transformForce(expected, X, f);
+        
+        float Idest[]=SpatialArticulatedBodyInertiaTensor.getSpatialArticulatedBodyInertiaTensor();
+        SpatialArticulatedBodyInertiaTensor.xstarIXinv(Idest, X, Ia);
+        SpatialArticulatedBodyInertiaTensor.transformSpatialVec(f, Idest, v);
+        assertTrue(SpatialVec.epsilonEquals(expected, f, 0.0001f));
+    }
 }
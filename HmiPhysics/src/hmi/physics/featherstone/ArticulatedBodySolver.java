@@ -22,7 +22,400 @@
  *******************************************************************************/
 package hmi.physics.featherstone;
 
+import hmi.math.Mat3f;
+import hmi.math.SpatialArticulatedBodyInertiaTensor;
+import hmi.math.SpatialInertiaTensor;
+import hmi.math.SpatialTransform;
+import hmi.math.SpatialVec;
+import hmi.math.Vec3f;
+
+/**
+ * Articulated body forward dynamics solver,
+ * based on
+ * Rigid Body Dynamics Algorithms
+ * Roy Featherstone
+ * 2007
+ *
+ * Calculates the joint accelerations of a kinematic tree, given its joint positions, velocities and torques,
+ * in O(n) time. All working memory is allocated in the constructor, solve does not allocate.
+ *
+ * Conventions are those of the RNEASolver: joint 0 is the root joint, the parent of a joint always has a lower
+ * index than the joint itself, the spatial inertia of each body and the external forces on it are expressed in
+ * the joint frame. The q, qdot, tau and qdd arrays contain the (packed) values of all joints, in joint order.
+ */
 public class ArticulatedBodySolver
 {
+    private static final int MAX_DOF = 6;
+    private static final int ABI_SIZE = 27;
+    private static final int X_SIZE = SpatialTransform.SPATIALTRANSFORM_SIZE;
+
+    private final Joint[] joints;
+    private final float[] r;
+    private final float[] I;
+    private final int[] lambda;
+    private final int size;
+
+    private final int[] qOffset;
+    private final int[] qdotOffset;
+    private final int[] dofOffset;
+    private final int[] dinvOffset;
+
+    //jcalc in- and output, per joint
+    private final float[][] jq;
+    private final float[][] jqdot;
+    private final float[][] Xj;
+    private final float[][] S;
+    private final float[][] vj;
+    private final float[][] cj;
+
+    private final float[] X;    // iXlambdai
+    private final float[] v;    // base at index 0, joint i at (i+1)*6
+    private final float[] a;    // base at index 0, joint i at (i+1)*6
+    private final float[] c;
+    private final float[] IA;
+    private final float[] pA;
+    private final float[] U;    // 6 x dof, columns packed
+    private final float[] Dinv; // dof x dof, row major
+    private final float[] u;
+
+    private final float[] tempX = new float[X_SIZE];
+    private final float[] tempXinv = new float[X_SIZE];
+    private final float[] tempIa = new float[ABI_SIZE];
+    private final float[] tempIA = new float[ABI_SIZE];
+    private final float[] tempv = new float[6];
+    private final float[] tempv2 = new float[6];
+    private final float[] UDinv = new float[6 * MAX_DOF];
+    private final float[] tempD = new float[MAX_DOF * MAX_DOF];
+    private final float[] tempu = new float[MAX_DOF];
+
+    /**
+     * Constructor
+     * Convention: joint 0 is always the root joint
+     * @param joints the joints
+     * @param translations joint-to-joint translation vectors (an array of at least joints.length*3 length)
+     * @param spatialI spatial inertia tensors (an array of at least joints.length*13 length)
+     * @param parent the parent array, providing the parent of each joint, -1 for root
+     */
+    @edu.umd.cs.findbugs.annotations.SuppressWarnings(value = "EI_EXPOSE_REP2", justification = "Representations are exposed for efficiency reasons")
+    public ArticulatedBodySolver(Joint[] joints, float[] translations, float[] spatialI, int[] parent)
+    {
+        this.joints = joints;
+        size = joints.length;
+        r = translations;
+        I = spatialI;
+        lambda = parent;
+
+        qOffset = new int[size];
+        qdotOffset = new int[size];
+        dofOffset = new int[size];
+        dinvOffset = new int[size];
+        jq = new float[size][];
+        jqdot = new float[size][];
+        Xj = new float[size][];
+        S = new float[size][];
+        vj = new float[size][];
+        cj = new float[size][];
+
+        int qSize = 0;
+        int qdotSize = 0;
+        int dofSize = 0;
+        int dinvSize = 0;
+        for (int i = 0; i < size; i++)
+        {
+            if (parent[i] >= i)
+            {
+                throw new IllegalArgumentException("Parent of joint " + i + " should have a lower index, parent = " + parent[i]);
+            }
+            int dof = joints[i].getSWidth();
+            if (dof > MAX_DOF)
+            {
+                throw new IllegalArgumentException("Joint " + i + " has " + dof + " degrees of freedom, at most " + MAX_DOF
+                        + " are supported");
+            }
+            qOffset[i] = qSize;
+            qdotOffset[i] = qdotSize;
+            dofOffset[i] = dofSize;
+            dinvOffset[i] = dinvSize;
+            qSize += joints[i].getQDimension();
+            qdotSize += joints[i].getQDotDimension();
+            dofSize += dof;
+            dinvSize += dof * dof;
+
+            jq[i] = new float[joints[i].getQDimension()];
+            jqdot[i] = new float[joints[i].getQDotDimension()];
+            Xj[i] = new float[X_SIZE];
+            S[i] = new float[6 * dof];
+            vj[i] = new float[6];
+            cj[i] = new float[6];
+        }
+
+        X = new float[size * X_SIZE];
+        v = new float[(size + 1) * 6];
+        a = new float[(size + 1) * 6];
+        c = new float[size * 6];
+        IA = new float[size * ABI_SIZE];
+        pA = new float[size * 6];
+        U = new float[dofSize * 6];
+        Dinv = new float[dinvSize];
+        u = new float[dofSize];
+    }
+
+    /**
+     * Constructor for a tree of ball joints
+     * @param joints number of joints
+     * @param translations joint-to-joint translation vectors (an array of at least joints*3 length)
+     * @param spatialI spatial inertia tensors (an array of at least joints*13 length)
+     * @param parent the parent array, providing the parent of each joint, -1 for root
+     */
+    public ArticulatedBodySolver(int joints, float[] translations, float[] spatialI, int[] parent)
+    {
+        this(createBallJoints(joints), translations, spatialI, parent);
+    }
+
+    private static Joint[] createBallJoints(int n)
+    {
+        Joint[] j = new Joint[n];
+        for (int i = 0; i < n; i++)
+        {
+            j[i] = new BallJoint();
+        }
+        return j;
+    }
+
+    /**
+     * Solves for the joint accelerations, without external forces
+     * @param qdd       output: joint accelerations
+     * @param v0        spatial velocity of the base frame
+     * @param a0        spatial acceleration of the base frame, use a0 = -g to take gravity into account
+     * @param q         joint positions
+     * @param qdot      joint velocities
+     * @param tau       joint forces
+     */
+    public void solve(float[] qdd, float[] v0, float[] a0, float[] q, float[] qdot, float[] tau)
+    {
+        solve(qdd, v0, a0, q, qdot, tau, null);
+    }
+
+    /**
+     * Solves for the joint accelerations
+     * @param qdd       output: joint accelerations
+     * @param v0        spatial velocity of the base frame
+     * @param a0        spatial acceleration of the base frame, use a0 = -g to take gravity into account
+     * @param q         joint positions
+     * @param qdot      joint velocities
+     * @param tau       joint forces
+     * @param fext      spatial external force on each body, in body coordinates, null for none
+     */
+    public void solve(float[] qdd, float[] v0, float[] a0, float[] q, float[] qdot, float[] tau, float[] fext)
+    {
+        SpatialVec.set(v, v0);
+        SpatialVec.set(a, a0);
+
+        //outward pass: velocities, velocity product accelerations and rigid body inertia
+        for (int i = 0; i < size; i++)
+        {
+            System.arraycopy(q, qOffset[i], jq[i], 0, jq[i].length);
+            System.arraycopy(qdot, qdotOffset[i], jqdot[i], 0, jqdot[i].length);
+            joints[i].jcalc(Xj[i], S[i], vj[i], cj[i], jq[i], jqdot[i]);
+
+            //iXlambdai = XjXt(i)
+            Mat3f.set(X, i * X_SIZE, Xj[i], 0);
+            Mat3f.transformTranspose(Xj[i], 0, X, i * X_SIZE + SpatialTransform.R, Xj[i], SpatialTransform.R);
+            Vec3f.add(X, i * X_SIZE + SpatialTransform.R, r, i * 3);
+
+            //vi = iXlambdai vlambdai + vj
+            SpatialTransform.transformMotion(v, (i + 1) * 6, X, i * X_SIZE, v, (lambda[i] + 1) * 6);
+            SpatialVec.add(v, (i + 1) * 6, vj[i], 0);
+
+            //ci = cj + vi x vj
+            SpatialVec.cross(c, i * 6, v, (i + 1) * 6, vj[i], 0);
+            SpatialVec.add(c, i * 6, cj[i], 0);
+
+            //IAi = Ii
+            SpatialArticulatedBodyInertiaTensor.setFromSpatialInertiaTensor(IA, i * ABI_SIZE, I, i * 13);
+
+            //pAi = vi x* Ii vi - fext
+            SpatialInertiaTensor.transformSpatialVec(tempv, 0, I, i * 13, v, (i + 1) * 6);
+            SpatialVec.crossForce(pA, i * 6, v, (i + 1) * 6, tempv, 0);
+            if (fext != null)
+            {
+                SpatialVec.sub(pA, i * 6, fext, i * 6);
+            }
+        }
+
+        //inward pass: articulated body inertias and bias forces
+        for (int i = size - 1; i >= 0; i--)
+        {
+            int dof = S[i].length / 6;
+            int uIndex = dofOffset[i];
+
+            //Ui = IAi Si, Di = Si^T Ui, ui = taui - Si^T pAi
+            for (int k = 0; k < dof; k++)
+            {
+                SpatialArticulatedBodyInertiaTensor.transformSpatialVec(U, (uIndex + k) * 6, IA, i * ABI_SIZE, S[i], k * 6);
+            }
+            for (int j = 0; j < dof; j++)
+            {
+                for (int k = 0; k < dof; k++)
+                {
+                    tempD[j * dof + k] = dot(S[i], j * 6, U, (uIndex + k) * 6);
+                }
+                u[uIndex + j] = tau[uIndex + j] - dot(S[i], j * 6, pA, i * 6);
+            }
+            invert(Dinv, dinvOffset[i], tempD, dof);
+
+            if (lambda[i] == -1) continue;
+
+            //UDinv = Ui Di^-1
+            for (int k = 0; k < dof; k++)
+            {
+                for (int e = 0; e < 6; e++)
+                {
+                    float sum = 0;
+                    for (int j = 0; j < dof; j++)
+                    {
+                        sum += U[(uIndex + j) * 6 + e] * Dinv[dinvOffset[i] + j * dof + k];
+                    }
+                    UDinv[k * 6 + e] = sum;
+                }
+            }
+
+            //Ia = IAi - Ui Di^-1 Ui^T
+            System.arraycopy(IA, i * ABI_SIZE, tempIa, 0, ABI_SIZE);
+            for (int k = 0; k < dof; k++)
+            {
+                int uk = (uIndex + k) * 6;
+                for (int row = 0; row < 3; row++)
+                {
+                    float wr = UDinv[k * 6 + row];
+                    float vr = UDinv[k * 6 + row + 3];
+                    for (int col = 0; col < 3; col++)
+                    {
+                        tempIa[SpatialArticulatedBodyInertiaTensor.I + row * 3 + col] -= wr * U[uk + col];
+                        tempIa[SpatialArticulatedBodyInertiaTensor.H + row * 3 + col] -= wr * U[uk + col + 3];
+                        tempIa[SpatialArticulatedBodyInertiaTensor.M + row * 3 + col] -= vr * U[uk + col + 3];
+                    }
+                }
+            }
+
+            //pa = pAi + Ia ci + Ui Di^-1 ui
+            SpatialArticulatedBodyInertiaTensor.transformSpatialVec(tempv, 0, tempIa, 0, c, i * 6);
+            SpatialVec.add(tempv, 0, pA, i * 6);
+            for (int k = 0; k < dof; k++)
+            {
+                float uk = u[uIndex + k];
+                for (int e = 0; e < 6; e++)
+                {
+                    tempv[e] += UDinv[k * 6 + e] * uk;
+                }
+            }
+
+            //IAlambdai = IAlambdai + lambdaiXi* Ia iXlambdai
+            SpatialTransform.set(tempX, 0, X, i * X_SIZE);
+            SpatialTransform.transpose(tempXinv, tempX);
+            SpatialArticulatedBodyInertiaTensor.xstarIXinv(tempIA, tempXinv, tempIa);
+            SpatialArticulatedBodyInertiaTensor.add(IA, lambda[i] * ABI_SIZE, IA, lambda[i] * ABI_SIZE, tempIA, 0);
+
+            //pAlambdai = pAlambdai + lambdaiXi* pa
+            SpatialTransform.transformForceTranspose(tempv2, 0, X, i * X_SIZE, tempv, 0);
+            SpatialVec.add(pA, lambda[i] * 6, tempv2, 0);
+        }
+
+        //outward pass: accelerations
+        for (int i = 0; i < size; i++)
+        {
+            int dof = S[i].length / 6;
+            int uIndex = dofOffset[i];
+            int ai = (i + 1) * 6;
+
+            //a'i = iXlambdai alambdai + ci
+            SpatialTransform.transformMotion(a, ai, X, i * X_SIZE, a, (lambda[i] + 1) * 6);
+            SpatialVec.add(a, ai, c, i * 6);
+
+            //qddi = Di^-1 (ui - Ui^T a'i)
+            for (int j = 0; j < dof; j++)
+            {
+                tempu[j] = u[uIndex + j] - dot(U, (uIndex + j) * 6, a, ai);
+            }
+            for (int j = 0; j < dof; j++)
+            {
+                float sum = 0;
+                for (int k = 0; k < dof; k++)
+                {
+                    sum += Dinv[dinvOffset[i] + j * dof + k] * tempu[k];
+                }
+                qdd[uIndex + j] = sum;
+            }
+
+            //ai = a'i + Si qddi
+            for (int k = 0; k < dof; k++)
+            {
+                float qk = qdd[uIndex + k];
+                for (int e = 0; e < 6; e++)
+                {
+                    a[ai + e] += S[i][k * 6 + e] * qk;
+                }
+            }
+        }
+    }
+
+    /**
+     * Scalar product of a motion and a force vector
+     */
+    private static float dot(float[] m, int mIndex, float[] f, int fIndex)
+    {
+        return m[mIndex] * f[fIndex] + m[mIndex + 1] * f[fIndex + 1] + m[mIndex + 2] * f[fIndex + 2] + m[mIndex + 3] * f[fIndex + 3]
+                + m[mIndex + 4] * f[fIndex + 4] + m[mIndex + 5] * f[fIndex + 5];
+    }
 
+    /**
+     * Inverts the n x n matrix m (Gauss-Jordan elimination with partial pivoting), m is destroyed in the process
+     */
+    private static void invert(float[] dest, int dIndex, float[] m, int n)
+    {
+        for (int i = 0; i < n; i++)
+        {
+            for (int j = 0; j < n; j++)
+            {
+                dest[dIndex + i * n + j] = (i == j) ? 1f : 0f;
+            }
+        }
+        for (int col = 0; col < n; col++)
+        {
+            int pivot = col;
+            for (int row = col + 1; row < n; row++)
+            {
+                if (Math.abs(m[row * n + col]) > Math.abs(m[pivot * n + col])) pivot = row;
+            }
+            if (pivot != col)
+            {
+                for (int k = 0; k < n; k++)
+                {
+                    float t = m[col * n + k];
+                    m[col * n + k] = m[pivot * n + k];
+                    m[pivot * n + k] = t;
+                    t = dest[dIndex + col * n + k];
+                    dest[dIndex + col * n + k] = dest[dIndex + pivot * n + k];
+                    dest[dIndex + pivot * n + k] = t;
+                }
+            }
+            float p = 1f / m[col * n + col];
+            for (int k = 0; k < n; k++)
+            {
+                m[col * n + k] *= p;
+                dest[dIndex + col * n + k] *= p;
+            }
+            for (int row = 0; row < n; row++)
+            {
+                if (row == col) continue;
+                float f = m[row * n + col];
+                if (f == 0) continue;
+                for (int k = 0; k < n; k++)
+                {
+                    m[row * n + k] -= f * m[col * n + k];
+                    dest[dIndex + row * n + k] -= f * dest[dIndex + col * n + k];
+                }
+            }
+        }
+    }
 }
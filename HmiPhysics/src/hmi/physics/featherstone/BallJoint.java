@@ -25,11 +25,11 @@ package hmi.physics.featherstone;
 import hmi.math.Quat4f;
 import hmi.math.SpatialTransform;
 import hmi.math.SpatialVec;
-import hmi.math.Vec3f;
 
 public class BallJoint implements Joint
 {
-    float tempq[]=new float[4];
+    private float tempq[]=new float[4];
+    private final float zero[]=new float[3];
     
     /**
      * q is rotation quaternion, qdot = w
@@ -38,8 +38,18 @@ public class BallJoint implements Joint
     public void jcalc(float Xj[], float S[], float vj[], float cj[],float q[], float qdot[])
     {
         Quat4f.conjugate(tempq,q);
-        SpatialTransform.setFromQuat4fVec3f(Xj,q,Vec3f.getZero());
-        SpatialVec.set(vj, qdot, Vec3f.getZero());
+        SpatialTransform.setFromQuat4fVec3f(Xj,tempq,zero);
+        
+        //S = [1 
+        //     0]
+        for(int i=0;i<18;i++)
+        {
+            S[i]=0;
+        }
+        S[0]=1;
+        S[7]=1;
+        S[14]=1;
+        SpatialVec.set(vj, qdot, zero);
         SpatialVec.setZero(cj);        
     }
 
@@ -27,7 +27,7 @@ public interface Joint
     /**
      * Calculates Xj, S, vj, cj on the basis of joint DoF q and their velocity qdot
      * @param Xj output: spatial joint transform by q 
-     * @param S  output: joint motion subspace matrix (size 6xn)
+     * @param S  output: joint motion subspace matrix (size 6xn, stored column by column)
      * @param vj output: joint spatial velocity       (size 6)
      * @param cj output: velocity dependent spatial acceleration of the joint (size 6)
      * @param q    input: joint DoF values  (typically size n)
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+package hmi.physics.featherstone;
+
+import static org.junit.Assert.assertEquals;
+import hmi.math.Quat4f;
+import hmi.math.SpatialInertiaTensor;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit test for the ArticulatedBodySolver
+ */
+public class ArticulatedBodySolverTest
+{
+    private static final float PRECISION = 0.001f;
+
+    @Test
+    public void testSingleBody()
+    {
+        //single body rotating around its center of mass: tau = I qdd
+        float spatialI[] = new float[13];
+        float rotI[] = new float[] { 1, 0, 0, 0, 2, 0, 0, 0, 4 };
+        SpatialInertiaTensor.set(spatialI, rotI, 3);
+        ArticulatedBodySolver solver = new ArticulatedBodySolver(1, new float[3], spatialI, new int[] { -1 });
+
+        float qdd[] = new float[3];
+        solver.solve(qdd, new float[6], new float[6], Quat4f.getIdentity(), new float[3], new float[] { 1, 1, 1 });
+        assertEquals(1, qdd[0], PRECISION);
+        assertEquals(0.5, qdd[1], PRECISION);
+        assertEquals(0.25, qdd[2], PRECISION);
+    }
+
+    @Test
+    public void testGravityOnPendulum()
+    {
+        //no torque needed to keep a hanging pendulum at rest
+        float spatialI[] = new float[13];
+        float rotI[] = new float[] { 1, 0, 0, 0, 1, 0, 0, 0, 1 };
+        SpatialInertiaTensor.set(spatialI, rotI, new float[] { 0, -1, 0 }, 2);
+        ArticulatedBodySolver solver = new ArticulatedBodySolver(1, new float[3], spatialI, new int[] { -1 });
+
+        float qdd[] = new float[3];
+        solver.solve(qdd, new float[6], new float[] { 0, 0, 0, 0, 9.81f, 0 }, Quat4f.getIdentity(), new float[3], new float[3]);
+        assertEquals(0, qdd[0], PRECISION);
+        assertEquals(0, qdd[1], PRECISION);
+        assertEquals(0, qdd[2], PRECISION);
+    }
+
+    @Test
+    public void testConsistentWithRNEA()
+    {
+        //inverse dynamics of the forward dynamics solution should yield the original torques
+        Random random = new Random(42);
+        int parent[] = new int[] { -1, 0, 1, 1, 3 };
+        int n = parent.length;
+        float translations[] = new float[n * 3];
+        float spatialI[] = new float[n * 13];
+        float q[] = new float[n * 4];
+        float w[] = new float[n * 3];
+        float tau[] = new float[n * 3];
+        for (int i = 0; i < n; i++)
+        {
+            for (int j = 0; j < 3; j++)
+            {
+                translations[i * 3 + j] = random.nextFloat() - 0.5f;
+                w[i * 3 + j] = random.nextFloat() - 0.5f;
+                tau[i * 3 + j] = random.nextFloat() - 0.5f;
+            }
+            float rotI[] = new float[] { 0.5f + random.nextFloat(), 0, 0, 0, 0.5f + random.nextFloat(), 0, 0, 0, 0.5f + random.nextFloat() };
+            float com[] = new float[] { random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, random.nextFloat() - 0.5f };
+            float spI[] = new float[13];
+            SpatialInertiaTensor.set(spI, rotI, com, 1 + random.nextFloat());
+            System.arraycopy(spI, 0, spatialI, i * 13, 13);
+            Quat4f.setFromAxisAngle4f(q, i * 4, random.nextFloat(), random.nextFloat(), random.nextFloat(), random.nextFloat() * 2);
+        }
+        float v0[] = new float[6];
+        float a0[] = new float[] { 0, 0, 0, 0, 9.81f, 0 };
+
+        ArticulatedBodySolver aba = new ArticulatedBodySolver(n, translations, spatialI, parent);
+        float qdd[] = new float[n * 3];
+        aba.solve(qdd, v0, a0, q, w, tau);
+
+        RNEASolver rnea = new RNEASolver(n, translations, spatialI, parent);
+        float f[] = new float[n * 6];
+        rnea.solve(f, v0, a0, q, w, qdd);
+        for (int i = 0; i < n; i++)
+        {
+            for (int j = 0; j < 3; j++)
+            {
+                assertEquals(tau[i * 3 + j], f[i * 6 + j], PRECISION);
+            }
+        }
+    }
+}
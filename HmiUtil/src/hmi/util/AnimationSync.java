@@ -24,6 +24,7 @@ package hmi.util;
 
 /**
  * Singleton for synchronization between animation and render threads
+ * Skeleton poses can be passed from animation to render threads without this lock, by means of hmi.animation.MatrixExchange.
  * @author welberge
  */
 public final class AnimationSync implements Sync
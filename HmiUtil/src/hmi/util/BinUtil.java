@@ -72,9 +72,12 @@ public class BinUtil  {
    /**
     * Writes the length of the int array &quot;data&quot; followed by its elements
     * to dataOut. A null array is allowed, and writes only a length value equal to -1
+    * When dataOut is a BlockDataOutput, the elements are written as a separate block.
     */
    public static void writeIntArray(DataOutput dataOut, int[] data) throws IOException {
-      if (data == null) {
+      if (dataOut instanceof BlockDataOutput) {
+          ((BlockDataOutput) dataOut).writeIntBlock(data);
+      } else if (data == null) {
           dataOut.writeInt(-1);
       } else {
           dataOut.writeInt(data.length); 
@@ -88,6 +91,7 @@ public class BinUtil  {
     * written by &quot;writeIntArray&quot; Could return a null array value.
     */
    public static int[] readIntArray(DataInput dataIn) throws IOException  {
+      if (dataIn instanceof BlockDataInput) return ((BlockDataInput) dataIn).readIntBlock();
       int[] data = null;
       int size = dataIn.readInt();
       if (size >= 0) {
@@ -101,9 +105,12 @@ public class BinUtil  {
     /**
     * Writes the length of the float array &quot;data&quot; followed by its elements
     * to dataOut. A null array is allowed, and writes only a length value equal to -1
+    * When dataOut is a BlockDataOutput, the elements are written as a separate block.
     */
    public static void writeFloatArray(DataOutput dataOut, float[] data) throws IOException {
-      if (data == null) {
+      if (dataOut instanceof BlockDataOutput) {
+          ((BlockDataOutput) dataOut).writeFloatBlock(data);
+      } else if (data == null) {
           dataOut.writeInt(-1);
       } else {
           dataOut.writeInt(data.length); 
@@ -117,6 +124,7 @@ public class BinUtil  {
     * written by &quot;writeFloatArray&quot; Could return a null array value.
     */
    public static float[] readFloatArray(DataInput dataIn) throws IOException  {
+      if (dataIn instanceof BlockDataInput) return ((BlockDataInput) dataIn).readFloatBlock();
       float[] data = null;
       int size = dataIn.readInt();
       if (size >= 0) {
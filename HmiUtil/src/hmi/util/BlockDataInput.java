@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.util;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A DataInput for the block binary format, written by a BlockDataOutput. Ordinary data is read from the structure section,
+ * int and float arrays are bulk copied from the block section. When the underlying ByteBuffer is a MappedByteBuffer,
+ * array data is copied directly from the page cache, without intermediate decoding. Blocks can also be obtained as
+ * IntBuffer or FloatBuffer views, which avoids the copy altogether.
+ */
+public class BlockDataInput extends DataInputStream
+{
+    private final ByteBuffer blocks;
+
+    /**
+     * Creates a BlockDataInput for the encoding that starts at the current position of the buffer.
+     */
+    public BlockDataInput(ByteBuffer buffer) throws IOException
+    {
+        super(new ByteBufferInputStream(structureSection(buffer)));
+        ByteBuffer encoding = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        blocks = section(encoding, encoding.getInt(12), encoding.getInt(16)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Checks whether the buffer, from its current position onwards, contains an encoding written by BlockDataOutput.
+     */
+    public static boolean isBlockData(ByteBuffer buffer)
+    {
+        ByteBuffer b = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        return b.remaining() >= BlockDataOutput.HEADER_SIZE && b.getInt(0) == BlockDataOutput.MAGIC;
+    }
+
+    /* Checks the header, and returns the structure section */
+    private static ByteBuffer structureSection(ByteBuffer buffer) throws IOException
+    {
+        ByteBuffer encoding = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (!isBlockData(encoding)) throw new IOException("BlockDataInput: not a block binary encoding");
+        int version = encoding.getInt(4);
+        if (version != BlockDataOutput.VERSION) throw new IOException("BlockDataInput: unsupported version " + version);
+        int structureSize = encoding.getInt(8);
+        int blockOffset = encoding.getInt(12);
+        int blockSize = encoding.getInt(16);
+        if (structureSize < 0 || blockOffset < BlockDataOutput.HEADER_SIZE + structureSize || blockSize < 0
+                || (long) blockOffset + blockSize > encoding.capacity())
+        {
+            throw new IOException("BlockDataInput: corrupt or truncated header");
+        }
+        return section(encoding, BlockDataOutput.HEADER_SIZE, structureSize);
+    }
+
+    private static ByteBuffer section(ByteBuffer encoding, int offset, int size)
+    {
+        ByteBuffer b = encoding.duplicate();
+        b.limit(offset + size);
+        b.position(offset);
+        return b.slice();
+    }
+
+    /* Returns a little endian view on size bytes of the block section, starting at offset */
+    private ByteBuffer block(int offset, int size) throws IOException
+    {
+        if (offset < 0 || size < 0 || (long) offset + size > blocks.capacity())
+        {
+            throw new IOException("BlockDataInput: block out of range: offset " + offset + ", size " + size);
+        }
+        return section(blocks, offset, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Complement of BlockDataOutput.writeIntBlock: reads the length and offset of an int block, and returns a copy of its
+     * elements. Could return a null array value.
+     */
+    public int[] readIntBlock() throws IOException
+    {
+        int length = readInt();
+        if (length < 0) return null;
+        int[] data = new int[length];
+        block(readInt(), 4 * length).asIntBuffer().get(data);
+        return data;
+    }
+
+    /**
+     * Complement of BlockDataOutput.writeFloatBlock: reads the length and offset of a float block, and returns a copy of its
+     * elements. Could return a null array value.
+     */
+    public float[] readFloatBlock() throws IOException
+    {
+        int length = readInt();
+        if (length < 0) return null;
+        float[] data = new float[length];
+        block(readInt(), 4 * length).asFloatBuffer().get(data);
+        return data;
+    }
+
+    /**
+     * Reads the length and offset of an int block, and returns a view on the block, without copying.
+     * Could return null.
+     */
+    public IntBuffer readIntBlockView() throws IOException
+    {
+        int length = readInt();
+        if (length < 0) return null;
+        return block(readInt(), 4 * length).asIntBuffer();
+    }
+
+    /**
+     * Reads the length and offset of a float block, and returns a view on the block, without copying.
+     * When the underlying buffer is direct, for instance mapped, the view can be passed directly to OpenGL.
+     * Could return null.
+     */
+    public FloatBuffer readFloatBlockView() throws IOException
+    {
+        int length = readInt();
+        if (length < 0) return null;
+        return block(readInt(), 4 * length).asFloatBuffer();
+    }
+}
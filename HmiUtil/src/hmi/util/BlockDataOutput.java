@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A DataOutput for the block binary format. Ordinary data, like ints and UTF Strings, is written to a structure section,
+ * in the same (big endian) encoding as a DataOutputStream. Int and float arrays, written by BinUtil.writeIntArray and
+ * BinUtil.writeFloatArray, are stored in a separate block section instead, as 16 byte aligned, little endian blocks;
+ * the structure section contains only their length and block offset. A BlockDataInput can bulk copy such blocks
+ * from a (memory mapped) buffer, or wrap them as IntBuffers and FloatBuffers, rather than decoding them element by element.
+ * The data is kept in memory until writeTo is called.
+ */
+public class BlockDataOutput extends DataOutputStream
+{
+    /** Magic number, the bytes "HMIB", as little endian int */
+    public static final int MAGIC = 0x42494D48;
+    /** The version of the format, which is also the version of the binary scene format based upon it */
+    public static final int VERSION = 2;
+    /** Size of the file header: magic, version, structure size, block section offset, block section size, padding */
+    public static final int HEADER_SIZE = 32;
+    /** Alignment, in bytes, of the blocks, and of the block section */
+    public static final int ALIGNMENT = 16;
+
+    private final ByteArrayOutputStream structure;
+    private ByteBuffer blocks = ByteBuffer.allocate(65536).order(ByteOrder.LITTLE_ENDIAN);
+
+    public BlockDataOutput()
+    {
+        this(new ByteArrayOutputStream());
+    }
+
+    private BlockDataOutput(ByteArrayOutputStream structure)
+    {
+        super(structure);
+        this.structure = structure;
+    }
+
+    /**
+     * Writes the length of the int array, followed by the offset of a new block containing its elements.
+     * A null array is allowed, and writes only a length value equal to -1
+     */
+    public void writeIntBlock(int[] data) throws IOException
+    {
+        if (data == null)
+        {
+            writeInt(-1);
+            return;
+        }
+        writeInt(data.length);
+        writeInt(allocateBlock(4 * data.length));
+        blocks.asIntBuffer().put(data);
+        blocks.position(blocks.position() + 4 * data.length);
+    }
+
+    /**
+     * Writes the length of the float array, followed by the offset of a new block containing its elements.
+     * A null array is allowed, and writes only a length value equal to -1
+     */
+    public void writeFloatBlock(float[] data) throws IOException
+    {
+        if (data == null)
+        {
+            writeInt(-1);
+            return;
+        }
+        writeInt(data.length);
+        writeInt(allocateBlock(4 * data.length));
+        blocks.asFloatBuffer().put(data);
+        blocks.position(blocks.position() + 4 * data.length);
+    }
+
+    /* Aligns the block section, makes room for the specified number of bytes, and returns the block offset */
+    private int allocateBlock(int nrOfBytes)
+    {
+        int offset = (blocks.position() + ALIGNMENT - 1) & ~(ALIGNMENT - 1);
+        if (offset + nrOfBytes > blocks.capacity())
+        {
+            int capacity = blocks.capacity();
+            while (capacity < offset + nrOfBytes)
+            {
+                capacity *= 2;
+            }
+            ByteBuffer newBlocks = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+            blocks.flip();
+            newBlocks.put(blocks);
+            blocks = newBlocks;
+        }
+        blocks.position(offset);
+        return offset;
+    }
+
+    /**
+     * Returns the complete encoding, header, structure section and block section, as a (heap) ByteBuffer,
+     * flipped and ready for reading.
+     */
+    public ByteBuffer toByteBuffer() throws IOException
+    {
+        flush();
+        int structureSize = structure.size();
+        int blockOffset = (HEADER_SIZE + structureSize + ALIGNMENT - 1) & ~(ALIGNMENT - 1);
+        int blockSize = blocks.position();
+        ByteBuffer result = ByteBuffer.allocate(blockOffset + blockSize).order(ByteOrder.LITTLE_ENDIAN);
+        result.putInt(MAGIC).putInt(VERSION).putInt(structureSize).putInt(blockOffset).putInt(blockSize);
+        result.position(HEADER_SIZE);
+        result.put(structure.toByteArray());
+        result.position(blockOffset);
+        ByteBuffer blockData = blocks.duplicate();
+        blockData.flip();
+        result.put(blockData);
+        result.flip();
+        return result;
+    }
+
+    /**
+     * Writes the complete encoding to the specified file
+     */
+    public void writeTo(File file) throws IOException
+    {
+        ByteBuffer buffer = toByteBuffer();
+        FileOutputStream out = new FileOutputStream(file);
+        try
+        {
+            FileChannel channel = out.getChannel();
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+package hmi.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A hash based index from String keys, like ids or sids, to the nodes of some tree structure, used to replace
+ * recursive searches by constant time lookups. Keys need not be unique: a key can be associated with several nodes,
+ * in which case get returns null, and the caller should fall back on a search, in order to determine which of
+ * the nodes should be returned. The index is maintained incrementally by the tree, by means of add and remove.
+ */
+public final class PartIndex<T>
+{
+    /* maps a key to a node, or, for keys that are shared by several nodes, to a List of nodes */
+    private final HashMap<String, Object> map = new HashMap<>();
+
+    /**
+     * Associates the specified key with the specified node. Null keys are ignored.
+     */
+    @SuppressWarnings("unchecked")
+    public void add(String key, T node)
+    {
+        if (key == null) return;
+        Object entry = map.get(key);
+        if (entry == null)
+        {
+            map.put(key, node);
+        }
+        else if (entry instanceof Shared)
+        {
+            ((Shared<T>) entry).add(node);
+        }
+        else
+        {
+            Shared<T> shared = new Shared<>();
+            shared.add((T) entry);
+            shared.add(node);
+            map.put(key, shared);
+        }
+    }
+
+    /**
+     * Removes one association between the specified key and the specified node, if present. Null keys are ignored.
+     */
+    @SuppressWarnings("unchecked")
+    public void remove(String key, T node)
+    {
+        if (key == null) return;
+        Object entry = map.get(key);
+        if (entry == node)
+        {
+            map.remove(key);
+        }
+        else if (entry instanceof Shared)
+        {
+            Shared<T> shared = (Shared<T>) entry;
+            for (int i = 0; i < shared.size(); i++)
+            {
+                if (shared.get(i) == node)
+                {
+                    shared.remove(i);
+                    break;
+                }
+            }
+            if (shared.size() == 1) map.put(key, shared.get(0));
+        }
+    }
+
+    /**
+     * Returns the number of nodes associated with the specified key.
+     */
+    public int count(String key)
+    {
+        Object entry = key == null ? null : map.get(key);
+        if (entry == null) return 0;
+        if (entry instanceof Shared) return ((Shared<?>) entry).size();
+        return 1;
+    }
+
+    /**
+     * Returns the node associated with the specified key, provided that there is exactly one, else null.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(String key)
+    {
+        Object entry = key == null ? null : map.get(key);
+        if (entry == null || entry instanceof Shared) return null;
+        return (T) entry;
+    }
+
+    /**
+     * Returns the number of distinct keys.
+     */
+    public int size()
+    {
+        return map.size();
+    }
+
+    /**
+     * Removes all associations.
+     */
+    public void clear()
+    {
+        map.clear();
+    }
+
+    /**
+     * Returns the nodes associated with the specified key, in the order in which they were added.
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> getAll(String key)
+    {
+        Object entry = key == null ? null : map.get(key);
+        List<T> result = new ArrayList<>(2);
+        if (entry instanceof Shared)
+        {
+            result.addAll((Shared<T>) entry);
+        }
+        else if (entry != null)
+        {
+            result.add((T) entry);
+        }
+        return result;
+    }
+
+    /* The nodes for a key that is shared; a distinct class, so that trees of Lists can be indexed as well */
+    private static final class Shared<T> extends ArrayList<T>
+    {
+        private static final long serialVersionUID = 1L;
+
+        Shared()
+        {
+            super(2);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+
+package hmi.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for BlockDataOutput and BlockDataInput
+ */
+public class BlockDataIOTest
+{
+    private static final float PRECISION = 0.0001f;
+
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        BlockDataOutput out = new BlockDataOutput();
+        out.writeUTF("mesh");
+        BinUtil.writeIntArray(out, new int[] { 1, 2, 3 });
+        BinUtil.writeFloatArray(out, null);
+        out.writeInt(42);
+        BinUtil.writeFloatArray(out, new float[] { 0.5f, -1.5f });
+        ByteBuffer buffer = out.toByteBuffer();
+        assertTrue(BlockDataInput.isBlockData(buffer));
+
+        BlockDataInput in = new BlockDataInput(buffer);
+        assertEquals("mesh", in.readUTF());
+        assertArrayEquals(new int[] { 1, 2, 3 }, BinUtil.readIntArray(in));
+        assertNull(BinUtil.readFloatArray(in));
+        assertEquals(42, in.readInt());
+        assertArrayEquals(new float[] { 0.5f, -1.5f }, BinUtil.readFloatArray(in), PRECISION);
+    }
+
+    @Test
+    public void testBlockView() throws IOException
+    {
+        BlockDataOutput out = new BlockDataOutput();
+        out.writeFloatBlock(new float[] { 1, 2, 3, 4 });
+        BlockDataInput in = new BlockDataInput(out.toByteBuffer());
+        FloatBuffer view = in.readFloatBlockView();
+        assertEquals(4, view.remaining());
+        assertEquals(3, view.get(2), PRECISION);
+    }
+
+    @Test
+    public void testLargeBlocks() throws IOException
+    {
+        float[] data = new float[100000];
+        for (int i = 0; i < data.length; i++)
+        {
+            data[i] = i;
+        }
+        BlockDataOutput out = new BlockDataOutput();
+        out.writeFloatBlock(new float[] { 1 });
+        out.writeFloatBlock(data);
+        BlockDataInput in = new BlockDataInput(out.toByteBuffer());
+        assertArrayEquals(new float[] { 1 }, in.readFloatBlock(), PRECISION);
+        assertArrayEquals(data, in.readFloatBlock(), PRECISION);
+    }
+
+    @Test
+    public void testNoBlockData() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        BinUtil.writeFloatArray(out, new float[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+        assertFalse(BlockDataInput.isBlockData(ByteBuffer.wrap(bytes.toByteArray())));
+    }
+}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+package hmi.util;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for PartIndex
+ */
+public class PartIndexTest
+{
+    @Test
+    public void testSharedKeys()
+    {
+        PartIndex<String> index = new PartIndex<>();
+        index.add("a", "A1");
+        index.add(null, "X");
+        assertEquals("A1", index.get("a"));
+        assertEquals(1, index.count("a"));
+        index.add("a", "A2");
+        assertNull(index.get("a"));
+        assertEquals(2, index.count("a"));
+        assertEquals(Arrays.asList("A1", "A2"), index.getAll("a"));
+        index.remove("a", "A1");
+        assertEquals("A2", index.get("a"));
+        index.remove("a", "A2");
+        assertEquals(0, index.count("a"));
+        assertEquals(0, index.size());
+    }
+}
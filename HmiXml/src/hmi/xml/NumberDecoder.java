@@ -0,0 +1,357 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+package hmi.xml;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A NumberDecoder decodes white space separated ints, floats, and doubles directly from a CharSequence,
+ * like the StringBuilder that holds the CHARDATA of an XMLTokenizer. Unlike StringTokenizer combined with Float.parseFloat etc,
+ * no String is allocated per number. Plain decimal numbers, like 12, -0.5, or 1.25e-3, are parsed by a fast parser.
+ * Other encodings, like NaN, Infinity, or hexadecimal floats, and numbers with too many digits for the fast parser,
+ * fall back on the corresponding parse method from Integer, Float, or Double, so results are identical to
+ * Integer.parseInt, Float.parseFloat, and Double.parseDouble.
+ * Separators are the characters from XMLStructureAdapter.ATTRIBUTE_TOKEN_DELIMITERS, i.e. " \t\n\r\f".
+ */
+public final class NumberDecoder
+{
+    private CharSequence encoding;
+    private int pos;
+    private int end;
+
+    // result of the last call to parseDecimal
+    private long mantissa;
+    private int exponent;
+    private boolean negative;
+
+    private static final long MAX_MANTISSA = 1L << 53;
+    private static final long DIGIT_LIMIT = (Long.MAX_VALUE - 9) / 10;
+    private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15,
+            1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+    private static final long FLOAT_ROUNDING_MASK = (1L << 29) - 1; // double mantissa bits that are dropped when rounding to float
+    private static final long FLOAT_HALFWAY = 1L << 28;
+
+    /**
+     * Creates a NumberDecoder for the specified encoding.
+     */
+    public NumberDecoder(CharSequence encoding)
+    {
+        reset(encoding);
+    }
+
+    /**
+     * Restarts decoding, for a new encoding.
+     */
+    public void reset(CharSequence encoding)
+    {
+        this.encoding = encoding;
+        pos = 0;
+        end = encoding.length();
+    }
+
+    private static boolean isSeparator(char c)
+    {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f';
+    }
+
+    /**
+     * Skips separators, and checks whether there is a next number.
+     */
+    public boolean hasMoreTokens()
+    {
+        while (pos < end && isSeparator(encoding.charAt(pos)))
+        {
+            pos++;
+        }
+        return pos < end;
+    }
+
+    /**
+     * Counts the number of remaining tokens, without consuming them.
+     */
+    public int countTokens()
+    {
+        int count = 0;
+        boolean inToken = false;
+        for (int i = pos; i < end; i++)
+        {
+            if (isSeparator(encoding.charAt(i)))
+            {
+                inToken = false;
+            }
+            else if (!inToken)
+            {
+                inToken = true;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /*
+     * Skips to the next token, and returns its end position. pos is set to the token start.
+     */
+    private int nextTokenEnd()
+    {
+        if (!hasMoreTokens())
+        {
+            throw new NoSuchElementException();
+        }
+        int e = pos;
+        while (e < end && !isSeparator(encoding.charAt(e)))
+        {
+            e++;
+        }
+        return e;
+    }
+
+    private String token(int start, int tokenEnd)
+    {
+        return encoding.subSequence(start, tokenEnd).toString();
+    }
+
+    /**
+     * Decodes the next int
+     */
+    public int nextInt()
+    {
+        int tokenEnd = nextTokenEnd();
+        int start = pos;
+        pos = tokenEnd;
+        int i = start;
+        boolean neg = false;
+        char c = encoding.charAt(i);
+        if (c == '-' || c == '+')
+        {
+            neg = (c == '-');
+            i++;
+        }
+        int nrOfDigits = tokenEnd - i;
+        if (nrOfDigits == 0 || nrOfDigits > 9)
+        {
+            return Integer.parseInt(token(start, tokenEnd)); // long ints, or errors
+        }
+        int result = 0;
+        for (; i < tokenEnd; i++)
+        {
+            int d = encoding.charAt(i) - '0';
+            if (d < 0 || d > 9)
+            {
+                return Integer.parseInt(token(start, tokenEnd));
+            }
+            result = result * 10 + d;
+        }
+        return neg ? -result : result;
+    }
+
+    /**
+     * Decodes the next double
+     */
+    public double nextDouble()
+    {
+        int tokenEnd = nextTokenEnd();
+        int start = pos;
+        pos = tokenEnd;
+        if (parseDecimal(start, tokenEnd))
+        {
+            if (mantissa == 0)
+            {
+                return negative ? -0.0 : 0.0;
+            }
+            if (mantissa <= MAX_MANTISSA && exponent >= -22 && exponent <= 22)
+            {
+                // both the mantissa and the power of ten are exact doubles, so a single, correctly rounded, operation remains
+                double d = (exponent < 0) ? mantissa / POW10[-exponent] : mantissa * POW10[exponent];
+                return negative ? -d : d;
+            }
+        }
+        return Double.parseDouble(token(start, tokenEnd));
+    }
+
+    /**
+     * Decodes the next float
+     */
+    public float nextFloat()
+    {
+        int tokenEnd = nextTokenEnd();
+        int start = pos;
+        pos = tokenEnd;
+        if (parseDecimal(start, tokenEnd))
+        {
+            if (mantissa == 0)
+            {
+                return negative ? -0.0f : 0.0f;
+            }
+            if (mantissa <= MAX_MANTISSA && exponent >= -22 && exponent <= 22)
+            {
+                double d = (exponent < 0) ? mantissa / POW10[-exponent] : mantissa * POW10[exponent];
+                // d is the correctly rounded double; rounding d to float is correct as well, 
+                // unless d lies exactly halfway between two floats, or outside the normal float range.
+                if (d >= Float.MIN_NORMAL && d <= Float.MAX_VALUE
+                        && (Double.doubleToRawLongBits(d) & FLOAT_ROUNDING_MASK) != FLOAT_HALFWAY)
+                {
+                    float f = (float) d;
+                    return negative ? -f : f;
+                }
+            }
+        }
+        return Float.parseFloat(token(start, tokenEnd));
+    }
+
+    /*
+     * Parses a plain decimal number of the form [+-]digits[.digits][(e|E)[+-]digits] into mantissa, exponent, and negative.
+     * Returns false for other encodings, or when the number has too many digits.
+     */
+    private boolean parseDecimal(int start, int tokenEnd)
+    {
+        int i = start;
+        char c = encoding.charAt(i);
+        negative = false;
+        if (c == '-' || c == '+')
+        {
+            negative = (c == '-');
+            i++;
+        }
+        long m = 0;
+        int exp = 0;
+        boolean digits = false;
+        while (i < tokenEnd && (c = encoding.charAt(i)) >= '0' && c <= '9')
+        {
+            if (m > DIGIT_LIMIT)
+                return false;
+            m = m * 10 + (c - '0');
+            digits = true;
+            i++;
+        }
+        if (i < tokenEnd && encoding.charAt(i) == '.')
+        {
+            i++;
+            while (i < tokenEnd && (c = encoding.charAt(i)) >= '0' && c <= '9')
+            {
+                if (m > DIGIT_LIMIT)
+                    return false;
+                m = m * 10 + (c - '0');
+                exp--;
+                digits = true;
+                i++;
+            }
+        }
+        if (!digits)
+            return false;
+        if (i < tokenEnd && ((c = encoding.charAt(i)) == 'e' || c == 'E'))
+        {
+            i++;
+            if (i == tokenEnd)
+                return false;
+            boolean negExp = false;
+            c = encoding.charAt(i);
+            if (c == '-' || c == '+')
+            {
+                negExp = (c == '-');
+                i++;
+            }
+            if (i == tokenEnd)
+                return false;
+            int e = 0;
+            while (i < tokenEnd && (c = encoding.charAt(i)) >= '0' && c <= '9')
+            {
+                if (e > 1000)
+                    return false;
+                e = e * 10 + (c - '0');
+                i++;
+            }
+            exp += negExp ? -e : e;
+        }
+        if (i != tokenEnd)
+            return false; // suffixes like f or d, NaN, Infinity, hexadecimal floats
+        mantissa = m;
+        exponent = exp;
+        return true;
+    }
+
+    /**
+     * Decodes an int array from encoding.
+     * The ints array should be sufficiently large so that all tokens can be allocated,
+     * or else it should be null. In the latter case, a new int array
+     * is allocated with length equal to the number of tokens.
+     */
+    public static int[] decodeIntArray(CharSequence encoding, int[] ints)
+    {
+        NumberDecoder decoder = new NumberDecoder(encoding);
+        if (ints == null) ints = new int[decoder.countTokens()];
+        int decode = 0;
+        while (decoder.hasMoreTokens())
+        {
+            if (decode >= ints.length)
+            {
+                throw new RuntimeException("More ints than expected: " + decode);
+            }
+            ints[decode++] = decoder.nextInt();
+        }
+        return ints;
+    }
+
+    /**
+     * Decodes a float array from encoding.
+     * The floats array should be sufficiently large so that all tokens can be allocated,
+     * or else it should be null. In the latter case, a new float array
+     * is allocated with length equal to the number of tokens.
+     */
+    public static float[] decodeFloatArray(CharSequence encoding, float[] floats)
+    {
+        NumberDecoder decoder = new NumberDecoder(encoding);
+        if (floats == null) floats = new float[decoder.countTokens()];
+        int decode = 0;
+        while (decoder.hasMoreTokens())
+        {
+            if (decode >= floats.length)
+            {
+                throw new RuntimeException("More floats than expected: " + decode);
+            }
+            floats[decode++] = decoder.nextFloat();
+        }
+        return floats;
+    }
+
+    /**
+     * Decodes a double array from encoding.
+     * The doubles array should be sufficiently large so that all tokens can be allocated,
+     * or else it should be null. In the latter case, a new double array
+     * is allocated with length equal to the number of tokens.
+     */
+    public static double[] decodeDoubleArray(CharSequence encoding, double[] doubles)
+    {
+        NumberDecoder decoder = new NumberDecoder(encoding);
+        if (doubles == null) doubles = new double[decoder.countTokens()];
+        int decode = 0;
+        while (decoder.hasMoreTokens())
+        {
+            if (decode >= doubles.length)
+            {
+                throw new RuntimeException("More doubles than expected: " + decode);
+            }
+            doubles[decode++] = decoder.nextDouble();
+        }
+        return doubles;
+    }
+}
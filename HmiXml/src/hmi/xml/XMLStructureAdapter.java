@@ -171,7 +171,9 @@ public class XMLStructureAdapter implements XMLStructure
      */
     public XMLStructure readXML(File inFile) throws IOException
     {
-        return readXML(new XMLTokenizer(new BufferedReader(new FileReader(inFile))));
+        XMLTokenizer tokenizer = new XMLTokenizer(new BufferedReader(new FileReader(inFile)));
+        tokenizer.setBlockReading(true);
+        return readXML(tokenizer);
     }
 
     /**
@@ -180,7 +182,9 @@ public class XMLStructureAdapter implements XMLStructure
      */
     public XMLStructure readXML(File dir, String fileName) throws IOException
     {
-        return readXML(new XMLTokenizer(new BufferedReader(new FileReader(new File(dir, fileName)))));
+        XMLTokenizer tokenizer = new XMLTokenizer(new BufferedReader(new FileReader(new File(dir, fileName))));
+        tokenizer.setBlockReading(true);
+        return readXML(tokenizer);
     }
 
     /**
@@ -2288,12 +2292,29 @@ public class XMLStructureAdapter implements XMLStructure
         return decodeIntArray(encoding, null, delimiters);
     }
 
+    /**
+     * decodes a int array, encoded as white space separated values, like the CharSequence returned by XMLTokenizer.takeCharDataSequence().
+     */
+    public final static int[] decodeIntArray(CharSequence encoding)
+    {
+        return NumberDecoder.decodeIntArray(encoding, null);
+    }
+
     /**
      * equivalent to decodeIntArray(encoding, ints, ATTRIBUTE_TOKEN_DELIMITERS);
      */
     public final static int[] decodeIntArray(String encoding, int[] ints)
     {
-        return decodeIntArray(encoding, ints, ATTRIBUTE_TOKEN_DELIMITERS);
+        return NumberDecoder.decodeIntArray(encoding, ints);
+    }
+
+    /**
+     * decodes a int array, encoded as white space separated values, like the CharSequence returned by XMLTokenizer.takeCharDataSequence().
+     * No Strings are allocated for the separate values.
+     */
+    public final static int[] decodeIntArray(CharSequence encoding, int[] ints)
+    {
+        return NumberDecoder.decodeIntArray(encoding, ints);
     }
 
     /**
@@ -2305,6 +2326,7 @@ public class XMLStructureAdapter implements XMLStructure
      */
     public final static int[] decodeIntArray(String encoding, int[] ints, String delimiters)
     {
+        if (delimiters.equals(ATTRIBUTE_TOKEN_DELIMITERS)) return NumberDecoder.decodeIntArray(encoding, ints);
         int decode = 0;
         StringTokenizer tokenizer = new StringTokenizer(encoding, delimiters);
         if (ints == null) ints = new int[tokenizer.countTokens()];
@@ -2337,13 +2359,30 @@ public class XMLStructureAdapter implements XMLStructure
         return decodeFloatArray(encoding, null, delimiters);
     }
 
+    /**
+     * decodes a float array, encoded as white space separated values, like the CharSequence returned by XMLTokenizer.takeCharDataSequence().
+     */
+    public final static float[] decodeFloatArray(CharSequence encoding)
+    {
+        return NumberDecoder.decodeFloatArray(encoding, null);
+    }
+
     /**
      * equivalent to decodeFloatArray(encoding, floats, ATTRIBUTE_TOKEN_DELIMITERS);
      * (i.e. attribute tokens have to be separated by white space)
      */
     public final static float[] decodeFloatArray(String encoding, float[] floats)
     {
-        return decodeFloatArray(encoding, floats, ATTRIBUTE_TOKEN_DELIMITERS);
+        return NumberDecoder.decodeFloatArray(encoding, floats);
+    }
+
+    /**
+     * decodes a float array, encoded as white space separated values, like the CharSequence returned by XMLTokenizer.takeCharDataSequence().
+     * No Strings are allocated for the separate values.
+     */
+    public final static float[] decodeFloatArray(CharSequence encoding, float[] floats)
+    {
+        return NumberDecoder.decodeFloatArray(encoding, floats);
     }
 
     /**
@@ -2355,6 +2394,7 @@ public class XMLStructureAdapter implements XMLStructure
      */
     public final static float[] decodeFloatArray(String encoding, float[] floats, String delimiters)
     {
+        if (delimiters.equals(ATTRIBUTE_TOKEN_DELIMITERS)) return NumberDecoder.decodeFloatArray(encoding, floats);
         int decode = 0;
         StringTokenizer tokenizer = new StringTokenizer(encoding, delimiters);
         if (floats == null) floats = new float[tokenizer.countTokens()];
@@ -2405,6 +2445,7 @@ public class XMLStructureAdapter implements XMLStructure
      */
     public final static double[] decodeDoubleArray(String encoding, double[] doubles, String delimiters)
     {
+        if (delimiters.equals(ATTRIBUTE_TOKEN_DELIMITERS)) return NumberDecoder.decodeDoubleArray(encoding, doubles);
         int decode = 0;
         StringTokenizer tokenizer = new StringTokenizer(encoding, delimiters);
         if (doubles == null) doubles = new double[tokenizer.countTokens()];
@@ -2514,7 +2555,7 @@ public class XMLStructureAdapter implements XMLStructure
         int count = Integer.parseInt(attrValue);
         int[] result = new int[count];
         tokenizer.takeSTag(tagName);
-        decodeIntArray(tokenizer.takeOptionalCharData(), result);
+        decodeIntArray(tokenizer.takeOptionalCharDataSequence(), result);
         tokenizer.takeETag(tagName);
         return result;
     }
@@ -2529,7 +2570,7 @@ public class XMLStructureAdapter implements XMLStructure
         int count = Integer.parseInt(attrValue);
         float[] result = new float[count];
         tokenizer.takeSTag(tagName);
-        decodeFloatArray(tokenizer.takeOptionalCharData(), result);
+        decodeFloatArray(tokenizer.takeOptionalCharDataSequence(), result);
         tokenizer.takeETag(tagName);
         return result;
     }
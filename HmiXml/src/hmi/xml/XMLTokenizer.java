@@ -111,6 +111,7 @@ public class XMLTokenizer
     public static final boolean RECOGNIZENAMESPACES = true;
     public static final boolean LOG = false;
     public static final int SECTIONBUFSIZE = 4096; // initial size of section buffer StringBuilder
+    public static final int WINDOWSIZE = 65536; // size of the char window used in block reading mode
     public static final int DISCARDED_TOKEN_LIMIT = 5; // max number of discarded tokens shown i one recoverX call
 
     private static Logger logger = LoggerFactory.getLogger("hmi.xml.XMLTokenizer");
@@ -473,6 +474,10 @@ public class XMLTokenizer
         {
             this.in = new BufferedReader(in);
         }
+        window = null; // buffered chars belong to the old reader, which might be restored by popState
+        windowPos = 0;
+        windowLen = 0;
+        windowMark = -1;
         initState();
         return oldreader;
     }
@@ -870,7 +875,7 @@ public class XMLTokenizer
 
 
     private void setupSectionBuffer() throws IOException {
-        in.reset(); // we are about to begin the first character after the '<'. 
+        resetInput(); // we are about to begin the first character after the '<'. 
         setSectionBuffering(true);
         clearSectionBuffer();
         sectionBuffer.append('<');
@@ -1037,7 +1042,7 @@ public class XMLTokenizer
                 nextParsedChar();
             }
             setTokenPos();
-            in.mark(4096);
+            markInput();
             // use ci, not ch, for classification; ch could be '<' because of an &lt; pattern in input stream)
             if (ci == '<')
             { // STAG, ETAG, PI, or decl
@@ -1065,10 +1070,17 @@ public class XMLTokenizer
             else
             { // proper CHARDATA, not ignorable
                 clearBuffer(charDataBuffer);
-                while (ci != '<' && ci != EOS)
+                if (blockReading)
                 {
-                    charDataBuffer.append(ch);
-                    nextParsedChar();
+                    scanCharData();
+                }
+                else
+                {
+                    while (ci != '<' && ci != EOS)
+                    {
+                        charDataBuffer.append(ch);
+                        nextParsedChar();
+                    }
                 }
                 token = CHARDATA;
                 // tokenMode remains CHARDATA_MODE
@@ -1754,6 +1766,32 @@ public class XMLTokenizer
         return oldvalue;
     }
 
+    /**
+     * returns the current block reading mode.
+     */
+    public final boolean getBlockReading()
+    {
+        return blockReading;
+    }
+
+    /**
+     * Sets the block reading mode, and returns the previous setting. 
+     * In block reading mode, the XMLTokenizer reads its input in large blocks into an internal char window, and scans CHARDATA by index within this
+     * window. This is considerably faster for large documents, like Collada files and SkeletonInterpolators, but it implies that the Reader is read
+     * ahead of the current token, so the Reader should not be shared with other processes. Switching block reading off is not possible while
+     * characters that have been read ahead are still pending.
+     */
+    public final boolean setBlockReading(boolean block)
+    {
+        boolean oldvalue = blockReading;
+        if (!block && blockReading && windowPos < windowLen)
+        {
+            throw new IllegalStateException("XMLTokenizer: cannot switch off block reading while input is buffered");
+        }
+        blockReading = block;
+        return oldvalue;
+    }
+
     /**
      * returns the current status of recognizeNamespace status.
      */
@@ -2071,6 +2109,59 @@ public class XMLTokenizer
         return piDataBuffer.toString();
     }
 
+    /*
+     * Block reading variant of the CHARDATA loop in parseCharData. Plain characters are scanned by index within the window, and appended to
+     * charDataBuffer (and sectionBuffer) as a single slice. Only '&' and the end of the window are handled by nextParsedChar. 
+     * pre: ch contains the first CHARDATA character. post: ci = '<' or EOS, as for the character by character loop.
+     */
+    private void scanCharData() throws IOException
+    {
+        charDataBuffer.append(ch);
+        while (true)
+        {
+            char[] w = window;
+            int start = windowPos;
+            int end = windowLen;
+            int p = start;
+            int lastNewline = -1;
+            int newlines = 0;
+            while (p < end)
+            {
+                char c = w[p];
+                if (c == '<' || c == '&')
+                    break;
+                if (c == '\n')
+                {
+                    newlines++;
+                    lastNewline = p;
+                }
+                p++;
+            }
+            if (p > start)
+            {
+                charDataBuffer.append(w, start, p - start);
+                if (sectionBuffering)
+                {
+                    sectionBuffer.append(w, start, p - start);
+                }
+                if (newlines > 0)
+                {
+                    line += newlines;
+                    charPos = p - lastNewline - 1;
+                }
+                else
+                {
+                    charPos += p - start;
+                }
+                windowPos = p;
+            }
+            nextParsedChar(); // '<', an entity reference, EOS, or the first char of the next window
+            if (ci == '<' || ci == EOS)
+                return;
+            charDataBuffer.append(ch);
+        }
+    }
+
     /**
      * Reads the current CHARDATA.
      * 
@@ -2246,6 +2337,42 @@ public class XMLTokenizer
         return result;
     }
 
+    /**
+     * Like takeCharData, except that the CHARDATA is not converted into a String.
+     * The CharSequence returned is the internal buffer of this XMLTokenizer, so it is valid only until the next token is read.
+     * It is meant for decoding large amounts of CHARDATA, for instance by means of a NumberDecoder.
+     */
+    public final CharSequence takeCharDataSequence() throws IOException
+    {
+        if (!atCharData())
+        {
+            throw getXMLScanException("The XMLTokenizer was not at an CHARDATA token");
+        }
+        tokenConsumed = true;
+        return charDataBuffer;
+    }
+
+    /**
+     * Like takeOptionalCharData, except that the CHARDATA is not converted into a String.
+     * The CharSequence returned is valid only until the next token is read.
+     */
+    public final CharSequence takeOptionalCharDataSequence() throws IOException
+    {
+        if (atCharData())
+        {
+            tokenConsumed = true;
+            return charDataBuffer;
+        }
+        else if (atETag())
+        {
+            return "";
+        }
+        else
+        {
+            throw getXMLScanException("The XMLTokenizer was not at a CHARDATA position");
+        }
+    }
+
     public final String takeOptionalCharData() throws IOException
     {
         if (atCharData())
@@ -2447,7 +2574,21 @@ public class XMLTokenizer
      */
     private int nextChar() throws IOException
     {
-        ci = in.read();
+        if (blockReading)
+        {
+            if (windowPos < windowLen || fillWindow())
+            {
+                ci = window[windowPos++];
+            }
+            else
+            {
+                ci = EOS;
+            }
+        }
+        else
+        {
+            ci = in.read();
+        }
         charPos++;
         if (sectionBuffering)
         {
@@ -2461,6 +2602,76 @@ public class XMLTokenizer
         return ci;
     }
 
+    /*
+     * Refills the window from "in", returns false when the end of the stream has been reached.
+     * Characters from an active mark onwards are preserved, unless more than MARKLIMIT characters have been read since the mark.
+     */
+    private boolean fillWindow() throws IOException
+    {
+        if (in == null)
+            return false;
+        if (window == null)
+        {
+            window = new char[WINDOWSIZE];
+        }
+        if (windowMark >= 0 && windowPos - windowMark > MARKLIMIT)
+        {
+            windowMark = -1;
+        }
+        if (windowMark >= 0)
+        {
+            int keep = windowLen - windowMark;
+            System.arraycopy(window, windowMark, window, 0, keep);
+            windowPos -= windowMark;
+            windowLen = keep;
+            windowMark = 0;
+        }
+        else
+        {
+            windowPos = 0;
+            windowLen = 0;
+        }
+        int n = in.read(window, windowLen, window.length - windowLen);
+        if (n <= 0)
+            return false;
+        windowLen += n;
+        return true;
+    }
+
+    /*
+     * marks the current input position, so that resetInput can return to it, as long as no more than MARKLIMIT characters are read.
+     */
+    private void markInput() throws IOException
+    {
+        if (blockReading)
+        {
+            windowMark = windowPos;
+        }
+        else
+        {
+            in.mark(MARKLIMIT);
+        }
+    }
+
+    /*
+     * resets the input to the position of the last markInput call.
+     */
+    private void resetInput() throws IOException
+    {
+        if (blockReading)
+        {
+            if (windowMark < 0)
+            {
+                throw new IOException("Mark invalid");
+            }
+            windowPos = windowMark;
+        }
+        else
+        {
+            in.reset();
+        }
+    }
+
     /*
      * reads the ci character from the input stream, translates entity references like &lt; and fills the character ch. ci contains the last raw
      * character from "in"; ch contains the last parsed character, so for instance, when the input contains &gt;, ci contains ';', and ch contains
@@ -2742,6 +2953,17 @@ public class XMLTokenizer
      */
     private BufferedReader in; // the "current input stream", in Reader format.
 
+    /*
+     * In block reading mode, "in" is read in blocks into the window array. Characters window[windowPos] up to window[windowLen] have been read from
+     * "in", but have not been processed yet. windowMark is the window position of the last markInput call, or -1 when there is no valid mark.
+     */
+    private boolean blockReading = false;
+    private char[] window;
+    private int windowPos;
+    private int windowLen;
+    private int windowMark = -1;
+    private static final int MARKLIMIT = 4096;
+
     /*
      * url and/or file are the URL and/or File (if applicable) corresponding to the current Reader.
      */
@@ -2943,6 +3165,11 @@ public class XMLTokenizer
     private class TokenizerState
     {
         private BufferedReader inState;
+        private boolean blockReadingState;
+        private char[] windowState;
+        private int windowPosState;
+        private int windowLenState;
+        private int windowMarkState;
         private URL urlState;
         private File fileState;
         private String resourceRootState;
@@ -2964,6 +3191,11 @@ public class XMLTokenizer
         void copyState()
         {
             inState = in;
+            blockReadingState = blockReading;
+            windowState = window;
+            windowPosState = windowPos;
+            windowLenState = windowLen;
+            windowMarkState = windowMark;
             urlState = url;
             fileState = file;
             resourceRootState = resourceRoot;
@@ -2986,6 +3218,11 @@ public class XMLTokenizer
         public void restoreState()
         {
             in = inState;
+            blockReading = blockReadingState;
+            window = windowState;
+            windowPos = windowPosState;
+            windowLen = windowLenState;
+            windowMark = windowMarkState;
             url = urlState;
             file = fileState;
             resourceRoot = resourceRootState;
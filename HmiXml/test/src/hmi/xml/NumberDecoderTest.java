@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * The MIT License (MIT)
+ * Copyright (c) 2015 University of Twente
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *******************************************************************************/
+package hmi.xml;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * JUnit test for hmi.xml.NumberDecoder
+ */
+public class NumberDecoderTest
+{
+    private static final String[] NUMBERS = { "0", "-0", "+1", "1.5", "-2.25", "0.1", "3.14159265358979", "1e10", "1E-5", "-1.5e+3",
+            "123456789", "0.000123456789", "1.0000000596046448", "16777217", "9007199254740993", "1e23", "1e-50", "1e40", "1.4e-45",
+            "3.4028235e38", "NaN", "-Infinity", "1f", "2.5d", ".5", "5.", "0x1.8p1", "00012", "12345678901234567890" };
+
+    @Test
+    public void testFloats()
+    {
+        for (String number : NUMBERS)
+        {
+            NumberDecoder decoder = new NumberDecoder(" " + number + "\n");
+            assertEquals(number, Float.floatToIntBits(Float.parseFloat(number)), Float.floatToIntBits(decoder.nextFloat()));
+            assertFalse(decoder.hasMoreTokens());
+        }
+    }
+
+    @Test
+    public void testDoubles()
+    {
+        for (String number : NUMBERS)
+        {
+            NumberDecoder decoder = new NumberDecoder(number);
+            assertEquals(number, Double.doubleToLongBits(Double.parseDouble(number)), Double.doubleToLongBits(decoder.nextDouble()));
+        }
+    }
+
+    @Test
+    public void testRandomFloats()
+    {
+        Random random = new Random(1);
+        StringBuilder buf = new StringBuilder();
+        float[] expected = new float[10000];
+        for (int i = 0; i < expected.length; i++)
+        {
+            float f = (random.nextFloat() - 0.5f) * (float) Math.pow(10, random.nextInt(12) - 6);
+            String s = (i % 2 == 0) ? Float.toString(f) : String.format("%.9f", f);
+            expected[i] = Float.parseFloat(s);
+            buf.append(s).append(i % 16 == 0 ? "\r\n" : "\t ");
+        }
+        float[] floats = NumberDecoder.decodeFloatArray(buf, null);
+        assertEquals(expected.length, floats.length);
+        for (int i = 0; i < expected.length; i++)
+        {
+            assertEquals(Float.floatToIntBits(expected[i]), Float.floatToIntBits(floats[i]));
+        }
+    }
+
+    @Test
+    public void testInts()
+    {
+        int[] ints = NumberDecoder.decodeIntArray("  1 -2 +3 \n 123456789 2147483647 -2147483648 0007 ", null);
+        assertArrayEquals(new int[] { 1, -2, 3, 123456789, Integer.MAX_VALUE, Integer.MIN_VALUE, 7 }, ints);
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testIntOverflow()
+    {
+        new NumberDecoder("2147483648").nextInt();
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testIllegalFloat()
+    {
+        new NumberDecoder("1.2.3").nextFloat();
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testNoMoreTokens()
+    {
+        new NumberDecoder("  \n ").nextFloat();
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testTooManyFloats()
+    {
+        NumberDecoder.decodeFloatArray("1 2 3", new float[2]);
+    }
+
+    @Test
+    public void testCountTokens()
+    {
+        NumberDecoder decoder = new NumberDecoder(" 1 2\t3\n4 ");
+        assertEquals(4, decoder.countTokens());
+        assertTrue(decoder.hasMoreTokens());
+        assertEquals(1, decoder.nextInt());
+        assertEquals(3, decoder.countTokens());
+    }
+
+    @Test
+    public void testTokenizerCharData() throws Exception
+    {
+        XMLTokenizer tokenizer = new XMLTokenizer("<floats> 1.5 2.5\n -3 </floats>");
+        tokenizer.takeSTag("floats");
+        float[] floats = XMLStructureAdapter.decodeFloatArray(tokenizer.takeCharDataSequence(), new float[3]);
+        tokenizer.takeETag("floats");
+        assertArrayEquals(new float[] { 1.5f, 2.5f, -3f }, floats, 0f);
+    }
+}
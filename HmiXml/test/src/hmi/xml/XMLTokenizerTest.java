@@ -668,4 +668,92 @@ public class XMLTokenizerTest
         tokenizer.takeSTag("test");
         assertEquals("", tokenizer.getXMLSectionContent());
     }
+
+    /*
+     * A large document, spanning several block reading windows, with entity references and multi-line char data
+     */
+    private String largeDocument()
+    {
+        StringBuilder buf = new StringBuilder();
+        buf.append("<?xml version=\"1.0\"?>\n<root attr=\"a &amp; b\">\n");
+        for (int i = 0; i < 3000; i++)
+        {
+            buf.append("   <item id=\"").append(i).append("\">\n");
+            buf.append("      ").append(i * 0.5f).append(' ').append(-i).append(" &lt;").append(i).append("&gt; &quot;q&apos;\n      next line\n");
+            buf.append("   </item>\n");
+            buf.append("   <empty a=\"x\"/>\n");
+        }
+        buf.append("</root>\n");
+        return buf.toString();
+    }
+
+    private String tokenLog(XMLTokenizer tokenizer) throws IOException
+    {
+        StringBuilder log = new StringBuilder();
+        while (!tokenizer.atEndOfDocument())
+        {
+            log.append(tokenizer.getTokenLine()).append(':').append(tokenizer.getTokenCharPos()).append(' ');
+            if (tokenizer.atSTag())
+            {
+                log.append("STAG ").append(tokenizer.getTagName()).append(tokenizer.getAttributes());
+                tokenizer.takeSTag();
+            }
+            else if (tokenizer.atETag())
+            {
+                log.append("ETAG ").append(tokenizer.takeETag());
+            }
+            else
+            {
+                log.append("CHARDATA ").append(tokenizer.takeCharData());
+            }
+            log.append(" ").append(tokenizer.getLine()).append(':').append(tokenizer.getCharPos()).append('\n');
+        }
+        return log.toString();
+    }
+
+    @Test
+    public void blockReadingTest() throws IOException
+    {
+        String doc = largeDocument();
+        assertTrue(doc.length() > 2 * XMLTokenizer.WINDOWSIZE);
+        String expected = tokenLog(new XMLTokenizer(doc));
+        XMLTokenizer tokenizer = new XMLTokenizer(doc);
+        assertFalse(tokenizer.setBlockReading(true));
+        assertTrue(tokenizer.getBlockReading());
+        assertEquals(expected, tokenLog(tokenizer));
+    }
+
+    @Test
+    public void blockReadingLargeCharDataTest() throws IOException
+    {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 50000; i++)
+        {
+            buf.append(i).append(i % 10 == 0 ? '\n' : ' ');
+        }
+        String charData = buf.toString();
+        XMLTokenizer tokenizer = new XMLTokenizer("<floats>" + charData + "x &lt; y</floats>");
+        tokenizer.setBlockReading(true);
+        tokenizer.takeSTag("floats");
+        assertEquals(charData + "x < y", tokenizer.takeCharData());
+        tokenizer.takeETag("floats");
+        assertTrue(tokenizer.atEndOfDocument());
+    }
+
+    @Test
+    public void blockReadingXMLSectionTest() throws IOException
+    {
+        String doc = largeDocument();
+        XMLTokenizer tokenizer = new XMLTokenizer("<test>" + doc.substring(doc.indexOf("<root")) + "<tail/></test>");
+        tokenizer.setBlockReading(true);
+        tokenizer.takeSTag("test");
+        String section = tokenizer.getXMLSection();
+        assertTrue(section.startsWith("<root attr=\"a &amp; b\">"));
+        assertTrue(section.endsWith("</root>"));
+        assertEquals(doc.substring(doc.indexOf("<root"), doc.lastIndexOf('>') + 1), section);
+        tokenizer.takeSTag("tail");
+        tokenizer.takeETag("tail");
+        tokenizer.takeETag("test");
+        assertTrue(tokenizer.atEndOfDocument());
+    }
 }